@@ -38,7 +38,6 @@ import cn.nukkit.level.ChunkLoader;
 import cn.nukkit.level.Level;
 import cn.nukkit.level.Location;
 import cn.nukkit.level.Position;
-import cn.nukkit.level.format.Chunk;
 import cn.nukkit.level.format.FullChunk;
 import cn.nukkit.level.format.generic.BaseFullChunk;
 import cn.nukkit.level.particle.CriticalParticle;
@@ -61,6 +60,7 @@ import cn.nukkit.plugin.Plugin;
 import cn.nukkit.potion.Effect;
 import cn.nukkit.potion.Potion;
 import cn.nukkit.utils.Binary;
+import cn.nukkit.utils.LongObjectHashMap;
 import cn.nukkit.utils.TextFormat;
 import cn.nukkit.utils.Zlib;
 
@@ -147,10 +147,10 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
 
     protected float stepHeight = 0.6f;
 
-    public Map<String, Boolean> usedChunks = new HashMap<>();
+    public LongObjectHashMap<Boolean> usedChunks = new LongObjectHashMap<>();
 
     protected int chunkLoadCount = 0;
-    protected Map<String, Integer> loadQueue = new HashMap<>();
+    protected LongObjectHashMap<Integer> loadQueue = new LongObjectHashMap<>();
     protected int nextChunkOrderRun = 5;
 
     protected Map<UUID, Player> hiddenPlayers = new HashMap<>();
@@ -160,6 +160,11 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
     protected int viewDistance;
     protected int chunksPerTick;
     protected int spawnThreshold;
+    protected int chunkBacklogLimit;
+
+    protected int ping = -1;
+    protected long bandwidth = 0;
+    protected int sendBacklog = 0;
 
     private Position spawnPosition = null;
 
@@ -424,6 +429,7 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         this.loaderId = Level.generateChunkLoaderId(this);
         this.chunksPerTick = (int) this.server.getConfig("chunk-sending.per-tick", 4);
         this.spawnThreshold = (int) this.server.getConfig("chunk-sending.spawn-threshold", 56);
+        this.chunkBacklogLimit = (int) this.server.getConfig("chunk-sending.backlog-limit", 256);
         this.spawnPosition = null;
         this.gamemode = this.server.getGamemode();
         this.setLevel(this.server.getDefaultLevel());
@@ -484,14 +490,11 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
     protected boolean switchLevel(Level targetLevel) {
         Level oldLevel = this.level;
         if (super.switchLevel(targetLevel)) {
-            for (String index : new ArrayList<>(this.usedChunks.keySet())) {
-                Chunk.Entry chunkEntry = Level.getChunkXZ(index);
-                int chunkX = chunkEntry.chunkX;
-                int chunkZ = chunkEntry.chunkZ;
-                this.unloadChunk(chunkX, chunkZ, oldLevel);
+            for (long index : this.usedChunks.keys()) {
+                this.unloadChunk(Level.getChunkKeyX(index), Level.getChunkKeyZ(index), oldLevel);
             }
 
-            this.usedChunks = new HashMap<>();
+            this.usedChunks.clear();
             SetTimePacket pk = new SetTimePacket();
             pk.time = this.level.getTime();
             pk.started = !this.level.stopTime;
@@ -507,7 +510,7 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
 
     public void unloadChunk(int x, int z, Level level) {
         level = level == null ? this.level : level;
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
         if (this.usedChunks.containsKey(index)) {
             for (Entity entity : level.getChunkEntities(x, z).values()) {
                 if (!entity.equals(this)) {
@@ -529,12 +532,39 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         }
     }
 
+    /**
+     * Round trip time to the client in milliseconds, or -1 while it is not known yet.
+     */
+    public int getPing() {
+        return this.ping;
+    }
+
+    /**
+     * Bytes per second the client has been acknowledging lately.
+     */
+    public long getBandwidth() {
+        return this.bandwidth;
+    }
+
+    /**
+     * Datagrams the network layer could not send yet because the connection is saturated.
+     */
+    public int getSendBacklog() {
+        return this.sendBacklog;
+    }
+
+    public void setNetworkStats(int ping, long bandwidth, int sendBacklog) {
+        this.ping = ping;
+        this.bandwidth = bandwidth;
+        this.sendBacklog = sendBacklog;
+    }
+
     public void sendChunk(int x, int z, DataPacket packet) {
         if (!this.connected) {
             return;
         }
 
-        this.usedChunks.put(Level.chunkHash(x, z), true);
+        this.usedChunks.put(Level.chunkKey(x, z), true);
         this.chunkLoadCount++;
 
         this.dataPacket(packet);
@@ -557,7 +587,7 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
             return;
         }
 
-        this.usedChunks.put(Level.chunkHash(x, z), true);
+        this.usedChunks.put(Level.chunkKey(x, z), true);
         this.chunkLoadCount++;
 
         FullChunkDataPacket pk = new FullChunkDataPacket();
@@ -583,15 +613,19 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         }
 
         int count = 0;
+        int limit = this.chunksPerTick;
+        if (this.sendBacklog > 0) {
+            //the connection is not keeping up, only keep it fed until the backlog drains
+            limit = this.sendBacklog > this.chunkBacklogLimit ? 0 : Math.max(1, limit / 2);
+        }
 
-        for (String index : new ArrayList<>(this.loadQueue.keySet())) {
-            if (count >= this.chunksPerTick) {
+        for (long index : this.loadQueue.keys()) {
+            if (count >= limit) {
                 break;
             }
 
-            Chunk.Entry chunkEntry = Level.getChunkXZ(index);
-            int chunkX = chunkEntry.chunkX;
-            int chunkZ = chunkEntry.chunkZ;
+            int chunkX = Level.getChunkKeyX(index);
+            int chunkZ = Level.getChunkKeyZ(index);
 
             ++count;
 
@@ -672,11 +706,8 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
 
         this.noDamageTicks = 60;
 
-        for (String index : this.usedChunks.keySet()) {
-            Chunk.Entry chunkEntry = Level.getChunkXZ(index);
-            int chunkX = chunkEntry.chunkX;
-            int chunkZ = chunkEntry.chunkZ;
-            for (Entity entity : this.level.getChunkEntities(chunkX, chunkZ).values()) {
+        for (long index : this.usedChunks.keys()) {
+            for (Entity entity : this.level.getChunkEntities(Level.getChunkKeyX(index), Level.getChunkKeyZ(index)).values()) {
                 if (!this.equals(entity) && !entity.closed && entity.isAlive()) {
                     entity.spawnTo(this);
                 }
@@ -720,8 +751,8 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         //todo: low memory triggle?
         //viewDistance = this.server.getMemoryManager().getViewDistance(this.viewDistance);
 
-        Map<String, Integer> newOrder = new HashMap<>();
-        Map<String, Boolean> lastChunk = new HashMap<>(this.usedChunks);
+        LongObjectHashMap<Integer> newOrder = new LongObjectHashMap<>();
+        LongObjectHashMap<Boolean> lastChunk = new LongObjectHashMap<>(this.usedChunks);
 
         int centerX = (int) this.x >> 4;
         int centerZ = (int) this.z >> 4;
@@ -736,8 +767,9 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
             int chunkX = x + centerX;
             int chunkZ = z + centerZ;
 
-            String index;
-            if (!(this.usedChunks.containsKey(index = Level.chunkHash(chunkX, chunkZ))) || !this.usedChunks.get(index)) {
+            long index = Level.chunkKey(chunkX, chunkZ);
+            Boolean used = this.usedChunks.get(index);
+            if (used == null || !used) {
                 newOrder.put(index, Math.abs(((int) this.x >> 4) - chunkX) + Math.abs(((int) this.z >> 4) - chunkZ));
             }
             lastChunk.remove(index);
@@ -771,9 +803,8 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
             }
         }
 
-        for (String index : new ArrayList<>(lastChunk.keySet())) {
-            Chunk.Entry entry = Level.getChunkXZ(index);
-            this.unloadChunk(entry.chunkX, entry.chunkZ);
+        for (long index : lastChunk.keys()) {
+            this.unloadChunk(Level.getChunkKeyX(index), Level.getChunkKeyZ(index));
         }
 
         this.loadQueue = newOrder;
@@ -786,17 +817,22 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
             return false;
         }
 
-        DataPacketSendEvent event = new DataPacketSendEvent(this, packet);
-        this.server.getPluginManager().callEvent(event);
-        if (event.isCancelled()) {
-            return false;
+        if (this.server.getPluginManager().hasListeners(DataPacketSendEvent.class)) {
+            DataPacketSendEvent event = new DataPacketSendEvent(this, packet);
+            this.server.getPluginManager().callEvent(event);
+            if (event.isCancelled()) {
+                return false;
+            }
         }
 
-        if (!this.batchedPackets.containsKey(packet.getChannel())) {
-            this.batchedPackets.put(packet.getChannel(), new ArrayList<>());
+        //encode once and queue a shallow clone: it shares the encoded bytes, and the caller may change and resend
+        //the packet without touching what is queued here
+        if (!packet.isEncoded) {
+            packet.encode();
+            packet.isEncoded = true;
         }
 
-        this.batchedPackets.get(packet.getChannel()).add(packet.clone());
+        this.batchedPackets.computeIfAbsent(packet.getChannel(), channel -> new ArrayList<>()).add(packet.clone());
 
         return true;
     }
@@ -815,10 +851,12 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
             return -1;
         }
 
-        DataPacketSendEvent ev = new DataPacketSendEvent(this, packet);
-        this.server.getPluginManager().callEvent(ev);
-        if (ev.isCancelled()) {
-            return -1;
+        if (this.server.getPluginManager().hasListeners(DataPacketSendEvent.class)) {
+            DataPacketSendEvent ev = new DataPacketSendEvent(this, packet);
+            this.server.getPluginManager().callEvent(ev);
+            if (ev.isCancelled()) {
+                return -1;
+            }
         }
 
         Integer identifier = this.interfaz.putPacket(this, packet, needACK, false);
@@ -845,10 +883,12 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
             return -1;
         }
 
-        DataPacketSendEvent ev = new DataPacketSendEvent(this, packet);
-        this.server.getPluginManager().callEvent(ev);
-        if (ev.isCancelled()) {
-            return -1;
+        if (this.server.getPluginManager().hasListeners(DataPacketSendEvent.class)) {
+            DataPacketSendEvent ev = new DataPacketSendEvent(this, packet);
+            this.server.getPluginManager().callEvent(ev);
+            if (ev.isCancelled()) {
+                return -1;
+            }
         }
 
         Integer identifier = this.interfaz.putPacket(this, packet, needACK, true);
@@ -1257,6 +1297,7 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
                 this.z = newPos.z;
                 double radius = this.getWidth() / 2;
                 this.boundingBox.setBounds(this.x - radius, this.y, this.z - radius, this.x + radius, this.y + this.getHeight(), this.z + radius);
+                this.level.getEntityIndex().move(this);
             }
         }
 
@@ -1285,12 +1326,17 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
             this.lastPitch = to.pitch;
 
             if (!isFirst) {
-                PlayerMoveEvent ev = new PlayerMoveEvent(this, from, to);
+                PlayerMoveEvent ev = null;
+                if (this.server.getPluginManager().hasListeners(PlayerMoveEvent.class)) {
+                    ev = new PlayerMoveEvent(this, from, to);
 
-                this.server.getPluginManager().callEvent(ev);
+                    this.server.getPluginManager().callEvent(ev);
 
-                if (!(revert = ev.isCancelled())) { //Yes, this is intended
-                    if (to.distanceSquared(ev.getTo()) > 0.01) { //If plugins modify the destination
+                    revert = ev.isCancelled();
+                }
+
+                if (!revert) {
+                    if (ev != null && to.distanceSquared(ev.getTo()) > 0.01) { //If plugins modify the destination
                         this.teleport(ev.getTo(), null);
                     } else {
                         this.level.addEntityMovement((int) this.x >> 4, (int) this.z >> 4, this.getId(), this.x, this.y + this.getEyeHeight(), this.z, this.yaw, this.pitch, this.yaw);
@@ -1466,10 +1512,10 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         }
 
         if (!this.batchedPackets.isEmpty()) {
-            for (int channel : this.batchedPackets.keySet()) {
-                this.server.batchPackets(new Player[]{this}, batchedPackets.get(channel).stream().toArray(DataPacket[]::new), false);
+            for (List<DataPacket> packets : this.batchedPackets.values()) {
+                this.server.batchPackets(new Player[]{this}, packets.toArray(new DataPacket[packets.size()]), false);
             }
-            this.batchedPackets = new TreeMap<>();
+            this.batchedPackets.clear();
         }
 
     }
@@ -1703,10 +1749,12 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
             return;
         }
 
-        DataPacketReceiveEvent ev = new DataPacketReceiveEvent(this, packet);
-        this.server.getPluginManager().callEvent(ev);
-        if (ev.isCancelled()) {
-            return;
+        if (this.server.getPluginManager().hasListeners(DataPacketReceiveEvent.class)) {
+            DataPacketReceiveEvent ev = new DataPacketReceiveEvent(this, packet);
+            this.server.getPluginManager().callEvent(ev);
+            if (ev.isCancelled()) {
+                return;
+            }
         }
 
         switch (packet.pid()) {
@@ -3156,9 +3204,8 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
                 this.removeWindow(window);
             }
 
-            for (String index : new ArrayList<>(this.usedChunks.keySet())) {
-                Chunk.Entry entry = Level.getChunkXZ(index);
-                this.level.unregisterChunkLoader(this, entry.chunkX, entry.chunkZ);
+            for (long index : this.usedChunks.keys()) {
+                this.level.unregisterChunkLoader(this, Level.getChunkKeyX(index), Level.getChunkKeyZ(index));
                 this.usedChunks.remove(index);
             }
 
@@ -3186,8 +3233,8 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
             }));
             this.windows = new HashMap<>();
             this.windowIndex = new HashMap<>();
-            this.usedChunks = new HashMap<>();
-            this.loadQueue = new HashMap<>();
+            this.usedChunks.clear();
+            this.loadQueue.clear();
             this.hasSpawned = new HashMap<>();
             this.spawnPosition = null;
         }
@@ -3599,6 +3646,7 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
 
     @Override
     protected void checkChunks() {
+        this.level.getEntityIndex().move(this);
         if (this.chunk == null || (this.chunk.getX() != ((int) this.x >> 4) || this.chunk.getZ() != ((int) this.z >> 4))) {
             if (this.chunk != null) {
                 this.chunk.removeEntity(this);
@@ -3639,8 +3687,8 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
 
             for (int X = -1; X <= 1; ++X) {
                 for (int Z = -1; Z <= 1; ++Z) {
-                    String index = Level.chunkHash(chunkX + X, chunkZ + Z);
-                    if (!this.usedChunks.containsKey(index) || !this.usedChunks.get(index)) {
+                    Boolean used = this.usedChunks.get(Level.chunkKey(chunkX + X, chunkZ + Z));
+                    if (used == null || !used) {
                         return false;
                     }
                 }
@@ -3666,6 +3714,9 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         if (!this.isOnline()) {
             return false;
         }
+        if (this.deferLevelChange(pos, () -> this.teleport(pos, cause))) {
+            return true;
+        }
         if (cause != null) {
             PlayerTeleportEvent event = new PlayerTeleportEvent(this, this.getLocation(), pos, cause);
             this.server.getPluginManager().callEvent(event);
@@ -3688,6 +3739,9 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         if (!this.isOnline()) {
             return false;
         }
+        if (this.deferLevelChange(pos, () -> this.teleport(pos, yaw, pitch, cause))) {
+            return true;
+        }
         if (cause != null) {
             PlayerTeleportEvent event = new PlayerTeleportEvent(this, this.getLocation(), pos, cause);
             this.server.getPluginManager().callEvent(event);
@@ -3710,6 +3764,9 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         if (!this.isOnline()) {
             return false;
         }
+        if (this.deferLevelChange(pos, () -> this.teleportYaw(pos, yaw, cause))) {
+            return true;
+        }
 
         if (cause != null) {
             PlayerTeleportEvent event = new PlayerTeleportEvent(this, this.getLocation(), pos, cause);
@@ -3734,6 +3791,9 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         if (!this.isOnline()) {
             return false;
         }
+        if (this.deferLevelChange(pos, () -> this.teleportPitch(pos, pitch, cause))) {
+            return true;
+        }
         if (cause != null) {
             PlayerTeleportEvent event = new PlayerTeleportEvent(this, this.getLocation(), pos, cause);
             this.server.getPluginManager().callEvent(event);
@@ -3757,6 +3817,9 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         if (!this.isOnline()) {
             return false;
         }
+        if (this.deferLevelChange(pos, () -> this.teleportYawAndPitch(pos, yaw, pitch, cause))) {
+            return true;
+        }
         if (cause != null) {
             PlayerTeleportEvent event = new PlayerTeleportEvent(this, this.getLocation(), pos, cause);
             this.server.getPluginManager().callEvent(event);
@@ -3909,7 +3972,7 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
 
     @Override
     public void onChunkChanged(FullChunk chunk) {
-        this.loadQueue.put(Level.chunkHash(chunk.getX(), chunk.getZ()), Math.abs(((int) this.x >> 4) - chunk.getX()) + Math.abs(((int) this.z >> 4) - chunk.getZ()));
+        this.loadQueue.put(Level.chunkKey(chunk.getX(), chunk.getZ()), Math.abs(((int) this.x >> 4) - chunk.getX()) + Math.abs(((int) this.z >> 4) - chunk.getZ()));
     }
 
     @Override
@@ -3957,7 +4020,7 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
 
         BatchPacket batch = new BatchPacket();
         try {
-            batch.payload = Zlib.deflate(pk.getBuffer(), Server.getInstance().networkCompressionLevel);
+            batch.payload = Zlib.deflate(pk, Server.getInstance().networkCompressionLevel);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
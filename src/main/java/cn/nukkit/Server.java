@@ -24,6 +24,7 @@ import cn.nukkit.item.enchantment.Enchantment;
 import cn.nukkit.lang.BaseLang;
 import cn.nukkit.level.Level;
 import cn.nukkit.level.Position;
+import cn.nukkit.level.format.ChunkIOExecutor;
 import cn.nukkit.level.format.LevelProvider;
 import cn.nukkit.level.format.LevelProviderManager;
 import cn.nukkit.level.format.anvil.Anvil;
@@ -33,6 +34,8 @@ import cn.nukkit.level.generator.Flat;
 import cn.nukkit.level.generator.Generator;
 import cn.nukkit.level.generator.Normal;
 import cn.nukkit.level.generator.biome.Biome;
+import cn.nukkit.level.generator.task.GeneratorPool;
+import cn.nukkit.level.generator.task.PregenerationTask;
 import cn.nukkit.math.NukkitMath;
 import cn.nukkit.metadata.EntityMetadataStore;
 import cn.nukkit.metadata.LevelMetadataStore;
@@ -63,11 +66,16 @@ import cn.nukkit.potion.Effect;
 import cn.nukkit.potion.Potion;
 import cn.nukkit.scheduler.FileWriteTask;
 import cn.nukkit.scheduler.ServerScheduler;
+import cn.nukkit.timings.Timings;
 import cn.nukkit.utils.*;
 
 import java.io.*;
 import java.nio.ByteOrder;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 /**
  * author: MagicDroidX & Box
@@ -98,9 +106,19 @@ public class Server {
 
     private ServerScheduler scheduler = null;
 
+    private ChunkIOExecutor chunkIOExecutor = null;
+
+    private ForkJoinPool levelTickPool = null;
+    private volatile boolean tickingLevelsInParallel = false;
+    private final Queue<Runnable> levelTickMailbox = new ConcurrentLinkedQueue<>();
+
+    private final Map<Integer, PregenerationTask> pregenerationTasks = new HashMap<>();
+
+    private final Thread primaryThread;
+
     private int tickCounter;
 
-    private long nextTick;
+    private final TickClock tickClock = new TickClock();
 
     private float[] tickAverage = {20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20};
 
@@ -110,6 +128,12 @@ public class Server {
 
     private float maxUse = 0;
 
+    private long generatedChunksSample = 0;
+
+    private long generationSampleTime = System.nanoTime();
+
+    private double chunkGenerationRate = 0;
+
     private int sendUsageTicker = 0;
 
     private boolean dispatchSignals = false;
@@ -179,6 +203,7 @@ public class Server {
     public Server(MainLogger logger, final String filePath, String dataPath, String pluginPath) {
         instance = this;
         this.logger = logger;
+        this.primaryThread = Thread.currentThread();
 
         this.filePath = filePath;
         if (!new File(dataPath + "worlds/").exists()) {
@@ -309,6 +334,45 @@ public class Server {
 
         this.scheduler = new ServerScheduler();
 
+        try {
+            this.tickClock.setCatchUp(TickClock.CatchUp.valueOf(String.valueOf(this.getConfig("settings.tick-catch-up", "compress")).toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            this.logger.warning("Unknown settings.tick-catch-up, expected skip, compress or full");
+        }
+        try {
+            this.tickClock.setMaxCatchUpTicks(Integer.valueOf(String.valueOf(this.getConfig("settings.tick-catch-up-limit", 20))));
+        } catch (Exception e) {
+            this.tickClock.setMaxCatchUpTicks(20);
+        }
+
+        try {
+            this.scheduler.setCompletionBudget(Long.valueOf(String.valueOf(this.getConfig("settings.async-completion-budget", 10))) * 1000000);
+        } catch (Exception e) {
+            this.scheduler.setCompletionBudget(10000000);
+        }
+
+        int chunkIOThreads;
+        try {
+            chunkIOThreads = Integer.valueOf(String.valueOf(this.getConfig("level-settings.chunk-io-threads", 2)));
+        } catch (Exception e) {
+            chunkIOThreads = 2;
+        }
+        this.chunkIOExecutor = new ChunkIOExecutor(chunkIOThreads);
+
+        if ((boolean) this.getConfig("level-settings.parallel-ticking", false)) {
+            int levelTickThreads;
+            try {
+                levelTickThreads = Integer.valueOf(String.valueOf(this.getConfig("level-settings.parallel-ticking-threads", Runtime.getRuntime().availableProcessors())));
+            } catch (Exception e) {
+                levelTickThreads = Runtime.getRuntime().availableProcessors();
+            }
+            this.levelTickPool = new ForkJoinPool(Math.max(1, levelTickThreads), pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("Nukkit Level Tick #" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+
         this.entityMetadata = new EntityMetadataStore();
         this.playerMetadata = new PlayerMetadataStore();
         this.levelMetadata = new LevelMetadataStore();
@@ -336,6 +400,7 @@ public class Server {
         this.serverID = UUID.randomUUID();
 
         this.network = new Network(this);
+        this.network.setPacketPooling((boolean) this.getConfig("network.pool-packets", false));
         this.network.setName(this.getMotd());
 
         this.logger.info(this.getLanguage().translateString("nukkit.server.info", new String[]{this.getName(), TextFormat.YELLOW + this.getNukkitVersion() + TextFormat.WHITE, TextFormat.AQUA + this.getCodename() + TextFormat.WHITE, this.getApiVersion()}));
@@ -520,7 +585,20 @@ public class Server {
     public static void broadcastPacket(Player[] players, DataPacket packet) {
         packet.encode();
         packet.isEncoded = true;
-        if (Network.BATCH_THRESHOLD >= 0 && packet.getBuffer().length >= Network.BATCH_THRESHOLD) {
+        if (instance.tickingLevelsInParallel) {
+            //the targets may belong to any level, send once all of them are done ticking. The caller may reuse the
+            //packet before then, so what is queued is a clone holding the bytes encoded now
+            DataPacket snapshot = packet.clone();
+            snapshot.encapsulatedPacket = null;
+            instance.levelTickMailbox.add(() -> broadcastEncodedPacket(players, snapshot));
+            return;
+        }
+
+        broadcastEncodedPacket(players, packet);
+    }
+
+    private static void broadcastEncodedPacket(Player[] players, DataPacket packet) {
+        if (Network.BATCH_THRESHOLD >= 0 && packet.getCount() >= Network.BATCH_THRESHOLD) {
             Server.getInstance().batchPackets(players, new DataPacket[]{packet}, false);
             return;
         }
@@ -539,18 +617,22 @@ public class Server {
     }
 
     public void batchPackets(Player[] players, DataPacket[] packets, boolean forceSync) {
-        byte[][] payload = new byte[packets.length * 2][];
-        for (int i = 0; i < packets.length; i++) {
-            DataPacket p = packets[i];
+        int length = 0;
+        for (DataPacket p : packets) {
             if (!p.isEncoded) {
                 p.encode();
             }
-            byte[] buf = p.getBuffer();
-            payload[i * 2] = Binary.writeInt(buf.length);
-            payload[i * 2 + 1] = buf;
+            length += 4 + p.getCount();
+        }
+
+        //only lives until it is compressed, so it is borrowed instead of allocated for every broadcast
+        byte[] data = BufferPool.acquire(length);
+        int offset = 0;
+        for (DataPacket p : packets) {
+            Binary.writeInt(data, offset, p.getCount());
+            offset += 4;
+            offset += p.writeTo(data, offset);
         }
-        byte[] data;
-        data = Binary.appendBytes(payload);
 
         List<String> targets = new ArrayList<>();
         for (Player p : players) {
@@ -560,13 +642,17 @@ public class Server {
         }
 
         if (!forceSync && this.networkCompressionAsync) {
-            this.getScheduler().scheduleAsyncTask(new CompressBatchedTask(data, targets, this.networkCompressionLevel));
+            this.getScheduler().scheduleAsyncTask(new CompressBatchedTask(data, length, true, targets, this.networkCompressionLevel, 0));
         } else {
+            byte[] compressed;
             try {
-                this.broadcastPacketsCallback(Zlib.deflate(data, this.networkCompressionLevel), targets);
+                compressed = Zlib.deflate(data, 0, length, this.networkCompressionLevel);
             } catch (Exception e) {
                 throw new RuntimeException(e);
+            } finally {
+                BufferPool.release(data);
             }
+            this.broadcastPacketsCallback(compressed, targets);
         }
     }
 
@@ -696,6 +782,13 @@ public class Server {
                 this.unloadLevel(level, true);
             }
 
+            this.getLogger().debug("Waiting for chunk I/O");
+            this.chunkIOExecutor.shutdown();
+
+            if (this.levelTickPool != null) {
+                this.levelTickPool.shutdown();
+            }
+
             this.getLogger().debug("Removing event handlers");
             HandlerList.unregisterAll();
 
@@ -757,19 +850,15 @@ public class Server {
     }
 
     public void tickProcessor() {
-        this.nextTick = System.currentTimeMillis();
+        this.tickClock.start();
         while (this.isRunning) {
+            this.tickClock.awaitTick();
             try {
                 this.tick();
             } catch (RuntimeException e) {
                 this.getLogger().logException(e);
             }
-
-            try {
-                Thread.sleep(1);
-            } catch (InterruptedException e) {
-            	Server.getInstance().getLogger().logException(e);
-            }
+            this.tickClock.tickFinished();
         }
     }
 
@@ -888,43 +977,101 @@ public class Server {
         }
 
         //Do level ticks
+        List<Level> due = new ArrayList<>();
         for (Level level : this.getLevels().values()) {
             if (level.getTickRate() > this.baseTickRate && --level.tickRateCounter > 0) {
                 continue;
             }
+            due.add(level);
+        }
+
+        if (this.levelTickPool == null || due.size() < 2) {
+            for (Level level : due) {
+                this.tickLevel(level, currentTick);
+            }
+            return;
+        }
 
-            try {
-                long levelTime = System.currentTimeMillis();
-                level.doTick(currentTick);
-                int tickMs = (int) (System.currentTimeMillis() - levelTime);
-                level.tickRateTime = tickMs;
-
-                if (this.autoTickRate) {
-                    if (tickMs < 50 && level.getTickRate() > this.baseTickRate) {
-                        int r;
-                        level.setTickRate(r = level.getTickRate() - 1);
-                        if (r > this.baseTickRate) {
-                            level.tickRateCounter = level.getTickRate();
-                        }
-                        this.getLogger().debug("Raising level \"" + level.getName() + "\" tick rate to " + level.getTickRate() + " ticks");
-                    } else if (tickMs >= 50) {
-                        if (level.getTickRate() == this.baseTickRate) {
-                            level.setTickRate((int) Math.max(this.baseTickRate + 1, Math.min(this.autoTickRateLimit, Math.floor(tickMs / 50))));
-                            this.getLogger().debug("Level \"" + level.getName() + "\" took " + NukkitMath.round(tickMs, 2) + "ms, setting tick rate to " + level.getTickRate() + " ticks");
-                        } else if ((tickMs / level.getTickRate()) >= 50 && level.getTickRate() < this.autoTickRateLimit) {
-                            level.setTickRate(level.getTickRate() + 1);
-                            this.getLogger().debug("Level \"" + level.getName() + "\" took " + NukkitMath.round(tickMs, 2) + "ms, setting tick rate to " + level.getTickRate() + " ticks");
-                        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(due.size());
+        this.tickingLevelsInParallel = true;
+        try {
+            for (Level level : due) {
+                tasks.add(this.levelTickPool.submit(() -> this.tickLevel(level, currentTick)));
+            }
+            //barrier: players, the network and the scheduler only run once every level is done
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            this.tickingLevelsInParallel = false;
+        }
+
+        for (Level level : due) {
+            level.processMailbox();
+        }
+        Runnable task;
+        while ((task = this.levelTickMailbox.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private void tickLevel(Level level, int currentTick) {
+        try {
+            long levelTime = System.nanoTime();
+            level.timings.doTick.startTiming();
+            level.doTick(currentTick);
+            level.timings.doTick.stopTiming();
+            int tickMs = (int) ((System.nanoTime() - levelTime) / 1000000);
+            level.tickRateTime = tickMs;
+
+            if (this.autoTickRate) {
+                if (tickMs < 50 && level.getTickRate() > this.baseTickRate) {
+                    int r;
+                    level.setTickRate(r = level.getTickRate() - 1);
+                    if (r > this.baseTickRate) {
                         level.tickRateCounter = level.getTickRate();
                     }
+                    this.getLogger().debug("Raising level \"" + level.getName() + "\" tick rate to " + level.getTickRate() + " ticks");
+                } else if (tickMs >= 50) {
+                    if (level.getTickRate() == this.baseTickRate) {
+                        level.setTickRate((int) Math.max(this.baseTickRate + 1, Math.min(this.autoTickRateLimit, Math.floor(tickMs / 50))));
+                        this.getLogger().debug("Level \"" + level.getName() + "\" took " + NukkitMath.round(tickMs, 2) + "ms, setting tick rate to " + level.getTickRate() + " ticks");
+                    } else if ((tickMs / level.getTickRate()) >= 50 && level.getTickRate() < this.autoTickRateLimit) {
+                        level.setTickRate(level.getTickRate() + 1);
+                        this.getLogger().debug("Level \"" + level.getName() + "\" took " + NukkitMath.round(tickMs, 2) + "ms, setting tick rate to " + level.getTickRate() + " ticks");
+                    }
+                    level.tickRateCounter = level.getTickRate();
                 }
-            } catch (Exception e) {
-                if (Nukkit.DEBUG > 1 && this.logger != null) {
-                    this.logger.logException(e);
-                }
-
-                this.logger.critical(this.getLanguage().translateString("nukkit.level.tickError", new String[]{level.getName(), e.toString()}));
             }
+        } catch (Exception e) {
+            if (Nukkit.DEBUG > 1 && this.logger != null) {
+                this.logger.logException(e);
+            }
+
+            this.logger.critical(this.getLanguage().translateString("nukkit.level.tickError", new String[]{level.getName(), e.toString()}));
+        }
+    }
+
+    public boolean isPrimaryThread() {
+        return Thread.currentThread() == this.primaryThread;
+    }
+
+    /**
+     * Whether levels are being ticked concurrently right now. While this is true a level may only be touched
+     * from the thread ticking it; anything that reaches into another level has to go through {@link Level#execute(Runnable)}.
+     */
+    public boolean isTickingLevelsInParallel() {
+        return this.tickingLevelsInParallel;
+    }
+
+    /**
+     * Runs the task right away, or on the main thread after all levels have finished ticking when they tick in parallel.
+     */
+    public void executeAfterLevelTicks(Runnable task) {
+        if (this.tickingLevelsInParallel) {
+            this.levelTickMailbox.add(task);
+        } else {
+            task.run();
         }
     }
 
@@ -947,21 +1094,28 @@ public class Server {
     private boolean tick() {
         long tickTime = System.currentTimeMillis();
         long tickTimeNano = System.nanoTime();
-        if ((tickTime - this.nextTick) < -25) {
-            return false;
-        }
+
+        Timings.fullServerTickTimer.startTiming();
 
         ++this.tickCounter;
 
+        Timings.networkTimer.startTiming();
         this.network.processInterfaces();
+        Timings.networkTimer.stopTiming();
 
+        Timings.schedulerTimer.startTiming();
         this.scheduler.mainThreadHeartbeat(this.tickCounter);
+        Timings.schedulerTimer.stopTiming();
 
+        Timings.levelTickTimer.startTiming();
         this.checkTickUpdates(this.tickCounter, tickTime);
+        Timings.levelTickTimer.stopTiming();
 
+        Timings.playerNetworkTimer.startTiming();
         for (Player player : new ArrayList<>(this.players.values())) {
             player.checkNetwork();
         }
+        Timings.playerNetworkTimer.stopTiming();
 
         if ((this.tickCounter & 0b1111) == 0) {
             this.titleTick();
@@ -1000,6 +1154,12 @@ public class Server {
             if (this.getTicksPerSecondAverage() < 12) {
                 this.logger.warning(this.getLanguage().translateString("nukkit.server.tickOverload"));
             }
+
+            long generated = GeneratorPool.getGeneratedChunks();
+            long sampleTime = System.nanoTime();
+            this.chunkGenerationRate = (generated - this.generatedChunksSample) * 1000000000d / Math.max(1, sampleTime - this.generationSampleTime);
+            this.generatedChunksSample = generated;
+            this.generationSampleTime = sampleTime;
         }
 
         //long now = System.currentTimeMillis();
@@ -1024,11 +1184,7 @@ public class Server {
         System.arraycopy(this.useAverage, 1, this.useAverage, 0, this.useAverage.length - 1);
         this.useAverage[this.useAverage.length - 1] = use;
 
-        if ((this.nextTick - tickTime) < -1000) {
-            this.nextTick = tickTime;
-        } else {
-            this.nextTick += 50;
-        }
+        Timings.fullServerTickTimer.stopTiming();
 
         return true;
     }
@@ -1276,10 +1432,21 @@ public class Server {
         return scheduler;
     }
 
+    public ChunkIOExecutor getChunkIOExecutor() {
+        return chunkIOExecutor;
+    }
+
     public int getTick() {
         return tickCounter;
     }
 
+    /**
+     * The clock pacing the main thread, with histograms of tick duration and tick start jitter.
+     */
+    public TickClock getTickClock() {
+        return tickClock;
+    }
+
     public float getTicksPerSecond() {
         return ((float) Math.round(this.maxTick * 100)) / 100;
     }
@@ -1293,6 +1460,45 @@ public class Server {
         return (float) NukkitMath.round(sum / count, 2);
     }
 
+    public long getBlockCacheHits() {
+        long hits = 0;
+        for (Level level : this.levels.values()) {
+            hits += level.getBlockCache().getHits();
+        }
+        return hits;
+    }
+
+    public long getBlockCacheMisses() {
+        long misses = 0;
+        for (Level level : this.levels.values()) {
+            misses += level.getBlockCache().getMisses();
+        }
+        return misses;
+    }
+
+    /**
+     * Chunks generated per second by the async workers, sampled every 100 ticks.
+     */
+    public double getChunkGenerationRate() {
+        return this.chunkGenerationRate;
+    }
+
+    public long getBroadcastBatchesSaved() {
+        long saved = 0;
+        for (Level level : this.levels.values()) {
+            saved += level.getBroadcastAggregator().getBatchesSaved();
+        }
+        return saved;
+    }
+
+    public long getBroadcastBytesSaved() {
+        long saved = 0;
+        for (Level level : this.levels.values()) {
+            saved += level.getBroadcastAggregator().getBytesSaved();
+        }
+        return saved;
+    }
+
     public float getTickUsage() {
         return (float) NukkitMath.round(this.maxUse * 100, 2);
     }
@@ -1494,6 +1700,50 @@ public class Server {
         return this.unloadLevel(level, false);
     }
 
+    /**
+     * Starts populating every chunk within {@code radius} chunks of the level spawn in the background,
+     * replacing any run already going on in the level.
+     */
+    public PregenerationTask pregenerateLevel(Level level, int radius) {
+        return this.startPregeneration(new PregenerationTask(level, radius));
+    }
+
+    /**
+     * Continues the run recorded in the world folder of the level, if there is one.
+     */
+    public PregenerationTask resumePregeneration(Level level) {
+        PregenerationTask task = PregenerationTask.resume(level);
+        return task != null ? this.startPregeneration(task) : null;
+    }
+
+    public PregenerationTask getPregeneration(Level level) {
+        PregenerationTask task = this.pregenerationTasks.get(level.getId());
+        if (task != null && task.getHandler().isCancelled()) {
+            this.pregenerationTasks.remove(level.getId());
+            return null;
+        }
+        return task;
+    }
+
+    /**
+     * Stops the run going on in the level. Its progress is kept, so it can be resumed later.
+     */
+    public boolean stopPregeneration(Level level) {
+        PregenerationTask task = this.pregenerationTasks.remove(level.getId());
+        if (task == null || task.getHandler().isCancelled()) {
+            return false;
+        }
+        task.cancel();
+        return true;
+    }
+
+    private PregenerationTask startPregeneration(PregenerationTask task) {
+        this.stopPregeneration(task.getLevel());
+        this.scheduler.scheduleRepeatingTask(task, 1);
+        this.pregenerationTasks.put(task.getLevel().getId(), task);
+        return task;
+    }
+
     public boolean unloadLevel(Level level, boolean forceUnload) {
         if (Objects.equals(level, this.getDefaultLevel()) && !forceUnload) {
             throw new IllegalStateException("The default level cannot be unloaded while running, please switch levels.");
@@ -1542,6 +1792,8 @@ public class Server {
 
         level.setTickRate(this.baseTickRate);
 
+        this.resumePregeneration(level);
+
         return true;
     }
 
@@ -1599,36 +1851,6 @@ public class Server {
 
         this.getPluginManager().callEvent(new LevelLoadEvent(level));
 
-        /*this.getLogger().notice(this.getLanguage().translateString("nukkit.level.backgroundGeneration", name));
-
-        int centerX = (int) level.getSpawnLocation().getX() >> 4;
-        int centerZ = (int) level.getSpawnLocation().getZ() >> 4;
-
-        TreeMap<String, Integer> order = new TreeMap<>();
-
-        for (int X = -3; X <= 3; ++X) {
-            for (int Z = -3; Z <= 3; ++Z) {
-                int distance = X * X + Z * Z;
-                int chunkX = X + centerX;
-                int chunkZ = Z + centerZ;
-                order.put(Level.chunkHash(chunkX, chunkZ), distance);
-            }
-        }
-
-        List<Map.Entry<String, Integer>> sortList = new ArrayList<>(order.entrySet());
-
-        Collections.sort(sortList, new Comparator<Map.Entry<String, Integer>>() {
-            @Override
-            public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
-                return o2.getValue() - o1.getValue();
-            }
-        });
-
-        for (String index : order.keySet()) {
-            Chunk.Entry entry = Level.getChunkXZ(index);
-            level.populateChunk(entry.chunkX, entry.chunkZ, true);
-        }*/
-
         return true;
     }
 
@@ -10,6 +10,7 @@ import cn.nukkit.utils.ChunkException;
 import java.lang.reflect.Constructor;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * author: MagicDroidX
@@ -30,7 +31,8 @@ public abstract class BlockEntity extends Position {
     public static final String MUSIC = "Music";
 
 
-    public static long count = 1;
+    //block entities are created on every level tick thread when levels tick in parallel
+    public static final AtomicLong count = new AtomicLong(1);
 
     private static Map<String, Class<? extends BlockEntity>> knownBlockEntities = new HashMap<>();
     private static Map<String, String> shortNames = new HashMap<>();
@@ -55,7 +57,7 @@ public abstract class BlockEntity extends Position {
         this.namedTag = nbt;
         this.name = "";
         this.lastUpdate = System.currentTimeMillis();
-        this.id = BlockEntity.count++;
+        this.id = BlockEntity.count.getAndIncrement();
         this.x = this.namedTag.getInt("x");
         this.y = this.namedTag.getInt("y");
         this.z = this.namedTag.getInt("z");
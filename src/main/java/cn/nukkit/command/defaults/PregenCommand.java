@@ -0,0 +1,84 @@
+package cn.nukkit.command.defaults;
+
+import cn.nukkit.command.CommandSender;
+import cn.nukkit.level.Level;
+import cn.nukkit.level.generator.task.PregenerationTask;
+import cn.nukkit.utils.TextFormat;
+
+public class PregenCommand extends VanillaCommand {
+
+    public PregenCommand(String name) {
+        super(name, "Pre-generates the chunks around the spawn of a level", "/pregen [level] [radius|stop]");
+        this.setPermission("nukkit.command.pregen");
+    }
+
+    @Override
+    public boolean execute(CommandSender sender, String commandLabel, String[] args) {
+        if (!this.testPermission(sender)) {
+            return true;
+        }
+
+        if (args.length == 0) {
+            boolean running = false;
+            for (Level level : sender.getServer().getLevels().values()) {
+                PregenerationTask task = sender.getServer().getPregeneration(level);
+                if (task != null) {
+                    this.sendProgress(sender, task);
+                    running = true;
+                }
+            }
+            if (!running) {
+                sender.sendMessage(TextFormat.GOLD + "No level is being pre-generated");
+            }
+            return true;
+        }
+
+        Level level = sender.getServer().getLevelByName(args[0]);
+        if (level == null) {
+            sender.sendMessage(TextFormat.RED + "Level " + args[0] + " is not loaded");
+            return true;
+        }
+
+        if (args.length == 1) {
+            PregenerationTask task = sender.getServer().getPregeneration(level);
+            if (task == null && (task = sender.getServer().resumePregeneration(level)) != null) {
+                sender.sendMessage(TextFormat.GREEN + "Resumed pre-generation of " + level.getFolderName());
+            }
+            if (task != null) {
+                this.sendProgress(sender, task);
+            } else {
+                sender.sendMessage(TextFormat.RED + "Usage: " + this.getUsage());
+            }
+            return true;
+        }
+
+        if (args[1].equalsIgnoreCase("stop")) {
+            if (sender.getServer().stopPregeneration(level)) {
+                sender.sendMessage(TextFormat.GREEN + "Stopped pre-generation of " + level.getFolderName() + ", run /pregen " + level.getFolderName() + " to resume it");
+            } else {
+                sender.sendMessage(TextFormat.RED + level.getFolderName() + " is not being pre-generated");
+            }
+            return true;
+        }
+
+        int radius;
+        try {
+            radius = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            sender.sendMessage(TextFormat.RED + "Usage: " + this.getUsage());
+            return true;
+        }
+        if (radius < 0) {
+            sender.sendMessage(TextFormat.RED + "Usage: " + this.getUsage());
+            return true;
+        }
+
+        PregenerationTask task = sender.getServer().pregenerateLevel(level, (radius + 15) >> 4);
+        sender.sendMessage(TextFormat.GREEN + "Pre-generating " + task.getTotalChunks() + " chunks of " + level.getFolderName() + " within " + radius + " blocks of the spawn");
+        return true;
+    }
+
+    private void sendProgress(CommandSender sender, PregenerationTask task) {
+        sender.sendMessage(TextFormat.GOLD + task.getLevel().getFolderName() + ": " + TextFormat.GREEN + task.getProgress());
+    }
+}
@@ -4,8 +4,16 @@ import cn.nukkit.Nukkit;
 import cn.nukkit.Server;
 import cn.nukkit.command.CommandSender;
 import cn.nukkit.level.Level;
+import cn.nukkit.level.generator.task.GeneratorPool;
 import cn.nukkit.math.NukkitMath;
+import cn.nukkit.network.RakNetInterface;
+import cn.nukkit.network.SourceInterface;
+import cn.nukkit.raknet.server.RakNetServer;
+import cn.nukkit.scheduler.AsyncPool;
+import cn.nukkit.scheduler.AsyncTask;
+import cn.nukkit.utils.Histogram;
 import cn.nukkit.utils.TextFormat;
+import cn.nukkit.utils.TickClock;
 
 import java.util.Objects;
 
@@ -52,10 +60,42 @@ public class StatusCommand extends VanillaCommand {
 
         sender.sendMessage(TextFormat.GOLD + "Load: " + tpsColor + server.getTickUsage() + "%");
 
+        TickClock clock = server.getTickClock();
+        sender.sendMessage(TextFormat.GOLD + "Tick time: " + TextFormat.GREEN + this.formatHistogram(clock.getTickDuration()));
+        sender.sendMessage(TextFormat.GOLD + "Tick jitter: " + TextFormat.GREEN + this.formatHistogram(clock.getTickJitter()) +
+                TextFormat.GOLD + " (" + clock.getSkippedTicks() + " ticks skipped)");
+
         sender.sendMessage(TextFormat.GOLD + "Network upload: " + TextFormat.GREEN + NukkitMath.round((server.getNetwork().getUpload() / 1024 * 1000), 2) + " kB/s");
 
         sender.sendMessage(TextFormat.GOLD + "Network download: " + TextFormat.GREEN + NukkitMath.round((server.getNetwork().getDownload() / 1024 * 1000), 2) + " kB/s");
 
+        long blockCacheHits = server.getBlockCacheHits();
+        long blockCacheLookups = blockCacheHits + server.getBlockCacheMisses();
+        sender.sendMessage(TextFormat.GOLD + "Block cache: " + TextFormat.GREEN + (blockCacheLookups > 0 ? NukkitMath.round((double) blockCacheHits / blockCacheLookups * 100, 2) : 0) + "% hits" +
+                TextFormat.GOLD + " (" + blockCacheHits + "/" + blockCacheLookups + ")");
+
+        for (SourceInterface interfaz : server.getNetwork().getInterfaces()) {
+            if (interfaz instanceof RakNetInterface) {
+                RakNetServer raknet = ((RakNetInterface) interfaz).getRakNet();
+                sender.sendMessage(TextFormat.GOLD + "RakNet queues: " + TextFormat.GREEN + raknet.getMainToThreadQueueSize() + " outgoing (peak " +
+                        raknet.getInternalQueue().getPeakSize() + "), " + raknet.getThreadToMainQueueSize() + " incoming (peak " +
+                        raknet.getExternalQueue().getPeakSize() + ")");
+            }
+        }
+
+        sender.sendMessage(TextFormat.GOLD + "Broadcast batching: " + TextFormat.GREEN + server.getBroadcastBatchesSaved() + " sends, " +
+                NukkitMath.round((double) server.getBroadcastBytesSaved() / 1024 / 1024, 2) + " MB saved");
+
+        sender.sendMessage(TextFormat.GOLD + "Chunk generation: " + TextFormat.GREEN + NukkitMath.round(server.getChunkGenerationRate(), 2) + " chunks/s" +
+                TextFormat.GOLD + " (" + GeneratorPool.getGeneratedChunks() + " total)");
+
+        AsyncPool asyncPool = server.getScheduler().getAsyncPool();
+        sender.sendMessage(TextFormat.GOLD + "Async queue: " + TextFormat.GREEN + asyncPool.getQueued(AsyncTask.PRIORITY_HIGH) + " high, " +
+                asyncPool.getQueued(AsyncTask.PRIORITY_NORMAL) + " normal, " + asyncPool.getQueued(AsyncTask.PRIORITY_LOW) + " low" +
+                TextFormat.GOLD + " (" + asyncPool.getSize() + " workers)");
+        sender.sendMessage(TextFormat.GOLD + "Async completions: " + TextFormat.GREEN + AsyncTask.getCompletionBacklog() + " waiting" +
+                TextFormat.GOLD + " (oldest " + NukkitMath.round(AsyncTask.getOldestCompletionWait(), 2) + " ms)");
+
         sender.sendMessage(TextFormat.GOLD + "Thread count: " + TextFormat.GREEN + Thread.getAllStackTraces().size());
 
 
@@ -100,4 +140,9 @@ public class StatusCommand extends VanillaCommand {
 
         return true;
     }
+
+    private String formatHistogram(Histogram histogram) {
+        return "p50 " + NukkitMath.round(histogram.getPercentile(50) / 1e6, 2) + " ms, p99 " +
+                NukkitMath.round(histogram.getPercentile(99) / 1e6, 2) + " ms, max " + NukkitMath.round(histogram.getMax() / 1e6, 2) + " ms";
+    }
 }
@@ -0,0 +1,56 @@
+package cn.nukkit.command.defaults;
+
+import cn.nukkit.command.CommandSender;
+import cn.nukkit.timings.Timings;
+import cn.nukkit.utils.TextFormat;
+
+import java.io.File;
+import java.io.IOException;
+
+public class TimingsCommand extends VanillaCommand {
+
+    public TimingsCommand(String name) {
+        super(name, "Records how long the server spends on each part of a tick", "/timings <on|off|reset|report>");
+        this.setPermission("nukkit.command.timings");
+    }
+
+    @Override
+    public boolean execute(CommandSender sender, String commandLabel, String[] args) {
+        if (!this.testPermission(sender)) {
+            return true;
+        }
+
+        if (args.length != 1) {
+            sender.sendMessage(TextFormat.RED + "Usage: " + this.getUsage());
+            return true;
+        }
+
+        switch (args[0].toLowerCase()) {
+            case "on":
+                Timings.setTimingsEnabled(true);
+                sender.sendMessage(TextFormat.GREEN + "Timings enabled and reset");
+                break;
+            case "off":
+                Timings.setTimingsEnabled(false);
+                sender.sendMessage(TextFormat.GREEN + "Timings disabled");
+                break;
+            case "reset":
+                Timings.reset();
+                sender.sendMessage(TextFormat.GREEN + "Timings reset");
+                break;
+            case "report":
+            case "paste":
+                try {
+                    File report = Timings.export(new File(sender.getServer().getDataPath(), "timings"));
+                    sender.sendMessage(TextFormat.GREEN + "Timings written to " + report.getPath());
+                } catch (IOException e) {
+                    sender.sendMessage(TextFormat.RED + "Could not write the timings report: " + e.getMessage());
+                    sender.getServer().getLogger().logException(e);
+                }
+                break;
+            default:
+                sender.sendMessage(TextFormat.RED + "Usage: " + this.getUsage());
+        }
+        return true;
+    }
+}
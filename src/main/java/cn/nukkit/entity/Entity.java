@@ -27,11 +27,14 @@ import cn.nukkit.network.protocol.RemoveEntityPacket;
 import cn.nukkit.network.protocol.SetEntityDataPacket;
 import cn.nukkit.plugin.Plugin;
 import cn.nukkit.potion.Effect;
+import cn.nukkit.timings.Timing;
+import cn.nukkit.timings.Timings;
 import cn.nukkit.utils.ChunkException;
 
 import java.lang.reflect.Constructor;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * author: MagicDroidX
@@ -70,7 +73,8 @@ public abstract class Entity extends Location implements Metadatable {
     public static final int DATA_FLAG_ACTION = 4;
     public static final int DATA_FLAG_INVISIBLE = 5;
 
-    public static long entityCount = 1;
+    //entities are created on every level tick thread when levels tick in parallel
+    public static final AtomicLong entityCount = new AtomicLong(1);
 
     private static Map<String, Class<? extends Entity>> knownEntities = new HashMap<>();
     private static Map<String, String> shortNames = new HashMap<>();
@@ -156,6 +160,8 @@ public abstract class Entity extends Location implements Metadatable {
 
     public boolean closed = false;
 
+    public final Timing timing = Timings.getEntityTiming(this.getClass());
+
     protected boolean isPlayer = false;
 
     public float getHeight() {
@@ -231,7 +237,7 @@ public abstract class Entity extends Location implements Metadatable {
         this.isPlayer = this instanceof Player;
         this.temporalVector = new Vector3();
 
-        this.id = Entity.entityCount++;
+        this.id = Entity.entityCount.getAndIncrement();
         this.justCreated = true;
         this.namedTag = nbt;
 
@@ -569,7 +575,7 @@ public abstract class Entity extends Location implements Metadatable {
     }
 
     public void spawnTo(Player player) {
-        if (!this.hasSpawned.containsKey(player.getLoaderId()) && player.usedChunks.containsKey(Level.chunkHash(this.chunk.getX(), this.chunk.getZ()))) {
+        if (!this.hasSpawned.containsKey(player.getLoaderId()) && player.usedChunks.containsKey(Level.chunkKey(this.chunk.getX(), this.chunk.getZ()))) {
             this.hasSpawned.put(player.getLoaderId(), player);
         }
     }
@@ -1289,6 +1295,11 @@ public abstract class Entity extends Location implements Metadatable {
     }
 
     public boolean setPositionAndRotation(Vector3 pos, double yaw, double pitch) {
+        final Vector3 target = pos;
+        if (this.deferLevelChange(target, () -> this.setPositionAndRotation(target, yaw, pitch))) {
+            return true;
+        }
+
         if (this.setPosition(pos)) {
             this.setRotation(yaw, pitch);
             return true;
@@ -1304,6 +1315,7 @@ public abstract class Entity extends Location implements Metadatable {
     }
 
     protected void checkChunks() {
+        this.level.getEntityIndex().move(this);
         if (this.chunk == null || (this.chunk.getX() != ((int) this.x >> 4)) || this.chunk.getZ() != ((int) this.z >> 4)) {
             if (this.chunk != null) {
                 this.chunk.removeEntity(this);
@@ -1333,11 +1345,18 @@ public abstract class Entity extends Location implements Metadatable {
         }
     }
 
+    /**
+     * Moving into another level while levels tick in parallel is deferred, see {@link #deferLevelChange}.
+     */
     public boolean setPosition(Vector3 pos) {
         if (this.closed) {
             return false;
         }
 
+        if (this.deferLevelChange(pos, () -> this.setPosition(pos))) {
+            return true;
+        }
+
         if (pos instanceof Position && ((Position) pos).level != null && !((Position) pos).level.equals(this.level)) {
             if (!this.switchLevel(((Position) pos).getLevel())) {
                 return false;
@@ -1391,6 +1410,11 @@ public abstract class Entity extends Location implements Metadatable {
         this.scheduleUpdate();
     }
 
+    /**
+     * Teleporting into another level while levels tick in parallel is deferred, see {@link #deferLevelChange}. In that
+     * case this returns true before {@link EntityTeleportEvent} has been called, so a plugin cancelling it is not seen
+     * by the caller.
+     */
     public boolean teleport(Vector3 pos) {
         if (pos instanceof Location) {
             return this.teleportYawAndPitch(pos, ((Location) pos).yaw, ((Location) pos).pitch);
@@ -1419,7 +1443,27 @@ public abstract class Entity extends Location implements Metadatable {
         }
     }
 
+    /**
+     * While levels tick in parallel an entity can't be moved into another level from its own tick; the move is queued
+     * on the target level and replayed once all levels are done. Callers return true for a queued move, before any
+     * event for it has been called.
+     *
+     * @return whether the move was queued
+     */
+    protected boolean deferLevelChange(Vector3 pos, Runnable move) {
+        if (pos instanceof Position && ((Position) pos).level != null && ((Position) pos).level != this.level && this.server.isTickingLevelsInParallel()) {
+            ((Position) pos).level.execute(move);
+            return true;
+        }
+        return false;
+    }
+
     public boolean teleportYawAndPitch(Vector3 pos, double yaw, double pitch) {
+        final Vector3 target = pos;
+        if (this.deferLevelChange(target, () -> this.teleportYawAndPitch(target, yaw, pitch))) {
+            return true;
+        }
+
         Position from = Position.fromObject(this, this.level);
         Position to = Position.fromObject(pos, pos instanceof Position ? ((Position) pos).getLevel() : this.level);
         EntityTeleportEvent ev = new EntityTeleportEvent(this, from, to);
@@ -0,0 +1,98 @@
+package cn.nukkit.level;
+
+import cn.nukkit.block.Block;
+import cn.nukkit.utils.LongObjectHashMap;
+
+/**
+ * Cache of the {@link Block} objects handed out by {@link Level#getBlock(cn.nukkit.math.Vector3)}.
+ * <p>
+ * Blocks are stored in one flat 16x16x16 array per chunk section, so a lookup is a single map
+ * probe plus an array read. The number of sections is bounded; once the bound is reached the
+ * cache starts over. Entries are dropped as soon as the block they describe changes.
+ */
+public class BlockCache {
+
+    public static final int DEFAULT_MAX_SECTIONS = 256;
+
+    private static final int SECTION_COUNT = 8;
+
+    private final LongObjectHashMap<Block[]> sections = new LongObjectHashMap<>();
+    private final int maxSections;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    public BlockCache() {
+        this(DEFAULT_MAX_SECTIONS);
+    }
+
+    public BlockCache(int maxSections) {
+        this.maxSections = Math.max(1, maxSections);
+    }
+
+    private static long sectionKey(int x, int y, int z) {
+        return Level.blockKey(x >> 4, y >> 4, z >> 4);
+    }
+
+    private static int sectionIndex(int x, int y, int z) {
+        return ((y & 0x0f) << 8) | ((z & 0x0f) << 4) | (x & 0x0f);
+    }
+
+    public Block get(int x, int y, int z) {
+        Block[] section = this.sections.get(sectionKey(x, y, z));
+        Block block;
+        if (section != null && (block = section[sectionIndex(x, y, z)]) != null) {
+            ++this.hits;
+            return block;
+        }
+        ++this.misses;
+        return null;
+    }
+
+    public void put(int x, int y, int z, Block block) {
+        if (y < 0 || y >= SECTION_COUNT << 4) {
+            return;
+        }
+        long key = sectionKey(x, y, z);
+        Block[] section = this.sections.get(key);
+        if (section == null) {
+            if (this.sections.size() >= this.maxSections) {
+                this.sections.clear();
+            }
+            this.sections.put(key, section = new Block[4096]);
+        }
+        section[sectionIndex(x, y, z)] = block;
+    }
+
+    public void invalidate(int x, int y, int z) {
+        Block[] section = this.sections.get(sectionKey(x, y, z));
+        if (section != null) {
+            section[sectionIndex(x, y, z)] = null;
+        }
+    }
+
+    public void invalidateChunk(int chunkX, int chunkZ) {
+        for (int y = 0; y < SECTION_COUNT; ++y) {
+            this.sections.remove(Level.blockKey(chunkX, y, chunkZ));
+        }
+    }
+
+    public void clear() {
+        this.sections.clear();
+    }
+
+    /**
+     * Number of cached chunk sections.
+     */
+    public int size() {
+        return this.sections.size();
+    }
+
+    public long getHits() {
+        return this.hits;
+    }
+
+    public long getMisses() {
+        return this.misses;
+    }
+}
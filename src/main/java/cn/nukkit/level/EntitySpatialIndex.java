@@ -0,0 +1,148 @@
+package cn.nukkit.level;
+
+import cn.nukkit.entity.Entity;
+import cn.nukkit.math.AxisAlignedBB;
+import cn.nukkit.math.NukkitMath;
+import cn.nukkit.utils.LongObjectHashMap;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Spatial hash of the entities in a level, used for bounding box queries.
+ * <p>
+ * Entities are bucketed by the {@link #CELL_SIZE}x{@link #CELL_SIZE} block column their position lies in and
+ * are moved between buckets as they move, so a query only looks at the few cells around the box instead of every
+ * entity in the surrounding chunks. A bounding box may reach past its cell, so queries look
+ * {@link #MAX_ENTITY_RADIUS} blocks further out and then test the boxes exactly.
+ */
+public class EntitySpatialIndex {
+
+    public static final int CELL_SHIFT = 2;
+    public static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    /**
+     * How far an indexed bounding box may extend horizontally beyond the entity position.
+     */
+    public static final double MAX_ENTITY_RADIUS = 2;
+
+    private final LongObjectHashMap<Cell> cells = new LongObjectHashMap<>();
+    private final LongObjectHashMap<Cell> entityCells = new LongObjectHashMap<>();
+
+    private static long cellKey(Entity entity) {
+        return Level.chunkKey(NukkitMath.floorDouble(entity.x) >> CELL_SHIFT, NukkitMath.floorDouble(entity.z) >> CELL_SHIFT);
+    }
+
+    public void add(Entity entity) {
+        long key = cellKey(entity);
+        Cell current = this.entityCells.get(entity.getId());
+        if (current != null) {
+            if (current.key == key) {
+                return;
+            }
+            this.removeFrom(current, entity);
+        }
+        this.insert(key, entity);
+    }
+
+    /**
+     * Moves an entity that is already indexed to the cell of its current position; entities that were never
+     * added are ignored.
+     */
+    public void move(Entity entity) {
+        Cell current = this.entityCells.get(entity.getId());
+        if (current != null) {
+            long key = cellKey(entity);
+            if (current.key != key) {
+                this.removeFrom(current, entity);
+                this.insert(key, entity);
+            }
+        }
+    }
+
+    public void remove(Entity entity) {
+        Cell current = this.entityCells.remove(entity.getId());
+        if (current != null) {
+            this.removeFrom(current, entity);
+        }
+    }
+
+    public int size() {
+        return this.entityCells.size();
+    }
+
+    /**
+     * Passes every indexed entity whose bounding box intersects {@code bb} to {@code action}.
+     * <p>
+     * The action may remove or move the entity it was given. Other changes to the index during the query can make
+     * entities be skipped or visited twice.
+     */
+    public void forEachIntersecting(AxisAlignedBB bb, Consumer<Entity> action) {
+        int minX = NukkitMath.floorDouble(bb.minX - MAX_ENTITY_RADIUS) >> CELL_SHIFT;
+        int maxX = NukkitMath.floorDouble(bb.maxX + MAX_ENTITY_RADIUS) >> CELL_SHIFT;
+        int minZ = NukkitMath.floorDouble(bb.minZ - MAX_ENTITY_RADIUS) >> CELL_SHIFT;
+        int maxZ = NukkitMath.floorDouble(bb.maxZ + MAX_ENTITY_RADIUS) >> CELL_SHIFT;
+
+        for (int x = minX; x <= maxX; ++x) {
+            for (int z = minZ; z <= maxZ; ++z) {
+                Cell cell = this.cells.get(Level.chunkKey(x, z));
+                if (cell == null) {
+                    continue;
+                }
+                //backwards, so removing the current entity swaps in one that was already visited
+                for (int i = cell.size - 1; i >= 0; --i) {
+                    if (i >= cell.size) {
+                        continue;
+                    }
+                    Entity entity = cell.entities[i];
+                    if (entity.boundingBox.intersectsWith(bb)) {
+                        action.accept(entity);
+                    }
+                }
+            }
+        }
+    }
+
+    private void insert(long key, Entity entity) {
+        Cell cell = this.cells.get(key);
+        if (cell == null) {
+            this.cells.put(key, cell = new Cell(key));
+        }
+        cell.add(entity);
+        this.entityCells.put(entity.getId(), cell);
+    }
+
+    private void removeFrom(Cell cell, Entity entity) {
+        cell.remove(entity);
+        if (cell.size == 0) {
+            this.cells.remove(cell.key);
+        }
+    }
+
+    private static final class Cell {
+        final long key;
+        Entity[] entities = new Entity[4];
+        int size = 0;
+
+        Cell(long key) {
+            this.key = key;
+        }
+
+        void add(Entity entity) {
+            if (this.size == this.entities.length) {
+                this.entities = Arrays.copyOf(this.entities, this.size << 1);
+            }
+            this.entities[this.size++] = entity;
+        }
+
+        void remove(Entity entity) {
+            for (int i = 0; i < this.size; ++i) {
+                if (this.entities[i] == entity) {
+                    this.entities[i] = this.entities[--this.size];
+                    this.entities[this.size] = null;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -38,15 +38,19 @@ import cn.nukkit.metadata.MetadataValue;
 import cn.nukkit.metadata.Metadatable;
 import cn.nukkit.nbt.NBTIO;
 import cn.nukkit.nbt.tag.*;
+import cn.nukkit.network.BroadcastAggregator;
 import cn.nukkit.network.protocol.*;
 import cn.nukkit.plugin.Plugin;
 import cn.nukkit.potion.Effect;
 import cn.nukkit.redstone.Redstone;
 import cn.nukkit.scheduler.AsyncTask;
+import cn.nukkit.timings.LevelTimings;
 import cn.nukkit.utils.*;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
 /**
  * author: MagicDroidX
@@ -75,22 +79,39 @@ public class Level implements ChunkManager, Metadatable {
     public static final int DIMENSION_OVERWORLD = 0;
     public static final int DIMENSION_NETHER = 1;
 
+    /**
+     * Fewer positions than this in an unwatched chunk are relit inline: copying the 3x3 chunks for a
+     * {@link LightUpdateTask} costs about as much as relighting a hundred positions.
+     */
+    private static final int ASYNC_LIGHT_UPDATE_MIN = 128;
+
+    private static final int MAX_CHUNK_REQUEST_ATTEMPTS = 3;
+
     private Map<Long, BlockEntity> blockEntities = new HashMap<>();
 
-    private Map<String, Map<Long, SetEntityMotionPacket.Entry>> motionToSend = new HashMap<>();
-    private Map<String, Map<Long, MoveEntityPacket.Entry>> moveToSend = new HashMap<>();
+    private LongObjectHashMap<Map<Long, SetEntityMotionPacket.Entry>> motionToSend = new LongObjectHashMap<>();
+    private LongObjectHashMap<Map<Long, MoveEntityPacket.Entry>> moveToSend = new LongObjectHashMap<>();
 
     private Map<Long, Player> players = new HashMap<>();
 
     private Map<Long, Entity> entities = new HashMap<>();
+    private final EntitySpatialIndex entityIndex = new EntitySpatialIndex();
 
     public Map<Long, Entity> updateEntities = new HashMap<>();
 
     public Map<Long, BlockEntity> updateBlockEntities = new HashMap<>();
 
-    private Map<String, Block> blockCache = new HashMap<>();
+    private BlockCache blockCache = new BlockCache();
+
+    private final LightEngine lightEngine = new LightEngine(this);
+    private LongObjectHashMap<Integer> lightUpdateLock = new LongObjectHashMap<>();
 
-    private Map<String, DataPacket> chunkCache = new HashMap<>();
+    private LongObjectHashMap<DataPacket> chunkCache = new LongObjectHashMap<>();
+    //see getChunkCacheVersion
+    private long chunkCacheVersion = 0;
+    private long chunkCacheClearedAt = 0;
+    private LongObjectHashMap<Long> chunkCacheInvalidated = new LongObjectHashMap<>();
+    private LongObjectHashMap<Integer> chunkRequestFailures = new LongObjectHashMap<>();
 
     private boolean cacheChunks = false;
 
@@ -106,32 +127,38 @@ public class Level implements ChunkManager, Metadatable {
 
     private Map<Integer, Integer> loaderCounter = new HashMap<>();
 
-    private Map<String, Map<Integer, ChunkLoader>> chunkLoaders = new HashMap<>();
+    private LongObjectHashMap<Map<Integer, ChunkLoader>> chunkLoaders = new LongObjectHashMap<>();
 
-    private Map<String, Map<Integer, Player>> playerLoaders = new HashMap<>();
+    private LongObjectHashMap<Map<Integer, Player>> playerLoaders = new LongObjectHashMap<>();
 
-    private Map<String, List<DataPacket>> chunkPackets = new HashMap<>();
+    private LongObjectHashMap<List<DataPacket>> chunkPackets = new LongObjectHashMap<>();
+    private BroadcastAggregator broadcastAggregator;
 
-    private Map<String, Long> unloadQueue = new HashMap<>();
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+
+    private LongObjectHashMap<Long> unloadQueue = new LongObjectHashMap<>();
 
     private float time;
     public boolean stopTime;
 
     private String folderName;
 
-    private Map<String, BaseFullChunk> chunks = new HashMap<>();
+    public final LevelTimings timings;
+
+    private LongObjectHashMap<BaseFullChunk> chunks = new LongObjectHashMap<>();
 
-    private Map<String, Map<String, Vector3>> changedBlocks = new HashMap<>();
+    private LongObjectHashMap<LongObjectHashMap<Vector3>> changedBlocks = new LongObjectHashMap<>();
 
     private PriorityQueue<PriorityObject> updateQueue;
-    private Map<String, Integer> updateQueueIndex = new HashMap<>();
+    private LongObjectHashMap<Integer> updateQueueIndex = new LongObjectHashMap<>();
 
-    private Map<String, Map<Integer, Player>> chunkSendQueue = new HashMap<>();
-    private Map<String, Boolean> chunkSendTasks = new HashMap<>();
+    private LongObjectHashMap<Map<Integer, Player>> chunkSendQueue = new LongObjectHashMap<>();
+    private LongObjectHashMap<Boolean> chunkSendTasks = new LongObjectHashMap<>();
 
-    private Map<String, Boolean> chunkPopulationQueue = new HashMap<>();
-    private Map<String, Boolean> chunkPopulationLock = new HashMap<>();
-    private Map<String, Boolean> chunkGenerationQueue = new HashMap<>();
+    private LongObjectHashMap<Boolean> chunkPopulationQueue = new LongObjectHashMap<>();
+    private LongObjectHashMap<Boolean> chunkPopulationLock = new LongObjectHashMap<>();
+    private LongObjectHashMap<Boolean> chunkGenerationQueue = new LongObjectHashMap<>();
+    private LongObjectHashMap<CompletableFuture<BaseFullChunk>> chunkLoadQueue = new LongObjectHashMap<>();
     private int chunkGenerationQueueSize = 8;
     private int chunkPopulationQueueSize = 2;
 
@@ -150,38 +177,40 @@ public class Level implements ChunkManager, Metadatable {
     public int sleepTicks = 0;
 
     private int chunkTickRadius;
-    private Map<String, Integer> chunkTickList = new HashMap<>();
+    private LongObjectHashMap<Integer> chunkTickList = new LongObjectHashMap<>();
     private int chunksPerTicks;
     private boolean clearChunksOnTick;
-    private HashMap<Integer, Class<? extends Block>> randomTickBlocks = new HashMap<Integer, Class<? extends Block>>() {{
-        put(Block.GRASS, BlockGrass.class);
-        put(Block.FARMLAND, BlockFarmland.class);
-        put(Block.MYCELIUM, BlockMycelium.class);
-
-        put(Block.SAPLING, BlockSapling.class);
-
-        put(Block.LEAVES, BlockLeaves.class);
-        put(Block.LEAVES2, BlockLeaves2.class);
-
-        put(Block.SNOW_LAYER, BlockSnowLayer.class);
-        put(Block.ICE, BlockIce.class);
-        put(Block.LAVA, BlockLava.class);
-        put(Block.STILL_LAVA, BlockLavaStill.class);
-
-        put(Block.CACTUS, BlockCactus.class);
-        put(Block.BEETROOT_BLOCK, BlockBeetroot.class);
-        put(Block.CARROT_BLOCK, BlockCarrot.class);
-        put(Block.POTATO_BLOCK, BlockPotato.class);
-        put(Block.MELON_STEM, BlockStemMelon.class);
-        put(Block.PUMPKIN_STEM, BlockStemPumpkin.class);
-        put(Block.WHEAT_BLOCK, BlockWheat.class);
-        put(Block.SUGARCANE_BLOCK, BlockSugarcane.class);
-        put(Block.RED_MUSHROOM, BlockMushroomRed.class);
-        put(Block.BROWN_MUSHROOM, BlockMushroomBrown.class);
-
-        put(Block.FIRE, BlockFire.class);
-        put(Block.GLOWING_REDSTONE_ORE, BlockOreRedstoneGlowing.class);
-    }};
+    private final boolean[] randomTickBlocks = new boolean[256];
+
+    {
+        this.randomTickBlocks[Block.GRASS] = true;
+        this.randomTickBlocks[Block.FARMLAND] = true;
+        this.randomTickBlocks[Block.MYCELIUM] = true;
+
+        this.randomTickBlocks[Block.SAPLING] = true;
+
+        this.randomTickBlocks[Block.LEAVES] = true;
+        this.randomTickBlocks[Block.LEAVES2] = true;
+
+        this.randomTickBlocks[Block.SNOW_LAYER] = true;
+        this.randomTickBlocks[Block.ICE] = true;
+        this.randomTickBlocks[Block.LAVA] = true;
+        this.randomTickBlocks[Block.STILL_LAVA] = true;
+
+        this.randomTickBlocks[Block.CACTUS] = true;
+        this.randomTickBlocks[Block.BEETROOT_BLOCK] = true;
+        this.randomTickBlocks[Block.CARROT_BLOCK] = true;
+        this.randomTickBlocks[Block.POTATO_BLOCK] = true;
+        this.randomTickBlocks[Block.MELON_STEM] = true;
+        this.randomTickBlocks[Block.PUMPKIN_STEM] = true;
+        this.randomTickBlocks[Block.WHEAT_BLOCK] = true;
+        this.randomTickBlocks[Block.SUGARCANE_BLOCK] = true;
+        this.randomTickBlocks[Block.RED_MUSHROOM] = true;
+        this.randomTickBlocks[Block.BROWN_MUSHROOM] = true;
+
+        this.randomTickBlocks[Block.FIRE] = true;
+        this.randomTickBlocks[Block.GLOWING_REDSTONE_ORE] = true;
+    }
 
     protected int updateLCG = (new Random()).nextInt();
 
@@ -207,6 +236,7 @@ public class Level implements ChunkManager, Metadatable {
         this.levelId = levelIdCounter++;
         this.blockMetadata = new BlockMetadataStore(this);
         this.server = server;
+        this.broadcastAggregator = new BroadcastAggregator(server);
         this.autoSave = server.getAutoSave();
 
         try {
@@ -227,6 +257,7 @@ public class Level implements ChunkManager, Metadatable {
         }
 
         this.folderName = name;
+        this.timings = new LevelTimings(this);
         this.updateQueue = new PriorityQueue<>(11, new Comparator<PriorityObject>() {
             @Override
             public int compare(PriorityObject o1, PriorityObject o2) {
@@ -262,14 +293,64 @@ public class Level implements ChunkManager, Metadatable {
         this.tickRate = 1;
     }
 
+    /**
+     * Packs chunk coordinates into a single long: X in the high 32 bits, Z in the low 32 bits.
+     */
+    public static long chunkKey(int x, int z) {
+        return (((long) x) << 32) | (z & 0xffffffffL);
+    }
+
+    public static int getChunkKeyX(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int getChunkKeyZ(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Packs block coordinates into a single long: 26 bits of X, 26 bits of Z and 12 bits of Y.
+     */
+    public static long blockKey(int x, int y, int z) {
+        return ((x & 0x3ffffffL) << 38) | ((z & 0x3ffffffL) << 12) | (y & 0xfffL);
+    }
+
+    public static long blockKey(Vector3 block) {
+        return blockKey((int) block.x, (int) block.y, (int) block.z);
+    }
+
+    public static int getBlockKeyX(long key) {
+        return (int) (key >> 38);
+    }
+
+    public static int getBlockKeyY(long key) {
+        return (int) (key << 52 >> 52);
+    }
+
+    public static int getBlockKeyZ(long key) {
+        return (int) (key << 26 >> 38);
+    }
+
+    /**
+     * @deprecated use {@link #chunkKey(int, int)}
+     */
+    @Deprecated
     public static String chunkHash(int x, int z) {
         return x + ":" + z;
     }
 
+    /**
+     * @deprecated use {@link #blockKey(Vector3)}
+     */
+    @Deprecated
     public static String blockHash(Vector3 block) {
         return blockHash(block.x, block.y, block.z);
     }
 
+    /**
+     * @deprecated use {@link #blockKey(int, int, int)}
+     */
+    @Deprecated
     public static String blockHash(double x, double y, double z) {
         return (int) x + ":" + (int) y + ":" + (int) z;
     }
@@ -278,11 +359,19 @@ public class Level implements ChunkManager, Metadatable {
         return (x << 11) | (z << 7) | y;
     }
 
+    /**
+     * @deprecated use {@link #getBlockKeyX(long)}, {@link #getBlockKeyY(long)} and {@link #getBlockKeyZ(long)}
+     */
+    @Deprecated
     public static Vector3 getBlockXYZ(String hash) {
         String[] h = hash.split(":");
         return new Vector3(Integer.valueOf(h[0]), Integer.valueOf(h[1]), Integer.valueOf(h[2]));
     }
 
+    /**
+     * @deprecated use {@link #getChunkKeyX(long)} and {@link #getChunkKeyZ(long)}
+     */
+    @Deprecated
     public static Chunk.Entry getChunkXZ(String hash) {
         String[] h = hash.split(":");
         return new Chunk.Entry(Integer.valueOf(h[0]), Integer.valueOf(h[1]));
@@ -322,14 +411,14 @@ public class Level implements ChunkManager, Metadatable {
     public void registerGenerator() {
         int size = this.server.getScheduler().getAsyncTaskPoolSize();
         for (int i = 0; i < size; ++i) {
-            this.server.getScheduler().scheduleAsyncTask(new GeneratorRegisterTask(this, this.generatorInstance));
+            this.server.getScheduler().scheduleAsyncTaskToWorker(new GeneratorRegisterTask(this, this.generatorInstance), i);
         }
     }
 
     public void unregisterGenerator() {
         int size = this.server.getScheduler().getAsyncTaskPoolSize();
         for (int i = 0; i < size; ++i) {
-            this.server.getScheduler().scheduleAsyncTask(new GeneratorUnregisterTask(this));
+            this.server.getScheduler().scheduleAsyncTaskToWorker(new GeneratorUnregisterTask(this), i);
         }
     }
 
@@ -478,7 +567,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public Map<Integer, Player> getChunkPlayers(int chunkX, int chunkZ) {
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (this.playerLoaders.containsKey(index)) {
             return new HashMap<>(this.playerLoaders.get(index));
         } else {
@@ -487,7 +576,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public ChunkLoader[] getChunkLoaders(int chunkX, int chunkZ) {
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (this.chunkLoaders.containsKey(index)) {
             return this.chunkLoaders.get(index).values().stream().toArray(ChunkLoader[]::new);
         } else {
@@ -496,7 +585,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public void addChunkPacket(int chunkX, int chunkZ, DataPacket packet) {
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (!this.chunkPackets.containsKey(index)) {
             this.chunkPackets.put(index, new ArrayList<>());
         }
@@ -509,7 +598,7 @@ public class Level implements ChunkManager, Metadatable {
 
     public void registerChunkLoader(ChunkLoader loader, int chunkX, int chunkZ, boolean autoLoad) {
         int hash = loader.getLoaderId();
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (!this.chunkLoaders.containsKey(index)) {
             this.chunkLoaders.put(index, new HashMap<>());
             this.playerLoaders.put(index, new HashMap<>());
@@ -538,7 +627,7 @@ public class Level implements ChunkManager, Metadatable {
 
     public void unregisterChunkLoader(ChunkLoader loader, int chunkX, int chunkZ) {
         int hash = loader.getLoaderId();
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (this.chunkLoaders.containsKey(index) && this.chunkLoaders.get(index).containsKey(hash)) {
             this.chunkLoaders.get(index).remove(hash);
             this.playerLoaders.get(index).remove(hash);
@@ -668,19 +757,27 @@ public class Level implements ChunkManager, Metadatable {
 
         this.unloadChunks();
 
+        this.timings.blockUpdates.startTiming();
         while (this.updateQueue.peek() != null && this.updateQueue.peek().priority <= currentTick) {
             Block block = this.getBlock((Vector3) this.updateQueue.poll().data);
-            this.updateQueueIndex.remove(Level.blockHash((int) block.x, (int) block.y, (int) block.z));
+            this.updateQueueIndex.remove(Level.blockKey((int) block.x, (int) block.y, (int) block.z));
             block.onUpdate(BLOCK_UPDATE_SCHEDULED);
         }
+        this.timings.blockUpdates.stopTiming();
 
+        this.timings.entityTick.startTiming();
         for (long id : new ArrayList<>(this.updateEntities.keySet())) {
             Entity entity = this.updateEntities.get(id);
-            if (entity.closed || !entity.onUpdate(currentTick)) {
+            entity.timing.startTiming();
+            boolean update = !entity.closed && entity.onUpdate(currentTick);
+            entity.timing.stopTiming();
+            if (!update) {
                 this.updateEntities.remove(id);
             }
         }
+        this.timings.entityTick.stopTiming();
 
+        this.timings.blockEntityTick.startTiming();
         if (!this.updateBlockEntities.isEmpty()) {
             for (long id : new ArrayList<>(this.updateBlockEntities.keySet())) {
                 if (!this.updateBlockEntities.get(id).onUpdate()) {
@@ -688,72 +785,72 @@ public class Level implements ChunkManager, Metadatable {
                 }
             }
         }
+        this.timings.blockEntityTick.stopTiming();
 
+        this.timings.tickChunks.startTiming();
         this.tickChunks();
+        this.timings.tickChunks.stopTiming();
+
+        this.timings.lightUpdates.startTiming();
+        this.processLightUpdates();
+        this.timings.lightUpdates.stopTiming();
 
+        this.timings.sendChangedBlocks.startTiming();
         if (!this.changedBlocks.isEmpty()) {
             if (!this.players.isEmpty()) {
-                for (String index : new ArrayList<>(this.changedBlocks.keySet())) {
-                    Map<String, Vector3> blocks = this.changedBlocks.get(index);
-                    this.chunkCache.remove(index);
-                    Chunk.Entry chunkEntry = Level.getChunkXZ(index);
-                    int chunkX = chunkEntry.chunkX;
-                    int chunkZ = chunkEntry.chunkZ;
+                for (long index : this.changedBlocks.keys()) {
+                    LongObjectHashMap<Vector3> blocks = this.changedBlocks.get(index);
+                    this.invalidateChunkCache(index);
+                    int chunkX = Level.getChunkKeyX(index);
+                    int chunkZ = Level.getChunkKeyZ(index);
                     if (blocks.size() > 512) {
                         FullChunk chunk = this.getChunk(chunkX, chunkZ);
                         for (Player p : this.getChunkPlayers(chunkX, chunkZ).values()) {
                             p.onChunkChanged(chunk);
                         }
                     } else {
-                        this.sendBlocks(this.getChunkPlayers(chunkX, chunkZ).values().stream().toArray(Player[]::new), blocks.values().stream().toArray(Vector3[]::new), UpdateBlockPacket.FLAG_ALL);
+                        Map<Integer, Player> chunkPlayers = this.getChunkPlayers(chunkX, chunkZ);
+                        if (!chunkPlayers.isEmpty()) {
+                            this.sendBlocks(chunkPlayers.values().toArray(new Player[chunkPlayers.size()]), blocks.values(), UpdateBlockPacket.FLAG_ALL);
+                        }
                     }
                 }
             } else {
-                this.chunkCache = new HashMap<>();
+                this.invalidateChunkCache();
             }
 
-            this.changedBlocks = new HashMap<>();
+            this.changedBlocks.clear();
         }
+        this.timings.sendChangedBlocks.stopTiming();
 
+        this.timings.chunkSends.startTiming();
         this.processChunkRequest();
+        this.timings.chunkSends.stopTiming();
 
         if (this.sleepTicks > 0 && --this.sleepTicks <= 0) {
             this.checkSleep();
         }
 
-        for (String key : this.moveToSend.keySet()) {
-            Chunk.Entry chunkEntry = Level.getChunkXZ(key);
-            int chunkX = chunkEntry.chunkX;
-            int chunkZ = chunkEntry.chunkZ;
+        for (long key : this.moveToSend.keys()) {
             MoveEntityPacket pk = new MoveEntityPacket();
             pk.entities = this.moveToSend.get(key).values().stream().toArray(MoveEntityPacket.Entry[]::new);
-            this.addChunkPacket(chunkX, chunkZ, pk);
+            this.addChunkPacket(Level.getChunkKeyX(key), Level.getChunkKeyZ(key), pk);
         }
-        this.moveToSend = new HashMap<>();
+        this.moveToSend.clear();
 
-        for (String key : this.motionToSend.keySet()) {
-            Chunk.Entry chunkEntry = Level.getChunkXZ(key);
-            int chunkX = chunkEntry.chunkX;
-            int chunkZ = chunkEntry.chunkZ;
+        for (long key : this.motionToSend.keys()) {
             SetEntityMotionPacket pk = new SetEntityMotionPacket();
             pk.entities = this.motionToSend.get(key).values().stream().toArray(SetEntityMotionPacket.Entry[]::new);
-            this.addChunkPacket(chunkX, chunkZ, pk);
-        }
-        this.motionToSend = new HashMap<>();
-
-        for (String key : this.chunkPackets.keySet()) {
-            Chunk.Entry chunkEntry = Level.getChunkXZ(key);
-            int chunkX = chunkEntry.chunkX;
-            int chunkZ = chunkEntry.chunkZ;
-            Player[] chunkPlayers = this.getChunkPlayers(chunkX, chunkZ).values().stream().toArray(Player[]::new);
-            if (chunkPlayers.length > 0) {
-                for (DataPacket pk : this.chunkPackets.get(key)) {
-                    Server.broadcastPacket(chunkPlayers, pk);
-                }
-            }
+            this.addChunkPacket(Level.getChunkKeyX(key), Level.getChunkKeyZ(key), pk);
+        }
+        this.motionToSend.clear();
+
+        for (long key : this.chunkPackets.keys()) {
+            this.broadcastAggregator.add(this.getChunkPlayers(Level.getChunkKeyX(key), Level.getChunkKeyZ(key)).values(), this.chunkPackets.get(key));
         }
+        this.broadcastAggregator.flush();
 
-        this.chunkPackets = new HashMap<>();
+        this.chunkPackets.clear();
     }
 
     public void checkSleep() {
@@ -817,55 +914,45 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public void sendBlocks(Player[] target, Vector3[] blocks, int flags, boolean optimizeRebuilds) {
-        UpdateBlockPacket pk = new UpdateBlockPacket();
+        this.sendBlocks(target, Arrays.asList(blocks), flags, optimizeRebuilds);
+    }
 
-        if (optimizeRebuilds) {
-            Map<String, Boolean> chunks = new HashMap<>();
-            for (Vector3 b : blocks) {
-                if (b == null) {
-                    continue;
-                }
+    public void sendBlocks(Player[] target, Collection<? extends Vector3> blocks, int flags) {
+        this.sendBlocks(target, blocks, flags, false);
+    }
 
-                boolean first = false;
+    /**
+     * Sends the current state of the given blocks in a single {@link UpdateBlockPacket}, encoded once for all targets.
+     */
+    public void sendBlocks(Player[] target, Collection<? extends Vector3> blocks, int flags, boolean optimizeRebuilds) {
+        if (target.length == 0) {
+            return;
+        }
 
-                String index = Level.chunkHash((int) b.x >> 4, (int) b.z >> 4);
-                if (!chunks.containsKey(index)) {
-                    chunks.put(index, true);
-                    first = true;
-                }
+        UpdateBlockPacket pk = new UpdateBlockPacket(blocks.size());
+        LongObjectHashMap<Boolean> chunks = optimizeRebuilds ? new LongObjectHashMap<>() : null;
 
-                if (b instanceof Block) {
-                    List<UpdateBlockPacket.Entry> list = new ArrayList<>();
-                    Collections.addAll(list, pk.records);
-                    list.add(new UpdateBlockPacket.Entry((int) ((Block) b).x, (int) ((Block) b).z, (int) ((Block) b).y, ((Block) b).getId(), ((Block) b).getDamage(), first ? flags : UpdateBlockPacket.FLAG_NONE));
-                    pk.records = list.stream().toArray(UpdateBlockPacket.Entry[]::new);
-                } else {
-                    int fullBlock = this.getFullBlock((int) b.x, (int) b.y, (int) b.z);
-                    List<UpdateBlockPacket.Entry> list = new ArrayList<>();
-                    Collections.addAll(list, pk.records);
-                    list.add(new UpdateBlockPacket.Entry((int) b.x, (int) b.z, (int) b.y, fullBlock >> 4, fullBlock & 0xf, first ? flags : UpdateBlockPacket.FLAG_NONE));
-                    pk.records = list.stream().toArray(UpdateBlockPacket.Entry[]::new);
-                }
+        for (Vector3 b : blocks) {
+            if (b == null) {
+                continue;
             }
-        } else {
-            for (Vector3 b : blocks) {
-                if (b == null) {
-                    continue;
-                }
 
-                if (b instanceof Block) {
-                    List<UpdateBlockPacket.Entry> list = new ArrayList<>();
-                    Collections.addAll(list, pk.records);
-                    list.add(new UpdateBlockPacket.Entry((int) ((Block) b).x, (int) ((Block) b).z, (int) ((Block) b).y, ((Block) b).getId(), ((Block) b).getDamage(), flags));
-                    pk.records = list.stream().toArray(UpdateBlockPacket.Entry[]::new);
+            int recordFlags = flags;
+            if (chunks != null) {
+                long index = Level.chunkKey((int) b.x >> 4, (int) b.z >> 4);
+                if (chunks.containsKey(index)) {
+                    recordFlags = UpdateBlockPacket.FLAG_NONE;
                 } else {
-                    int fullBlock = this.getFullBlock((int) b.x, (int) b.y, (int) b.z);
-                    List<UpdateBlockPacket.Entry> list = new ArrayList<>();
-                    Collections.addAll(list, pk.records);
-                    list.add(new UpdateBlockPacket.Entry((int) b.x, (int) b.z, (int) b.y, fullBlock >> 4, fullBlock & 0xf, flags));
-                    pk.records = list.stream().toArray(UpdateBlockPacket.Entry[]::new);
+                    chunks.put(index, true);
                 }
             }
+
+            if (b instanceof Block) {
+                pk.addRecord((int) b.x, (int) b.z, (int) b.y, ((Block) b).getId(), ((Block) b).getDamage(), recordFlags);
+            } else {
+                int fullBlock = this.getFullBlock((int) b.x, (int) b.y, (int) b.z);
+                pk.addRecord((int) b.x, (int) b.z, (int) b.y, fullBlock >> 4, fullBlock & 0xf, recordFlags);
+            }
         }
 
         Server.broadcastPacket(target, pk);
@@ -877,26 +964,74 @@ public class Level implements ChunkManager, Metadatable {
 
     public void clearCache(boolean full) {
         if (full) {
-            this.chunkCache = new HashMap<>();
-            this.blockCache = new HashMap<>();
+            this.invalidateChunkCache();
+            this.blockCache.clear();
         } else {
             if (this.chunkCache.size() > 768) {
-                this.chunkCache = new HashMap<>();
+                this.invalidateChunkCache();
             }
 
-            if (this.blockCache.size() > 2048) {
-                this.blockCache = new HashMap<>();
+        }
+    }
+
+    public BlockCache getBlockCache() {
+        return this.blockCache;
+    }
+
+    /**
+     * Runs a task that touches this level from outside of it. When levels tick in parallel the task is queued and
+     * run on the main thread once every level has finished its tick, otherwise it runs right away.
+     */
+    public void execute(Runnable task) {
+        if (this.server.isTickingLevelsInParallel()) {
+            this.mailbox.add(task);
+        } else {
+            task.run();
+        }
+    }
+
+    public void processMailbox() {
+        Runnable task;
+        while ((task = this.mailbox.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                this.server.getLogger().logException(e);
             }
         }
     }
 
+    public BroadcastAggregator getBroadcastAggregator() {
+        return this.broadcastAggregator;
+    }
+
     public void clearChunkCache(int chunkX, int chunkZ) {
-        this.chunkCache.remove(Level.chunkHash(chunkX, chunkZ));
+        this.invalidateChunkCache(Level.chunkKey(chunkX, chunkZ));
+    }
+
+    private void invalidateChunkCache(long index) {
+        this.chunkCache.remove(index);
+        this.chunkCacheInvalidated.put(index, ++this.chunkCacheVersion);
+    }
+
+    private void invalidateChunkCache() {
+        this.chunkCache.clear();
+        this.chunkCacheInvalidated.clear();
+        this.chunkCacheClearedAt = ++this.chunkCacheVersion;
+    }
+
+    /**
+     * Changes whenever the cached packet of a chunk would go stale. A chunk encoded while this stayed the same
+     * may be cached.
+     */
+    public long getChunkCacheVersion(int chunkX, int chunkZ) {
+        Long invalidated = this.chunkCacheInvalidated.get(Level.chunkKey(chunkX, chunkZ));
+        return invalidated == null ? this.chunkCacheClearedAt : Math.max(invalidated, this.chunkCacheClearedAt);
     }
 
     private void tickChunks() {
         if (this.chunksPerTicks <= 0 || this.loaders.isEmpty()) {
-            this.chunkTickList = new HashMap<>();
+            this.chunkTickList.clear();
             return;
         }
 
@@ -908,13 +1043,13 @@ public class Level implements ChunkManager, Metadatable {
             int chunkX = (int) loader.getX() >> 4;
             int chunkZ = (int) loader.getZ() >> 4;
 
-            String index = Level.chunkHash(chunkX, chunkZ);
+            long index = Level.chunkKey(chunkX, chunkZ);
             int existingLoaders = Math.max(0, this.chunkTickList.containsKey(index) ? this.chunkTickList.get(index) : 0);
             this.chunkTickList.put(index, existingLoaders + 1);
             for (int chunk = 0; chunk < chunksPerLoader; ++chunk) {
-                int dx = new java.util.Random().nextInt(2 * randRange) - randRange;
-                int dz = new java.util.Random().nextInt(2 * randRange) - randRange;
-                String hash = Level.chunkHash(dx + chunkX, dz + chunkZ);
+                int dx = this.rand.nextInt(2 * randRange) - randRange;
+                int dz = this.rand.nextInt(2 * randRange) - randRange;
+                long hash = Level.chunkKey(dx + chunkX, dz + chunkZ);
                 if (!this.chunkTickList.containsKey(hash) && this.chunks.containsKey(hash)) {
                     this.chunkTickList.put(hash, -1);
                 }
@@ -923,12 +1058,11 @@ public class Level implements ChunkManager, Metadatable {
 
         int blockTest = 0;
 
-        for (String index : new ArrayList<>(this.chunkTickList.keySet())) {
+        for (long index : this.chunkTickList.keys()) {
             int loaders = this.chunkTickList.get(index);
 
-            Chunk.Entry chunkEntry = Level.getChunkXZ(index);
-            int chunkX = chunkEntry.chunkX;
-            int chunkZ = chunkEntry.chunkZ;
+            int chunkX = Level.getChunkKeyX(index);
+            int chunkZ = Level.getChunkKeyZ(index);
 
             FullChunk chunk;
             if (!this.chunks.containsKey(index) || (chunk = this.getChunk(chunkX, chunkZ, false)) == null) {
@@ -955,18 +1089,13 @@ public class Level implements ChunkManager, Metadatable {
                             int z = k >> 16 & 0x0f;
 
                             blockId = section.getBlockId(x, y, z);
-                            if (this.randomTickBlocks.containsKey(blockId)) {
-                                Class<? extends Block> clazz = this.randomTickBlocks.get(blockId);
-                                try {
-                                    Block block = clazz.getConstructor(int.class).newInstance(section.getBlockData(x, y, z));
-                                    block.x = chunkX * 16 + x;
-                                    block.y = (Y << 4) + y;
-                                    block.z = chunkZ * 16 + z;
-                                    block.level = this;
-                                    block.onUpdate(BLOCK_UPDATE_RANDOM);
-                                } catch (Exception e) {
-                                    throw new RuntimeException(e);
-                                }
+                            if (this.randomTickBlocks[blockId]) {
+                                Block block = this.blockStates[(blockId << 4) | section.getBlockData(x, y, z)].clone();
+                                block.x = chunkX * 16 + x;
+                                block.y = (Y << 4) + y;
+                                block.z = chunkZ * 16 + z;
+                                block.level = this;
+                                block.onUpdate(BLOCK_UPDATE_RANDOM);
                             }
                         }
                     }
@@ -982,15 +1111,8 @@ public class Level implements ChunkManager, Metadatable {
                         int z = k >> 16 & 0x0f;
 
                         blockTest |= blockId = chunk.getBlockId(x, y + (Y << 4), z);
-                        if (this.randomTickBlocks.containsKey(blockId)) {
-                            Class<? extends Block> clazz = this.randomTickBlocks.get(blockId);
-
-                            Block block;
-                            try {
-                                block = clazz.getConstructor(int.class).newInstance(chunk.getBlockData(x, y + (Y << 4), z));
-                            } catch (Exception e) {
-                                throw new RuntimeException(e);
-                            }
+                        if (this.randomTickBlocks[blockId]) {
+                            Block block = this.blockStates[(blockId << 4) | chunk.getBlockData(x, y + (Y << 4), z)].clone();
                             block.x = chunkX * 16 + x;
                             block.y = (Y << 4) + y;
                             block.z = chunkZ * 16 + z;
@@ -1003,10 +1125,18 @@ public class Level implements ChunkManager, Metadatable {
         }
 
         if (this.clearChunksOnTick) {
-            this.chunkTickList = new HashMap<>();
+            this.chunkTickList.clear();
         }
     }
 
+    public void addRandomTickBlock(int id) {
+        this.randomTickBlocks[id & 0xff] = true;
+    }
+
+    public void removeRandomTickBlock(int id) {
+        this.randomTickBlocks[id & 0xff] = false;
+    }
+
     public boolean save() {
         return this.save(false);
     }
@@ -1037,7 +1167,7 @@ public class Level implements ChunkManager, Metadatable {
             if (chunk.hasChanged()) {
                 try {
                     this.provider.setChunk(chunk.getX(), chunk.getZ(), chunk);
-                    this.provider.saveChunk(chunk.getX(), chunk.getZ());
+                    this.saveChunkAsync(chunk.getX(), chunk.getZ());
 
                     chunk.setChanged(false);
                 } catch (Exception e) {
@@ -1047,41 +1177,50 @@ public class Level implements ChunkManager, Metadatable {
         }
     }
 
-    public void updateAround(Vector3 pos) {
-        BlockUpdateEvent ev;
-        this.server.getPluginManager().callEvent(ev = new BlockUpdateEvent(this.getBlock(this.temporalVector.setComponents(pos.x, pos.y - 1, pos.z))));
-        if (!ev.isCancelled()) {
-            ev.getBlock().onUpdate(BLOCK_UPDATE_NORMAL);
-        }
-
-        this.server.getPluginManager().callEvent(ev = new BlockUpdateEvent(this.getBlock(this.temporalVector.setComponents(pos.x, pos.y + 1, pos.z))));
-        if (!ev.isCancelled()) {
-            ev.getBlock().onUpdate(BLOCK_UPDATE_NORMAL);
-        }
-
-        this.server.getPluginManager().callEvent(ev = new BlockUpdateEvent(this.getBlock(this.temporalVector.setComponents(pos.x - 1, pos.y, pos.z))));
-        if (!ev.isCancelled()) {
-            ev.getBlock().onUpdate(BLOCK_UPDATE_NORMAL);
-        }
-
-        this.server.getPluginManager().callEvent(ev = new BlockUpdateEvent(this.getBlock(this.temporalVector.setComponents(pos.x + 1, pos.y, pos.z))));
-        if (!ev.isCancelled()) {
-            ev.getBlock().onUpdate(BLOCK_UPDATE_NORMAL);
+    /**
+     * Writes a loaded chunk back to the provider if it changed since it was last saved.
+     */
+    public void saveChunk(int x, int z) {
+        BaseFullChunk chunk = this.chunks.get(Level.chunkKey(x, z));
+        if (chunk != null && chunk.hasChanged()) {
+            this.provider.setChunk(x, z, chunk);
+            this.saveChunkAsync(x, z);
+            chunk.setChanged(false);
         }
+    }
 
-        this.server.getPluginManager().callEvent(ev = new BlockUpdateEvent(this.getBlock(this.temporalVector.setComponents(pos.x, pos.y, pos.z - 1))));
-        if (!ev.isCancelled()) {
-            ev.getBlock().onUpdate(BLOCK_UPDATE_NORMAL);
-        }
+    private void saveChunkAsync(int x, int z) {
+        this.provider.saveChunkAsync(x, z).whenComplete((result, error) -> {
+            if (error != null) {
+                this.server.getLogger().logException(new ChunkException("Could not save chunk " + x + ":" + z, error));
+            }
+        });
+    }
 
-        this.server.getPluginManager().callEvent(ev = new BlockUpdateEvent(this.getBlock(this.temporalVector.setComponents(pos.x, pos.y, pos.z + 1))));
-        if (!ev.isCancelled()) {
-            ev.getBlock().onUpdate(BLOCK_UPDATE_NORMAL);
+    public void updateAround(Vector3 pos) {
+        boolean callEvent = this.server.getPluginManager().hasListeners(BlockUpdateEvent.class);
+        this.updateBlock(this.getBlock(this.temporalVector.setComponents(pos.x, pos.y - 1, pos.z)), callEvent);
+        this.updateBlock(this.getBlock(this.temporalVector.setComponents(pos.x, pos.y + 1, pos.z)), callEvent);
+        this.updateBlock(this.getBlock(this.temporalVector.setComponents(pos.x - 1, pos.y, pos.z)), callEvent);
+        this.updateBlock(this.getBlock(this.temporalVector.setComponents(pos.x + 1, pos.y, pos.z)), callEvent);
+        this.updateBlock(this.getBlock(this.temporalVector.setComponents(pos.x, pos.y, pos.z - 1)), callEvent);
+        this.updateBlock(this.getBlock(this.temporalVector.setComponents(pos.x, pos.y, pos.z + 1)), callEvent);
+    }
+
+    private void updateBlock(Block block, boolean callEvent) {
+        if (callEvent) {
+            BlockUpdateEvent ev = new BlockUpdateEvent(block);
+            this.server.getPluginManager().callEvent(ev);
+            if (ev.isCancelled()) {
+                return;
+            }
+            block = ev.getBlock();
         }
+        block.onUpdate(BLOCK_UPDATE_NORMAL);
     }
 
     public void scheduleUpdate(Vector3 pos, int delay) {
-        String index = Level.blockHash((int) pos.x, (int) pos.y, (int) pos.z);
+        long index = Level.blockKey((int) pos.x, (int) pos.y, (int) pos.z);
         if (this.updateQueueIndex.containsKey(index) && this.updateQueueIndex.get(index) <= delay) {
             return;
         }
@@ -1170,9 +1309,7 @@ public class Level implements ChunkManager, Metadatable {
         }
 
         if (entities) {
-            for (Entity ent : this.getCollidingEntities(bb.grow(0.25f, 0.25f, 0.25f), entity)) {
-                collides.add(ent.boundingBox.clone());
-            }
+            this.forEachCollidingEntity(bb.grow(0.25f, 0.25f, 0.25f), entity, ent -> collides.add(ent.boundingBox.clone()));
         }
 
         return collides.stream().toArray(AxisAlignedBB[]::new);
@@ -1202,15 +1339,16 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public Block getBlock(Vector3 pos, boolean cached) {
-        String chunkIndex = Level.chunkHash((int) pos.x >> 4, (int) pos.z >> 4);
-        String index = Level.blockHash((int) pos.x, (int) pos.y, (int) pos.z);
+        int x = (int) pos.x;
+        int y = (int) pos.y;
+        int z = (int) pos.z;
         int fullState = 0;
-        if (cached && this.blockCache.containsKey(index)) {
-            return this.blockCache.get(index);
-        } else if (pos.y >= 0 && pos.y < 128 && this.chunks.containsKey(chunkIndex)) {
-            fullState = this.chunks.get(chunkIndex).getFullBlock((int) pos.x & 0x0f, (int) pos.y & 0x7f, (int) pos.z & 0x0f);
-        } else {
-            fullState = 0;
+        Block cachedBlock;
+        BaseFullChunk chunk = null;
+        if (cached && (cachedBlock = this.blockCache.get(x, y, z)) != null) {
+            return cachedBlock;
+        } else if (pos.y >= 0 && pos.y < 128 && (chunk = this.chunks.get(Level.chunkKey(x >> 4, z >> 4))) != null) {
+            fullState = chunk.getFullBlock(x & 0x0f, y & 0x7f, z & 0x0f);
         }
 
         Block block = this.blockStates[fullState & 0xfff].clone();
@@ -1220,100 +1358,133 @@ public class Level implements ChunkManager, Metadatable {
         block.z = pos.z;
         block.level = this;
 
-        this.blockCache.put(index, block);
+        //air outside loaded chunks is not cached, it would go stale once the chunk loads
+        if (chunk != null) {
+            this.blockCache.put(x, y, z, block);
+        }
 
         return block;
     }
 
     public void updateAllLight(Vector3 pos) {
-        this.updateBlockSkyLight((int) pos.x, (int) pos.y, (int) pos.z);
-        this.updateBlockLight((int) pos.x, (int) pos.y, (int) pos.z);
+        this.lightEngine.update(new long[]{Level.blockKey((int) pos.x, (int) pos.y, (int) pos.z)}, 1);
     }
 
     public void updateBlockSkyLight(int x, int y, int z) {
-        //todo
+        this.lightEngine.updateSkyLight(new long[]{Level.blockKey(x, y, z)}, 1);
     }
 
     public void updateBlockLight(int x, int y, int z) {
-        Queue<Vector3> lightPropagationQueue = new ConcurrentLinkedQueue<>();
-        Queue<Object[]> lightRemovalQueue = new ConcurrentLinkedQueue<>();
-        Map<String, Boolean> visited = new HashMap<>();
-        Map<String, Boolean> removalVisited = new HashMap<>();
+        this.lightEngine.updateBlockLight(new long[]{Level.blockKey(x, y, z)}, 1);
+    }
 
-        int oldLevel = this.getBlockLightAt(x, y, z);
-        int newLevel = Block.light[this.getBlockIdAt(x, y, z)];
+    public LightEngine getLightEngine() {
+        return this.lightEngine;
+    }
+
+    /**
+     * Runs the light updates queued since the last tick. Chunks watched by players and small batches are relit right
+     * away, large batches in other chunks are relit on an async worker from copies of the surrounding chunks.
+     */
+    private void processLightUpdates() {
+        if (!this.lightEngine.hasPendingUpdates()) {
+            return;
+        }
 
-        if (oldLevel != newLevel) {
-            this.setBlockLightAt(x, y, z, newLevel);
+        long[] updates = this.lightEngine.drainUpdates();
+        long[] direct = new long[updates.length];
+        int directCount = 0;
+        LongObjectHashMap<List<Long>> deferred = new LongObjectHashMap<>();
 
-            if (newLevel < oldLevel) {
-                removalVisited.put(Level.blockHash(x, y, z), true);
-                lightRemovalQueue.add(new Object[]{new Vector3(x, y, z), oldLevel});
+        for (long pos : updates) {
+            int chunkX = Level.getBlockKeyX(pos) >> 4;
+            int chunkZ = Level.getBlockKeyZ(pos) >> 4;
+            if (this.isLightUpdateLocked(chunkX, chunkZ)) {
+                //an async update is still working on these chunks, try again next tick
+                this.lightEngine.queueUpdate(pos);
+            } else if (!this.getChunkPlayers(chunkX, chunkZ).isEmpty()) {
+                direct[directCount++] = pos;
             } else {
-                visited.put(Level.blockHash(x, y, z), true);
-                lightPropagationQueue.add(new Vector3(x, y, z));
+                long index = Level.chunkKey(chunkX, chunkZ);
+                List<Long> positions = deferred.get(index);
+                if (positions == null) {
+                    deferred.put(index, positions = new ArrayList<>());
+                }
+                positions.add(pos);
             }
         }
 
-        while (!lightRemovalQueue.isEmpty()) {
-            Object[] val = lightRemovalQueue.poll();
-            Vector3 node = (Vector3) val[0];
-            int lightLevel = (int) val[1];
+        List<Long> async = new ArrayList<>();
+        for (long index : deferred.keys()) {
+            List<Long> positions = deferred.get(index);
+            if (positions.size() < ASYNC_LIGHT_UPDATE_MIN) {
+                for (long pos : positions) {
+                    direct[directCount++] = pos;
+                }
+            } else {
+                async.add(index);
+            }
+        }
 
-            this.computeRemoveBlockLight((int) node.x - 1, (int) node.y, (int) node.z, lightLevel, lightRemovalQueue, lightPropagationQueue, removalVisited, visited);
-            this.computeRemoveBlockLight((int) node.x + 1, (int) node.y, (int) node.z, lightLevel, lightRemovalQueue, lightPropagationQueue, removalVisited, visited);
-            this.computeRemoveBlockLight((int) node.x, (int) node.y - 1, (int) node.z, lightLevel, lightRemovalQueue, lightPropagationQueue, removalVisited, visited);
-            this.computeRemoveBlockLight((int) node.x, (int) node.y + 1, (int) node.z, lightLevel, lightRemovalQueue, lightPropagationQueue, removalVisited, visited);
-            this.computeRemoveBlockLight((int) node.x, (int) node.y, (int) node.z - 1, lightLevel, lightRemovalQueue, lightPropagationQueue, removalVisited, visited);
-            this.computeRemoveBlockLight((int) node.x, (int) node.y, (int) node.z + 1, lightLevel, lightRemovalQueue, lightPropagationQueue, removalVisited, visited);
+        //before any copies are taken, so the async updates see the result
+        if (directCount > 0) {
+            this.lightEngine.update(direct, directCount);
         }
 
-        while (!lightPropagationQueue.isEmpty()) {
-            Vector3 node = lightPropagationQueue.poll();
-            int lightLevel = this.getBlockLightAt((int) node.x, (int) node.y, (int) node.z) - Block.lightFilter[this.getBlockIdAt((int) node.x, (int) node.y, (int) node.z)];
+        for (long index : async) {
+            int chunkX = Level.getChunkKeyX(index);
+            int chunkZ = Level.getChunkKeyZ(index);
+            List<Long> positions = deferred.get(index);
+            if (this.isLightUpdateLocked(chunkX, chunkZ)) {
+                for (long pos : positions) {
+                    this.lightEngine.queueUpdate(pos);
+                }
+                continue;
+            }
 
-            if (lightLevel >= 1) {
-                this.computeSpreadBlockLight((int) node.x - 1, (int) node.y, (int) node.z, lightLevel, lightPropagationQueue, visited);
-                this.computeSpreadBlockLight((int) node.x + 1, (int) node.y, (int) node.z, lightLevel, lightPropagationQueue, visited);
-                this.computeSpreadBlockLight((int) node.x, (int) node.y - 1, (int) node.z, lightLevel, lightPropagationQueue, visited);
-                this.computeSpreadBlockLight((int) node.x, (int) node.y + 1, (int) node.z, lightLevel, lightPropagationQueue, visited);
-                this.computeSpreadBlockLight((int) node.x, (int) node.y, (int) node.z - 1, lightLevel, lightPropagationQueue, visited);
-                this.computeSpreadBlockLight((int) node.x, (int) node.y, (int) node.z + 1, lightLevel, lightPropagationQueue, visited);
+            long[] array = new long[positions.size()];
+            for (int i = 0; i < array.length; ++i) {
+                array[i] = positions.get(i);
             }
+
+            this.lockLightUpdate(chunkX, chunkZ);
+            this.server.getScheduler().scheduleAsyncTask(new LightUpdateTask(this, chunkX, chunkZ, array));
         }
     }
 
-    private void computeRemoveBlockLight(int x, int y, int z, int currentLight, Queue<Object[]> queue, Queue<Vector3> spreadQueue, Map<String, Boolean> visited, Map<String, Boolean> spreadVisited) {
-        int current = this.getBlockLightAt(x, y, z);
-        String index = Level.blockHash(x, y, z);
-        if (current != 0 && current < currentLight) {
-            this.setBlockLightAt(x, y, z, 0);
-
-            if (!visited.containsKey(index)) {
-                visited.put(index, true);
-                if (current > 1) {
-                    queue.add(new Object[]{new Vector3(x, y, z), current});
+    private boolean isLightUpdateLocked(int chunkX, int chunkZ) {
+        if (this.lightUpdateLock.isEmpty()) {
+            return false;
+        }
+        for (int xx = -1; xx <= 1; ++xx) {
+            for (int zz = -1; zz <= 1; ++zz) {
+                if (this.lightUpdateLock.containsKey(Level.chunkKey(chunkX + xx, chunkZ + zz))) {
+                    return true;
                 }
             }
-        } else if (current >= currentLight) {
-            if (!spreadVisited.containsKey(index)) {
-                spreadVisited.put(index, true);
-                spreadQueue.add(new Vector3(x, y, z));
-            }
         }
+        return false;
     }
 
-    private void computeSpreadBlockLight(int x, int y, int z, int currentLight, Queue<Vector3> queue, Map<String, Boolean> visited) {
-        int current = this.getBlockLightAt(x, y, z);
-        String index = Level.blockHash(x, y, z);
-
-        if (current < currentLight) {
-            this.setBlockLightAt(x, y, z, currentLight);
+    private void lockLightUpdate(int chunkX, int chunkZ) {
+        for (int xx = -1; xx <= 1; ++xx) {
+            for (int zz = -1; zz <= 1; ++zz) {
+                long index = Level.chunkKey(chunkX + xx, chunkZ + zz);
+                Integer count = this.lightUpdateLock.get(index);
+                this.lightUpdateLock.put(index, count == null ? 1 : count + 1);
+            }
+        }
+    }
 
-            if (!visited.containsKey(index)) {
-                visited.put(index, true);
-                if (currentLight > 1) {
-                    queue.add(new Vector3(x, y, z));
+    public void lightUpdateCallback(int chunkX, int chunkZ) {
+        for (int xx = -1; xx <= 1; ++xx) {
+            for (int zz = -1; zz <= 1; ++zz) {
+                long index = Level.chunkKey(chunkX + xx, chunkZ + zz);
+                Integer count = this.lightUpdateLock.get(index);
+                if (count == null || count <= 1) {
+                    this.lightUpdateLock.remove(index);
+                } else {
+                    this.lightUpdateLock.put(index, count - 1);
                 }
             }
         }
@@ -1341,19 +1512,19 @@ public class Level implements ChunkManager, Metadatable {
             }
 
             block.position(position);
-            this.blockCache.remove(Level.blockHash((int) position.x, (int) position.y, (int) position.z));
+            this.blockCache.invalidate((int) position.x, (int) position.y, (int) position.z);
 
-            String index = Level.chunkHash((int) position.x >> 4, (int) position.z >> 4);
+            long index = Level.chunkKey((int) position.x >> 4, (int) position.z >> 4);
 
             if (direct) {
                 this.sendBlocks(this.getChunkPlayers((int) position.x >> 4, (int) position.z >> 4).values().stream().toArray(Player[]::new), new Block[]{block}, UpdateBlockPacket.FLAG_ALL_PRIORITY);
-                this.chunkCache.remove(index);
+                this.invalidateChunkCache(index);
             } else {
                 if (!this.changedBlocks.containsKey(index)) {
-                    this.changedBlocks.put(index, new HashMap<>());
+                    this.changedBlocks.put(index, new LongObjectHashMap<>());
                 }
 
-                this.changedBlocks.get(index).put(Level.blockHash((int) block.x, (int) block.y, (int) block.z), block.clone());
+                this.changedBlocks.get(index).put(Level.blockKey((int) block.x, (int) block.y, (int) block.z), block.clone());
             }
 
             for (ChunkLoader loader : this.getChunkLoaders((int) position.x >> 4, (int) position.z >> 4)) {
@@ -1361,7 +1532,7 @@ public class Level implements ChunkManager, Metadatable {
             }
 
             if (update) {
-                this.updateAllLight(block);
+                this.lightEngine.queueUpdate((int) block.x, (int) block.y, (int) block.z);
 
                 BlockUpdateEvent ev = new BlockUpdateEvent(block);
                 this.server.getPluginManager().callEvent(ev);
@@ -1409,7 +1580,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public void dropItem(Vector3 source, Item item, Vector3 motion, int delay) {
-        motion = motion == null ? new Vector3(new java.util.Random().nextDouble() * 0.2 - 0.1, 0.2, new java.util.Random().nextDouble() * 0.2 - 0.1) : motion;
+        motion = motion == null ? new Vector3(this.rand.nextDouble() * 0.2 - 0.1, 0.2, this.rand.nextDouble() * 0.2 - 0.1) : motion;
 
         CompoundTag itemTag = NBTIO.putItemHelper(item);
         itemTag.setName("Item");
@@ -1427,7 +1598,7 @@ public class Level implements ChunkManager, Metadatable {
                             .add(new DoubleTag("", motion.z)))
 
                     .putList(new ListTag<FloatTag>("Rotation")
-                            .add(new FloatTag("", new java.util.Random().nextFloat() * 360))
+                            .add(new FloatTag("", this.rand.nextFloat() * 360))
                             .add(new FloatTag("", 0)))
 
                     .putShort("Health", 5)
@@ -1601,7 +1772,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public void dropExpOrb(Vector3 source, int exp, Vector3 motion, int delay) {
-        motion = (motion == null) ? new Vector3(new java.util.Random().nextDouble() * 0.2 - 0.1, 0.2, new java.util.Random().nextDouble() * 0.2 - 0.1) : motion;
+        motion = (motion == null) ? new Vector3(this.rand.nextDouble() * 0.2 - 0.1, 0.2, this.rand.nextDouble() * 0.2 - 0.1) : motion;
         CompoundTag nbt = new CompoundTag()
                 .putList(new ListTag<DoubleTag>("Pos")
                         .add(new DoubleTag("", source.getX()))
@@ -1782,25 +1953,24 @@ public class Level implements ChunkManager, Metadatable {
 
     public Entity[] getCollidingEntities(AxisAlignedBB bb, Entity entity) {
         List<Entity> nearby = new ArrayList<>();
-
-        if (entity == null || entity.canCollide()) {
-            int minX = NukkitMath.floorDouble((bb.minX - 2) / 16);
-            int maxX = NukkitMath.ceilDouble((bb.maxX + 2) / 16);
-            int minZ = NukkitMath.floorDouble((bb.minZ - 2) / 16);
-            int maxZ = NukkitMath.ceilDouble((bb.maxZ + 2) / 16);
-
-            for (int x = minX; x <= maxX; ++x) {
-                for (int z = minZ; z <= maxZ; ++z) {
-                    for (Entity ent : this.getChunkEntities(x, z).values()) {
-                        if ((entity == null || (!ent.equals(entity) && entity.canCollideWith(ent))) && ent.boundingBox.intersectsWith(bb)) {
-                            nearby.add(ent);
-                        }
-                    }
+        this.forEachCollidingEntity(bb, entity, nearby::add);
+        return nearby.toArray(new Entity[nearby.size()]);
+    }
+
+    /**
+     * Passes every entity intersecting {@code bb} that {@code entity} can collide with to {@code action},
+     * without building an array. See {@link EntitySpatialIndex#forEachIntersecting} for what the action may do.
+     */
+    public void forEachCollidingEntity(AxisAlignedBB bb, Entity entity, Consumer<Entity> action) {
+        if (entity == null) {
+            this.entityIndex.forEachIntersecting(bb, action);
+        } else if (entity.canCollide()) {
+            this.entityIndex.forEachIntersecting(bb, ent -> {
+                if (ent != entity && entity.canCollideWith(ent)) {
+                    action.accept(ent);
                 }
-            }
+            });
         }
-
-        return nearby.stream().toArray(Entity[]::new);
     }
 
     public Entity[] getNearbyEntities(AxisAlignedBB bb) {
@@ -1809,25 +1979,28 @@ public class Level implements ChunkManager, Metadatable {
 
     public Entity[] getNearbyEntities(AxisAlignedBB bb, Entity entity) {
         List<Entity> nearby = new ArrayList<>();
-
-        if (entity == null || entity.canCollide()) {
-            int minX = NukkitMath.floorDouble((bb.minX - 2) / 16);
-            int maxX = NukkitMath.ceilDouble((bb.maxX + 2) / 16);
-            int minZ = NukkitMath.floorDouble((bb.minZ - 2) / 16);
-            int maxZ = NukkitMath.ceilDouble((bb.maxZ + 2) / 16);
-
-            for (int x = minX; x <= maxX; ++x) {
-                for (int z = minZ; z <= maxZ; ++z) {
-                    for (Entity ent : this.getChunkEntities(x, z).values()) {
-                        if (!Objects.equals(ent, entity) && ent.boundingBox.intersectsWith(bb)) {
-                            nearby.add(ent);
-                        }
-                    }
+        this.forEachNearbyEntity(bb, entity, nearby::add);
+        return nearby.toArray(new Entity[nearby.size()]);
+    }
+
+    /**
+     * Passes every entity other than {@code entity} intersecting {@code bb} to {@code action}, without building an
+     * array. See {@link EntitySpatialIndex#forEachIntersecting} for what the action may do.
+     */
+    public void forEachNearbyEntity(AxisAlignedBB bb, Entity entity, Consumer<Entity> action) {
+        if (entity == null) {
+            this.entityIndex.forEachIntersecting(bb, action);
+        } else if (entity.canCollide()) {
+            this.entityIndex.forEachIntersecting(bb, ent -> {
+                if (ent != entity) {
+                    action.accept(ent);
                 }
-            }
+            });
         }
+    }
 
-        return nearby.stream().toArray(Entity[]::new);
+    public EntitySpatialIndex getEntityIndex() {
+        return this.entityIndex;
     }
 
     public Map<Long, BlockEntity> getBlockEntities() {
@@ -1873,18 +2046,19 @@ public class Level implements ChunkManager, Metadatable {
 
     @Override
     public void setBlockIdAt(int x, int y, int z, int id) {
-        this.blockCache.remove(Level.blockHash(x, y, z));
+        this.blockCache.invalidate(x, y, z);
         this.getChunk(x >> 4, z >> 4, true).setBlockId(x & 0x0f, y & 0x7f, z & 0x0f, id & 0xff);
 
-        String index = Level.chunkHash(x >> 4, z >> 4);
+        long index = Level.chunkKey(x >> 4, z >> 4);
         if (!this.changedBlocks.containsKey(index)) {
-            this.changedBlocks.put(index, new HashMap<>());
+            this.changedBlocks.put(index, new LongObjectHashMap<>());
         }
         Vector3 v;
-        this.changedBlocks.get(index).put(Level.blockHash(x, y, z), v = new Vector3(x, y, z));
+        this.changedBlocks.get(index).put(Level.blockKey(x, y, z), v = new Vector3(x, y, z));
         for (ChunkLoader loader : this.getChunkLoaders(x >> 4, z >> 4)) {
             loader.onBlockChanged(v);
         }
+        this.lightEngine.queueUpdate(x, y, z);
     }
 
     public int getBlockExtraDataAt(int x, int y, int z) {
@@ -1904,15 +2078,15 @@ public class Level implements ChunkManager, Metadatable {
 
     @Override
     public void setBlockDataAt(int x, int y, int z, int data) {
-        this.blockCache.remove(Level.blockHash(x, y, z));
+        this.blockCache.invalidate(x, y, z);
         this.getChunk(x >> 4, z >> 4, true).setBlockData(x & 0x0f, y & 0x7f, z & 0x0f, data & 0x0f);
 
-        String index = Level.chunkHash(x >> 4, z >> 4);
+        long index = Level.chunkKey(x >> 4, z >> 4);
         if (!this.changedBlocks.containsKey(index)) {
-            this.changedBlocks.put(index, new HashMap<>());
+            this.changedBlocks.put(index, new LongObjectHashMap<>());
         }
         Vector3 v;
-        this.changedBlocks.get(index).put(Level.blockHash(x, y, z), v = new Vector3(x, y, z));
+        this.changedBlocks.get(index).put(Level.blockKey(x, y, z), v = new Vector3(x, y, z));
         for (ChunkLoader loader : this.getChunkLoaders(x >> 4, z >> 4)) {
             loader.onBlockChanged(v);
         }
@@ -1958,7 +2132,7 @@ public class Level implements ChunkManager, Metadatable {
         this.getChunk(x >> 4, z >> 4, true).setBiomeColor(x & 0x0f, z & 0x0f, R, G, B);
     }
 
-    public Map<String, BaseFullChunk> getChunks() {
+    public LongObjectHashMap<BaseFullChunk> getChunks() {
         return chunks;
     }
 
@@ -1968,7 +2142,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public BaseFullChunk getChunk(int chunkX, int chunkZ, boolean create) {
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (this.chunks.containsKey(index)) {
             return this.chunks.get(index);
         } else if (this.loadChunk(chunkX, chunkZ, create)) {
@@ -1979,12 +2153,12 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public void generateChunkCallback(int x, int z, BaseFullChunk chunk) {
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
         if (this.chunkPopulationQueue.containsKey(index)) {
             FullChunk oldChunk = this.getChunk(x, z, false);
             for (int xx = -1; xx <= 1; ++xx) {
                 for (int zz = -1; zz <= 1; ++zz) {
-                    this.chunkPopulationLock.remove(Level.chunkHash(x + xx, z + zz));
+                    this.chunkPopulationLock.remove(Level.chunkKey(x + xx, z + zz));
                 }
             }
             this.chunkPopulationQueue.remove(index);
@@ -2023,7 +2197,7 @@ public class Level implements ChunkManager, Metadatable {
         if (chunk == null) {
             return;
         }
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         FullChunk oldChunk = this.getChunk(chunkX, chunkZ, false);
         if (unload && oldChunk != null) {
             this.unloadChunk(chunkX, chunkZ, false, false);
@@ -2049,7 +2223,8 @@ public class Level implements ChunkManager, Metadatable {
             }
         }
 
-        this.chunkCache.remove(index);
+        this.invalidateChunkCache(index);
+        this.blockCache.invalidateChunk(chunkX, chunkZ);
         chunk.setChanged();
 
         if (!this.isChunkInUse(chunkX, chunkZ)) {
@@ -2080,7 +2255,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public boolean isChunkLoaded(int x, int z) {
-        return this.chunks.containsKey(Level.chunkHash(x, z)) || this.provider.isChunkLoaded(x, z);
+        return this.chunks.containsKey(Level.chunkKey(x, z)) || this.provider.isChunkLoaded(x, z);
     }
 
     public boolean isChunkGenerated(int x, int z) {
@@ -2104,7 +2279,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public void requestChunk(int x, int z, Player player) {
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
         if (!this.chunkSendQueue.containsKey(index)) {
             this.chunkSendQueue.put(index, new HashMap<>());
         }
@@ -2113,7 +2288,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     private void sendChunkFromCache(int x, int z) {
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
         if (this.chunkSendTasks.containsKey(index)) {
             for (Player player : this.chunkSendQueue.get(index).values()) {
                 if (player.isConnected() && player.usedChunks.containsKey(index)) {
@@ -2128,13 +2303,12 @@ public class Level implements ChunkManager, Metadatable {
 
     private void processChunkRequest() {
         if (!this.chunkSendQueue.isEmpty()) {
-            for (String index : new ArrayList<>(this.chunkSendQueue.keySet())) {
+            for (long index : this.chunkSendQueue.keys()) {
                 if (this.chunkSendTasks.containsKey(index)) {
                     continue;
                 }
-                Chunk.Entry chunkEntry = Level.getChunkXZ(index);
-                int x = chunkEntry.chunkX;
-                int z = chunkEntry.chunkZ;
+                int x = Level.getChunkKeyX(index);
+                int z = Level.getChunkKeyZ(index);
                 this.chunkSendTasks.put(index, true);
                 if (this.chunkCache.containsKey(index)) {
                     this.sendChunkFromCache(x, z);
@@ -2154,9 +2328,9 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public void chunkRequestCallback(int x, int z, byte[] payload, byte ordering) {
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
 
-        if (this.chunkCache.containsKey(index) && this.cacheChunks) {
+        if (!this.chunkCache.containsKey(index) && this.cacheChunks) {
             this.chunkCache.put(index, Player.getChunkCacheFromData(x, z, payload, ordering));
             this.sendChunkFromCache(x, z);
             return;
@@ -2174,6 +2348,60 @@ public class Level implements ChunkManager, Metadatable {
         }
     }
 
+    /**
+     * Called with a chunk that was already encoded and compressed by a {@link cn.nukkit.level.format.generic.ChunkRequestTask}.
+     */
+    public void chunkRequestCallback(int x, int z, DataPacket packet) {
+        this.chunkRequestCallback(x, z, packet, this.chunks.get(Level.chunkKey(x, z)), this.getChunkCacheVersion(x, z));
+    }
+
+    /**
+     * @param chunk   the chunk the packet was encoded from
+     * @param version {@link #getChunkCacheVersion(int, int)} when the chunk was encoded. The packet is only
+     *                cached if the chunk is still loaded and has not changed since; it is sent either way.
+     */
+    public void chunkRequestCallback(int x, int z, DataPacket packet, FullChunk chunk, long version) {
+        long index = Level.chunkKey(x, z);
+        this.chunkRequestFailures.remove(index);
+
+        if (this.cacheChunks && !this.chunkCache.containsKey(index)
+                && chunk != null && this.chunks.get(index) == chunk && this.getChunkCacheVersion(x, z) == version) {
+            this.chunkCache.put(index, packet);
+        }
+
+        if (this.chunkSendTasks.containsKey(index)) {
+            for (Player player : this.chunkSendQueue.get(index).values()) {
+                if (player.isConnected() && player.usedChunks.containsKey(index)) {
+                    player.sendChunk(x, z, packet);
+                }
+            }
+
+            this.chunkSendQueue.remove(index);
+            this.chunkSendTasks.remove(index);
+        }
+    }
+
+    /**
+     * Called when a {@link cn.nukkit.level.format.generic.ChunkRequestTask} could not encode a chunk. The players
+     * waiting for it stay queued and {@link #processChunkRequest()} starts a new request on the next tick, up to
+     * {@link #MAX_CHUNK_REQUEST_ATTEMPTS} times; after that their requests are dropped.
+     */
+    public void chunkRequestFailed(int x, int z) {
+        long index = Level.chunkKey(x, z);
+        this.chunkSendTasks.remove(index);
+
+        Integer failures = this.chunkRequestFailures.get(index);
+        failures = failures == null ? 1 : failures + 1;
+        if (failures < MAX_CHUNK_REQUEST_ATTEMPTS) {
+            this.chunkRequestFailures.put(index, failures);
+            return;
+        }
+
+        this.chunkRequestFailures.remove(index);
+        this.chunkSendQueue.remove(index);
+        this.server.getLogger().warning("Could not encode chunk " + x + ":" + z + " in level " + this.getFolderName() + " after " + failures + " attempts, dropping its requests");
+    }
+
     public void removeEntity(Entity entity) {
         if (!entity.getLevel().equals(this)) {
             throw new LevelException("Invalid Entity level");
@@ -2188,6 +2416,7 @@ public class Level implements ChunkManager, Metadatable {
 
         this.entities.remove(entity.getId());
         this.updateEntities.remove(entity.getId());
+        this.entityIndex.remove(entity);
     }
 
     public void addEntity(Entity entity) {
@@ -2199,6 +2428,7 @@ public class Level implements ChunkManager, Metadatable {
             this.players.put(entity.getId(), (Player) entity);
         }
         this.entities.put(entity.getId(), entity);
+        this.entityIndex.add(entity);
     }
 
     public void addBlockEntity(BlockEntity blockEntity) {
@@ -2219,7 +2449,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public boolean isChunkInUse(int x, int z) {
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
         return this.chunkLoaders.containsKey(index) && !this.chunkLoaders.get(index).isEmpty();
     }
 
@@ -2228,7 +2458,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public boolean loadChunk(int x, int z, boolean generate) {
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
         if (this.chunks.containsKey(index)) {
             return true;
         }
@@ -2244,7 +2474,64 @@ public class Level implements ChunkManager, Metadatable {
             return false;
         }
 
-        this.chunks.put(index, chunk);
+        return this.initLoadedChunk(x, z, chunk);
+    }
+
+    /**
+     * Loads a chunk on the chunk I/O threads, creating an empty one if it is not stored.
+     * The returned future completes on the main thread once the chunk is part of this level.
+     */
+    public CompletableFuture<BaseFullChunk> loadChunkAsync(int x, int z) {
+        long index = Level.chunkKey(x, z);
+        BaseFullChunk loaded = this.chunks.get(index);
+        if (loaded != null) {
+            return CompletableFuture.completedFuture(loaded);
+        }
+
+        CompletableFuture<BaseFullChunk> future = this.chunkLoadQueue.get(index);
+        if (future != null) {
+            return future;
+        }
+
+        this.cancelUnloadChunkRequest(x, z);
+
+        CompletableFuture<BaseFullChunk> result = new CompletableFuture<>();
+        this.chunkLoadQueue.put(index, result);
+        this.provider.loadChunkAsync(x, z).whenComplete((read, error) -> this.server.getScheduler().scheduleTask(() -> {
+            try {
+                this.chunkLoadQueue.remove(index);
+                if (this.provider == null) {
+                    result.complete(null);
+                    return;
+                }
+
+                if (!this.chunks.containsKey(index)) {
+                    BaseFullChunk chunk = read;
+                    if (error != null) {
+                        this.server.getLogger().logException(new ChunkException("Could not load chunk " + x + ":" + z + " asynchronously", error));
+                    } else if (chunk == null) {
+                        //not stored, there is nothing more to read
+                        chunk = this.provider.getEmptyChunk(x, z);
+                    }
+                    if (chunk != null && !this.provider.isChunkLoaded(x, z)) {
+                        this.provider.setChunk(x, z, chunk);
+                        this.initLoadedChunk(x, z, chunk);
+                    } else {
+                        this.loadChunk(x, z, true);
+                    }
+                }
+                result.complete(this.chunks.get(index));
+            } finally {
+                if (!result.isDone()) {
+                    result.completeExceptionally(new ChunkException("Could not load chunk " + x + ":" + z));
+                }
+            }
+        }));
+        return result;
+    }
+
+    private boolean initLoadedChunk(int x, int z, BaseFullChunk chunk) {
+        this.chunks.put(Level.chunkKey(x, z), chunk);
         chunk.initChunk();
 
         if (chunk.getProvider() != null) {
@@ -2270,7 +2557,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     private void queueUnloadChunk(int x, int z) {
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
         this.unloadQueue.put(index, System.currentTimeMillis());
         this.chunkTickList.remove(index);
     }
@@ -2290,7 +2577,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public void cancelUnloadChunkRequest(int x, int z) {
-        this.unloadQueue.remove(Level.chunkHash(x, z));
+        this.unloadQueue.remove(Level.chunkKey(x, z));
     }
 
     public boolean unloadChunk(int x, int z) {
@@ -2309,7 +2596,7 @@ public class Level implements ChunkManager, Metadatable {
         if (!this.isChunkLoaded(x, z)) {
             return true;
         }
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
 
         BaseFullChunk chunk = this.getChunk(x, z);
 
@@ -2334,7 +2621,7 @@ public class Level implements ChunkManager, Metadatable {
 
                     if (chunk.hasChanged() || !chunk.getBlockEntities().isEmpty() || entities > 0) {
                         this.provider.setChunk(x, z, chunk);
-                        this.provider.saveChunk(x, z);
+                        this.saveChunkAsync(x, z);
                     }
                 }
                 for (ChunkLoader loader : this.getChunkLoaders(x, z)) {
@@ -2351,6 +2638,9 @@ public class Level implements ChunkManager, Metadatable {
         this.chunks.remove(index);
         this.chunkTickList.remove(index);
         this.chunkCache.remove(index);
+        this.chunkCacheInvalidated.remove(index);
+        this.chunkRequestFailures.remove(index);
+        this.blockCache.invalidateChunk(x, z);
 
         return true;
     }
@@ -2456,18 +2746,37 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public boolean populateChunk(int x, int z, boolean force) {
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
         if (this.chunkPopulationQueue.containsKey(index) || this.chunkPopulationQueue.size() >= this.chunkPopulationQueueSize && !force) {
             return false;
         }
 
-        BaseFullChunk chunk = this.getChunk(x, z, true);
+        BaseFullChunk chunk = this.chunks.get(index);
+        if (chunk == null) {
+            this.loadChunkAsync(x, z);
+            return false;
+        }
+
         boolean populate;
         if (!chunk.isPopulated()) {
+            //population reads the neighbours, load them without blocking on disk first
+            boolean loading = false;
+            for (int xx = -1; xx <= 1; ++xx) {
+                for (int zz = -1; zz <= 1; ++zz) {
+                    if (!this.chunks.containsKey(Level.chunkKey(x + xx, z + zz))) {
+                        this.loadChunkAsync(x + xx, z + zz);
+                        loading = true;
+                    }
+                }
+            }
+            if (loading) {
+                return false;
+            }
+
             populate = true;
             for (int xx = -1; xx <= 1; ++xx) {
                 for (int zz = -1; zz <= 1; ++zz) {
-                    if (this.chunkPopulationLock.containsKey(Level.chunkHash(x + xx, z + zz))) {
+                    if (this.chunkPopulationLock.containsKey(Level.chunkKey(x + xx, z + zz))) {
 
                         populate = false;
                         break;
@@ -2480,7 +2789,7 @@ public class Level implements ChunkManager, Metadatable {
                     this.chunkPopulationQueue.put(index, true);
                     for (int xx = -1; xx <= 1; ++xx) {
                         for (int zz = -1; zz <= 1; ++zz) {
-                            this.chunkPopulationLock.put(Level.chunkHash(x + xx, z + zz), true);
+                            this.chunkPopulationLock.put(Level.chunkKey(x + xx, z + zz), true);
                         }
                     }
 
@@ -2504,7 +2813,7 @@ public class Level implements ChunkManager, Metadatable {
             return;
         }
 
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
         if (!this.chunkGenerationQueue.containsKey(index)) {
             this.chunkGenerationQueue.put(index, true);
             GenerationTask task = new GenerationTask(this, this.getChunk(x, z, true));
@@ -2533,12 +2842,11 @@ public class Level implements ChunkManager, Metadatable {
             be.close();
         }
 
-        for (String index : this.chunks.keySet()) {
+        for (long index : this.chunks.keys()) {
 
             if (!this.unloadQueue.containsKey(index)) {
-                Chunk.Entry chunkEntry = Level.getChunkXZ(index);
-                int X = chunkEntry.chunkX;
-                int Z = chunkEntry.chunkZ;
+                int X = Level.getChunkKeyX(index);
+                int Z = Level.getChunkKeyZ(index);
                 if (!this.isSpawnChunk(X, Z)) {
                     this.unloadChunkRequest(X, Z, true);
                 }
@@ -2546,7 +2854,7 @@ public class Level implements ChunkManager, Metadatable {
         }
 
         for (FullChunk chunk : new ArrayList<>(this.provider.getLoadedChunks().values())) {
-            if (!this.chunks.containsKey(Level.chunkHash(chunk.getX(), chunk.getZ()))) {
+            if (!this.chunks.containsKey(Level.chunkKey(chunk.getX(), chunk.getZ()))) {
                 this.provider.unloadChunk(chunk.getX(), chunk.getZ(), false);
             }
         }
@@ -2563,12 +2871,11 @@ public class Level implements ChunkManager, Metadatable {
             int maxUnload = 96;
             long now = System.currentTimeMillis();
 
-            for (String index : new ArrayList<>(this.unloadQueue.keySet())) {
+            for (long index : this.unloadQueue.keys()) {
                 long time = this.unloadQueue.get(index);
 
-                Chunk.Entry chunkEntry = Level.getChunkXZ(index);
-                int X = chunkEntry.chunkX;
-                int Z = chunkEntry.chunkZ;
+                int X = Level.getChunkKeyX(index);
+                int Z = Level.getChunkKeyZ(index);
 
                 if (!force) {
                     if (maxUnload <= 0) {
@@ -2607,7 +2914,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public void addEntityMotion(int chunkX, int chunkZ, long entityId, double x, double y, double z) {
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (!this.motionToSend.containsKey(index)) {
             this.motionToSend.put(index, new HashMap<>());
         }
@@ -2620,7 +2927,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public void addEntityMovement(int chunkX, int chunkZ, long entityId, double x, double y, double z, double yaw, double pitch, double headYaw) {
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (!this.moveToSend.containsKey(index)) {
             this.moveToSend.put(index, new HashMap<>());
         }
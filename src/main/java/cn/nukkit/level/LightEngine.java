@@ -0,0 +1,391 @@
+package cn.nukkit.level;
+
+import cn.nukkit.block.Block;
+import cn.nukkit.level.format.generic.BaseFullChunk;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first propagation of block light and sky light.
+ * <p>
+ * Positions whose light may have changed are queued with {@link #queueUpdate(int, int, int)} and handled
+ * together, so a burst of block changes walks every affected area once instead of once per block. The queues
+ * hold packed {@link Level#blockKey(int, int, int)} values and the last chunk looked up is kept, so propagation
+ * does not allocate per block. Chunks the {@link ChunkManager} does not return are treated as walls.
+ * <p>
+ * Sky light travels straight down without loss through blocks that are not solid, matching
+ * {@link BaseFullChunk#populateSkyLight()}; in every other direction light loses {@link Block#lightFilter}
+ * of the block it enters.
+ */
+public class LightEngine {
+
+    private static final int[] OFFSET_X = {-1, 1, 0, 0, 0, 0};
+    private static final int[] OFFSET_Y = {0, 0, -1, 1, 0, 0};
+    private static final int[] OFFSET_Z = {0, 0, 0, 0, -1, 1};
+
+    private final ChunkManager level;
+
+    private final LongQueue pending = new LongQueue();
+
+    private final LongQueue removalQueue = new LongQueue();
+    private final LongQueue removalLevels = new LongQueue();
+    private final LongQueue spreadQueue = new LongQueue();
+    private final LongQueue reseedQueue = new LongQueue();
+
+    private LongQueue changes = null;
+
+    private BaseFullChunk lastChunk = null;
+    private long lastChunkIndex = 0;
+    private boolean hasLastChunk = false;
+
+    public LightEngine(ChunkManager level) {
+        this.level = level;
+    }
+
+    public void queueUpdate(int x, int y, int z) {
+        if (y >= 0 && y < 128) {
+            this.pending.add(Level.blockKey(x, y, z));
+        }
+    }
+
+    public void queueUpdate(long blockKey) {
+        this.pending.add(blockKey);
+    }
+
+    public boolean hasPendingUpdates() {
+        return !this.pending.isEmpty();
+    }
+
+    /**
+     * Removes and returns the queued positions, sorted and without duplicates.
+     */
+    public long[] drainUpdates() {
+        long[] updates = this.pending.toArray();
+        this.pending.clear();
+        Arrays.sort(updates);
+        int count = 0;
+        for (int i = 0; i < updates.length; ++i) {
+            if (i == 0 || updates[i] != updates[i - 1]) {
+                updates[count++] = updates[i];
+            }
+        }
+        return count == updates.length ? updates : Arrays.copyOf(updates, count);
+    }
+
+    public void processUpdates() {
+        if (!this.pending.isEmpty()) {
+            long[] updates = this.drainUpdates();
+            this.update(updates, updates.length);
+        }
+    }
+
+    public void update(long[] positions, int count) {
+        this.update(positions, count, true, true);
+    }
+
+    public void updateBlockLight(long[] positions, int count) {
+        this.update(positions, count, true, false);
+    }
+
+    public void updateSkyLight(long[] positions, int count) {
+        this.update(positions, count, false, true);
+    }
+
+    private void update(long[] positions, int count, boolean blockLight, boolean skyLight) {
+        this.hasLastChunk = false;
+        if (blockLight) {
+            for (int i = 0; i < count; ++i) {
+                this.seed(positions[i], false);
+            }
+            this.propagate(false);
+        }
+        if (skyLight) {
+            for (int i = 0; i < count; ++i) {
+                this.seed(positions[i], true);
+            }
+            this.propagate(true);
+        }
+        this.lastChunk = null;
+        this.hasLastChunk = false;
+    }
+
+    /**
+     * Lights a chunk from scratch: fills the sky light columns, then spreads light from every light source and
+     * from the edges of the directly lit area into the rest of the chunk and its loaded neighbours.
+     */
+    public void populateChunk(BaseFullChunk chunk) {
+        this.hasLastChunk = false;
+        chunk.recalculateHeightMap();
+        chunk.populateSkyLight();
+
+        int baseX = chunk.getX() << 4;
+        int baseZ = chunk.getZ() << 4;
+
+        for (int x = 0; x < 16; ++x) {
+            for (int z = 0; z < 16; ++z) {
+                for (int y = 0; y < 128; ++y) {
+                    int light = Block.light[chunk.getBlockId(x, y, z)];
+                    if (light > chunk.getBlockLight(x, y, z)) {
+                        chunk.setBlockLight(x, y, z, light);
+                        this.spreadQueue.add(Level.blockKey(baseX + x, y, baseZ + z));
+                    }
+                }
+            }
+        }
+        this.propagate(false);
+
+        for (int x = 0; x < 16; ++x) {
+            for (int z = 0; z < 16; ++z) {
+                for (int y = 127; y >= 0 && chunk.getBlockSkyLight(x, y, z) == 15; --y) {
+                    for (int side = 0; side < 6; ++side) {
+                        if (OFFSET_Y[side] != 0) {
+                            continue;
+                        }
+                        int neighbour = this.getLight(baseX + x + OFFSET_X[side], y, baseZ + z + OFFSET_Z[side], true);
+                        if (neighbour >= 0 && neighbour < 14) {
+                            this.spreadQueue.add(Level.blockKey(baseX + x, y, baseZ + z));
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        this.propagate(true);
+
+        this.lastChunk = null;
+        this.hasLastChunk = false;
+    }
+
+    /**
+     * Starts logging every position whose light is modified.
+     */
+    public void startRecording() {
+        this.changes = new LongQueue();
+    }
+
+    /**
+     * Stops logging and returns the modified positions, sorted and without duplicates.
+     */
+    public long[] stopRecording() {
+        long[] changed = this.changes == null ? new long[0] : this.changes.toArray();
+        this.changes = null;
+        Arrays.sort(changed);
+        int count = 0;
+        for (int i = 0; i < changed.length; ++i) {
+            if (i == 0 || changed[i] != changed[i - 1]) {
+                changed[count++] = changed[i];
+            }
+        }
+        return Arrays.copyOf(changed, count);
+    }
+
+    private void seed(long pos, boolean sky) {
+        int x = Level.getBlockKeyX(pos);
+        int y = Level.getBlockKeyY(pos);
+        int z = Level.getBlockKeyZ(pos);
+        int current = this.getLight(x, y, z, sky);
+        if (current < 0) {
+            return;
+        }
+
+        int expected = this.computeLight(x, y, z, sky);
+        if (expected < current) {
+            this.setLight(x, y, z, sky, 0);
+            this.removalQueue.add(pos);
+            this.removalLevels.add(current);
+            this.reseedQueue.add(pos);
+        } else if (expected > current) {
+            this.setLight(x, y, z, sky, expected);
+            this.spreadQueue.add(pos);
+        }
+    }
+
+    private void propagate(boolean sky) {
+        while (!this.removalQueue.isEmpty()) {
+            long pos = this.removalQueue.poll();
+            int light = (int) this.removalLevels.poll();
+            int x = Level.getBlockKeyX(pos);
+            int y = Level.getBlockKeyY(pos);
+            int z = Level.getBlockKeyZ(pos);
+
+            for (int side = 0; side < 6; ++side) {
+                int nx = x + OFFSET_X[side];
+                int ny = y + OFFSET_Y[side];
+                int nz = z + OFFSET_Z[side];
+                int neighbour = this.getLight(nx, ny, nz, sky);
+                if (neighbour <= 0) {
+                    continue;
+                }
+
+                if (neighbour < light || (sky && light == 15 && neighbour == 15 && OFFSET_Y[side] == -1)) {
+                    this.setLight(nx, ny, nz, sky, 0);
+                    this.removalQueue.add(Level.blockKey(nx, ny, nz));
+                    this.removalLevels.add(neighbour);
+                } else {
+                    this.spreadQueue.add(Level.blockKey(nx, ny, nz));
+                }
+            }
+        }
+
+        while (!this.reseedQueue.isEmpty()) {
+            long pos = this.reseedQueue.poll();
+            int x = Level.getBlockKeyX(pos);
+            int y = Level.getBlockKeyY(pos);
+            int z = Level.getBlockKeyZ(pos);
+            int expected = this.computeLight(x, y, z, sky);
+            if (expected > this.getLight(x, y, z, sky)) {
+                this.setLight(x, y, z, sky, expected);
+                this.spreadQueue.add(pos);
+            }
+        }
+
+        while (!this.spreadQueue.isEmpty()) {
+            long pos = this.spreadQueue.poll();
+            int x = Level.getBlockKeyX(pos);
+            int y = Level.getBlockKeyY(pos);
+            int z = Level.getBlockKeyZ(pos);
+            int light = this.getLight(x, y, z, sky);
+            if (light <= 1) {
+                continue;
+            }
+
+            for (int side = 0; side < 6; ++side) {
+                int nx = x + OFFSET_X[side];
+                int ny = y + OFFSET_Y[side];
+                int nz = z + OFFSET_Z[side];
+                BaseFullChunk chunk = this.getChunkAt(nx >> 4, nz >> 4);
+                if (chunk == null || ny < 0 || ny >= 128) {
+                    continue;
+                }
+
+                int spread = spread(light, chunk.getBlockId(nx & 0x0f, ny, nz & 0x0f), sky, OFFSET_Y[side] == -1);
+                if (spread > this.getLight(chunk, nx, ny, nz, sky)) {
+                    this.setLight(nx, ny, nz, sky, spread);
+                    this.spreadQueue.add(Level.blockKey(nx, ny, nz));
+                }
+            }
+        }
+    }
+
+    /**
+     * The light a position should have given its own block and the current light of its neighbours.
+     */
+    private int computeLight(int x, int y, int z, boolean sky) {
+        BaseFullChunk chunk = this.getChunkAt(x >> 4, z >> 4);
+        if (chunk == null) {
+            return 0;
+        }
+        int id = chunk.getBlockId(x & 0x0f, y, z & 0x0f);
+        int light;
+        if (sky) {
+            light = y == 127 ? spread(15, id, true, true) : 0;
+        } else {
+            light = Block.light[id];
+        }
+
+        for (int side = 0; side < 6 && light < 15; ++side) {
+            int neighbour = this.getLight(x + OFFSET_X[side], y + OFFSET_Y[side], z + OFFSET_Z[side], sky);
+            if (neighbour > 0) {
+                light = Math.max(light, spread(neighbour, id, sky, OFFSET_Y[side] == 1));
+            }
+        }
+        return light;
+    }
+
+    private static int spread(int light, int id, boolean sky, boolean down) {
+        if (sky && down && light == 15 && !Block.solid[id]) {
+            return 15;
+        }
+        return Math.max(0, light - Block.lightFilter[id]);
+    }
+
+    private BaseFullChunk getChunkAt(int chunkX, int chunkZ) {
+        long index = Level.chunkKey(chunkX, chunkZ);
+        if (!this.hasLastChunk || this.lastChunkIndex != index) {
+            //a level would load the chunk from disk, only chunks that are already loaded take part
+            this.lastChunk = this.level instanceof Level ? ((Level) this.level).getChunks().get(index) : this.level.getChunk(chunkX, chunkZ);
+            this.lastChunkIndex = index;
+            this.hasLastChunk = true;
+        }
+        return this.lastChunk;
+    }
+
+    /**
+     * Returns -1 for positions outside the world or in chunks that are not available.
+     */
+    private int getLight(int x, int y, int z, boolean sky) {
+        if (y < 0 || y >= 128) {
+            return -1;
+        }
+        BaseFullChunk chunk = this.getChunkAt(x >> 4, z >> 4);
+        return chunk == null ? -1 : this.getLight(chunk, x, y, z, sky);
+    }
+
+    private int getLight(BaseFullChunk chunk, int x, int y, int z, boolean sky) {
+        return sky ? chunk.getBlockSkyLight(x & 0x0f, y, z & 0x0f) : chunk.getBlockLight(x & 0x0f, y, z & 0x0f);
+    }
+
+    private void setLight(int x, int y, int z, boolean sky, int light) {
+        BaseFullChunk chunk = this.getChunkAt(x >> 4, z >> 4);
+        if (sky) {
+            chunk.setBlockSkyLight(x & 0x0f, y, z & 0x0f, light);
+        } else {
+            chunk.setBlockLight(x & 0x0f, y, z & 0x0f, light);
+        }
+        if (this.changes != null) {
+            this.changes.add(Level.blockKey(x, y, z));
+        }
+    }
+
+    /**
+     * Growable ring buffer of primitive longs.
+     */
+    private static final class LongQueue {
+        private long[] elements = new long[256];
+        private int head = 0;
+        private int tail = 0;
+        private int size = 0;
+
+        void add(long value) {
+            if (this.size == this.elements.length) {
+                long[] grown = new long[this.elements.length << 1];
+                this.copyTo(grown);
+                this.elements = grown;
+                this.head = 0;
+                this.tail = this.size;
+            }
+            this.elements[this.tail] = value;
+            this.tail = (this.tail + 1) & (this.elements.length - 1);
+            this.size++;
+        }
+
+        long poll() {
+            long value = this.elements[this.head];
+            this.head = (this.head + 1) & (this.elements.length - 1);
+            this.size--;
+            return value;
+        }
+
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        void clear() {
+            this.head = 0;
+            this.tail = 0;
+            this.size = 0;
+        }
+
+        long[] toArray() {
+            long[] array = new long[this.size];
+            this.copyTo(array);
+            return array;
+        }
+
+        private void copyTo(long[] target) {
+            int first = Math.min(this.size, this.elements.length - this.head);
+            System.arraycopy(this.elements, this.head, target, 0, first);
+            System.arraycopy(this.elements, 0, target, first, this.size - first);
+        }
+    }
+}
@@ -2,17 +2,14 @@ package cn.nukkit.level;
 
 import cn.nukkit.level.format.FullChunk;
 import cn.nukkit.level.format.generic.BaseFullChunk;
-
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import cn.nukkit.utils.LongObjectHashMap;
 
 /**
  * author: MagicDroidX
  * Nukkit Project
  */
 public class SimpleChunkManager implements ChunkManager {
-    protected Map<String, FullChunk> chunks = new ConcurrentHashMap<>();
+    protected LongObjectHashMap<FullChunk> chunks = new LongObjectHashMap<>();
 
     protected long seed;
 
@@ -56,8 +53,7 @@ public class SimpleChunkManager implements ChunkManager {
 
     @Override
     public BaseFullChunk getChunk(int chunkX, int chunkZ) {
-        String index = Level.chunkHash(chunkX, chunkZ);
-        return this.chunks.containsKey(index) ? (BaseFullChunk) this.chunks.get(index) : null;
+        return (BaseFullChunk) this.chunks.get(Level.chunkKey(chunkX, chunkZ));
     }
 
     @Override
@@ -68,14 +64,14 @@ public class SimpleChunkManager implements ChunkManager {
     @Override
     public void setChunk(int chunkX, int chunkZ, BaseFullChunk chunk) {
         if (chunk == null) {
-            this.chunks.remove(Level.chunkHash(chunkX, chunkZ));
+            this.chunks.remove(Level.chunkKey(chunkX, chunkZ));
             return;
         }
-        this.chunks.put(Level.chunkHash(chunkX, chunkZ), chunk);
+        this.chunks.put(Level.chunkKey(chunkX, chunkZ), chunk);
     }
 
     public void cleanChunks() {
-        this.chunks = new HashMap<>();
+        this.chunks.clear();
     }
 
     @Override
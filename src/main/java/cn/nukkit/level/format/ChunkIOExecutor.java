@@ -0,0 +1,74 @@
+package cn.nukkit.level.format;
+
+import cn.nukkit.Server;
+
+import java.util.concurrent.*;
+
+/**
+ * Runs chunk reads and writes off the main thread.
+ * <p>
+ * Every task is submitted with a lane key (the region index for region based formats) and all
+ * tasks sharing a key run on the same single thread, in submission order. Two writers can therefore
+ * never touch the same region file at once, and a read always sees the writes queued before it.
+ */
+public class ChunkIOExecutor {
+
+    private final ExecutorService[] lanes;
+
+    public ChunkIOExecutor(int threads) {
+        this.lanes = new ExecutorService[Math.max(1, threads)];
+        for (int i = 0; i < this.lanes.length; ++i) {
+            final String name = "Nukkit Chunk I/O #" + i;
+            this.lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int getThreadCount() {
+        return this.lanes.length;
+    }
+
+    private ExecutorService getLane(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return this.lanes[(int) ((h ^ (h >>> 32)) & 0x7fffffff) % this.lanes.length];
+    }
+
+    public <T> CompletableFuture<T> submit(long key, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            this.getLane(key).execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Waits for all queued tasks to finish and stops the I/O threads.
+     */
+    public void shutdown() {
+        for (ExecutorService lane : this.lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : this.lanes) {
+            try {
+                if (!lane.awaitTermination(60, TimeUnit.SECONDS)) {
+                    Server.getInstance().getLogger().warning("Chunk I/O thread did not finish in time, pending chunk writes may be lost");
+                    lane.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                lane.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
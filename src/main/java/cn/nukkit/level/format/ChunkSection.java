@@ -46,4 +46,12 @@ public interface ChunkSection {
     byte[] getSkyLightArray();
 
     byte[] getLightArray();
+
+    /**
+     * A copy that can be changed without affecting this section. The default shares the section itself, which
+     * only suits sections that hold no data of their own.
+     */
+    default ChunkSection copy() {
+        return this;
+    }
 }
@@ -4,8 +4,10 @@ import cn.nukkit.level.Level;
 import cn.nukkit.level.format.generic.BaseFullChunk;
 import cn.nukkit.math.Vector3;
 import cn.nukkit.scheduler.AsyncTask;
+import cn.nukkit.utils.LongObjectHashMap;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * author: MagicDroidX
@@ -27,16 +29,36 @@ public interface LevelProvider {
 
     BaseFullChunk getChunk(int X, int Z, boolean create);
 
+    /**
+     * A new chunk for a position that is not stored, built without any I/O and not installed. Providers that
+     * return {@code null} have the chunk created through {@link #getChunk(int, int, boolean)} instead.
+     */
+    default BaseFullChunk getEmptyChunk(int X, int Z) {
+        return null;
+    }
+
     void saveChunks();
 
     void saveChunk(int X, int Z);
 
+    /**
+     * Serializes a loaded chunk on the calling thread and writes it on the chunk I/O threads.
+     */
+    CompletableFuture<Void> saveChunkAsync(int X, int Z);
+
     void unloadChunks();
 
     boolean loadChunk(int X, int Z);
 
     boolean loadChunk(int X, int Z, boolean create);
 
+    /**
+     * Reads and deserializes a chunk on the chunk I/O threads without installing it. The future
+     * completes with {@code null} if the chunk is not stored; the caller installs the result
+     * with {@link #setChunk(int, int, FullChunk)} on the main thread.
+     */
+    CompletableFuture<? extends BaseFullChunk> loadChunkAsync(int X, int Z);
+
     boolean unloadChunk(int X, int Z);
 
     boolean unloadChunk(int X, int Z, boolean safe);
@@ -83,7 +105,7 @@ public interface LevelProvider {
 
     void setSpawn(Vector3 pos);
 
-    Map<String, ? extends FullChunk> getLoadedChunks();
+    LongObjectHashMap<? extends FullChunk> getLoadedChunks();
 
     void doGarbageCollection();
 
@@ -296,6 +296,18 @@ public class Chunk extends BaseChunk {
 
     @Override
     public byte[] toBinary() {
+        try {
+            return Zlib.deflate(this.toRawBinary(), RegionLoader.COMPRESSION_LEVEL);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Serializes the chunk to uncompressed NBT. The result shares no state with the chunk,
+     * so it can be compressed and written on another thread.
+     */
+    public byte[] toRawBinary() {
         CompoundTag nbt = this.getNBT().copy();
 
         nbt.putInt("xPos", this.x);
@@ -353,8 +365,8 @@ public class Chunk extends BaseChunk {
         chunk.putCompound("Level", nbt);
 
         try {
-            return Zlib.deflate(NBTIO.write(chunk, ByteOrder.BIG_ENDIAN), RegionLoader.COMPRESSION_LEVEL);
-        } catch (Exception e) {
+            return NBTIO.write(chunk, ByteOrder.BIG_ENDIAN);
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
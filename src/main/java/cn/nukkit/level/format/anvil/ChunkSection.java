@@ -24,6 +24,14 @@ public class ChunkSection implements cn.nukkit.level.format.ChunkSection {
         this.skyLight = nbt.getByteArray("SkyLight");
     }
 
+    private ChunkSection(int y, byte[] blocks, byte[] data, byte[] blockLight, byte[] skyLight) {
+        this.y = y;
+        this.blocks = blocks;
+        this.data = data;
+        this.blockLight = blockLight;
+        this.skyLight = skyLight;
+    }
+
     @Override
     public int getY() {
         return y;
@@ -235,4 +243,8 @@ public class ChunkSection implements cn.nukkit.level.format.ChunkSection {
         return this.blockLight;
     }
 
+    @Override
+    public ChunkSection copy() {
+        return new ChunkSection(this.y, this.blocks.clone(), this.data.clone(), this.blockLight.clone(), this.skyLight.clone());
+    }
 }
@@ -7,7 +7,6 @@ import cn.nukkit.utils.*;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -27,7 +26,7 @@ public class RegionLoader extends BaseRegionLoader {
     }
 
     @Override
-    public Chunk readChunk(int x, int z) throws IOException {
+    public synchronized Chunk readChunk(int x, int z) throws IOException {
         int index = getChunkOffset(x, z);
         if (index < 0 || index >= 4096) {
             return null;
@@ -80,7 +79,7 @@ public class RegionLoader extends BaseRegionLoader {
     }
 
     @Override
-    public boolean chunkExists(int x, int z) {
+    public synchronized boolean chunkExists(int x, int z) {
         return this.isChunkGenerated(getChunkOffset(x, z));
     }
 
@@ -129,7 +128,7 @@ public class RegionLoader extends BaseRegionLoader {
     }
 
     @Override
-    public void removeChunk(int x, int z) {
+    public synchronized void removeChunk(int x, int z) {
         int index = getChunkOffset(x, z);
         Integer[] table = this.locationTable.get(0);
         table[0] = 0;
@@ -138,7 +137,7 @@ public class RegionLoader extends BaseRegionLoader {
     }
 
     @Override
-    public void writeChunk(FullChunk chunk) throws Exception {
+    public synchronized void writeChunk(FullChunk chunk) throws Exception {
         this.lastUsed = System.currentTimeMillis();
         byte[] chunkData = chunk.toBinary();
         this.saveChunk(chunk.getX() - (this.getX() * 32), chunk.getZ() - (this.getZ() * 32), chunkData);
@@ -149,14 +148,14 @@ public class RegionLoader extends BaseRegionLoader {
     }
 
     @Override
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
         this.writeLocationTable();
         this.randomAccessFile.close();
         this.levelProvider = null;
     }
 
     @Override
-    public int doSlowCleanUp() throws Exception {
+    public synchronized int doSlowCleanUp() throws Exception {
         for (int i = 0; i < 1024; i++) {
             Integer[] table = this.locationTable.get(i);
             if (table[0] == 0 || table[1] == 0) {
@@ -165,12 +164,12 @@ public class RegionLoader extends BaseRegionLoader {
             this.randomAccessFile.seek(table[0] << 12);
             byte[] chunk = new byte[table[1] << 12];
             this.randomAccessFile.read(chunk);
-            int length = Binary.readInt(Arrays.copyOfRange(chunk, 0, 3));
+            int length = Binary.readInt(chunk, 0);
             if (length <= 1) {
                 this.locationTable.put(i, (table = new Integer[]{0, 0, 0}));
             }
             try {
-                chunk = Zlib.inflate(Arrays.copyOf(chunk, 5));
+                chunk = Zlib.inflate(chunk, 5, length - 1, Integer.MAX_VALUE);
             } catch (Exception e) {
                 this.locationTable.put(i, new Integer[]{0, 0, 0});
                 continue;
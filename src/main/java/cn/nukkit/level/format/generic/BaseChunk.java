@@ -25,6 +25,10 @@ public abstract class BaseChunk extends BaseFullChunk implements Chunk {
         BaseChunk chunk = (BaseChunk) super.clone();
         chunk.biomeColors = this.getBiomeColorArray().clone();
         chunk.heightMap = this.getHeightMapArray().clone();
+        chunk.sections = new ChunkSection[this.sections.length];
+        for (int i = 0; i < this.sections.length; ++i) {
+            chunk.sections[i] = this.sections[i].copy();
+        }
         return chunk;
     }
 
@@ -14,6 +14,12 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * author: MagicDroidX
@@ -26,6 +32,8 @@ public abstract class BaseLevelProvider implements LevelProvider {
 
     protected CompoundTag levelData;
 
+    private final Set<CompletableFuture<?>> pendingIO = ConcurrentHashMap.newKeySet();
+
     public BaseLevelProvider(Level level, String path) throws IOException {
         this.level = level;
         this.path = path;
@@ -156,6 +164,30 @@ public abstract class BaseLevelProvider implements LevelProvider {
 
     }
 
+    /**
+     * Queues a read or write on the chunk I/O lane for the given region.
+     */
+    protected <T> CompletableFuture<T> submitIO(long regionIndex, Callable<T> task) {
+        CompletableFuture<T> future = this.getServer().getChunkIOExecutor().submit(regionIndex, task);
+        this.pendingIO.add(future);
+        future.whenComplete((result, error) -> this.pendingIO.remove(future));
+        return future;
+    }
+
+    public boolean hasPendingIO() {
+        return !this.pendingIO.isEmpty();
+    }
+
+    protected void waitForPendingIO() {
+        for (CompletableFuture<?> future : new ArrayList<>(this.pendingIO)) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                Server.getInstance().getLogger().logException(e);
+            }
+        }
+    }
+
     public CompoundTag getLevelData() {
         return levelData;
     }
@@ -2,6 +2,7 @@ package cn.nukkit.level.format.generic;
 
 import cn.nukkit.level.format.FullChunk;
 import cn.nukkit.level.format.LevelProvider;
+import cn.nukkit.utils.Zlib;
 
 import java.io.File;
 import java.io.IOException;
@@ -71,6 +72,14 @@ abstract public class BaseRegionLoader {
 
     public abstract void writeChunk(FullChunk chunk) throws Exception;
 
+    /**
+     * Compresses and stores a chunk that was already serialized to uncompressed NBT on the main thread.
+     */
+    public synchronized void writeChunk(int chunkX, int chunkZ, byte[] nbtData) throws Exception {
+        this.lastUsed = System.currentTimeMillis();
+        this.saveChunk(chunkX - this.getX() * 32, chunkZ - this.getZ() * 32, Zlib.deflate(nbtData, COMPRESSION_LEVEL));
+    }
+
     public abstract void close() throws IOException;
 
     protected abstract void loadLocationTable() throws IOException;
@@ -0,0 +1,128 @@
+package cn.nukkit.level.format.generic;
+
+import cn.nukkit.Player;
+import cn.nukkit.Server;
+import cn.nukkit.blockentity.BlockEntity;
+import cn.nukkit.blockentity.BlockEntitySpawnable;
+import cn.nukkit.level.Level;
+import cn.nukkit.level.format.FullChunk;
+import cn.nukkit.nbt.NBTIO;
+import cn.nukkit.nbt.tag.CompoundTag;
+import cn.nukkit.network.protocol.BatchPacket;
+import cn.nukkit.scheduler.AsyncTask;
+import cn.nukkit.utils.Binary;
+import cn.nukkit.utils.BinaryStream;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and compresses a chunk for sending on an async worker.
+ * <p>
+ * The constructor runs on the main thread and only copies what the worker needs;
+ * the {@link cn.nukkit.network.protocol.FullChunkDataPacket} is built, batched and deflated in {@link #onRun()}.
+ */
+public class ChunkRequestTask extends AsyncTask {
+    protected final int levelId;
+    protected final int chunkX;
+    protected final int chunkZ;
+    protected final byte ordering;
+    protected final FullChunk chunk;
+    protected final long cacheVersion;
+
+    protected final byte[] blockIds;
+    protected final byte[] blockData;
+    protected final byte[] skyLight;
+    protected final byte[] blockLight;
+    protected final int[] heightMap;
+    protected final int[] biomeColors;
+    protected final Map<Integer, Integer> extraData;
+    protected final List<CompoundTag> blockEntities = new ArrayList<>();
+
+    public ChunkRequestTask(Level level, FullChunk chunk, byte ordering) {
+        this.levelId = level.getId();
+        this.chunkX = chunk.getX();
+        this.chunkZ = chunk.getZ();
+        this.ordering = ordering;
+        this.chunk = chunk;
+        this.cacheVersion = level.getChunkCacheVersion(this.chunkX, this.chunkZ);
+
+        if (chunk instanceof BaseChunk) {
+            //section based chunks already assemble fresh arrays
+            this.blockIds = chunk.getBlockIdArray();
+            this.blockData = chunk.getBlockDataArray();
+            this.skyLight = chunk.getBlockSkyLightArray();
+            this.blockLight = chunk.getBlockLightArray();
+        } else {
+            this.blockIds = chunk.getBlockIdArray().clone();
+            this.blockData = chunk.getBlockDataArray().clone();
+            this.skyLight = chunk.getBlockSkyLightArray().clone();
+            this.blockLight = chunk.getBlockLightArray().clone();
+        }
+        this.heightMap = chunk.getHeightMapArray().clone();
+        this.biomeColors = chunk.getBiomeColorArray().clone();
+        this.extraData = new HashMap<>(chunk.getBlockExtraDataArray());
+
+        for (BlockEntity blockEntity : chunk.getBlockEntities().values()) {
+            if (blockEntity instanceof BlockEntitySpawnable) {
+                this.blockEntities.add(((BlockEntitySpawnable) blockEntity).getSpawnCompound());
+            }
+        }
+    }
+
+    @Override
+    public int getPriority() {
+        return PRIORITY_HIGH;
+    }
+
+    @Override
+    public void onRun() {
+        try {
+            byte[] tiles = new byte[0];
+            if (!this.blockEntities.isEmpty()) {
+                tiles = NBTIO.write(this.blockEntities, ByteOrder.LITTLE_ENDIAN);
+            }
+
+            BinaryStream extraData = new BinaryStream();
+            extraData.putLInt(this.extraData.size());
+            for (Map.Entry<Integer, Integer> entry : this.extraData.entrySet()) {
+                extraData.putLInt(entry.getKey());
+                extraData.putLShort(entry.getValue());
+            }
+
+            BinaryStream stream = new BinaryStream();
+            stream.put(this.blockIds);
+            stream.put(this.blockData);
+            stream.put(this.skyLight);
+            stream.put(this.blockLight);
+            for (int height : this.heightMap) {
+                stream.putByte((byte) (height & 0xff));
+            }
+            for (int color : this.biomeColors) {
+                stream.put(Binary.writeInt(color));
+            }
+            stream.put(extraData.getBuffer());
+            stream.put(tiles);
+
+            this.setResult(Player.getChunkCacheFromData(this.chunkX, this.chunkZ, stream.getBuffer(), this.ordering));
+        } catch (Exception e) {
+            Server.getInstance().getLogger().logException(e);
+        }
+    }
+
+    @Override
+    public void onCompletion(Server server) {
+        Level level = server.getLevel(this.levelId);
+        if (level == null) {
+            return;
+        }
+        if (this.hasResult()) {
+            level.chunkRequestCallback(this.chunkX, this.chunkZ, (BatchPacket) this.getResult(), this.chunk, this.cacheVersion);
+        } else {
+            level.chunkRequestFailed(this.chunkX, this.chunkZ);
+        }
+    }
+}
@@ -1,12 +1,11 @@
 package cn.nukkit.level.format.leveldb;
 
 import cn.nukkit.Server;
-import cn.nukkit.blockentity.BlockEntity;
-import cn.nukkit.blockentity.BlockEntitySpawnable;
 import cn.nukkit.level.Level;
 import cn.nukkit.level.format.ChunkSection;
 import cn.nukkit.level.format.FullChunk;
 import cn.nukkit.level.format.LevelProvider;
+import cn.nukkit.level.format.generic.ChunkRequestTask;
 import cn.nukkit.level.format.leveldb.key.FlagsKey;
 import cn.nukkit.level.format.leveldb.key.TerrainKey;
 import cn.nukkit.level.format.leveldb.key.VersionKey;
@@ -14,6 +13,7 @@ import cn.nukkit.level.generator.Generator;
 import cn.nukkit.math.Vector3;
 import cn.nukkit.nbt.NBTIO;
 import cn.nukkit.nbt.tag.CompoundTag;
+import cn.nukkit.network.protocol.FullChunkDataPacket;
 import cn.nukkit.scheduler.AsyncTask;
 import cn.nukkit.utils.*;
 import org.iq80.leveldb.DB;
@@ -23,6 +23,10 @@ import org.iq80.leveldb.impl.Iq80DBFactory;
 import java.io.*;
 import java.nio.ByteOrder;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * author: MagicDroidX
@@ -30,7 +34,7 @@ import java.util.*;
  */
 public class LevelDB implements LevelProvider {
 
-    protected Map<String, Chunk> chunks = new HashMap<>();
+    protected LongObjectHashMap<Chunk> chunks = new LongObjectHashMap<>();
 
     protected DB db;
 
@@ -40,6 +44,8 @@ public class LevelDB implements LevelProvider {
 
     protected CompoundTag levelData;
 
+    private final Set<CompletableFuture<?>> pendingIO = ConcurrentHashMap.newKeySet();
+
     public LevelDB(Level level, String path) {
         this.level = level;
         this.path = path;
@@ -159,48 +165,7 @@ public class LevelDB implements LevelProvider {
             throw new ChunkException("Invalid Chunk sent");
         }
 
-        byte[] tiles = new byte[0];
-
-        if (!chunk.getBlockEntities().isEmpty()) {
-            List<CompoundTag> tagList = new ArrayList<>();
-
-            for (BlockEntity blockEntity : chunk.getBlockEntities().values()) {
-                if (blockEntity instanceof BlockEntitySpawnable) {
-                    tagList.add(((BlockEntitySpawnable) blockEntity).getSpawnCompound());
-                }
-            }
-
-            try {
-                tiles = NBTIO.write(tagList, ByteOrder.LITTLE_ENDIAN);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
-
-        BinaryStream extraData = new BinaryStream();
-        extraData.putLInt(chunk.getBlockExtraDataArray().size());
-        for (Integer key : chunk.getBlockExtraDataArray().values()) {
-            extraData.putLInt(key);
-            extraData.putLShort(chunk.getBlockExtraDataArray().get(key));
-        }
-
-        BinaryStream stream = new BinaryStream();
-        stream.put(chunk.getBlockIdArray());
-        stream.put(chunk.getBlockDataArray());
-        stream.put(chunk.getBlockSkyLightArray());
-        stream.put(chunk.getBlockLightArray());
-        for (int height : chunk.getHeightMapArray()) {
-            stream.putByte((byte) (height & 0xff));
-        }
-        for (int color : chunk.getBiomeColorArray()) {
-            stream.put(Binary.writeInt(color));
-        }
-        stream.put(extraData.getBuffer());
-        stream.put(tiles);
-
-        this.getLevel().chunkRequestCallback(x, z, stream.getBuffer());
-
-        return null;
+        return new ChunkRequestTask(this.getLevel(), chunk, FullChunkDataPacket.ORDER_COLUMNS);
     }
 
     @Override
@@ -208,7 +173,7 @@ public class LevelDB implements LevelProvider {
         for (Chunk chunk : new ArrayList<>(this.chunks.values())) {
             this.unloadChunk(chunk.getX(), chunk.getZ(), false);
         }
-        this.chunks = new HashMap<>();
+        this.chunks.clear();
     }
 
     @Override
@@ -226,19 +191,19 @@ public class LevelDB implements LevelProvider {
     }
 
     @Override
-    public Map<String, Chunk> getLoadedChunks() {
+    public LongObjectHashMap<Chunk> getLoadedChunks() {
         return this.chunks;
     }
 
     @Override
     public boolean isChunkLoaded(int X, int Z) {
-        return this.chunks.containsKey(Level.chunkHash(X, Z));
+        return this.chunks.containsKey(Level.chunkKey(X, Z));
     }
 
     @Override
     public void saveChunks() {
         for (Chunk chunk : this.chunks.values()) {
-            this.saveChunk(chunk.getX(), chunk.getZ());
+            this.saveChunkAsync(chunk.getX(), chunk.getZ());
         }
     }
 
@@ -249,14 +214,14 @@ public class LevelDB implements LevelProvider {
 
     @Override
     public boolean loadChunk(int chunkX, int chunkZ, boolean create) {
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (this.chunks.containsKey(index)) {
             return true;
         }
 
-        Chunk chunk = this.readChunk(chunkX, chunkZ);
+        Chunk chunk = this.loadChunkAsync(chunkX, chunkZ).join();
         if (chunk == null && create) {
-            chunk = Chunk.getEmptyChunk(chunkX, chunkZ, this);
+            chunk = this.getEmptyChunk(chunkX, chunkZ);
         }
 
         if (chunk != null) {
@@ -267,6 +232,33 @@ public class LevelDB implements LevelProvider {
         return false;
     }
 
+    @Override
+    public Chunk getEmptyChunk(int chunkX, int chunkZ) {
+        return Chunk.getEmptyChunk(chunkX, chunkZ, this);
+    }
+
+    @Override
+    public CompletableFuture<Chunk> loadChunkAsync(int chunkX, int chunkZ) {
+        return this.submitIO(Level.chunkKey(chunkX, chunkZ), () -> this.readChunk(chunkX, chunkZ));
+    }
+
+    private <T> CompletableFuture<T> submitIO(long index, Callable<T> task) {
+        CompletableFuture<T> future = this.getServer().getChunkIOExecutor().submit(index, task);
+        this.pendingIO.add(future);
+        future.whenComplete((result, error) -> this.pendingIO.remove(future));
+        return future;
+    }
+
+    private void waitForPendingIO() {
+        for (CompletableFuture<?> future : new ArrayList<>(this.pendingIO)) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                Server.getInstance().getLogger().logException(e);
+            }
+        }
+    }
+
     private Chunk readChunk(int chunkX, int chunkZ) {
         byte[] data;
         if (!this.chunkExists(chunkX, chunkZ) || (data = this.db.get(TerrainKey.create(chunkX, chunkZ).toArray())) == null) {
@@ -287,11 +279,10 @@ public class LevelDB implements LevelProvider {
                 , this);
     }
 
-    private void writeChunk(Chunk chunk) {
-        byte[] binary = chunk.toBinary(true);
-        this.db.put(TerrainKey.create(chunk.getX(), chunk.getZ()).toArray(), Binary.subBytes(binary, 8, binary.length - 1));
-        this.db.put(FlagsKey.create(chunk.getX(), chunk.getZ()).toArray(), Binary.subBytes(binary, binary.length - 1));
-        this.db.put(VersionKey.create(chunk.getX(), chunk.getZ()).toArray(), new byte[]{0x02});
+    private void writeChunk(int chunkX, int chunkZ, byte[] binary) {
+        this.db.put(TerrainKey.create(chunkX, chunkZ).toArray(), Binary.subBytes(binary, 8, binary.length - 1));
+        this.db.put(FlagsKey.create(chunkX, chunkZ).toArray(), Binary.subBytes(binary, binary.length - 1));
+        this.db.put(VersionKey.create(chunkX, chunkZ).toArray(), new byte[]{0x02});
     }
 
     @Override
@@ -301,7 +292,7 @@ public class LevelDB implements LevelProvider {
 
     @Override
     public boolean unloadChunk(int X, int Z, boolean safe) {
-        String index = Level.chunkHash(X, Z);
+        long index = Level.chunkKey(X, Z);
         Chunk chunk = this.chunks.containsKey(index) ? this.chunks.get(index) : null;
         if (chunk != null && chunk.unload(false, safe)) {
             this.chunks.remove(index);
@@ -313,9 +304,20 @@ public class LevelDB implements LevelProvider {
 
     @Override
     public void saveChunk(int X, int Z) {
-        if (this.isChunkLoaded(X, Z)) {
-            this.writeChunk(this.getChunk(X, Z));
+        this.saveChunkAsync(X, Z).join();
+    }
+
+    @Override
+    public CompletableFuture<Void> saveChunkAsync(int X, int Z) {
+        Chunk chunk = this.chunks.get(Level.chunkKey(X, Z));
+        if (chunk == null) {
+            return CompletableFuture.completedFuture(null);
         }
+        byte[] binary = chunk.toBinary(true);
+        return this.submitIO(Level.chunkKey(X, Z), () -> {
+            this.writeChunk(X, Z, binary);
+            return null;
+        });
     }
 
     @Override
@@ -325,7 +327,7 @@ public class LevelDB implements LevelProvider {
 
     @Override
     public Chunk getChunk(int chunkX, int chunkZ, boolean create) {
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (this.chunks.containsKey(index)) {
             return this.chunks.get(index);
         } else {
@@ -347,7 +349,7 @@ public class LevelDB implements LevelProvider {
 
         chunk.setX(chunkX);
         chunk.setZ(chunkZ);
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
 
         if (this.chunks.containsKey(index) && !this.chunks.get(index).equals(chunk)) {
             this.unloadChunk(chunkX, chunkZ, false);
@@ -378,6 +380,7 @@ public class LevelDB implements LevelProvider {
     @Override
     public void close() {
         this.unloadChunks();
+        this.waitForPendingIO();
         try {
             this.db.close();
         } catch (IOException e) {
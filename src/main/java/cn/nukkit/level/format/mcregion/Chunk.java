@@ -15,6 +15,7 @@ import cn.nukkit.utils.BinaryStream;
 import cn.nukkit.utils.Zlib;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -430,6 +431,18 @@ public class Chunk extends BaseFullChunk {
 
     @Override
     public byte[] toBinary() {
+        try {
+            return Zlib.deflate(this.toRawBinary(), RegionLoader.COMPRESSION_LEVEL);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Serializes the chunk to uncompressed NBT. The result shares no state with the chunk,
+     * so it can be compressed and written on another thread.
+     */
+    public byte[] toRawBinary() {
         CompoundTag nbt = this.getNBT().copy();
 
         nbt.putInt("xPos", this.x);
@@ -479,8 +492,8 @@ public class Chunk extends BaseFullChunk {
         chunk.putCompound("Level", nbt);
 
         try {
-            return Zlib.deflate(NBTIO.write(chunk, ByteOrder.BIG_ENDIAN), RegionLoader.COMPRESSION_LEVEL);
-        } catch (Exception e) {
+            return NBTIO.write(chunk, ByteOrder.BIG_ENDIAN);
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
@@ -1,19 +1,18 @@
 package cn.nukkit.level.format.mcregion;
 
-import cn.nukkit.blockentity.BlockEntity;
-import cn.nukkit.blockentity.BlockEntitySpawnable;
 import cn.nukkit.level.Level;
 import cn.nukkit.level.format.ChunkSection;
 import cn.nukkit.level.format.FullChunk;
 import cn.nukkit.level.format.generic.BaseFullChunk;
 import cn.nukkit.level.format.generic.BaseLevelProvider;
+import cn.nukkit.level.format.generic.ChunkRequestTask;
 import cn.nukkit.level.generator.Generator;
 import cn.nukkit.nbt.NBTIO;
 import cn.nukkit.nbt.tag.CompoundTag;
+import cn.nukkit.network.protocol.FullChunkDataPacket;
 import cn.nukkit.scheduler.AsyncTask;
-import cn.nukkit.utils.Binary;
-import cn.nukkit.utils.BinaryStream;
 import cn.nukkit.utils.ChunkException;
+import cn.nukkit.utils.LongObjectHashMap;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -22,8 +21,8 @@ import java.io.IOException;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 
 /**
@@ -32,9 +31,9 @@ import java.util.regex.Pattern;
  */
 public class McRegion extends BaseLevelProvider {
 
-    protected Map<String, RegionLoader> regions = new HashMap<>();
+    protected LongObjectHashMap<RegionLoader> regions = new LongObjectHashMap<>();
 
-    protected Map<String, Chunk> chunks = new HashMap<>();
+    protected LongObjectHashMap<Chunk> chunks = new LongObjectHashMap<>();
 
     public McRegion(Level level, String path) throws IOException {
         super(level, path);
@@ -121,48 +120,7 @@ public class McRegion extends BaseLevelProvider {
             throw new ChunkException("Invalid Chunk Sent");
         }
 
-        byte[] tiles = new byte[0];
-
-        if (!chunk.getBlockEntities().isEmpty()) {
-            List<CompoundTag> tagList = new ArrayList<>();
-
-            for (BlockEntity blockEntity : chunk.getBlockEntities().values()) {
-                if (blockEntity instanceof BlockEntitySpawnable) {
-                    tagList.add(((BlockEntitySpawnable) blockEntity).getSpawnCompound());
-                }
-            }
-
-            try {
-                tiles = NBTIO.write(tagList, ByteOrder.LITTLE_ENDIAN);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
-
-        BinaryStream extraData = new BinaryStream();
-        extraData.putLInt(chunk.getBlockExtraDataArray().size());
-        for (Integer key : chunk.getBlockExtraDataArray().keySet()) {
-            extraData.putLInt(key);
-            extraData.putLShort(chunk.getBlockExtraDataArray().get(key));
-        }
-
-        BinaryStream stream = new BinaryStream();
-        stream.put(chunk.getBlockIdArray());
-        stream.put(chunk.getBlockDataArray());
-        stream.put(chunk.getBlockSkyLightArray());
-        stream.put(chunk.getBlockLightArray());
-        for (int height : chunk.getHeightMapArray()) {
-            stream.putByte((byte) (height & 0xff));
-        }
-        for (int color : chunk.getBiomeColorArray()) {
-            stream.put(Binary.writeInt(color));
-        }
-        stream.put(extraData.getBuffer());
-        stream.put(tiles);
-
-        this.getLevel().chunkRequestCallback(x, z, stream.getBuffer());
-
-        return null;
+        return new ChunkRequestTask(this.getLevel(), chunk, FullChunkDataPacket.ORDER_COLUMNS);
     }
 
     @Override
@@ -170,7 +128,7 @@ public class McRegion extends BaseLevelProvider {
         for (Chunk chunk : new ArrayList<>(this.chunks.values())) {
             this.unloadChunk(chunk.getX(), chunk.getZ(), false);
         }
-        this.chunks = new HashMap<>();
+        this.chunks.clear();
     }
 
     @Override
@@ -188,28 +146,30 @@ public class McRegion extends BaseLevelProvider {
     }
 
     @Override
-    public Map<String, Chunk> getLoadedChunks() {
+    public LongObjectHashMap<Chunk> getLoadedChunks() {
         return this.chunks;
     }
 
     @Override
     public boolean isChunkLoaded(int X, int Z) {
-        return this.chunks.containsKey(Level.chunkHash(X, Z));
+        return this.chunks.containsKey(Level.chunkKey(X, Z));
     }
 
     @Override
     public void saveChunks() {
         for (Chunk chunk : this.chunks.values()) {
-            this.saveChunk(chunk.getX(), chunk.getZ());
+            this.saveChunkAsync(chunk.getX(), chunk.getZ());
         }
     }
 
     @Override
     public void doGarbageCollection() {
+        if (this.hasPendingIO()) {
+            return;
+        }
         int limit = (int) (System.currentTimeMillis() - 300);
-        for (Map.Entry entry : this.regions.entrySet()) {
-            String index = (String) entry.getKey();
-            RegionLoader region = (RegionLoader) entry.getValue();
+        for (long index : this.regions.keys()) {
+            RegionLoader region = this.regions.get(index);
             if (region.lastUsed <= limit) {
                 try {
                     region.close();
@@ -228,20 +188,11 @@ public class McRegion extends BaseLevelProvider {
 
     @Override
     public boolean loadChunk(int chunkX, int chunkZ, boolean create) {
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (this.chunks.containsKey(index)) {
             return true;
         }
-        int regionX = getRegionIndexX(chunkX);
-        int regionZ = getRegionIndexZ(chunkZ);
-        this.loadRegion(regionX, regionZ);
-        Chunk chunk;
-        try {
-            chunk = this.getRegion(regionX, regionZ).readChunk(chunkX - regionX * 32, chunkZ - regionZ * 32);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
+        Chunk chunk = this.loadChunkAsync(chunkX, chunkZ).join();
         if (chunk == null && create) {
             chunk = this.getEmptyChunk(chunkX, chunkZ);
         }
@@ -253,6 +204,16 @@ public class McRegion extends BaseLevelProvider {
         return false;
     }
 
+    @Override
+    public CompletableFuture<Chunk> loadChunkAsync(int chunkX, int chunkZ) {
+        int regionX = getRegionIndexX(chunkX);
+        int regionZ = getRegionIndexZ(chunkZ);
+        this.loadRegion(regionX, regionZ);
+        RegionLoader region = this.getRegion(regionX, regionZ);
+        return this.submitIO(Level.chunkKey(regionX, regionZ), () -> region.readChunk(chunkX - regionX * 32, chunkZ - regionZ * 32));
+    }
+
+    @Override
     public Chunk getEmptyChunk(int chunkX, int chunkZ) {
         return Chunk.getEmptyChunk(chunkX, chunkZ, this);
     }
@@ -264,7 +225,7 @@ public class McRegion extends BaseLevelProvider {
 
     @Override
     public boolean unloadChunk(int X, int Z, boolean safe) {
-        String index = Level.chunkHash(X, Z);
+        long index = Level.chunkKey(X, Z);
         Chunk chunk = this.chunks.containsKey(index) ? this.chunks.get(index) : null;
         if (chunk != null && chunk.unload(false, safe)) {
             this.chunks.remove(index);
@@ -275,17 +236,28 @@ public class McRegion extends BaseLevelProvider {
 
     @Override
     public void saveChunk(int X, int Z) {
-        if (this.isChunkLoaded(X, Z)) {
-            try {
-                this.getRegion(X >> 5, Z >> 5).writeChunk(this.getChunk(X, Z));
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+        this.saveChunkAsync(X, Z).join();
+    }
+
+    @Override
+    public CompletableFuture<Void> saveChunkAsync(int X, int Z) {
+        Chunk chunk = this.chunks.get(Level.chunkKey(X, Z));
+        if (chunk == null) {
+            return CompletableFuture.completedFuture(null);
         }
+        int regionX = getRegionIndexX(X);
+        int regionZ = getRegionIndexZ(Z);
+        this.loadRegion(regionX, regionZ);
+        RegionLoader region = this.getRegion(regionX, regionZ);
+        byte[] data = chunk.toRawBinary();
+        return this.submitIO(Level.chunkKey(regionX, regionZ), () -> {
+            region.writeChunk(X, Z, data);
+            return null;
+        });
     }
 
     protected RegionLoader getRegion(int x, int z) {
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
         return this.regions.containsKey(index) ? this.regions.get(index) : null;
     }
 
@@ -296,7 +268,7 @@ public class McRegion extends BaseLevelProvider {
 
     @Override
     public Chunk getChunk(int chunkX, int chunkZ, boolean create) {
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (this.chunks.containsKey(index)) {
             return this.chunks.get(index);
         } else {
@@ -316,7 +288,7 @@ public class McRegion extends BaseLevelProvider {
         this.loadRegion(regionX, regionZ);
         chunk.setX(chunkX);
         chunk.setZ(chunkZ);
-        String index = Level.chunkHash(chunkX, chunkZ);
+        long index = Level.chunkKey(chunkX, chunkZ);
         if (this.chunks.containsKey(index) && !this.chunks.get(index).equals(chunk)) {
             this.unloadChunk(chunkX, chunkZ, false);
         }
@@ -340,7 +312,7 @@ public class McRegion extends BaseLevelProvider {
     }
 
     protected void loadRegion(int x, int z) {
-        String index = Level.chunkHash(x, z);
+        long index = Level.chunkKey(x, z);
         if (!this.regions.containsKey(index)) {
             this.regions.put(index, new RegionLoader(this, x, z));
         }
@@ -349,7 +321,8 @@ public class McRegion extends BaseLevelProvider {
     @Override
     public void close() {
         this.unloadChunks();
-        for (String index : new ArrayList<>(this.regions.keySet())) {
+        this.waitForPendingIO();
+        for (long index : this.regions.keys()) {
             RegionLoader region = this.regions.get(index);
             try {
                 region.close();
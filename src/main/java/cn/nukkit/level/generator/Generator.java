@@ -73,6 +73,8 @@ public abstract class Generator {
         return Generator.TYPE_INFINITE;
     }
 
+    private static final ThreadLocal<double[]> NOISE_SAMPLES = ThreadLocal.withInitial(() -> new double[0]);
+
     public static double[] getFastNoise1D(Noise noise, int xSize, int samplingRate, int x, int y, int z) {
         if (samplingRate == 0) {
             throw new IllegalArgumentException("samplingRate cannot be 0");
@@ -140,6 +142,55 @@ public abstract class Generator {
         return Generator.getFastNoise2D(noise, xSize, zSize, samplingRate, x, y, z, 0, 0);
     }
 
+    /**
+     * Flat version of {@link #getFastNoise2D(Noise, int, int, int, int, int, int)}: fills {@code out[xx * zSize + zz]}
+     * for the {@code xSize} x {@code zSize} points starting at (x, z) and returns it. The sampled points are kept in
+     * a per-thread scratch buffer, so nothing is allocated once the caller reuses {@code out}.
+     */
+    public static double[] getFastNoise2D(Noise noise, double[] out, int xSize, int zSize, int samplingRate, int x, int y, int z) {
+        if (samplingRate == 0) {
+            throw new IllegalArgumentException("samplingRate cannot be 0");
+        }
+        if (xSize % samplingRate != 0) {
+            throw new IllegalArgumentException("xSize % samplingRate must return 0");
+        }
+        if (zSize % samplingRate != 0) {
+            throw new IllegalArgumentException("zSize % samplingRate must return 0");
+        }
+
+        int xSamples = xSize / samplingRate + 1;
+        int zSamples = zSize / samplingRate + 1;
+        double[] samples = NOISE_SAMPLES.get();
+        if (samples.length < xSamples * zSamples) {
+            NOISE_SAMPLES.set(samples = new double[xSamples * zSamples]);
+        }
+        noise.noise3D(samples, x, y, z, xSamples, zSamples, samplingRate, false);
+
+        int index = 0;
+        for (int xx = 0; xx < xSize; ++xx) {
+            int sx = xx / samplingRate;
+            int nx = sx * samplingRate;
+            double dx1 = (double) (nx + samplingRate - xx) / samplingRate;
+            double dx2 = (double) (xx - nx) / samplingRate;
+            int row = sx * zSamples;
+            int nextRow = row + zSamples;
+
+            for (int zz = 0; zz < zSize; ++zz) {
+                int sz = zz / samplingRate;
+                int nz = sz * samplingRate;
+                if (xx == nx && zz == nz) {
+                    out[index++] = samples[row + sz];
+                } else {
+                    double dz1 = (double) (nz + samplingRate - zz) / samplingRate;
+                    double dz2 = (double) (zz - nz) / samplingRate;
+                    out[index++] = dz1 * (dx1 * samples[row + sz] + dx2 * samples[nextRow + sz])
+                            + dz2 * (dx1 * samples[row + sz + 1] + dx2 * samples[nextRow + sz + 1]);
+                }
+            }
+        }
+        return out;
+    }
+
     public static double[][][] getFastNoise3D(Noise noise, int xSize, int ySize, int zSize, int xSamplingRate, int ySamplingRate, int zSamplingRate, int x, int y, int z) {
         if (xSamplingRate == 0) {
             throw new IllegalArgumentException("xSamplingRate cannot be 0");
@@ -44,6 +44,13 @@ public class Normal extends Generator {
     private Simplex noiseBaseGround;
     private Simplex noiseRiver;
 
+    //reused between chunks, each async worker has its own generator instance
+    private final double[] seaFloorNoise = new double[256];
+    private final double[] landNoise = new double[256];
+    private final double[] mountainNoise = new double[256];
+    private final double[] baseNoise = new double[256];
+    private final double[] riverNoise = new double[256];
+
     private BiomeSelector selector;
 
     private int heightOffset;
@@ -130,6 +137,8 @@ public class Normal extends Generator {
         this.generationPopulators.add(cover);
 
         PopulatorCaves caves = new PopulatorCaves();
+        //seed the cave noise here, so it does not depend on the first chunk this instance happens to populate
+        caves.initPopulate(this.random);
         this.populators.add(caves);
 
         PopulatorOre ores = new PopulatorOre();
@@ -150,11 +159,11 @@ public class Normal extends Generator {
     public void generateChunk(int chunkX, int chunkZ) {
         this.random.setSeed(0xdeadbeef ^ (chunkX << 8) ^ chunkZ ^ this.level.getSeed());
 
-        double[][] seaFloorNoise = Generator.getFastNoise2D(this.noiseSeaFloor, 16, 16, 4, chunkX * 16, 0, chunkZ * 16);
-        double[][] landNoise = Generator.getFastNoise2D(this.noiseLand, 16, 16, 4, chunkX * 16, 0, chunkZ * 16);
-        double[][] mountainNoise = Generator.getFastNoise2D(this.noiseMountains, 16, 16, 4, chunkX * 16, 0, chunkZ * 16);
-        double[][] baseNoise = Generator.getFastNoise2D(this.noiseBaseGround, 16, 16, 4, chunkX * 16, 0, chunkZ * 16);
-        double[][] riverNoise = Generator.getFastNoise2D(this.noiseRiver, 16, 16, 4, chunkX * 16, 0, chunkZ * 16);
+        double[] seaFloorNoise = Generator.getFastNoise2D(this.noiseSeaFloor, this.seaFloorNoise, 16, 16, 4, chunkX * 16, 0, chunkZ * 16);
+        double[] landNoise = Generator.getFastNoise2D(this.noiseLand, this.landNoise, 16, 16, 4, chunkX * 16, 0, chunkZ * 16);
+        double[] mountainNoise = Generator.getFastNoise2D(this.noiseMountains, this.mountainNoise, 16, 16, 4, chunkX * 16, 0, chunkZ * 16);
+        double[] baseNoise = Generator.getFastNoise2D(this.noiseBaseGround, this.baseNoise, 16, 16, 4, chunkX * 16, 0, chunkZ * 16);
+        double[] riverNoise = Generator.getFastNoise2D(this.noiseRiver, this.riverNoise, 16, 16, 4, chunkX * 16, 0, chunkZ * 16);
 
         FullChunk chunk = this.level.getChunk(chunkX, chunkZ);
 
@@ -167,14 +176,14 @@ public class Normal extends Generator {
 
                 //using a quadratic function which smooth the world
                 //y = (2.956x)^2 - 0.6,  (0 <= x <= 2)
-                double landHeightNoise = landNoise[genx][genz] + 1F;
+                double landHeightNoise = landNoise[(genx << 4) | genz] + 1F;
                 landHeightNoise *= 2.956;
                 landHeightNoise = landHeightNoise * landHeightNoise;
                 landHeightNoise = landHeightNoise - 0.6F;
                 landHeightNoise = landHeightNoise > 0 ? landHeightNoise : 0;
 
                 //generate mountains
-                double mountainHeightGenerate = mountainNoise[genx][genz] - 0.2F;
+                double mountainHeightGenerate = mountainNoise[(genx << 4) | genz] - 0.2F;
                 mountainHeightGenerate = mountainHeightGenerate > 0 ? mountainHeightGenerate : 0;
                 int mountainGenerate = (int) (mountainHeight * mountainHeightGenerate);
 
@@ -192,7 +201,7 @@ public class Normal extends Generator {
                 //prepare for generate ocean, desert, and land
                 if (genyHeight < beathStartHeight) {
                     if (genyHeight < beathStartHeight - 5) {
-                        genyHeight += (int) (seaFloorGenerateRange * seaFloorNoise[genx][genz]);
+                        genyHeight += (int) (seaFloorGenerateRange * seaFloorNoise[(genx << 4) | genz]);
                     }
                     biome = Biome.getBiome(Biome.OCEAN);
                     if (genyHeight < seaFloorHeight - seaFloorGenerateRange) {
@@ -206,7 +215,7 @@ public class Normal extends Generator {
                     biome = this.pickBiome(chunkX * 16 + genx, chunkZ * 16 + genz);
                     if (canBaseGround) {
                         int baseGroundHeight = (int) (landHeightRange * landHeightNoise) - landHeightRange;
-                        int baseGroundHeight2 = (int) (basegroundHeight * (baseNoise[genx][genz] + 1F));
+                        int baseGroundHeight2 = (int) (basegroundHeight * (baseNoise[(genx << 4) | genz] + 1F));
                         if (baseGroundHeight2 > baseGroundHeight) baseGroundHeight2 = baseGroundHeight;
                         if (baseGroundHeight2 > mountainGenerate)
                             baseGroundHeight2 = baseGroundHeight2 - mountainGenerate;
@@ -219,7 +228,7 @@ public class Normal extends Generator {
                 }
                 //generate river
                 if (canRiver) {
-                    double riverGenerate = riverNoise[genx][genz];
+                    double riverGenerate = riverNoise[(genx << 4) | genz];
                     if (riverGenerate > -0.25F && riverGenerate < 0.25F) {
                         riverGenerate = riverGenerate > 0 ? riverGenerate : -riverGenerate;
                         riverGenerate = 0.25F - riverGenerate;
@@ -233,7 +242,7 @@ public class Normal extends Generator {
                             biome = Biome.getBiome(Biome.RIVER);
                             //to generate river floor
                             if (genyHeight <= seaHeight - 8) {
-                                int genyHeight1 = seaHeight - 9 + (int) (basegroundHeight * (baseNoise[genx][genz] + 1F));
+                                int genyHeight1 = seaHeight - 9 + (int) (basegroundHeight * (baseNoise[(genx << 4) | genz] + 1F));
                                 int genyHeight2 = genyHeight < seaHeight - 7 ? seaHeight - 7 : genyHeight;
                                 genyHeight = genyHeight1 > genyHeight2 ? genyHeight1 : genyHeight2;
                             }
@@ -1,5 +1,7 @@
 package cn.nukkit.level.generator.noise;
 
+import java.util.Arrays;
+
 /**
  * author: MagicDroidX
  * Nukkit Project
@@ -129,6 +131,44 @@ public abstract class Noise {
         return result;
     }
 
+    /**
+     * Samples {@link #noise3D(double, double, double, boolean)} on an {@code xSize} x {@code zSize} grid of points
+     * {@code step} blocks apart, starting at (x, y, z), and stores the result at {@code out[xx * zSize + zz]}.
+     * <p>
+     * Octaves are the outer loop, so the frequency and amplitude of each octave are computed once for the whole
+     * grid. Every point sums its octaves in the same order as a single call, so the values are identical.
+     */
+    public void noise3D(double[] out, int x, int y, int z, int xSize, int zSize, int step, boolean normalized) {
+        int count = xSize * zSize;
+        Arrays.fill(out, 0, count, 0);
+
+        double amp = 1;
+        double freq = 1;
+        double max = 0;
+
+        double expandedY = y * this.expansion;
+
+        for (int i = 0; i < this.octaves; ++i) {
+            double octaveY = expandedY * freq;
+            int index = 0;
+            for (int xx = 0; xx < xSize; ++xx) {
+                double octaveX = (x + xx * step) * this.expansion * freq;
+                for (int zz = 0; zz < zSize; ++zz) {
+                    out[index++] += this.getNoise3D(octaveX, octaveY, (z + zz * step) * this.expansion * freq) * amp;
+                }
+            }
+            max += amp;
+            freq *= 2;
+            amp *= this.persistence;
+        }
+
+        if (normalized) {
+            for (int i = 0; i < count; ++i) {
+                out[i] /= max;
+            }
+        }
+    }
+
     public void setOffset(double x, double y, double z) {
         this.offsetX = x;
         this.offsetY = y;
@@ -7,6 +7,7 @@ import cn.nukkit.math.NukkitMath;
 import cn.nukkit.math.NukkitRandom;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -18,7 +19,8 @@ import java.util.List;
 
 public class PopulatorFlower extends Populator {
 
-    private ChunkManager level;
+    private static final List<int[]> DEFAULT_TYPES = Arrays.asList(new int[]{Block.RED_FLOWER, BlockFlower.TYPE_POPPY}, new int[]{Block.DANDELION, 0});
+
     private int randomAmount;
     private int baseAmount;
 
@@ -45,39 +47,34 @@ public class PopulatorFlower extends Populator {
 
     @Override
     public void populate(ChunkManager level, int chunkX, int chunkZ, NukkitRandom random) {
-        this.level = level;
         int amount = random.nextBoundedInt(this.randomAmount + 1) + this.baseAmount;
 
-        if (flowerTypes.size() == 0) {
-            this.addType(Block.RED_FLOWER, BlockFlower.TYPE_POPPY);
-            this.addType(Block.DANDELION, 0);
-        }
-
-        int endNum = this.flowerTypes.size();
+        List<int[]> types = this.flowerTypes.isEmpty() ? DEFAULT_TYPES : this.flowerTypes;
+        int endNum = types.size();
 
         for (int i = 0; i < amount; ++i) {
             int x = NukkitMath.randomRange(random, chunkX * 16, chunkX * 16 + 15);
             int z = NukkitMath.randomRange(random, chunkZ * 16, chunkZ * 16 + 15);
-            int y = this.getHighestWorkableBlock(x, z);
+            int y = this.getHighestWorkableBlock(level, x, z);
 
 
-            if (y != -1 && this.canFlowerStay(x, y, z)) {
-                int[] type = this.flowerTypes.get(random.nextRange(0, endNum - 1));
-                this.level.setBlockIdAt(x, y, z, type[0]);
-                this.level.setBlockDataAt(x, y, z, type[1]);
+            if (y != -1 && this.canFlowerStay(level, x, y, z)) {
+                int[] type = types.get(random.nextRange(0, endNum - 1));
+                level.setBlockIdAt(x, y, z, type[0]);
+                level.setBlockDataAt(x, y, z, type[1]);
             }
         }
     }
 
-    private boolean canFlowerStay(int x, int y, int z) {
-        int b = this.level.getBlockIdAt(x, y, z);
-        return (b == Block.AIR || b == Block.SNOW_LAYER) && this.level.getBlockIdAt(x, y - 1, z) == Block.GRASS;
+    private boolean canFlowerStay(ChunkManager level, int x, int y, int z) {
+        int b = level.getBlockIdAt(x, y, z);
+        return (b == Block.AIR || b == Block.SNOW_LAYER) && level.getBlockIdAt(x, y - 1, z) == Block.GRASS;
     }
 
-    private int getHighestWorkableBlock(int x, int z) {
+    private int getHighestWorkableBlock(ChunkManager level, int x, int z) {
         int y;
         for (y = 127; y >= 0; --y) {
-            int b = this.level.getBlockIdAt(x, y, z);
+            int b = level.getBlockIdAt(x, y, z);
             if (b != Block.AIR && b != Block.LEAVES && b != Block.LEAVES2 && b != Block.SNOW_LAYER) {
                 break;
             }
@@ -10,7 +10,6 @@ import cn.nukkit.math.NukkitRandom;
  * Nukkit Project
  */
 public class PopulatorGrass extends Populator {
-    private ChunkManager level;
     private int randomAmount;
     private int baseAmount;
 
@@ -24,29 +23,28 @@ public class PopulatorGrass extends Populator {
 
     @Override
     public void populate(ChunkManager level, int chunkX, int chunkZ, NukkitRandom random) {
-        this.level = level;
         int amount = random.nextBoundedInt(this.randomAmount + 1) + this.baseAmount;
         for (int i = 0; i < amount; ++i) {
             int x = NukkitMath.randomRange(random, chunkX * 16, chunkX * 16 + 15);
             int z = NukkitMath.randomRange(random, chunkZ * 16, chunkZ * 16 + 15);
-            int y = this.getHighestWorkableBlock(x, z);
+            int y = this.getHighestWorkableBlock(level, x, z);
 
-            if (y != -1 && this.canGrassStay(x, y, z)) {
-                this.level.setBlockIdAt(x, y, z, Block.TALL_GRASS);
-                this.level.setBlockDataAt(x, y, z, 0);
+            if (y != -1 && this.canGrassStay(level, x, y, z)) {
+                level.setBlockIdAt(x, y, z, Block.TALL_GRASS);
+                level.setBlockDataAt(x, y, z, 0);
             }
         }
     }
 
-    private boolean canGrassStay(int x, int y, int z) {
-        int b = this.level.getBlockIdAt(x, y, z);
-        return (b == Block.AIR || b == Block.SNOW_LAYER) && this.level.getBlockIdAt(x, y - 1, z) == Block.GRASS;
+    private boolean canGrassStay(ChunkManager level, int x, int y, int z) {
+        int b = level.getBlockIdAt(x, y, z);
+        return (b == Block.AIR || b == Block.SNOW_LAYER) && level.getBlockIdAt(x, y - 1, z) == Block.GRASS;
     }
 
-    private int getHighestWorkableBlock(int x, int z) {
+    private int getHighestWorkableBlock(ChunkManager level, int x, int z) {
         int y;
         for (y = 127; y >= 0; --y) {
-            int b = this.level.getBlockIdAt(x, y, z);
+            int b = level.getBlockIdAt(x, y, z);
             if (b != Block.AIR && b != Block.LEAVES && b != Block.LEAVES2 && b != Block.SNOW_LAYER) {
                 break;
             }
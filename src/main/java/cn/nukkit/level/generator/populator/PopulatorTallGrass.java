@@ -10,7 +10,6 @@ import cn.nukkit.math.NukkitRandom;
  * Nukkit Project
  */
 public class PopulatorTallGrass extends Populator {
-    private ChunkManager level;
     private int randomAmount;
     private int baseAmount;
 
@@ -24,31 +23,30 @@ public class PopulatorTallGrass extends Populator {
 
     @Override
     public void populate(ChunkManager level, int chunkX, int chunkZ, NukkitRandom random) {
-        this.level = level;
         int amount = random.nextBoundedInt(this.randomAmount + 1) + this.baseAmount;
         for (int i = 0; i < amount; ++i) {
             int x = NukkitMath.randomRange(random, chunkX * 16, chunkX * 16 + 15);
             int z = NukkitMath.randomRange(random, chunkZ * 16, chunkZ * 16 + 15);
-            int y = this.getHighestWorkableBlock(x, z);
+            int y = this.getHighestWorkableBlock(level, x, z);
 
-            if (y != -1 && this.canTallGrassStay(x, y, z)) {
-                this.level.setBlockIdAt(x, y, z, Block.DOUBLE_PLANT);
-                this.level.setBlockDataAt(x, y, z, 2);
-                this.level.setBlockIdAt(x, y + 1, z, Block.DOUBLE_PLANT);
-                this.level.setBlockDataAt(x, y + 1, z, 10);
+            if (y != -1 && this.canTallGrassStay(level, x, y, z)) {
+                level.setBlockIdAt(x, y, z, Block.DOUBLE_PLANT);
+                level.setBlockDataAt(x, y, z, 2);
+                level.setBlockIdAt(x, y + 1, z, Block.DOUBLE_PLANT);
+                level.setBlockDataAt(x, y + 1, z, 10);
             }
         }
     }
 
-    private boolean canTallGrassStay(int x, int y, int z) {
-        int b = this.level.getBlockIdAt(x, y, z);
-        return (b == Block.AIR || b == Block.SNOW_LAYER) && this.level.getBlockIdAt(x, y - 1, z) == Block.GRASS && this.level.getBlockIdAt(x, y + 1, z) == Block.AIR;
+    private boolean canTallGrassStay(ChunkManager level, int x, int y, int z) {
+        int b = level.getBlockIdAt(x, y, z);
+        return (b == Block.AIR || b == Block.SNOW_LAYER) && level.getBlockIdAt(x, y - 1, z) == Block.GRASS && level.getBlockIdAt(x, y + 1, z) == Block.AIR;
     }
 
-    private int getHighestWorkableBlock(int x, int z) {
+    private int getHighestWorkableBlock(ChunkManager level, int x, int z) {
         int y;
         for (y = 127; y >= 0; --y) {
-            int b = this.level.getBlockIdAt(x, y, z);
+            int b = level.getBlockIdAt(x, y, z);
             if (b != Block.AIR && b != Block.LEAVES && b != Block.LEAVES2 && b != Block.SNOW_LAYER) {
                 break;
             }
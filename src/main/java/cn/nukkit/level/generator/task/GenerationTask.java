@@ -38,23 +38,22 @@ public class GenerationTask extends AsyncTask {
             return;
         }
 
-        synchronized (manager) {
-            BaseFullChunk chunk = this.chunk.clone();
+        BaseFullChunk chunk = this.chunk.clone();
 
-            if (chunk == null) {
-                return;
-            }
+        if (chunk == null) {
+            return;
+        }
 
-            manager.setChunk(chunk.getX(), chunk.getZ(), chunk);
+        manager.setChunk(chunk.getX(), chunk.getZ(), chunk);
 
-            generator.generateChunk(chunk.getX(), chunk.getZ());
+        generator.generateChunk(chunk.getX(), chunk.getZ());
+        GeneratorPool.chunkGenerated();
 
-            chunk = manager.getChunk(chunk.getX(), chunk.getZ());
-            chunk.setGenerated();
-            this.chunk = chunk.clone();
+        chunk = manager.getChunk(chunk.getX(), chunk.getZ());
+        chunk.setGenerated();
+        this.chunk = chunk.clone();
 
-            manager.setChunk(chunk.getX(), chunk.getZ(), null);
-        }
+        manager.setChunk(chunk.getX(), chunk.getZ(), null);
 
     }
 
@@ -1,30 +1,99 @@
 package cn.nukkit.level.generator.task;
 
+import cn.nukkit.level.SimpleChunkManager;
 import cn.nukkit.level.generator.Generator;
+import cn.nukkit.math.NukkitRandom;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * author: MagicDroidX
  * Nukkit Project
+ * <p>
+ * Generators keep per chunk state in their fields and {@link SimpleChunkManager}, so every async worker gets its
+ * own instance, created from the registered options and seeded identically. Generators reseed before every chunk,
+ * so the output does not depend on which worker generated it.
  */
 public class GeneratorPool {
-    private static Map<Integer, Generator> generators = new ConcurrentHashMap<>();
+    private static Map<Integer, Registration> registrations = new ConcurrentHashMap<>();
 
-    public static void put(int levelId, Generator generator) {
-        generators.put(levelId, generator);
+    private static final ThreadLocal<Map<Integer, Instance>> instances = ThreadLocal.withInitial(HashMap::new);
+
+    private static final AtomicLong generatedChunks = new AtomicLong();
+
+    public static void put(int levelId, Class<? extends Generator> generator, Map<String, Object> settings, long seed) {
+        registrations.put(levelId, new Registration(generator, settings, seed));
     }
 
     public static void remove(int levelId) {
-        generators.remove(levelId);
+        registrations.remove(levelId);
+        instances.get().remove(levelId);
     }
 
     public static boolean exists(int levelId) {
-        return generators.containsKey(levelId);
+        return registrations.containsKey(levelId);
     }
 
+    /**
+     * Returns the calling thread's generator for the level, creating it on first use.
+     */
     public static Generator get(int levelId) {
-        return generators.getOrDefault(levelId, null);
+        Registration registration = registrations.get(levelId);
+        Map<Integer, Instance> local = instances.get();
+        if (registration == null) {
+            local.remove(levelId);
+            return null;
+        }
+
+        Instance instance = local.get(levelId);
+        if (instance == null || instance.registration != registration) {
+            instance = new Instance(registration, registration.create());
+            local.put(levelId, instance);
+        }
+        return instance.generator;
+    }
+
+    public static void chunkGenerated() {
+        generatedChunks.incrementAndGet();
+    }
+
+    public static long getGeneratedChunks() {
+        return generatedChunks.get();
+    }
+
+    private static class Registration {
+        private final Class<? extends Generator> generator;
+        private final Map<String, Object> settings;
+        private final long seed;
+
+        private Registration(Class<? extends Generator> generator, Map<String, Object> settings, long seed) {
+            this.generator = generator;
+            this.settings = settings;
+            this.seed = seed;
+        }
+
+        private Generator create() {
+            SimpleChunkManager manager = new SimpleChunkManager(this.seed);
+            try {
+                Generator generator = this.generator.getConstructor(Map.class).newInstance(new HashMap<>(this.settings));
+                generator.init(manager, new NukkitRandom(manager.getSeed()));
+                return generator;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static class Instance {
+        private final Registration registration;
+        private final Generator generator;
+
+        private Instance(Registration registration, Generator generator) {
+            this.registration = registration;
+            this.generator = generator;
+        }
     }
 }
@@ -2,10 +2,8 @@ package cn.nukkit.level.generator.task;
 
 import cn.nukkit.block.Block;
 import cn.nukkit.level.Level;
-import cn.nukkit.level.SimpleChunkManager;
 import cn.nukkit.level.generator.Generator;
 import cn.nukkit.level.generator.biome.Biome;
-import cn.nukkit.math.NukkitRandom;
 import cn.nukkit.scheduler.AsyncTask;
 
 import java.util.Map;
@@ -32,13 +30,8 @@ public class GeneratorRegisterTask extends AsyncTask {
     public void onRun() {
         Block.init();
         Biome.init();
-        SimpleChunkManager manager = new SimpleChunkManager(this.seed);
-        try {
-            Generator generator = this.generator.getConstructor(Map.class).newInstance(this.settings);
-            generator.init(manager, new NukkitRandom(manager.getSeed()));
-            GeneratorPool.put(this.levelId, generator);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        GeneratorPool.put(this.levelId, this.generator, this.settings, this.seed);
+        //fail here rather than in every generation task if the generator cannot be created
+        GeneratorPool.get(this.levelId);
     }
 }
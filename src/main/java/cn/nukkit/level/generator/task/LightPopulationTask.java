@@ -2,6 +2,8 @@ package cn.nukkit.level.generator.task;
 
 import cn.nukkit.Server;
 import cn.nukkit.level.Level;
+import cn.nukkit.level.LightEngine;
+import cn.nukkit.level.SimpleChunkManager;
 import cn.nukkit.level.format.generic.BaseFullChunk;
 import cn.nukkit.scheduler.AsyncTask;
 
@@ -26,8 +28,9 @@ public class LightPopulationTask extends AsyncTask {
             return;
         }
 
-        chunk.recalculateHeightMap();
-        chunk.populateSkyLight();
+        SimpleChunkManager manager = new SimpleChunkManager(0);
+        manager.setChunk(chunk.getX(), chunk.getZ(), chunk);
+        new LightEngine(manager).populateChunk(chunk);
         chunk.setLightPopulated();
 
         this.chunk = chunk.clone();
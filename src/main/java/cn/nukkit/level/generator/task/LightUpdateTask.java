@@ -0,0 +1,106 @@
+package cn.nukkit.level.generator.task;
+
+import cn.nukkit.Server;
+import cn.nukkit.level.Level;
+import cn.nukkit.level.LightEngine;
+import cn.nukkit.level.SimpleChunkManager;
+import cn.nukkit.level.format.generic.BaseFullChunk;
+import cn.nukkit.scheduler.AsyncTask;
+
+/**
+ * Relights a batch of positions in one chunk on an async worker.
+ * <p>
+ * The worker runs the {@link LightEngine} on copies of the chunk and its eight neighbours; only the positions whose
+ * light changed are copied back, and only into chunks that are still the same loaded instances.
+ */
+public class LightUpdateTask extends AsyncTask {
+
+    private final int levelId;
+    private final int chunkX;
+    private final int chunkZ;
+    private final long[] positions;
+
+    private final BaseFullChunk[] chunks = new BaseFullChunk[9];
+    private final BaseFullChunk[] copies = new BaseFullChunk[9];
+
+    private long[] changed = new long[0];
+    private byte[] blockLight = new byte[0];
+    private byte[] skyLight = new byte[0];
+
+    public LightUpdateTask(Level level, int chunkX, int chunkZ, long[] positions) {
+        this.levelId = level.getId();
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.positions = positions;
+
+        for (int i = 0; i < 9; ++i) {
+            BaseFullChunk chunk = level.getChunks().get(Level.chunkKey(chunkX + (i % 3) - 1, chunkZ + (i / 3) - 1));
+            if (chunk != null) {
+                this.chunks[i] = chunk;
+                this.copies[i] = chunk.clone();
+            }
+        }
+    }
+
+    @Override
+    public void onRun() {
+        try {
+            SimpleChunkManager manager = new SimpleChunkManager(0);
+            for (BaseFullChunk chunk : this.copies) {
+                if (chunk != null) {
+                    manager.setChunk(chunk.getX(), chunk.getZ(), chunk);
+                }
+            }
+
+            LightEngine engine = new LightEngine(manager);
+            engine.startRecording();
+            engine.update(this.positions, this.positions.length);
+            long[] changed = engine.stopRecording();
+
+            byte[] blockLight = new byte[changed.length];
+            byte[] skyLight = new byte[changed.length];
+            for (int i = 0; i < changed.length; ++i) {
+                int x = Level.getBlockKeyX(changed[i]);
+                int y = Level.getBlockKeyY(changed[i]);
+                int z = Level.getBlockKeyZ(changed[i]);
+                BaseFullChunk chunk = manager.getChunk(x >> 4, z >> 4);
+                blockLight[i] = (byte) chunk.getBlockLight(x & 0x0f, y, z & 0x0f);
+                skyLight[i] = (byte) chunk.getBlockSkyLight(x & 0x0f, y, z & 0x0f);
+            }
+
+            this.blockLight = blockLight;
+            this.skyLight = skyLight;
+            this.changed = changed;
+        } catch (Exception e) {
+            Server.getInstance().getLogger().logException(e);
+        }
+    }
+
+    @Override
+    public void onCompletion(Server server) {
+        Level level = server.getLevel(this.levelId);
+        if (level == null) {
+            return;
+        }
+
+        for (int i = 0; i < this.changed.length; ++i) {
+            int x = Level.getBlockKeyX(this.changed[i]);
+            int y = Level.getBlockKeyY(this.changed[i]);
+            int z = Level.getBlockKeyZ(this.changed[i]);
+            int slot = ((z >> 4) - this.chunkZ + 1) * 3 + (x >> 4) - this.chunkX + 1;
+            BaseFullChunk chunk = this.chunks[slot];
+            if (chunk == null || level.getChunks().get(Level.chunkKey(x >> 4, z >> 4)) != chunk) {
+                continue;
+            }
+
+            if (chunk.getBlockLight(x & 0x0f, y, z & 0x0f) != this.blockLight[i]) {
+                chunk.setBlockLight(x & 0x0f, y, z & 0x0f, this.blockLight[i]);
+            }
+            if (chunk.getBlockSkyLight(x & 0x0f, y, z & 0x0f) != this.skyLight[i]) {
+                chunk.setBlockSkyLight(x & 0x0f, y, z & 0x0f, this.skyLight[i]);
+            }
+        }
+
+        level.lightUpdateCallback(this.chunkX, this.chunkZ);
+    }
+}
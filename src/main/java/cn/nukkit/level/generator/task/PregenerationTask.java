@@ -0,0 +1,342 @@
+package cn.nukkit.level.generator.task;
+
+import cn.nukkit.Server;
+import cn.nukkit.level.Level;
+import cn.nukkit.level.format.generic.BaseFullChunk;
+import cn.nukkit.math.NukkitMath;
+import cn.nukkit.scheduler.AsyncTask;
+import cn.nukkit.scheduler.Task;
+import cn.nukkit.utils.Config;
+import cn.nukkit.utils.LongObjectHashMap;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Populates every chunk in a square around the spawn of a level, a few chunks at a time on the main thread.
+ * <p>
+ * Chunks are visited region file by region file, nearest region first, and in storage order inside each region.
+ * A chunk is saved and unloaded as soon as it and all of its neighbours are populated. No new work is started
+ * while the average tick usage is above {@link #getMaxTickUsage()}, while the async pool has no room for more
+ * generation work, or once the tick has spent {@link #TICK_BUDGET} nanoseconds on pre-generation.
+ * <p>
+ * Progress is written to {@link #PROGRESS_FILE} in the world folder, so the run resumes where it stopped
+ * after a restart.
+ */
+public class PregenerationTask extends Task {
+
+    public static final String PROGRESS_FILE = "pregen.yml";
+
+    public static final long TICK_BUDGET = 5000000;
+
+    private static final int REGION_SHIFT = 5;
+    private static final int REGION_CHUNKS = 1 << (REGION_SHIFT << 1);
+
+    /**
+     * How far ahead of the oldest unfinished chunk new chunks may be started.
+     */
+    private static final int MAX_LOOKAHEAD = REGION_CHUNKS * 4;
+
+    private final Server server;
+    private final Level level;
+    private final int centerX;
+    private final int centerZ;
+    private final int radius;
+
+    private final long[] regions;
+    private final LongObjectHashMap<Integer> regionRanks = new LongObjectHashMap<>();
+    private final long end;
+    private final long total;
+
+    private final LongObjectHashMap<Boolean> inFlight = new LongObjectHashMap<>();
+    private final LongObjectHashMap<Boolean> completed = new LongObjectHashMap<>();
+
+    private long cursor;
+    private long watermark;
+    private long done;
+
+    private int maxInFlight;
+    private float maxTickUsage = 0.75f;
+
+    private final long startTime = System.nanoTime();
+    private final long doneAtStart;
+
+    public PregenerationTask(Level level, int radius) {
+        this(level, (int) level.getSpawnLocation().getX() >> 4, (int) level.getSpawnLocation().getZ() >> 4, radius, 0);
+    }
+
+    private PregenerationTask(Level level, int centerX, int centerZ, int radius, long watermark) {
+        this.server = level.getServer();
+        this.level = level;
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.radius = radius;
+        this.maxInFlight = Math.max(1, this.server.getScheduler().getAsyncTaskPoolSize() * 2);
+
+        int centerRegionX = centerX >> REGION_SHIFT;
+        int centerRegionZ = centerZ >> REGION_SHIFT;
+        List<long[]> regions = new ArrayList<>();
+        for (int rx = (centerX - radius) >> REGION_SHIFT; rx <= (centerX + radius) >> REGION_SHIFT; ++rx) {
+            for (int rz = (centerZ - radius) >> REGION_SHIFT; rz <= (centerZ + radius) >> REGION_SHIFT; ++rz) {
+                regions.add(new long[]{Math.max(Math.abs(rx - centerRegionX), Math.abs(rz - centerRegionZ)), Level.chunkKey(rx, rz)});
+            }
+        }
+        regions.sort(Comparator.comparingLong((long[] region) -> region[0]));
+
+        this.regions = new long[regions.size()];
+        for (int i = 0; i < this.regions.length; ++i) {
+            this.regions[i] = regions.get(i)[1];
+            this.regionRanks.put(this.regions[i], i);
+        }
+
+        this.end = (long) this.regions.length * REGION_CHUNKS;
+        this.total = (2L * radius + 1) * (2L * radius + 1);
+        this.cursor = this.watermark = Math.min(watermark, this.end);
+        this.done = this.doneAtStart = this.countBefore(this.watermark);
+    }
+
+    /**
+     * Loads the progress file of the level, or returns null if there is no unfinished run.
+     */
+    public static PregenerationTask resume(Level level) {
+        File file = new File(level.getProvider().getPath(), PROGRESS_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+
+        Config progress = new Config(file, Config.YAML);
+        return new PregenerationTask(level, progress.getInt("centerX"), progress.getInt("centerZ"), progress.getInt("radius"),
+                progress.getLong("position"));
+    }
+
+    public Level getLevel() {
+        return this.level;
+    }
+
+    public int getRadius() {
+        return this.radius;
+    }
+
+    public long getTotalChunks() {
+        return this.total;
+    }
+
+    public long getCompletedChunks() {
+        return this.done;
+    }
+
+    public boolean isFinished() {
+        return this.watermark >= this.end;
+    }
+
+    /**
+     * Chunks finished per second since this run started.
+     */
+    public double getChunksPerSecond() {
+        return (this.done - this.doneAtStart) * 1000000000d / Math.max(1, System.nanoTime() - this.startTime);
+    }
+
+    /**
+     * Estimated seconds until every chunk is populated, or -1 if nothing has finished yet.
+     */
+    public long getEstimatedSecondsLeft() {
+        double rate = this.getChunksPerSecond();
+        return rate > 0 ? (long) ((this.total - this.done) / rate) : -1;
+    }
+
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    public float getMaxTickUsage() {
+        return this.maxTickUsage;
+    }
+
+    public void setMaxTickUsage(float maxTickUsage) {
+        this.maxTickUsage = maxTickUsage;
+    }
+
+    @Override
+    public void onRun(int currentTick) {
+        if (this.level.getProvider() == null) {
+            this.cancel();
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        for (long index : this.inFlight.keys()) {
+            if (this.populate(index)) {
+                this.inFlight.remove(index);
+                this.complete(index);
+            }
+        }
+        this.advanceWatermark();
+
+        if (this.server.getTickUsageAverage() < this.maxTickUsage
+                && this.server.getScheduler().getAsyncPool().hasCapacity(AsyncTask.PRIORITY_NORMAL)) {
+            while (this.inFlight.size() < this.maxInFlight && this.cursor < this.end
+                    && this.cursor - this.watermark < MAX_LOOKAHEAD && System.nanoTime() - start < TICK_BUDGET) {
+                long index = this.chunkAt(this.cursor++);
+                if (index == Long.MIN_VALUE) {
+                    continue;
+                }
+                if (this.populate(index)) {
+                    this.complete(index);
+                } else {
+                    this.inFlight.put(index, true);
+                }
+            }
+            this.advanceWatermark();
+        }
+
+        if (this.isFinished()) {
+            this.report();
+            this.server.getLogger().info("Pre-generation of " + this.level.getFolderName() + " finished");
+            new File(this.level.getProvider().getPath(), PROGRESS_FILE).delete();
+            this.cancel();
+        } else if (currentTick % 200 == 0) {
+            this.report();
+            this.saveProgress();
+        }
+    }
+
+    @Override
+    public void onCancel() {
+        if (!this.isFinished() && this.level.getProvider() != null) {
+            this.saveProgress();
+        }
+    }
+
+    public void saveProgress() {
+        Config progress = new Config(new File(this.level.getProvider().getPath(), PROGRESS_FILE), Config.YAML);
+        progress.set("centerX", this.centerX);
+        progress.set("centerZ", this.centerZ);
+        progress.set("radius", this.radius);
+        progress.set("position", this.watermark);
+        progress.save();
+    }
+
+    /**
+     * Human readable progress, rate and ETA.
+     */
+    public String getProgress() {
+        long eta = this.getEstimatedSecondsLeft();
+        return this.done + "/" + this.total + " chunks (" + NukkitMath.round(this.done * 100d / this.total, 2) + "%), " +
+                NukkitMath.round(this.getChunksPerSecond(), 2) + " chunks/s" +
+                (eta >= 0 ? ", ETA " + (eta / 3600) + "h " + (eta / 60 % 60) + "m " + (eta % 60) + "s" : "");
+    }
+
+    private void report() {
+        this.server.getLogger().info("Pre-generating " + this.level.getFolderName() + ": " + this.getProgress());
+    }
+
+    private boolean populate(long index) {
+        BaseFullChunk chunk = this.level.getChunks().get(index);
+        if (chunk != null && chunk.isPopulated()) {
+            return true;
+        }
+        return this.level.populateChunk(Level.getChunkKeyX(index), Level.getChunkKeyZ(index), true);
+    }
+
+    private void complete(long index) {
+        this.completed.put(index, true);
+        ++this.done;
+
+        int x = Level.getChunkKeyX(index);
+        int z = Level.getChunkKeyZ(index);
+        for (int xx = -1; xx <= 1; ++xx) {
+            for (int zz = -1; zz <= 1; ++zz) {
+                this.tryUnload(x + xx, z + zz);
+            }
+        }
+    }
+
+    /**
+     * Saves and unloads a chunk once no chunk of the run still has to populate around it.
+     */
+    private void tryUnload(int x, int z) {
+        for (int xx = -1; xx <= 1; ++xx) {
+            for (int zz = -1; zz <= 1; ++zz) {
+                if (!this.isDone(x + xx, z + zz)) {
+                    return;
+                }
+            }
+        }
+
+        if (this.level.getChunks().containsKey(Level.chunkKey(x, z)) && !this.level.isSpawnChunk(x, z)) {
+            this.level.saveChunk(x, z);
+            this.level.unloadChunk(x, z, true, false);
+        }
+    }
+
+    private boolean isDone(int x, int z) {
+        long ordinal = this.ordinal(x, z);
+        return ordinal < 0 || ordinal < this.watermark || this.completed.containsKey(Level.chunkKey(x, z));
+    }
+
+    private void advanceWatermark() {
+        while (this.watermark < this.cursor) {
+            long index = this.chunkAt(this.watermark);
+            if (index != Long.MIN_VALUE) {
+                if (!this.completed.containsKey(index)) {
+                    break;
+                }
+                this.completed.remove(index);
+            }
+            ++this.watermark;
+        }
+    }
+
+    /**
+     * Position of a chunk in the walk, or -1 if it is outside the square.
+     */
+    private long ordinal(int x, int z) {
+        if (Math.abs(x - this.centerX) > this.radius || Math.abs(z - this.centerZ) > this.radius) {
+            return -1;
+        }
+        int rank = this.regionRanks.get(Level.chunkKey(x >> REGION_SHIFT, z >> REGION_SHIFT));
+        return (long) rank * REGION_CHUNKS + (((z & 0x1f) << REGION_SHIFT) | (x & 0x1f));
+    }
+
+    /**
+     * Number of chunks of the square that come before a position of the walk.
+     */
+    private long countBefore(long ordinal) {
+        long count = 0;
+        int fullRegions = (int) (ordinal / REGION_CHUNKS);
+        for (int i = 0; i < fullRegions; ++i) {
+            int minX = Math.max(Level.getChunkKeyX(this.regions[i]) << REGION_SHIFT, this.centerX - this.radius);
+            int maxX = Math.min((Level.getChunkKeyX(this.regions[i]) << REGION_SHIFT) + 0x1f, this.centerX + this.radius);
+            int minZ = Math.max(Level.getChunkKeyZ(this.regions[i]) << REGION_SHIFT, this.centerZ - this.radius);
+            int maxZ = Math.min((Level.getChunkKeyZ(this.regions[i]) << REGION_SHIFT) + 0x1f, this.centerZ + this.radius);
+            count += (long) (maxX - minX + 1) * (maxZ - minZ + 1);
+        }
+        for (long i = (long) fullRegions * REGION_CHUNKS; i < ordinal; ++i) {
+            if (this.chunkAt(i) != Long.MIN_VALUE) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Chunk at a position of the walk, or {@link Long#MIN_VALUE} if that position is outside the square.
+     */
+    private long chunkAt(long ordinal) {
+        long region = this.regions[(int) (ordinal / REGION_CHUNKS)];
+        int local = (int) (ordinal % REGION_CHUNKS);
+        int x = (Level.getChunkKeyX(region) << REGION_SHIFT) | (local & 0x1f);
+        int z = (Level.getChunkKeyZ(region) << REGION_SHIFT) | (local >> REGION_SHIFT);
+        if (Math.abs(x - this.centerX) > this.radius || Math.abs(z - this.centerZ) > this.radius) {
+            return Long.MIN_VALUE;
+        }
+        return Level.chunkKey(x, z);
+    }
+}
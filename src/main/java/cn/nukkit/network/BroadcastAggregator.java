@@ -0,0 +1,108 @@
+package cn.nukkit.network;
+
+import cn.nukkit.Player;
+import cn.nukkit.Server;
+import cn.nukkit.network.protocol.DataPacket;
+
+import java.util.*;
+
+/**
+ * Collects the packets broadcast to chunk viewers during a tick and sends each player everything
+ * it can see as a single batch.
+ * <p>
+ * Every packet is encoded once. Players that see exactly the same packets share one batch, so the
+ * payload is assembled and compressed once per distinct viewer set through {@link Server#batchPackets}.
+ */
+public class BroadcastAggregator {
+
+    private final Server server;
+
+    private final Map<Player, List<DataPacket>> pending = new LinkedHashMap<>();
+
+    private long batchesSaved = 0;
+    private long bytesSaved = 0;
+
+    public BroadcastAggregator(Server server) {
+        this.server = server;
+    }
+
+    /**
+     * Queues packets for the given viewers. Packets are sent in the order they were added.
+     */
+    public void add(Collection<Player> viewers, List<DataPacket> packets) {
+        if (viewers.isEmpty() || packets.isEmpty()) {
+            return;
+        }
+
+        for (DataPacket packet : packets) {
+            if (!packet.isEncoded) {
+                packet.encode();
+                packet.isEncoded = true;
+            }
+        }
+
+        for (Player player : viewers) {
+            List<DataPacket> list = this.pending.get(player);
+            if (list == null) {
+                this.pending.put(player, list = new ArrayList<>());
+            }
+            list.addAll(packets);
+        }
+    }
+
+    /**
+     * Sends everything queued since the last flush.
+     */
+    public void flush() {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+
+        //DataPacket does not override equals, so equal lists hold the very same packets in the same order
+        Map<List<DataPacket>, List<Player>> groups = new LinkedHashMap<>();
+        for (Map.Entry<Player, List<DataPacket>> entry : this.pending.entrySet()) {
+            List<Player> players = groups.get(entry.getValue());
+            if (players == null) {
+                groups.put(entry.getValue(), players = new ArrayList<>());
+            }
+            players.add(entry.getKey());
+        }
+        this.pending.clear();
+
+        for (Map.Entry<List<DataPacket>, List<Player>> group : groups.entrySet()) {
+            List<DataPacket> packets = group.getKey();
+            Player[] players = group.getValue().toArray(new Player[group.getValue().size()]);
+
+            long size = 0;
+            for (DataPacket packet : packets) {
+                size += packet.getCount();
+            }
+
+            if (packets.size() == 1 && (Network.BATCH_THRESHOLD < 0 || size < Network.BATCH_THRESHOLD)) {
+                DataPacket packet = packets.get(0);
+                for (Player player : players) {
+                    player.dataPacket(packet);
+                }
+                packet.encapsulatedPacket = null;
+            } else {
+                this.server.batchPackets(players, packets.toArray(new DataPacket[packets.size()]));
+                this.batchesSaved += (long) (packets.size() - 1) * players.length;
+                this.bytesSaved += size * (players.length - 1);
+            }
+        }
+    }
+
+    /**
+     * Number of packet sends avoided by merging packets into shared batches.
+     */
+    public long getBatchesSaved() {
+        return this.batchesSaved;
+    }
+
+    /**
+     * Number of payload bytes that did not have to be assembled and compressed again for another player.
+     */
+    public long getBytesSaved() {
+        return this.bytesSaved;
+    }
+}
@@ -34,6 +34,11 @@ public class CompressBatchedPacket extends AsyncTask {
         this.channel = channel;
     }
 
+    @Override
+    public int getPriority() {
+        return PRIORITY_HIGH;
+    }
+
     @Override
     public void onRun() {
         try {
@@ -2,6 +2,7 @@ package cn.nukkit.network;
 
 import cn.nukkit.Server;
 import cn.nukkit.scheduler.AsyncTask;
+import cn.nukkit.utils.BufferPool;
 import cn.nukkit.utils.Zlib;
 
 import java.util.ArrayList;
@@ -15,6 +16,8 @@ public class CompressBatchedTask extends AsyncTask {
 
     public int level = 7;
     public byte[] data;
+    public int length;
+    public boolean pooled;
     public byte[] finalData;
     public int channel = 0;
     public List<String> targets = new ArrayList<>();
@@ -28,19 +31,37 @@ public class CompressBatchedTask extends AsyncTask {
     }
 
     public CompressBatchedTask(byte[] data, List<String> targets, int level, int channel) {
+        this(data, data.length, false, targets, level, channel);
+    }
+
+    /**
+     * @param pooled whether {@code data} came from {@link BufferPool} and goes back once it is compressed
+     */
+    public CompressBatchedTask(byte[] data, int length, boolean pooled, List<String> targets, int level, int channel) {
         this.data = data;
+        this.length = length;
+        this.pooled = pooled;
         this.targets = targets;
         this.level = level;
         this.channel = channel;
     }
 
+    @Override
+    public int getPriority() {
+        return PRIORITY_HIGH;
+    }
+
     @Override
     public void onRun() {
         try {
-            this.finalData = Zlib.deflate(this.data, this.level);
-            this.data = null;
+            this.finalData = Zlib.deflate(this.data, 0, this.length, this.level);
         } catch (Exception e) {
             //ignore
+        } finally {
+            if (this.pooled) {
+                BufferPool.release(this.data);
+            }
+            this.data = null;
         }
     }
 
@@ -9,6 +9,7 @@ import cn.nukkit.utils.Zlib;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * author: MagicDroidX
@@ -27,7 +28,13 @@ public class Network {
     public static final byte CHANNEL_TEXT = 7; //Chat and other text stuff
     public static final byte CHANNEL_END = 31;
 
-    private Class<? extends DataPacket>[] packetPool = new Class[256];
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Supplier<? extends DataPacket>[] packetPool = new Supplier[256];
+
+    //packets that may be reused for the next decode, see setPacketPooling
+    private boolean[] poolable = new boolean[256];
+    private DataPacket[] pooled = new DataPacket[256];
+    private boolean packetPooling = false;
 
     private Server server;
 
@@ -113,7 +120,43 @@ public class Network {
     }
 
     public void registerPacket(byte id, Class<? extends DataPacket> clazz) {
-        this.packetPool[id & 0xff] = clazz;
+        this.registerPacket(id, () -> {
+            try {
+                return clazz.newInstance();
+            } catch (Exception e) {
+                Server.getInstance().getLogger().logException(e);
+                return null;
+            }
+        });
+    }
+
+    public void registerPacket(byte id, Supplier<? extends DataPacket> factory) {
+        this.registerPacket(id, factory, false);
+    }
+
+    /**
+     * @param poolable whether one instance may be decoded into again once the player has handled it; only for
+     *                 packets whose decode() sets every field and that nothing keeps after handling
+     */
+    public void registerPacket(byte id, Supplier<? extends DataPacket> factory, boolean poolable) {
+        this.packetPool[id & 0xff] = factory;
+        this.poolable[id & 0xff] = poolable;
+        this.pooled[id & 0xff] = null;
+    }
+
+    public boolean isPacketPooling() {
+        return packetPooling;
+    }
+
+    /**
+     * Reuses the instances of frequent inbound packets such as movement instead of creating one per packet.
+     * Plugins must then not keep a packet from {@link cn.nukkit.event.server.DataPacketReceiveEvent} past the event.
+     */
+    public void setPacketPooling(boolean packetPooling) {
+        this.packetPooling = packetPooling;
+        if (!packetPooling) {
+            this.pooled = new DataPacket[256];
+        }
     }
 
     public Server getServer() {
@@ -133,26 +176,36 @@ public class Network {
         int offset = 0;
         try {
             while (offset < len) {
-                int pkLen = Binary.readInt(Binary.subBytes(data, offset, 4));
+                int pkLen = Binary.readInt(data, offset);
                 offset += 4;
+                if (pkLen < 2 || pkLen > len - offset) {
+                    throw new IllegalStateException("Invalid packet length " + pkLen + " in BatchPacket");
+                }
 
-                byte[] buf = Binary.subBytes(data, offset, pkLen);
+                int start = offset;
                 offset += pkLen;
 
                 DataPacket pk;
                 //TODO: CHECK THIS HACK FOR 0.14
-                if ((pk = this.getPacket(buf[1])) != null) {
+                if ((pk = this.acquirePacket(data[start + 1])) != null) {
                     if (pk.pid() == ProtocolInfo.BATCH_PACKET) {
                         throw new IllegalStateException("Invalid BatchPacket inside BatchPacket");
                     }
 
-                    pk.setBuffer(buf);
-                    pk.setOffset(2);
-
-                    pk.decode();
-                    p.handleDataPacket(pk);
+                    //decodes straight out of the inflated batch
+                    pk.setBuffer(data, start, pkLen);
+                    pk.setOffset(start + 2);
+
+                    boolean stop;
+                    try {
+                        pk.decode();
+                        p.handleDataPacket(pk);
+                        stop = pk.getOffset() <= 0;
+                    } finally {
+                        this.releasePacket(pk);
+                    }
 
-                    if (pk.getOffset() <= 0) {
+                    if (stop) {
                         return;
                     }
                 }
@@ -166,15 +219,32 @@ public class Network {
     }
 
     public DataPacket getPacket(byte id) {
-        Class<? extends DataPacket> clazz = this.packetPool[id & 0xff];
-        if (clazz != null) {
-            try {
-                return clazz.newInstance();
-            } catch (Exception e) {
-            	Server.getInstance().getLogger().logException(e);
+        Supplier<? extends DataPacket> factory = this.packetPool[id & 0xff];
+        return factory != null ? factory.get() : null;
+    }
+
+    /**
+     * Like {@link #getPacket(byte)}, but may return a pooled instance; hand it back with
+     * {@link #releasePacket(DataPacket)} once it is handled. Main thread only.
+     */
+    public DataPacket acquirePacket(byte id) {
+        if (this.packetPooling) {
+            DataPacket pk = this.pooled[id & 0xff];
+            if (pk != null) {
+                //taken out while in use, so a packet handled inside another gets its own instance
+                this.pooled[id & 0xff] = null;
+                return pk;
             }
         }
-        return null;
+        return this.getPacket(id);
+    }
+
+    public void releasePacket(DataPacket pk) {
+        int id = pk.pid() & 0xff;
+        if (this.packetPooling && this.poolable[id]) {
+            pk.clean();
+            this.pooled[id] = pk;
+        }
     }
 
     public void sendPacket(String address, int port, byte[] payload) {
@@ -193,62 +263,63 @@ public class Network {
         }
     }
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
     private void registerPackets() {
-        this.packetPool = new Class[256];
-
-        this.registerPacket(ProtocolInfo.LOGIN_PACKET, LoginPacket.class);
-        this.registerPacket(ProtocolInfo.PLAY_STATUS_PACKET, PlayStatusPacket.class);
-        this.registerPacket(ProtocolInfo.DISCONNECT_PACKET, DisconnectPacket.class);
-        this.registerPacket(ProtocolInfo.BATCH_PACKET, BatchPacket.class);
-        this.registerPacket(ProtocolInfo.TEXT_PACKET, TextPacket.class);
-        this.registerPacket(ProtocolInfo.SET_TIME_PACKET, SetTimePacket.class);
-        this.registerPacket(ProtocolInfo.START_GAME_PACKET, StartGamePacket.class);
-        this.registerPacket(ProtocolInfo.ADD_PLAYER_PACKET, AddPlayerPacket.class);
-        this.registerPacket(ProtocolInfo.REMOVE_PLAYER_PACKET, RemovePlayerPacket.class);
-        this.registerPacket(ProtocolInfo.ADD_ENTITY_PACKET, AddEntityPacket.class);
-        this.registerPacket(ProtocolInfo.REMOVE_ENTITY_PACKET, RemoveEntityPacket.class);
-        this.registerPacket(ProtocolInfo.ADD_ITEM_ENTITY_PACKET, AddItemEntityPacket.class);
-        this.registerPacket(ProtocolInfo.TAKE_ITEM_ENTITY_PACKET, TakeItemEntityPacket.class);
-        this.registerPacket(ProtocolInfo.MOVE_ENTITY_PACKET, MoveEntityPacket.class);
-        this.registerPacket(ProtocolInfo.MOVE_PLAYER_PACKET, MovePlayerPacket.class);
-        this.registerPacket(ProtocolInfo.REMOVE_BLOCK_PACKET, RemoveBlockPacket.class);
-        this.registerPacket(ProtocolInfo.UPDATE_BLOCK_PACKET, UpdateBlockPacket.class);
-        this.registerPacket(ProtocolInfo.ADD_PAINTING_PACKET, AddPaintingPacket.class);
-        this.registerPacket(ProtocolInfo.EXPLODE_PACKET, ExplodePacket.class);
-        this.registerPacket(ProtocolInfo.LEVEL_EVENT_PACKET, LevelEventPacket.class);
-        this.registerPacket(ProtocolInfo.BLOCK_EVENT_PACKET, BlockEventPacket.class);
-        this.registerPacket(ProtocolInfo.ENTITY_EVENT_PACKET, EntityEventPacket.class);
-        this.registerPacket(ProtocolInfo.MOB_EQUIPMENT_PACKET, MobEquipmentPacket.class);
-        this.registerPacket(ProtocolInfo.MOB_ARMOR_EQUIPMENT_PACKET, MobArmorEquipmentPacket.class);
-        this.registerPacket(ProtocolInfo.INTERACT_PACKET, InteractPacket.class);
-        this.registerPacket(ProtocolInfo.USE_ITEM_PACKET, UseItemPacket.class);
-        this.registerPacket(ProtocolInfo.PLAYER_ACTION_PACKET, PlayerActionPacket.class);
-        this.registerPacket(ProtocolInfo.HURT_ARMOR_PACKET, HurtArmorPacket.class);
-        this.registerPacket(ProtocolInfo.SET_ENTITY_DATA_PACKET, SetEntityDataPacket.class);
-        this.registerPacket(ProtocolInfo.SET_ENTITY_MOTION_PACKET, SetEntityMotionPacket.class);
-        this.registerPacket(ProtocolInfo.SET_ENTITY_LINK_PACKET, SetEntityLinkPacket.class);
-        //this.registerPacket(ProtocolInfo.SET_HEALTH_PACKET, SetHealthPacket.class);
-        this.registerPacket(ProtocolInfo.SET_SPAWN_POSITION_PACKET, SetSpawnPositionPacket.class);
-        this.registerPacket(ProtocolInfo.ANIMATE_PACKET, AnimatePacket.class);
-        this.registerPacket(ProtocolInfo.RESPAWN_PACKET, RespawnPacket.class);
-        this.registerPacket(ProtocolInfo.DROP_ITEM_PACKET, DropItemPacket.class);
-        this.registerPacket(ProtocolInfo.CONTAINER_OPEN_PACKET, ContainerOpenPacket.class);
-        this.registerPacket(ProtocolInfo.CONTAINER_CLOSE_PACKET, ContainerClosePacket.class);
-        this.registerPacket(ProtocolInfo.CONTAINER_SET_SLOT_PACKET, ContainerSetSlotPacket.class);
-        this.registerPacket(ProtocolInfo.CONTAINER_SET_DATA_PACKET, ContainerSetDataPacket.class);
-        this.registerPacket(ProtocolInfo.CONTAINER_SET_CONTENT_PACKET, ContainerSetContentPacket.class);
-        this.registerPacket(ProtocolInfo.CRAFTING_DATA_PACKET, CraftingDataPacket.class);
-        this.registerPacket(ProtocolInfo.CRAFTING_EVENT_PACKET, CraftingEventPacket.class);
-        this.registerPacket(ProtocolInfo.ADVENTURE_SETTINGS_PACKET, AdventureSettingsPacket.class);
-        this.registerPacket(ProtocolInfo.BLOCK_ENTITY_DATA_PACKET, BlockEntityDataPacket.class);
-        this.registerPacket(ProtocolInfo.PLAYER_INPUT_PACKET, PlayerInputPacket.class);
-        this.registerPacket(ProtocolInfo.FULL_CHUNK_DATA_PACKET, FullChunkDataPacket.class);
-        this.registerPacket(ProtocolInfo.SET_DIFFICULTY_PACKET, SetDifficultyPacket.class);
-        this.registerPacket(ProtocolInfo.CHANGE_DIMENSION_PACKET, ChangeDimensionPacket.class);
-        this.registerPacket(ProtocolInfo.SET_PLAYER_GAMETYPE_PACKET, SetPlayerGameTypePacket.class);
-        this.registerPacket(ProtocolInfo.PLAYER_LIST_PACKET, PlayerListPacket.class);
-        this.registerPacket(ProtocolInfo.TELEMETRY_EVENT_PACKET, TelemetryEventPacket.class);
-        this.registerPacket(ProtocolInfo.REQUEST_CHUNK_RADIUS_PACKET, RequestChunkRadiusPacket.class);
-        this.registerPacket(ProtocolInfo.CHUNK_RADIUS_UPDATE_PACKET, ChunkRadiusUpdatePacket.class);
+        this.packetPool = new Supplier[256];
+
+        this.registerPacket(ProtocolInfo.LOGIN_PACKET, LoginPacket::new);
+        this.registerPacket(ProtocolInfo.PLAY_STATUS_PACKET, PlayStatusPacket::new);
+        this.registerPacket(ProtocolInfo.DISCONNECT_PACKET, DisconnectPacket::new);
+        this.registerPacket(ProtocolInfo.BATCH_PACKET, BatchPacket::new);
+        this.registerPacket(ProtocolInfo.TEXT_PACKET, TextPacket::new);
+        this.registerPacket(ProtocolInfo.SET_TIME_PACKET, SetTimePacket::new);
+        this.registerPacket(ProtocolInfo.START_GAME_PACKET, StartGamePacket::new);
+        this.registerPacket(ProtocolInfo.ADD_PLAYER_PACKET, AddPlayerPacket::new);
+        this.registerPacket(ProtocolInfo.REMOVE_PLAYER_PACKET, RemovePlayerPacket::new);
+        this.registerPacket(ProtocolInfo.ADD_ENTITY_PACKET, AddEntityPacket::new);
+        this.registerPacket(ProtocolInfo.REMOVE_ENTITY_PACKET, RemoveEntityPacket::new);
+        this.registerPacket(ProtocolInfo.ADD_ITEM_ENTITY_PACKET, AddItemEntityPacket::new);
+        this.registerPacket(ProtocolInfo.TAKE_ITEM_ENTITY_PACKET, TakeItemEntityPacket::new);
+        this.registerPacket(ProtocolInfo.MOVE_ENTITY_PACKET, MoveEntityPacket::new);
+        this.registerPacket(ProtocolInfo.MOVE_PLAYER_PACKET, MovePlayerPacket::new, true);
+        this.registerPacket(ProtocolInfo.REMOVE_BLOCK_PACKET, RemoveBlockPacket::new);
+        this.registerPacket(ProtocolInfo.UPDATE_BLOCK_PACKET, UpdateBlockPacket::new);
+        this.registerPacket(ProtocolInfo.ADD_PAINTING_PACKET, AddPaintingPacket::new);
+        this.registerPacket(ProtocolInfo.EXPLODE_PACKET, ExplodePacket::new);
+        this.registerPacket(ProtocolInfo.LEVEL_EVENT_PACKET, LevelEventPacket::new);
+        this.registerPacket(ProtocolInfo.BLOCK_EVENT_PACKET, BlockEventPacket::new);
+        this.registerPacket(ProtocolInfo.ENTITY_EVENT_PACKET, EntityEventPacket::new);
+        this.registerPacket(ProtocolInfo.MOB_EQUIPMENT_PACKET, MobEquipmentPacket::new);
+        this.registerPacket(ProtocolInfo.MOB_ARMOR_EQUIPMENT_PACKET, MobArmorEquipmentPacket::new);
+        this.registerPacket(ProtocolInfo.INTERACT_PACKET, InteractPacket::new);
+        this.registerPacket(ProtocolInfo.USE_ITEM_PACKET, UseItemPacket::new, true);
+        this.registerPacket(ProtocolInfo.PLAYER_ACTION_PACKET, PlayerActionPacket::new, true);
+        this.registerPacket(ProtocolInfo.HURT_ARMOR_PACKET, HurtArmorPacket::new);
+        this.registerPacket(ProtocolInfo.SET_ENTITY_DATA_PACKET, SetEntityDataPacket::new);
+        this.registerPacket(ProtocolInfo.SET_ENTITY_MOTION_PACKET, SetEntityMotionPacket::new);
+        this.registerPacket(ProtocolInfo.SET_ENTITY_LINK_PACKET, SetEntityLinkPacket::new);
+        //this.registerPacket(ProtocolInfo.SET_HEALTH_PACKET, SetHealthPacket::new);
+        this.registerPacket(ProtocolInfo.SET_SPAWN_POSITION_PACKET, SetSpawnPositionPacket::new);
+        this.registerPacket(ProtocolInfo.ANIMATE_PACKET, AnimatePacket::new);
+        this.registerPacket(ProtocolInfo.RESPAWN_PACKET, RespawnPacket::new);
+        this.registerPacket(ProtocolInfo.DROP_ITEM_PACKET, DropItemPacket::new);
+        this.registerPacket(ProtocolInfo.CONTAINER_OPEN_PACKET, ContainerOpenPacket::new);
+        this.registerPacket(ProtocolInfo.CONTAINER_CLOSE_PACKET, ContainerClosePacket::new);
+        this.registerPacket(ProtocolInfo.CONTAINER_SET_SLOT_PACKET, ContainerSetSlotPacket::new);
+        this.registerPacket(ProtocolInfo.CONTAINER_SET_DATA_PACKET, ContainerSetDataPacket::new);
+        this.registerPacket(ProtocolInfo.CONTAINER_SET_CONTENT_PACKET, ContainerSetContentPacket::new);
+        this.registerPacket(ProtocolInfo.CRAFTING_DATA_PACKET, CraftingDataPacket::new);
+        this.registerPacket(ProtocolInfo.CRAFTING_EVENT_PACKET, CraftingEventPacket::new);
+        this.registerPacket(ProtocolInfo.ADVENTURE_SETTINGS_PACKET, AdventureSettingsPacket::new);
+        this.registerPacket(ProtocolInfo.BLOCK_ENTITY_DATA_PACKET, BlockEntityDataPacket::new);
+        this.registerPacket(ProtocolInfo.PLAYER_INPUT_PACKET, PlayerInputPacket::new);
+        this.registerPacket(ProtocolInfo.FULL_CHUNK_DATA_PACKET, FullChunkDataPacket::new);
+        this.registerPacket(ProtocolInfo.SET_DIFFICULTY_PACKET, SetDifficultyPacket::new);
+        this.registerPacket(ProtocolInfo.CHANGE_DIMENSION_PACKET, ChangeDimensionPacket::new);
+        this.registerPacket(ProtocolInfo.SET_PLAYER_GAMETYPE_PACKET, SetPlayerGameTypePacket::new);
+        this.registerPacket(ProtocolInfo.PLAYER_LIST_PACKET, PlayerListPacket::new);
+        this.registerPacket(ProtocolInfo.TELEMETRY_EVENT_PACKET, TelemetryEventPacket::new);
+        this.registerPacket(ProtocolInfo.REQUEST_CHUNK_RADIUS_PACKET, RequestChunkRadiusPacket::new);
+        this.registerPacket(ProtocolInfo.CHUNK_RADIUS_UPDATE_PACKET, ChunkRadiusUpdatePacket::new);
     }
 }
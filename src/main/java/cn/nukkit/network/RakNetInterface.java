@@ -32,11 +32,11 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
 
     private RakNetServer raknet;
 
-    private Map<String, Player> players = new ConcurrentHashMap<>();
+    private Map<Integer, Player> players = new ConcurrentHashMap<>();
 
-    private Map<Player, String> identifiers;
+    private Map<Player, Integer> identifiers;
 
-    private Map<String, Integer> identifiersACK = new ConcurrentHashMap<>();
+    private Map<Integer, Integer> identifiersACK = new ConcurrentHashMap<>();
 
     private ServerHandler handler;
 
@@ -46,10 +46,21 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
         this.server = server;
         this.identifiers = new ConcurrentHashMap<>();
 
-        this.raknet = new RakNetServer(this.server.getLogger(), this.server.getPort(), this.server.getIp().equals("") ? "0.0.0.0" : this.server.getIp());
+        int threads;
+        try {
+            threads = Integer.valueOf(String.valueOf(this.server.getConfig("network.session-threads", 2)));
+        } catch (Exception e) {
+            threads = 2;
+        }
+
+        this.raknet = new RakNetServer(this.server.getLogger(), this.server.getPort(), this.server.getIp().equals("") ? "0.0.0.0" : this.server.getIp(), threads);
         this.handler = new ServerHandler(this.raknet, this);
     }
 
+    public RakNetServer getRakNet() {
+        return raknet;
+    }
+
     @Override
     public void setNetwork(Network network) {
         this.network = network;
@@ -57,6 +68,7 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
 
     @Override
     public boolean process() {
+        this.raknet.getExternalQueue().recordPeak();
         boolean work = false;
         if (this.handler.handlePacket()) {
             work = true;
@@ -69,12 +81,11 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
     }
 
     @Override
-    public void closeSession(String identifier, String reason) {
-        if (this.players.containsKey(identifier)) {
-            Player player = this.players.get(identifier);
+    public void closeSession(int session, String reason) {
+        Player player = this.players.remove(session);
+        if (player != null) {
             this.identifiers.remove(player);
-            this.players.remove(identifier);
-            this.identifiersACK.remove(identifier);
+            this.identifiersACK.remove(session);
             player.close(player.getLeaveMessage(), reason);
         }
     }
@@ -86,12 +97,11 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
 
     @Override
     public void close(Player player, String reason) {
-        if (this.identifiers.containsKey(player)) {
-            String id = this.identifiers.get(player);
-            this.players.remove(id);
-            this.identifiersACK.remove(id);
-            this.closeSession(id, reason);
-            this.identifiers.remove(player);
+        Integer session = this.identifiers.remove(player);
+        if (session != null) {
+            this.players.remove(session);
+            this.identifiersACK.remove(session);
+            this.handler.closeSession(session, reason);
         }
     }
 
@@ -106,7 +116,7 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
     }
 
     @Override
-    public void openSession(String identifier, String address, int port, long clientID) {
+    public void openSession(int session, String address, int port, long clientID) {
         PlayerCreationEvent ev = new PlayerCreationEvent(this, Player.class, Player.class, null, address, port);
         this.server.getPluginManager().callEvent(ev);
         Class<? extends Player> clazz = ev.getPlayerClass();
@@ -114,25 +124,30 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
         try {
             Constructor constructor = clazz.getConstructor(SourceInterface.class, Long.class, String.class, int.class);
             Player player = (Player) constructor.newInstance(this, ev.getClientId(), ev.getAddress(), ev.getPort());
-            this.players.put(identifier, player);
-            this.identifiersACK.put(identifier, 0);
-            this.identifiers.put(player, identifier);
-            this.server.addPlayer(identifier, player);
+            this.players.put(session, player);
+            this.identifiersACK.put(session, 0);
+            this.identifiers.put(player, session);
+            this.server.addPlayer(address + ":" + port, player);
         } catch (NoSuchMethodException | InvocationTargetException | InstantiationException | IllegalAccessException e) {
         	Server.getInstance().getLogger().logException(e);
         }
     }
 
     @Override
-    public void handleEncapsulated(String identifier, EncapsulatedPacket packet, int flags) {
-        if (this.players.containsKey(identifier)) {
+    public void handleEncapsulated(int session, EncapsulatedPacket packet, int flags) {
+        Player player = this.players.get(session);
+        if (player != null) {
             DataPacket pk = null;
             try {
                 if (packet.buffer.length > 0) {
                     pk = this.getPacket(packet.buffer);
                     if (pk != null) {
-                        pk.decode();
-                        this.players.get(identifier).handleDataPacket(pk);
+                        try {
+                            pk.decode();
+                            player.handleDataPacket(pk);
+                        } finally {
+                            this.network.releasePacket(pk);
+                        }
                     }
                 }
             } catch (Exception e) {
@@ -145,8 +160,8 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
 //                    }
                 }
 
-                if (this.players.containsKey(identifier)) {
-                    this.handler.blockAddress(this.players.get(identifier).getAddress(), 5);
+                if (this.players.containsKey(session)) {
+                    this.handler.blockAddress(player.getAddress(), 5);
                 }
             }
         }
@@ -173,10 +188,18 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
     }
 
     @Override
-    public void notifyACK(String identifier, int identifierACK) {
+    public void notifyACK(int session, int identifierACK) {
 
     }
 
+    @Override
+    public void handleSessionStats(int session, int rtt, long bandwidth, int backlog) {
+        Player player = this.players.get(session);
+        if (player != null) {
+            player.setNetworkStats(rtt, bandwidth, backlog);
+        }
+    }
+
     @Override
     public void setName(String name) {
         QueryRegenerateEvent info = this.server.getQueryInformation();
@@ -213,18 +236,16 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
 
     @Override
     public Integer putPacket(Player player, DataPacket packet, boolean needACK, boolean immediate) {
-        if (this.identifiers.containsKey(player)) {
-            byte[] buffer = packet.getBuffer();
-            String identifier = this.identifiers.get(player);
+        Integer session = this.identifiers.get(player);
+        if (session != null) {
             EncapsulatedPacket pk = null;
             if (!packet.isEncoded) {
                 packet.encode();
-                buffer = packet.getBuffer();
             } else if (!needACK) {
                 if (packet.encapsulatedPacket == null) {
                     packet.encapsulatedPacket = new CacheEncapsulatedPacket();
                     packet.encapsulatedPacket.identifierACK = null;
-                    packet.encapsulatedPacket.buffer = Binary.appendBytes((byte) 0x8e, buffer);
+                    packet.encapsulatedPacket.buffer = prefixed(packet);
                     if (packet.getChannel() != 0) {
                         packet.encapsulatedPacket.reliability = 3;
                         packet.encapsulatedPacket.orderChannel = packet.getChannel();
@@ -233,18 +254,19 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
                         packet.encapsulatedPacket.reliability = 2;
                     }
                 }
-                pk = packet.encapsulatedPacket;
+                //the cached packet is shared by every player, each session numbers its own copy
+                pk = packet.encapsulatedPacket.copy();
             }
 
 
-            if (!immediate && !needACK && packet.pid() != ProtocolInfo.BATCH_PACKET && Network.BATCH_THRESHOLD >= 0 && buffer != null && buffer.length >= Network.BATCH_THRESHOLD) {
+            if (!immediate && !needACK && packet.pid() != ProtocolInfo.BATCH_PACKET && Network.BATCH_THRESHOLD >= 0 && packet.getCount() >= Network.BATCH_THRESHOLD) {
                 this.server.batchPackets(new Player[]{player}, new DataPacket[]{packet}, true);
                 return null;
             }
 
             if (pk == null) {
                 pk = new EncapsulatedPacket();
-                pk.buffer = Binary.appendBytes((byte) 0x8e, buffer);
+                pk.buffer = prefixed(packet);
                 if (packet.getChannel() != 0) {
                     packet.reliability = 3;
                     packet.orderChannel = packet.getChannel();
@@ -254,14 +276,14 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
                 }
 
                 if (needACK) {
-                    int iACK = this.identifiersACK.get(identifier);
+                    int iACK = this.identifiersACK.get(session);
                     iACK++;
                     pk.identifierACK = iACK;
-                    this.identifiersACK.put(identifier, iACK);
+                    this.identifiersACK.put(session, iACK);
                 }
             }
 
-            this.handler.sendEncapsulated(identifier, pk, (needACK ? RakNet.FLAG_NEED_ACK : 0) | (immediate ? RakNet.PRIORITY_IMMEDIATE : RakNet.PRIORITY_NORMAL));
+            this.handler.sendEncapsulated(session, pk, (needACK ? RakNet.FLAG_NEED_ACK : 0) | (immediate ? RakNet.PRIORITY_IMMEDIATE : RakNet.PRIORITY_NORMAL));
 
             return pk.identifierACK;
         }
@@ -270,11 +292,21 @@ public class RakNetInterface implements ServerInstance, AdvancedSourceInterface
 
     }
 
+    /**
+     * The encoded packet behind the 0x8e header, copied out of the stream once.
+     */
+    private static byte[] prefixed(DataPacket packet) {
+        byte[] buffer = new byte[packet.getCount() + 1];
+        buffer[0] = (byte) 0x8e;
+        packet.writeTo(buffer, 1);
+        return buffer;
+    }
+
     private DataPacket getPacket(byte[] buffer) {
         //TODO: CHECK AND REPLACE THIS HACK FOR 0.14
         byte pid = buffer[1];
 
-        DataPacket data = this.network.getPacket(pid);
+        DataPacket data = this.network.acquirePacket(pid);
 
         if (data == null) {
             return null;
@@ -14,6 +14,11 @@ public class BatchPacket extends DataPacket {
         return NETWORK_ID;
     }
 
+    @Override
+    protected int getSizeHint() {
+        return this.payload != null ? 5 + this.payload.length : super.getSizeHint();
+    }
+
     @Override
     public void decode() {
         this.payload = this.get(this.getInt());
@@ -25,10 +25,17 @@ public abstract class DataPacket extends BinaryStream implements Cloneable {
 
     @Override
     public void reset() {
-        super.reset();
+        super.reset(this.getSizeHint());
         this.putByte(this.pid());
     }
 
+    /**
+     * Bytes {@link #encode()} is expected to write, so the buffer is allocated once instead of grown.
+     */
+    protected int getSizeHint() {
+        return 32;
+    }
+
     public void setChannel(int channel) {
         this.channel = channel;
     }
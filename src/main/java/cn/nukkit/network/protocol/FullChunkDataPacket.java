@@ -20,6 +20,11 @@ public class FullChunkDataPacket extends DataPacket {
     public byte order = ORDER_COLUMNS;
     public byte[] data;
 
+    @Override
+    protected int getSizeHint() {
+        return this.data != null ? 14 + this.data.length : super.getSizeHint();
+    }
+
     @Override
     public void decode() {
 
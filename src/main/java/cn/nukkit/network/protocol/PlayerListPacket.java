@@ -17,6 +17,18 @@ public class PlayerListPacket extends DataPacket {
     public byte type;
     public Entry[] entries = new Entry[0];
 
+    @Override
+    protected int getSizeHint() {
+        int size = 6;
+        for (Entry entry : this.entries) {
+            size += 16;
+            if (this.type == TYPE_ADD) {
+                size += 8 + 2 + entry.name.length() + 4 + (entry.skin != null ? entry.skin.getModel().length() + entry.skin.getData().length : 0);
+            }
+        }
+        return size;
+    }
+
     @Override
     public void decode() {
 
@@ -1,5 +1,9 @@
 package cn.nukkit.network.protocol;
 
+import cn.nukkit.utils.Binary;
+
+import java.util.Arrays;
+
 /**
  * author: MagicDroidX
  * Nukkit Project
@@ -16,8 +20,43 @@ public class UpdateBlockPacket extends DataPacket {
     public static final int FLAG_ALL = (FLAG_NEIGHBORS | FLAG_NETWORK);
     public static final int FLAG_ALL_PRIORITY = (FLAG_ALL | FLAG_PRIORITY);
 
+    /**
+     * Encoded size of one record: x, z, y, block id and flags/data.
+     */
+    public static final int RECORD_SIZE = 11;
+
     public Entry[] records = new Entry[0];
 
+    private byte[] recordBuffer;
+    private int recordCount = 0;
+
+    public UpdateBlockPacket() {
+        this(0);
+    }
+
+    /**
+     * @param expectedRecords number of records that will be added with {@link #addRecord}, used to size the buffer
+     */
+    public UpdateBlockPacket(int expectedRecords) {
+        this.recordBuffer = new byte[Math.max(0, expectedRecords) * RECORD_SIZE];
+    }
+
+    /**
+     * Appends a record without creating an {@link Entry}. These records are sent after {@link #records}.
+     */
+    public void addRecord(int x, int z, int y, int blockId, int blockData, int flags) {
+        int offset = this.recordCount * RECORD_SIZE;
+        if (offset + RECORD_SIZE > this.recordBuffer.length) {
+            this.recordBuffer = Arrays.copyOf(this.recordBuffer, Math.max(RECORD_SIZE * 16, this.recordBuffer.length << 1));
+        }
+        writeRecord(this.recordBuffer, offset, x, z, y, blockId, blockData, flags);
+        this.recordCount++;
+    }
+
+    public int getRecordCount() {
+        return this.records.length + this.recordCount;
+    }
+
     @Override
     public byte pid() {
         return NETWORK_ID;
@@ -30,15 +69,28 @@ public class UpdateBlockPacket extends DataPacket {
 
     @Override
     public void encode() {
-        this.reset();
-        this.putInt(this.records.length);
+        int count = this.getRecordCount();
+        byte[] buffer = new byte[5 + count * RECORD_SIZE];
+        buffer[0] = this.pid();
+        Binary.writeInt(buffer, 1, count);
+
+        int offset = 5;
         for (Entry entry : this.records) {
-            this.putInt(entry.x);
-            this.putInt(entry.z);
-            this.putByte((byte) entry.y);
-            this.putByte((byte) entry.blockId);
-            this.putByte((byte) ((entry.flags << 4) | entry.blockData));
+            writeRecord(buffer, offset, entry.x, entry.z, entry.y, entry.blockId, entry.blockData, entry.flags);
+            offset += RECORD_SIZE;
         }
+        System.arraycopy(this.recordBuffer, 0, buffer, offset, this.recordCount * RECORD_SIZE);
+
+        this.setBuffer(buffer);
+        this.offset = 0;
+    }
+
+    private static void writeRecord(byte[] buffer, int offset, int x, int z, int y, int blockId, int blockData, int flags) {
+        Binary.writeInt(buffer, offset, x);
+        Binary.writeInt(buffer, offset + 4, z);
+        buffer[offset + 8] = (byte) y;
+        buffer[offset + 9] = (byte) blockId;
+        buffer[offset + 10] = (byte) ((flags << 4) | blockData);
     }
 
     public static class Entry {
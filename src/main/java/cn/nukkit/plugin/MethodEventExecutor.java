@@ -3,9 +3,17 @@ package cn.nukkit.plugin;
 import cn.nukkit.Server;
 import cn.nukkit.event.Event;
 import cn.nukkit.event.Listener;
+import cn.nukkit.utils.PluginException;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
 
 /**
  * author: MagicDroidX
@@ -13,18 +21,85 @@ import java.lang.reflect.Method;
  */
 public class MethodEventExecutor implements EventExecutor {
 
+    private static final MethodType EXECUTE_TYPE = MethodType.methodType(void.class, Listener.class, Event.class);
+
+    //MethodHandles.privateLookupIn, only present on Java 9 and newer
+    private static final Method PRIVATE_LOOKUP_IN;
+
+    static {
+        Method privateLookupIn = null;
+        try {
+            privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+        } catch (NoSuchMethodException ignored) {
+        }
+        PRIVATE_LOOKUP_IN = privateLookupIn;
+    }
+
     private Method method;
 
+    private final BiConsumer<Object, Object> compiled;
+
+    private final MethodHandle handle;
+
     public MethodEventExecutor(Method method) {
         this.method = method;
+        this.handle = bind(method);
+        this.compiled = compile(method);
+    }
+
+    /**
+     * Turns the handler method into a (Listener, Event) handle once, so each call is a plain invokeExact
+     * instead of a reflective call with its access checks and argument array.
+     */
+    private static MethodHandle bind(Method method) {
+        method.setAccessible(true);
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new PluginException("Unable to bind event handler " + method.toGenericString() + ": " + e.getMessage());
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Listener.class);
+        }
+        return handle.asType(EXECUTE_TYPE);
+    }
+
+    /**
+     * Spins a lambda class that calls the handler method directly, which the JIT can inline like any other call.
+     * This needs a lookup with private access to the listener class, so it returns null on Java 8 and for static
+     * handlers, which then go through {@link #handle}.
+     */
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> compile(Method method) {
+        if (PRIVATE_LOOKUP_IN == null || Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, method.getDeclaringClass(), MethodHandles.lookup());
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class), lookup.unreflect(method),
+                    MethodType.methodType(void.class, method.getDeclaringClass(), method.getParameterTypes()[0]));
+            return (BiConsumer<Object, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    public Method getMethod() {
+        return method;
     }
 
     @Override
     public void execute(Listener listener, Event event) {
         try {
-            method.invoke(listener, event);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-        	Server.getInstance().getLogger().logException(e);
+            if (compiled != null) {
+                compiled.accept(listener, event);
+            } else {
+                handle.invokeExact(listener, event);
+            }
+        } catch (Throwable e) {
+        	Server.getInstance().getLogger().logException(e instanceof Exception ? (Exception) e : new InvocationTargetException(e));
         }
     }
 }
@@ -6,6 +6,7 @@ import cn.nukkit.command.SimpleCommandMap;
 import cn.nukkit.event.*;
 import cn.nukkit.permission.Permissible;
 import cn.nukkit.permission.Permission;
+import cn.nukkit.timings.Timings;
 import cn.nukkit.utils.MainLogger;
 import cn.nukkit.utils.PluginException;
 import cn.nukkit.utils.Utils;
@@ -15,6 +16,7 @@ import java.io.FilenameFilter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -43,6 +45,8 @@ public class PluginManager {
 
     protected Map<String, PluginLoader> fileAssociations = new HashMap<>();
 
+    private final Map<Class<? extends Event>, HandlerList> handlerLists = new ConcurrentHashMap<>();
+
     public PluginManager(Server server, SimpleCommandMap commandMap) {
         this.server = server;
         this.commandMap = commandMap;
@@ -544,6 +548,7 @@ public class PluginManager {
         this.permissions.clear();
         this.defaultPerms.clear();
         this.defaultPermsOp.clear();
+        this.handlerLists.clear();
     }
 
     public void callEvent(Event event) {
@@ -630,20 +635,39 @@ public class PluginManager {
         }
 
         try {
-            this.getEventListeners(event).register(new RegisteredListener(listener, executor, priority, plugin, ignoreCancelled));
+            this.getEventListeners(event).register(new RegisteredListener(listener, executor, priority, plugin, ignoreCancelled, Timings.getPluginEventTiming(event, listener, executor, plugin)));
         } catch (IllegalAccessException e) {
         	Server.getInstance().getLogger().logException(e);
         }
     }
 
+    /**
+     * Whether any listener is registered for the handler list this event type is dispatched to.
+     * Hot call sites use this to skip building events nobody listens to.
+     */
+    public boolean hasListeners(Class<? extends Event> type) {
+        try {
+            return getEventListeners(type).getRegisteredListeners().length > 0;
+        } catch (IllegalAccessException e) {
+            return false;
+        }
+    }
+
     private HandlerList getEventListeners(Class<? extends Event> type) throws IllegalAccessException {
+        HandlerList handlers = this.handlerLists.get(type);
+        if (handlers != null) {
+            return handlers;
+        }
+
         try {
             Method method = getRegistrationClass(type).getDeclaredMethod("getHandlers");
             method.setAccessible(true);
-            return (HandlerList) method.invoke(null);
+            handlers = (HandlerList) method.invoke(null);
         } catch (Exception e) {
             throw new IllegalAccessException(Utils.getExceptionMessage(e));
         }
+        this.handlerLists.put(type, handlers);
+        return handlers;
     }
 
     private Class<? extends Event> getRegistrationClass(Class<? extends Event> clazz) throws IllegalAccessException {
@@ -4,6 +4,8 @@ import cn.nukkit.event.Cancellable;
 import cn.nukkit.event.Event;
 import cn.nukkit.event.EventPriority;
 import cn.nukkit.event.Listener;
+import cn.nukkit.timings.Timing;
+import cn.nukkit.timings.Timings;
 
 /**
  * author: MagicDroidX
@@ -21,12 +23,19 @@ public class RegisteredListener {
 
     private boolean ignoreCancelled;
 
+    private Timing timing;
+
     public RegisteredListener(Listener listener, EventExecutor executor, EventPriority priority, Plugin plugin, boolean ignoreCancelled) {
+        this(listener, executor, priority, plugin, ignoreCancelled, Timings.getPluginEventTiming(Event.class, listener, executor, plugin));
+    }
+
+    public RegisteredListener(Listener listener, EventExecutor executor, EventPriority priority, Plugin plugin, boolean ignoreCancelled, Timing timing) {
         this.listener = listener;
         this.priority = priority;
         this.plugin = plugin;
         this.executor = executor;
         this.ignoreCancelled = ignoreCancelled;
+        this.timing = timing;
     }
 
     public Listener getListener() {
@@ -47,7 +56,12 @@ public class RegisteredListener {
                 return;
             }
         }
-        executor.execute(listener, event);
+        this.timing.startTiming();
+        try {
+            executor.execute(listener, event);
+        } finally {
+            this.timing.stopTiming();
+        }
     }
 
     public boolean isIgnoringCancelled() {
@@ -23,88 +23,65 @@ public abstract class RakNet {
     public static final byte FLAG_NEED_ACK = 0b00001000;
 
     /*
-     * ENCAPSULATED payload:
-     * byte (identifier length)
-     * byte[] (identifier)
-     * byte (flags, last 3 bits, priority)
-     * payload (binary internal EncapsulatedPacket)
+     * Message types exchanged with the RakNet thread, see cn.nukkit.raknet.server.RakNetMessage.
+     *
+     * ENCAPSULATED: session, packet, flags (last 3 bits, priority)
      */
     public static final byte PACKET_ENCAPSULATED = 0x01;
 
     /*
-     * OPEN_SESSION payload:
-     * byte (identifier length)
-     * byte[] (identifier)
-     * byte (address length)
-     * byte[] (address)
-     * short (port)
-     * long (clientID)
+     * OPEN_SESSION: session, address, port, clientID
      */
     public static final byte PACKET_OPEN_SESSION = 0x02;
 
     /*
-     * CLOSE_SESSION payload:
-     * byte (identifier length)
-     * byte[] (identifier)
-     * string (reason)
+     * CLOSE_SESSION: session, value (reason)
      */
     public static final byte PACKET_CLOSE_SESSION = 0x03;
 
     /*
-     * INVALID_SESSION payload:
-     * byte (identifier length)
-     * byte[] (identifier)
+     * INVALID_SESSION: session
      */
     public static final byte PACKET_INVALID_SESSION = 0x04;
 
-    /* SEND_QUEUE payload:
-     * byte (identifier length)
-     * byte[] (identifier)
+    /* SEND_QUEUE: session
      */
     public static final byte PACKET_SEND_QUEUE = 0x05;
 
     /*
-     * ACK_NOTIFICATION payload:
-     * byte (identifier length)
-     * byte[] (identifier)
-     * int (identifierACK)
+     * ACK_NOTIFICATION: session, identifierACK
      */
     public static final byte PACKET_ACK_NOTIFICATION = 0x06;
 
     /*
-     * SET_OPTION payload:
-     * byte (option name length)
-     * byte[] (option name)
-     * byte[] (option value)
+     * SET_OPTION: name, value
      */
     public static final byte PACKET_SET_OPTION = 0x07;
 
     /*
-     * RAW payload:
-     * byte (address length)
-     * byte[] (address from/to)
-     * short (port)
-     * byte[] (payload)
+     * RAW: address (from/to), port, payload
      */
     public static final byte PACKET_RAW = 0x08;
 
     /*
-     * RAW payload:
-     * byte (address length)
-     * byte[] (address)
-     * int (timeout)
+     * BLOCK_ADDRESS: address, timeout
      */
     public static final byte PACKET_BLOCK_ADDRESS = 0x09;
 
     /*
-     * No payload
+     * SESSION_STATS: session, rtt, bandwidth, backlog
+     */
+    public static final byte PACKET_SESSION_STATS = 0x0a;
+
+    /*
+     * No fields
      *
      * Sends the disconnect message, removes sessions correctly, closes sockets.
      */
     public static final byte PACKET_SHUTDOWN = 0x7e;
 
     /*
-     * No payload
+     * No fields
      *
      * Leaves everything as-is and halts, other Threads can be in a post-crash condition.
      */
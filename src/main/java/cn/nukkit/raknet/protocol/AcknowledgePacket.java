@@ -1,9 +1,8 @@
 package cn.nukkit.raknet.protocol;
 
 import cn.nukkit.utils.Binary;
-import cn.nukkit.utils.BinaryStream;
 
-import java.util.TreeMap;
+import java.util.Arrays;
 
 /**
  * author: MagicDroidX
@@ -11,70 +10,63 @@ import java.util.TreeMap;
  */
 public abstract class AcknowledgePacket extends Packet {
 
-    public TreeMap<Integer, Integer> packets;
+    /**
+     * Sequence numbers, in any order; {@link #encode()} sorts them and merges runs into ranges.
+     */
+    public int[] packets = new int[0];
 
     @Override
     public void encode() {
         super.encode();
-        int count = this.packets.size();
-        int[] packets = new int[count];
+        int[] packets = this.packets;
+        int count = packets.length;
+        Arrays.sort(packets);
 
-        int index = 0;
-        for (int i : this.packets.values()) {
-            packets[index++] = i;
-        }
-        short records = 0;
-        BinaryStream payload = new BinaryStream();
+        byte[] payload = new byte[2 + count * 7];
+        int offset = 2;
+        int records = 0;
 
         if (count > 0) {
-            int pointer = 1;
             int start = packets[0];
             int last = packets[0];
 
-            while (pointer < count) {
-                int current = packets[pointer++];
-                int diff = current - last;
-                if (diff == 1) {
+            for (int pointer = 1; pointer <= count; ++pointer) {
+                int current = pointer < count ? packets[pointer] : -1;
+                if (pointer < count && current - last <= 1) {
                     last = current;
-                } else if (diff > 1) {
-
-                    if (start == last) {
-                        payload.putByte((byte) 0x01);
-                        payload.put(Binary.writeLTriad(start));
-                        start = last = current;
-                    } else {
-                        payload.putByte((byte) 0x00);
-                        payload.put(Binary.writeLTriad(start));
-                        payload.put(Binary.writeLTriad(last));
-                        start = last = current;
-                    }
-                    ++records;
+                    continue;
                 }
-            }
 
-            if (start == last) {
-                payload.putByte((byte) 0x01);
-                payload.put(Binary.writeLTriad(start));
-            } else {
-                payload.putByte((byte) 0x00);
-                payload.put(Binary.writeLTriad(start));
-                payload.put(Binary.writeLTriad(last));
+                if (start == last) {
+                    payload[offset++] = 0x01;
+                    offset = writeLTriad(payload, offset, start);
+                } else {
+                    payload[offset++] = 0x00;
+                    offset = writeLTriad(payload, offset, start);
+                    offset = writeLTriad(payload, offset, last);
+                }
+                ++records;
+                start = last = current;
             }
-            ++records;
         }
 
-        this.putShort(records);
-        this.buffer = Binary.appendBytes(
-                this.buffer,
-                payload.getBuffer()
-        );
+        payload[0] = (byte) (records >>> 8);
+        payload[1] = (byte) records;
+        this.buffer = Binary.appendBytes(this.buffer, Arrays.copyOf(payload, offset));
+    }
+
+    private static int writeLTriad(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+        buffer[offset + 2] = (byte) (value >>> 16);
+        return offset + 3;
     }
 
     @Override
     public void decode() {
         super.decode();
         short count = this.getSignedShort();
-        this.packets = new TreeMap<>();
+        int[] packets = new int[Math.max(0, Math.min(count, 64))];
         int cnt = 0;
         for (int i = 0; i < count && !this.feof() && cnt < 4096; ++i) {
             if (this.getByte() == 0) {
@@ -84,24 +76,31 @@ public abstract class AcknowledgePacket extends Packet {
                     end = start + 512;
                 }
                 for (int c = start; c <= end; ++c) {
-                    packets.put(cnt++, c);
+                    if (cnt == packets.length) {
+                        packets = Arrays.copyOf(packets, Math.max(16, cnt << 1));
+                    }
+                    packets[cnt++] = c;
                 }
             } else {
-                this.packets.put(cnt++, this.getLTriad());
+                if (cnt == packets.length) {
+                    packets = Arrays.copyOf(packets, Math.max(16, cnt << 1));
+                }
+                packets[cnt++] = this.getLTriad();
             }
         }
+        this.packets = cnt == packets.length ? packets : Arrays.copyOf(packets, cnt);
     }
 
     @Override
     public Packet clean() {
-        this.packets = new TreeMap<>();
+        this.packets = new int[0];
         return super.clean();
     }
 
     @Override
     public AcknowledgePacket clone() throws CloneNotSupportedException {
         AcknowledgePacket packet = (AcknowledgePacket) super.clone();
-        packet.packets = new TreeMap<>(this.packets);
+        packet.packets = this.packets.clone();
         return packet;
     }
 }
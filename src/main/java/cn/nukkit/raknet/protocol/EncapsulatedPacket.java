@@ -129,6 +129,17 @@ public class EncapsulatedPacket implements Cloneable {
         return Binary.bytesToHexString(this.toBinary());
     }
 
+    /**
+     * Shallow copy sharing the payload buffer, which is never changed once a packet is built.
+     */
+    public EncapsulatedPacket copy() {
+        try {
+            return (EncapsulatedPacket) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public EncapsulatedPacket clone() throws CloneNotSupportedException {
         EncapsulatedPacket packet = (EncapsulatedPacket) super.clone();
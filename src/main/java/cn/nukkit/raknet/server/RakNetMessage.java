@@ -0,0 +1,107 @@
+package cn.nukkit.raknet.server;
+
+import cn.nukkit.raknet.RakNet;
+import cn.nukkit.raknet.protocol.EncapsulatedPacket;
+
+/**
+ * One message between the main thread and the RakNet thread.
+ * <p>
+ * {@link #type} is one of the {@code RakNet.PACKET_*} ids and decides which fields are set. Sessions are referred to
+ * by the integer handle the RakNet side gave them when they opened, and packets are passed as objects; the sender
+ * must not touch a packet again once it is queued.
+ */
+public final class RakNetMessage {
+
+    public final byte type;
+
+    public int session;
+    public EncapsulatedPacket packet;
+    public int flags;
+
+    public String address;
+    public int port;
+    public byte[] payload;
+    public long clientID;
+
+    public String name;
+    public String value;
+
+    public int identifierACK;
+    public int timeout;
+
+    public int rtt;
+    public long bandwidth;
+    public int backlog;
+
+    public RakNetMessage(byte type) {
+        this.type = type;
+    }
+
+    public static RakNetMessage encapsulated(int session, EncapsulatedPacket packet, int flags) {
+        RakNetMessage message = new RakNetMessage(RakNet.PACKET_ENCAPSULATED);
+        message.session = session;
+        message.packet = packet;
+        message.flags = flags;
+        return message;
+    }
+
+    public static RakNetMessage openSession(int session, String address, int port, long clientID) {
+        RakNetMessage message = new RakNetMessage(RakNet.PACKET_OPEN_SESSION);
+        message.session = session;
+        message.address = address;
+        message.port = port;
+        message.clientID = clientID;
+        return message;
+    }
+
+    public static RakNetMessage closeSession(int session, String reason) {
+        RakNetMessage message = new RakNetMessage(RakNet.PACKET_CLOSE_SESSION);
+        message.session = session;
+        message.value = reason;
+        return message;
+    }
+
+    public static RakNetMessage invalidSession(int session) {
+        RakNetMessage message = new RakNetMessage(RakNet.PACKET_INVALID_SESSION);
+        message.session = session;
+        return message;
+    }
+
+    public static RakNetMessage ackNotification(int session, int identifierACK) {
+        RakNetMessage message = new RakNetMessage(RakNet.PACKET_ACK_NOTIFICATION);
+        message.session = session;
+        message.identifierACK = identifierACK;
+        return message;
+    }
+
+    public static RakNetMessage sessionStats(int session, int rtt, long bandwidth, int backlog) {
+        RakNetMessage message = new RakNetMessage(RakNet.PACKET_SESSION_STATS);
+        message.session = session;
+        message.rtt = rtt;
+        message.bandwidth = bandwidth;
+        message.backlog = backlog;
+        return message;
+    }
+
+    public static RakNetMessage option(String name, String value) {
+        RakNetMessage message = new RakNetMessage(RakNet.PACKET_SET_OPTION);
+        message.name = name;
+        message.value = value;
+        return message;
+    }
+
+    public static RakNetMessage raw(String address, int port, byte[] payload) {
+        RakNetMessage message = new RakNetMessage(RakNet.PACKET_RAW);
+        message.address = address;
+        message.port = port;
+        message.payload = payload;
+        return message;
+    }
+
+    public static RakNetMessage blockAddress(String address, int timeout) {
+        RakNetMessage message = new RakNetMessage(RakNet.PACKET_BLOCK_ADDRESS);
+        message.address = address;
+        message.timeout = timeout;
+        return message;
+    }
+}
@@ -1,9 +1,13 @@
 package cn.nukkit.raknet.server;
 
 import cn.nukkit.Server;
+import cn.nukkit.utils.MpscRingBuffer;
 import cn.nukkit.utils.ThreadedLogger;
 
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * author: MagicDroidX
@@ -15,18 +19,40 @@ public class RakNetServer extends Thread {
 
     protected ThreadedLogger logger;
 
-    protected ConcurrentLinkedQueue<byte[]> externalQueue;
-    protected ConcurrentLinkedQueue<byte[]> internalQueue;
+    public static final int QUEUE_CAPACITY = 1 << 16;
+
+    //RakNet thread and session workers -> main thread
+    protected MpscRingBuffer<RakNetMessage> externalQueue;
+    //main thread -> RakNet thread
+    protected MpscRingBuffer<RakNetMessage> internalQueue;
+
+    //takes messages for the main thread while externalQueue is full, so the RakNet side never waits on the main thread
+    protected final Queue<RakNetMessage> externalOverflow = new ConcurrentLinkedQueue<>();
+    protected final AtomicLong externalOverflowed = new AtomicLong();
+
+    //set once the RakNet thread has been woken for messages it has not drained yet
+    protected final AtomicBoolean wakeupPending = new AtomicBoolean();
 
     protected boolean shutdown;
 
+    protected int threads;
+
+    protected volatile UDPServerSocket socket;
 
     public RakNetServer(ThreadedLogger logger, int port) {
         this(logger, port, "0.0.0.0");
     }
 
     public RakNetServer(ThreadedLogger logger, int port, String interfaz) {
+        this(logger, port, interfaz, 1);
+    }
+
+    /**
+     * @param threads number of threads the sessions are spread over
+     */
+    public RakNetServer(ThreadedLogger logger, int port, String interfaz, int threads) {
         this.port = port;
+        this.threads = Math.max(1, threads);
         if (port < 1 || port > 65536) {
             throw new IllegalArgumentException("Invalid port range");
         }
@@ -34,8 +60,8 @@ public class RakNetServer extends Thread {
         this.interfaz = interfaz;
         this.logger = logger;
 
-        this.externalQueue = new ConcurrentLinkedQueue<>();
-        this.internalQueue = new ConcurrentLinkedQueue<>();
+        this.externalQueue = new MpscRingBuffer<>(QUEUE_CAPACITY);
+        this.internalQueue = new MpscRingBuffer<>(QUEUE_CAPACITY);
 
         this.start();
     }
@@ -60,28 +86,76 @@ public class RakNetServer extends Thread {
         return logger;
     }
 
-    public ConcurrentLinkedQueue<byte[]> getExternalQueue() {
+    public MpscRingBuffer<RakNetMessage> getExternalQueue() {
         return externalQueue;
     }
 
-    public ConcurrentLinkedQueue<byte[]> getInternalQueue() {
+    public MpscRingBuffer<RakNetMessage> getInternalQueue() {
         return internalQueue;
     }
 
-    public void pushMainToThreadPacket(byte[] data) {
-        this.internalQueue.add(data);
+    public void pushMainToThreadPacket(RakNetMessage message) {
+        this.internalQueue.put(message);
+        //one wakeup per drain instead of one system call per message
+        if (!this.wakeupPending.get() && this.wakeupPending.compareAndSet(false, true)) {
+            UDPServerSocket socket = this.socket;
+            if (socket != null) {
+                socket.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Called by the RakNet thread right before it drains the queue from the main thread, so messages queued after
+     * that wake it again.
+     */
+    public void clearWakeup() {
+        this.wakeupPending.set(false);
     }
 
-    public byte[] readMainToThreadPacket() {
+    public RakNetMessage readMainToThreadPacket() {
         return this.internalQueue.poll();
     }
 
-    public void pushThreadToMainPacket(byte[] data) {
-        this.externalQueue.add(data);
+    public void pushThreadToMainPacket(RakNetMessage message) {
+        //once anything overflowed, later messages follow it so each producer's messages stay in order
+        if (!this.externalOverflow.isEmpty() || !this.externalQueue.offer(message)) {
+            this.externalOverflow.add(message);
+            this.externalOverflowed.incrementAndGet();
+        }
+    }
+
+    public RakNetMessage readThreadToMainPacket() {
+        RakNetMessage message = this.externalQueue.poll();
+        return message != null ? message : this.externalOverflow.poll();
+    }
+
+    /**
+     * Messages waiting for the RakNet thread.
+     */
+    public int getMainToThreadQueueSize() {
+        return this.internalQueue.size();
+    }
+
+    /**
+     * Messages waiting for the main thread.
+     */
+    public int getThreadToMainQueueSize() {
+        return this.externalQueue.size();
+    }
+
+    /**
+     * Times the main thread found the queue to the RakNet thread full and had to wait.
+     */
+    public long getMainToThreadStalls() {
+        return this.internalQueue.getStalls();
     }
 
-    public byte[] readThreadToMainPacket() {
-        return this.externalQueue.poll();
+    /**
+     * Messages for the main thread that did not fit in the queue and went to the overflow list.
+     */
+    public long getThreadToMainOverflows() {
+        return this.externalOverflowed.get();
     }
 
     private class ShutdownHandler extends Thread {
@@ -97,8 +171,9 @@ public class RakNetServer extends Thread {
         this.setName("RakNet Thread #" + Thread.currentThread().getId());
         Runtime.getRuntime().addShutdownHook(new ShutdownHandler());
         UDPServerSocket socket = new UDPServerSocket(this.getLogger(), port, this.interfaz);
+        this.socket = socket;
         try {
-            new SessionManager(this, socket);
+            new SessionManager(this, socket, this.threads);
         } catch (Exception e) {
         	Server.getInstance().getLogger().logException(e);
         }
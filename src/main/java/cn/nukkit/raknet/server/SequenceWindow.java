@@ -0,0 +1,127 @@
+package cn.nukkit.raknet.server;
+
+/**
+ * Circular array of values indexed by a RakNet sequence number.
+ * <p>
+ * Holds the sequence numbers from {@link #getStart()} onwards; a value lives in slot {@code sequence & mask}, so
+ * lookups and removals are array accesses. The array doubles when a sequence number does not fit any more.
+ */
+public class SequenceWindow<T> {
+
+    private Object[] slots;
+    private int mask;
+
+    private int start;
+    private int end;
+    private int size;
+
+    /**
+     * @param capacity rounded up to a power of two
+     * @param start    the first sequence number expected
+     */
+    public SequenceWindow(int capacity, int start) {
+        int length = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Object[length];
+        this.mask = length - 1;
+        this.start = start;
+        this.end = start;
+    }
+
+    public int getStart() {
+        return this.start;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Stores a value, replacing any value with the same sequence number. Sequence numbers before the start are ignored.
+     */
+    public void put(int sequence, T value) {
+        if (sequence < this.start) {
+            return;
+        }
+        if (sequence - this.start >= this.slots.length) {
+            this.grow(sequence - this.start + 1);
+        }
+        int index = sequence & this.mask;
+        if (this.slots[index] == null) {
+            ++this.size;
+        }
+        this.slots[index] = value;
+        if (sequence >= this.end) {
+            this.end = sequence + 1;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int sequence) {
+        if (sequence < this.start || sequence >= this.end) {
+            return null;
+        }
+        return (T) this.slots[sequence & this.mask];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T remove(int sequence) {
+        if (sequence < this.start || sequence >= this.end) {
+            return null;
+        }
+        int index = sequence & this.mask;
+        T value = (T) this.slots[index];
+        if (value != null) {
+            this.slots[index] = null;
+            --this.size;
+        }
+        return value;
+    }
+
+    /**
+     * The value at the start of the window, or null if that sequence number has no value yet.
+     */
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        return this.start < this.end ? (T) this.slots[this.start & this.mask] : null;
+    }
+
+    /**
+     * Removes the value at the start, if any, and moves the start on by one.
+     */
+    public T poll() {
+        T value = this.remove(this.start);
+        ++this.start;
+        if (this.end < this.start) {
+            this.end = this.start;
+        }
+        return value;
+    }
+
+    /**
+     * Moves the start past empty slots and returns the oldest value left, or null if the window is empty.
+     */
+    public T first() {
+        while (this.start < this.end && this.slots[this.start & this.mask] == null) {
+            ++this.start;
+        }
+        return this.peek();
+    }
+
+    private void grow(int needed) {
+        int length = this.slots.length;
+        while (length < needed) {
+            length <<= 1;
+        }
+        Object[] slots = new Object[length];
+        int mask = length - 1;
+        for (int sequence = this.start; sequence < this.end; ++sequence) {
+            slots[sequence & mask] = this.slots[sequence & this.mask];
+        }
+        this.slots = slots;
+        this.mask = mask;
+    }
+}
@@ -2,9 +2,6 @@ package cn.nukkit.raknet.server;
 
 import cn.nukkit.raknet.RakNet;
 import cn.nukkit.raknet.protocol.EncapsulatedPacket;
-import cn.nukkit.utils.Binary;
-
-import java.nio.charset.StandardCharsets;
 
 /**
  * author: MagicDroidX
@@ -21,65 +18,36 @@ public class ServerHandler {
         this.instance = instance;
     }
 
-    public void sendEncapsulated(String identifier, EncapsulatedPacket packet) {
-        this.sendEncapsulated(identifier, packet, RakNet.PRIORITY_NORMAL);
+    public void sendEncapsulated(int session, EncapsulatedPacket packet) {
+        this.sendEncapsulated(session, packet, RakNet.PRIORITY_NORMAL);
     }
 
-    public void sendEncapsulated(String identifier, EncapsulatedPacket packet, int flags) {
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_ENCAPSULATED,
-                new byte[]{(byte) (identifier.length() & 0xff)},
-                identifier.getBytes(StandardCharsets.UTF_8),
-                new byte[]{(byte) (flags & 0xff)},
-                packet.toBinary(true)
-        );
-        this.server.pushMainToThreadPacket(buffer);
+    /**
+     * Queues a packet for a session. The packet object itself is handed to the RakNet thread, so it must not be
+     * changed or queued again afterwards.
+     */
+    public void sendEncapsulated(int session, EncapsulatedPacket packet, int flags) {
+        this.server.pushMainToThreadPacket(RakNetMessage.encapsulated(session, packet, flags));
     }
 
     public void sendRaw(String address, int port, byte[] payload) {
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_RAW,
-                new byte[]{(byte) (address.length() & 0xff)},
-                address.getBytes(StandardCharsets.UTF_8),
-                Binary.writeShort(port),
-                payload
-        );
-        this.server.pushMainToThreadPacket(buffer);
+        this.server.pushMainToThreadPacket(RakNetMessage.raw(address, port, payload));
     }
 
-    public void closeSession(String identifier, String reason) {
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_CLOSE_SESSION,
-                new byte[]{(byte) (identifier.length() & 0xff)},
-                identifier.getBytes(StandardCharsets.UTF_8),
-                new byte[]{(byte) (reason.length() & 0xff)},
-                reason.getBytes(StandardCharsets.UTF_8)
-        );
-        this.server.pushMainToThreadPacket(buffer);
+    public void closeSession(int session, String reason) {
+        this.server.pushMainToThreadPacket(RakNetMessage.closeSession(session, reason));
     }
 
     public void sendOption(String name, String value) {
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_SET_OPTION,
-                new byte[]{(byte) (name.length() & 0xff)},
-                name.getBytes(StandardCharsets.UTF_8),
-                value.getBytes(StandardCharsets.UTF_8)
-        );
-        this.server.pushMainToThreadPacket(buffer);
+        this.server.pushMainToThreadPacket(RakNetMessage.option(name, value));
     }
 
     public void blockAddress(String address, int timeout) {
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_BLOCK_ADDRESS,
-                new byte[]{(byte) (address.length() & 0xff)},
-                address.getBytes(StandardCharsets.UTF_8),
-                Binary.writeInt(timeout)
-        );
-        this.server.pushMainToThreadPacket(buffer);
+        this.server.pushMainToThreadPacket(RakNetMessage.blockAddress(address, timeout));
     }
 
     public void shutdown() {
-        this.server.pushMainToThreadPacket(new byte[]{RakNet.PACKET_SHUTDOWN});
+        this.server.pushMainToThreadPacket(new RakNetMessage(RakNet.PACKET_SHUTDOWN));
         this.server.shutdown();
         synchronized (this) {
             try {
@@ -97,72 +65,41 @@ public class ServerHandler {
 
     public void emergencyShutdown() {
         this.server.shutdown();
-        this.server.pushMainToThreadPacket(new byte[]{RakNet.PACKET_EMERGENCY_SHUTDOWN});
+        this.server.pushMainToThreadPacket(new RakNetMessage(RakNet.PACKET_EMERGENCY_SHUTDOWN));
     }
 
-    protected void invalidSession(String identifier) {
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_INVALID_SESSION,
-                new byte[]{(byte) (identifier.length() & 0xff)},
-                identifier.getBytes(StandardCharsets.UTF_8)
-        );
-        this.server.pushMainToThreadPacket(buffer);
+    protected void invalidSession(int session) {
+        this.server.pushMainToThreadPacket(RakNetMessage.invalidSession(session));
     }
 
     public boolean handlePacket() {
-        byte[] packet = this.server.readThreadToMainPacket();
-        if (packet != null && packet.length > 0) {
-            byte id = packet[0];
-            int offset = 1;
-            if (id == RakNet.PACKET_ENCAPSULATED) {
-                int len = packet[offset++];
-                String identifier = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                offset += len;
-                int flags = packet[offset++];
-                byte[] buffer = Binary.subBytes(packet, offset);
-                this.instance.handleEncapsulated(identifier, EncapsulatedPacket.fromBinary(buffer, true), flags);
-            } else if (id == RakNet.PACKET_RAW) {
-                int len = packet[offset++];
-                String address = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                offset += len;
-                int port = Binary.readShort(Binary.subBytes(packet, offset, 2)) & 0xffff;
-                offset += 2;
-                byte[] payload = Binary.subBytes(packet, offset);
-                this.instance.handleRaw(address, port, payload);
-            } else if (id == RakNet.PACKET_SET_OPTION) {
-                int len = packet[offset++];
-                String name = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                offset += len;
-                String value = new String(Binary.subBytes(packet, offset), StandardCharsets.UTF_8);
-                this.instance.handleOption(name, value);
-            } else if (id == RakNet.PACKET_OPEN_SESSION) {
-                int len = packet[offset++];
-                String identifier = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                offset += len;
-                len = packet[offset++];
-                String address = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                offset += len;
-                int port = Binary.readShort(Binary.subBytes(packet, offset, 2)) & 0xffff;
-                offset += 2;
-                long clientID = Binary.readLong(Binary.subBytes(packet, offset, 8));
-                this.instance.openSession(identifier, address, port, clientID);
-            } else if (id == RakNet.PACKET_CLOSE_SESSION) {
-                int len = packet[offset++];
-                String identifier = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                offset += len;
-                len = packet[offset++];
-                String reason = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                this.instance.closeSession(identifier, reason);
-            } else if (id == RakNet.PACKET_INVALID_SESSION) {
-                int len = packet[offset++];
-                String identifier = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                this.instance.closeSession(identifier, "Invalid session");
-            } else if (id == RakNet.PACKET_ACK_NOTIFICATION) {
-                int len = packet[offset++];
-                String identifier = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                offset += len;
-                int identifierACK = Binary.readInt(Binary.subBytes(packet, offset, 4));
-                this.instance.notifyACK(identifier, identifierACK);
+        RakNetMessage message = this.server.readThreadToMainPacket();
+        if (message != null) {
+            switch (message.type) {
+                case RakNet.PACKET_ENCAPSULATED:
+                    this.instance.handleEncapsulated(message.session, message.packet, message.flags);
+                    break;
+                case RakNet.PACKET_RAW:
+                    this.instance.handleRaw(message.address, message.port, message.payload);
+                    break;
+                case RakNet.PACKET_SET_OPTION:
+                    this.instance.handleOption(message.name, message.value);
+                    break;
+                case RakNet.PACKET_OPEN_SESSION:
+                    this.instance.openSession(message.session, message.address, message.port, message.clientID);
+                    break;
+                case RakNet.PACKET_CLOSE_SESSION:
+                    this.instance.closeSession(message.session, message.value);
+                    break;
+                case RakNet.PACKET_INVALID_SESSION:
+                    this.instance.closeSession(message.session, "Invalid session");
+                    break;
+                case RakNet.PACKET_ACK_NOTIFICATION:
+                    this.instance.notifyACK(message.session, message.identifierACK);
+                    break;
+                case RakNet.PACKET_SESSION_STATS:
+                    this.instance.handleSessionStats(message.session, message.rtt, message.bandwidth, message.backlog);
+                    break;
             }
             return true;
         }
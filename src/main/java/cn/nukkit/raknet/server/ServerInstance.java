@@ -8,15 +8,21 @@ import cn.nukkit.raknet.protocol.EncapsulatedPacket;
  */
 public interface ServerInstance {
 
-    void openSession(String identifier, String address, int port, long clientID);
+    void openSession(int session, String address, int port, long clientID);
 
-    void closeSession(String identifier, String reason);
+    void closeSession(int session, String reason);
 
-    void handleEncapsulated(String identifier, EncapsulatedPacket packet, int flags);
+    void handleEncapsulated(int session, EncapsulatedPacket packet, int flags);
 
     void handleRaw(String address, int port, byte[] payload);
 
-    void notifyACK(String identifier, int identifierACK);
+    void notifyACK(int session, int identifierACK);
+
+    /**
+     * Periodic link measurements: round trip time in milliseconds, acknowledged bytes per second and datagrams
+     * waiting for the congestion window.
+     */
+    void handleSessionStats(int session, int rtt, long bandwidth, int backlog);
 
     void handleOption(String option, String value);
 }
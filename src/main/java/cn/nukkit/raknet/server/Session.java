@@ -6,7 +6,6 @@ import cn.nukkit.raknet.protocol.EncapsulatedPacket;
 import cn.nukkit.raknet.protocol.Packet;
 import cn.nukkit.raknet.protocol.packet.*;
 import cn.nukkit.utils.Binary;
-import cn.nukkit.utils.BinaryStream;
 
 import java.io.IOException;
 import java.util.*;
@@ -27,12 +26,35 @@ public class Session {
 
     public static int WINDOW_SIZE = 2048;
 
+    /**
+     * Datagrams waiting for the congestion window before the session is dropped as unable to keep up.
+     */
+    public static int MAX_SEND_BACKLOG = WINDOW_SIZE * 8;
+
+    public final static int MIN_RTO = 100;
+    public final static int MAX_RTO = 8000;
+    public final static int INITIAL_CONGESTION_WINDOW = 4;
+    public final static int MIN_CONGESTION_WINDOW = 2;
+
+    /**
+     * Datagrams per second the window never shrinks below, the fixed rate sessions used to send at. Random loss
+     * on a wireless link would otherwise hold the window far below what the link can carry.
+     */
+    public static int MIN_SEND_RATE = 320;
+
+    //multiplicative decrease after a loss, as in CUBIC
+    private final static double LOSS_BACKOFF = 0.7;
+
+    //how often the round trip time and bandwidth are passed on to the main thread
+    private final static int STATS_INTERVAL = 500;
+
     private int messageIndex = 0;
     private Map<Integer, Integer> channelIndex = new ConcurrentHashMap<>();
 
     private SessionManager sessionManager;
     private String address;
     private int port;
+    private int handle;
     private int state = STATE_UNCONNECTED;
     //private List<EncapsulatedPacket> preJoinQueue = new ArrayList<>();
     private int mtuSize = 548; //Min size
@@ -47,43 +69,73 @@ public class Session {
 
     private boolean isTemporal = true;
 
-    private List<DataPacket> packetToSend = new ArrayList<>();
+    private Deque<DataPacket> packetToSend = new ArrayDeque<>();
 
     private boolean isActive;
 
-    private Map<Integer, Integer> ACKQueue = new HashMap<>();
-    private Map<Integer, Integer> NACKQueue = new HashMap<>();
+    private int[] ACKQueue = new int[64];
+    private int ACKCount = 0;
+    private int[] NACKQueue = new int[16];
+    private int NACKCount = 0;
 
-    private Map<Integer, DataPacket> recoveryQueue = new TreeMap<>();
+    private SequenceWindow<DataPacket> recoveryQueue = new SequenceWindow<>(256, 0);
 
-    private Map<Integer, Map<Integer, EncapsulatedPacket>> splitPackets = new HashMap<>();
+    private SplitPacket[] splitPackets = new SplitPacket[MAX_SPLIT_COUNT];
 
     private Map<Integer, Map<Integer, Integer>> needACK = new TreeMap<>();
 
     private DataPacket sendQueue;
 
+    //the last sequence number seen in each slot, so a duplicate finds its own number there
+    private int[] receivedWindow;
     private int windowStart;
-    private Map<Integer, Integer> receivedWindow = new TreeMap<>();
     private int windowEnd;
 
-    private int reliableWindowStart;
-    private int reliableWindowEnd;
-    private Map<Integer, EncapsulatedPacket> reliableWindow = new TreeMap<>();
-    private int lastReliableIndex = -1;
+    private SequenceWindow<EncapsulatedPacket> reliableWindow;
+
+    //round trip estimation after RFC 6298, in milliseconds; resends get fresh sequence numbers, so every ACK is a clean sample
+    private double rtt = -1;
+    private double rttVariance;
+    private long rto = 1000;
+
+    //congestion window in datagrams, grown by one per ACK in slow start and by one per window afterwards
+    private double congestionWindow = INITIAL_CONGESTION_WINDOW;
+    private double slowStartThreshold = WINDOW_SIZE;
+    //losses of datagrams sent before this sequence number belong to a loss that was already answered
+    private int recoverySeqNumber = 0;
+    private long lastAckTime = 0;
+
+    private double sendAllowance = INITIAL_CONGESTION_WINDOW;
+    private long lastPaceTime;
+
+    private long ackedBytes = 0;
+    private long bandwidth = 0;
+    private long lastStatsTime;
 
     public Session(SessionManager sessionManager, String address, int port) {
+        this(sessionManager, address, port, -1);
+    }
+
+    /**
+     * @param handle the number the main thread knows this session by
+     */
+    public Session(SessionManager sessionManager, String address, int port, int handle) {
         this.sessionManager = sessionManager;
         this.address = address;
         this.port = port;
+        this.handle = handle;
         this.sendQueue = new DATA_PACKET_4();
         this.lastUpdate = System.currentTimeMillis();
         this.startTime = System.currentTimeMillis();
+        this.lastPaceTime = this.startTime;
+        this.lastStatsTime = this.startTime;
         this.isActive = false;
         this.windowStart = -1;
         this.windowEnd = WINDOW_SIZE;
+        this.receivedWindow = new int[Integer.highestOneBit(WINDOW_SIZE) << 1];
+        Arrays.fill(this.receivedWindow, -1);
 
-        this.reliableWindowStart = 0;
-        this.reliableWindowEnd = WINDOW_SIZE;
+        this.reliableWindow = new SequenceWindow<>(WINDOW_SIZE + 1, 0);
 
         for (int i = 0; i < 32; i++) {
             this.channelIndex.put(i, 0);
@@ -98,10 +150,50 @@ public class Session {
         return this.port;
     }
 
+    public int getHandle() {
+        return this.handle;
+    }
+
     public long getID() {
         return this.id;
     }
 
+    /**
+     * Smoothed round trip time in milliseconds, or -1 before the first acknowledgement.
+     */
+    public int getRTT() {
+        return (int) Math.round(this.rtt);
+    }
+
+    /**
+     * Current retransmission timeout in milliseconds.
+     */
+    public long getRTO() {
+        return this.rto;
+    }
+
+    public double getCongestionWindow() {
+        return this.congestionWindow;
+    }
+
+    /**
+     * Bytes per second the client acknowledged over the last measuring interval.
+     */
+    public long getBandwidth() {
+        return this.bandwidth;
+    }
+
+    /**
+     * Datagrams waiting for room in the congestion window.
+     */
+    public int getSendBacklog() {
+        return this.packetToSend.size();
+    }
+
+    public int getInFlight() {
+        return this.recoveryQueue.size();
+    }
+
     public void update(long time) throws Exception {
         if (!this.isActive && (this.lastUpdate + 10000) < time) { //10 second timeout
             this.disconnect("timeout");
@@ -110,69 +202,145 @@ public class Session {
         }
         this.isActive = false;
 
-        if (!this.ACKQueue.isEmpty()) {
+        if (this.ACKCount > 0) {
             ACK pk = new ACK();
-            pk.packets = new TreeMap<>(this.ACKQueue);
+            pk.packets = Arrays.copyOf(this.ACKQueue, this.ACKCount);
             this.sendPacket(pk);
-            this.ACKQueue = new HashMap<>();
+            this.ACKCount = 0;
         }
 
-        if (!this.NACKQueue.isEmpty()) {
-            NACK pk = new NACK();
-            pk.packets = new TreeMap<>(this.NACKQueue);
-            this.sendPacket(pk);
-            this.NACKQueue = new HashMap<>();
+        if (this.NACKCount > 0) {
+            int count = 0;
+            for (int i = 0; i < this.NACKCount; i++) {
+                int seq = this.NACKQueue[i];
+                if (!this.isReceived(seq)) {
+                    this.NACKQueue[count++] = seq;
+                }
+            }
+            if (count > 0) {
+                NACK pk = new NACK();
+                pk.packets = Arrays.copyOf(this.NACKQueue, count);
+                this.sendPacket(pk);
+            }
+            this.NACKCount = 0;
         }
 
-        if (!this.packetToSend.isEmpty()) {
-            int limit = 16;
-            for (int i = 0; i < this.packetToSend.size(); i++) {
-                DataPacket pk = this.packetToSend.get(i);
-                pk.sendTime = time;
-                pk.encode();
-                this.recoveryQueue.put(pk.seqNumber, pk);
-                this.packetToSend.remove(pk);
-                this.sendPacket(pk);
+        DataPacket pk = this.recoveryQueue.first();
+        if (pk != null && pk.sendTime <= time - this.rto) {
+            long timeout = time - this.rto;
+            int oldestSeqNumber = pk.seqNumber;
+            long oldestSendTime = pk.sendTime;
+            List<DataPacket> expired = new ArrayList<>();
+            while ((pk = this.recoveryQueue.first()) != null && pk.sendTime <= timeout) {
+                expired.add(this.recoveryQueue.poll());
+            }
+            for (int i = expired.size() - 1; i >= 0; i--) {
+                this.packetToSend.addFirst(expired.get(i));
+            }
 
-                if (limit-- <= 0) {
-                    break;
-                }
+            if (this.lastAckTime < oldestSendTime) {
+                //nothing got through since, the link itself stalled
+                this.rto = Math.min(this.rto * 2, MAX_RTO);
+                this.onLoss(true);
+            } else if (oldestSeqNumber >= this.recoverySeqNumber) {
+                //other datagrams were acknowledged, so only this one or its ACK was lost
+                this.onLoss(false);
             }
         }
 
-        if (this.packetToSend.size() > WINDOW_SIZE) {
-            this.packetToSend.clear();
+        //pace the window out over one round trip instead of sending it in a single burst
+        double roundTrip = Math.max(this.rtt, SessionWorker.TICK_INTERVAL);
+        this.sendAllowance = Math.min(this.sendAllowance + this.congestionWindow * (time - this.lastPaceTime) / roundTrip, Math.max(this.congestionWindow, 1));
+        this.lastPaceTime = time;
+        this.flushSendBacklog(time);
+
+        if (this.packetToSend.size() > MAX_SEND_BACKLOG) {
+            this.disconnect("send backlog overflow");
+            return;
         }
 
         if (!this.needACK.isEmpty()) {
-            for (int identifierACK : new ArrayList<>(this.needACK.keySet())) {
-                Map<Integer, Integer> indexes = this.needACK.get(identifierACK);
-                if (indexes.isEmpty()) {
-                    this.needACK.remove(identifierACK);
-                    this.sessionManager.notifyACK(this, identifierACK);
+            Iterator<Map.Entry<Integer, Map<Integer, Integer>>> iterator = this.needACK.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Integer, Map<Integer, Integer>> entry = iterator.next();
+                if (entry.getValue().isEmpty()) {
+                    iterator.remove();
+                    this.sessionManager.notifyACK(this, entry.getKey());
                 }
             }
         }
 
-        for (int seq : new ArrayList<>(this.recoveryQueue.keySet())) {
-            DataPacket pk = this.recoveryQueue.get(seq);
-            if (pk.sendTime < System.currentTimeMillis() - 8000) {
-                this.packetToSend.add(pk);
-                this.recoveryQueue.remove(seq);
-            } else {
-                break;
+        this.sendQueue();
+
+        if (time - this.lastStatsTime >= STATS_INTERVAL) {
+            this.bandwidth = this.ackedBytes * 1000 / (time - this.lastStatsTime);
+            this.ackedBytes = 0;
+            this.lastStatsTime = time;
+            if (this.state == STATE_CONNECTED && this.sessionManager != null) {
+                this.sessionManager.streamStats(this);
             }
         }
+    }
 
-        for (int seq : new ArrayList<>(this.receivedWindow.keySet())) {
-            if (seq < this.windowStart) {
-                this.receivedWindow.remove(seq);
-            } else {
-                break;
-            }
+    private boolean canSend() {
+        return this.sendAllowance >= 1 && this.recoveryQueue.size() < this.congestionWindow;
+    }
+
+    private void flushSendBacklog(long time) throws IOException {
+        while (!this.packetToSend.isEmpty() && this.canSend()) {
+            this.transmit(this.packetToSend.poll(), time);
         }
+    }
 
-        this.sendQueue();
+    /**
+     * Sends a datagram now if the congestion window has room, or queues it behind the ones already waiting.
+     */
+    private void send(DataPacket packet) throws IOException {
+        if (this.packetToSend.isEmpty() && this.canSend()) {
+            this.transmit(packet, System.currentTimeMillis());
+        } else {
+            this.packetToSend.add(packet);
+        }
+    }
+
+    private void transmit(DataPacket packet, long time) throws IOException {
+        packet.seqNumber = this.sendSeqNumber++;
+        packet.sendTime = time;
+        this.recoveryQueue.put(packet.seqNumber, packet);
+        this.sendAllowance -= 1;
+        this.sendPacket(packet);
+    }
+
+    private void onAcknowledged(DataPacket packet, long time) {
+        double sample = Math.max(0, time - packet.sendTime);
+        if (this.rtt < 0) {
+            this.rtt = sample;
+            this.rttVariance = sample / 2;
+        } else {
+            this.rttVariance = 0.75 * this.rttVariance + 0.25 * Math.abs(this.rtt - sample);
+            this.rtt = 0.875 * this.rtt + 0.125 * sample;
+        }
+        //twice the round trip plus slack, as RakNet itself does, since clients batch their ACKs
+        this.rto = Math.min(Math.max((long) (2 * this.rtt + 4 * this.rttVariance + 30), MIN_RTO), MAX_RTO);
+
+        if (this.congestionWindow < this.slowStartThreshold) {
+            this.congestionWindow += 1;
+        } else {
+            this.congestionWindow += 1 / this.congestionWindow;
+        }
+        this.congestionWindow = Math.min(this.congestionWindow, WINDOW_SIZE);
+        this.ackedBytes += packet.buffer != null ? packet.buffer.length : 0;
+        this.lastAckTime = time;
+    }
+
+    /**
+     * Shrinks the window after a loss, down to the minimum if the link stalled completely.
+     */
+    private void onLoss(boolean stalled) {
+        double minimum = Math.max(MIN_CONGESTION_WINDOW, MIN_SEND_RATE * Math.max(this.rtt, SessionWorker.TICK_INTERVAL) / 1000);
+        this.slowStartThreshold = Math.max(this.congestionWindow * LOSS_BACKOFF, minimum);
+        this.congestionWindow = stalled ? MIN_CONGESTION_WINDOW : this.slowStartThreshold;
+        this.recoverySeqNumber = this.sendSeqNumber;
     }
 
     public void disconnect() throws Exception {
@@ -189,10 +357,7 @@ public class Session {
 
     public void sendQueue() throws IOException {
         if (!this.sendQueue.packets.isEmpty()) {
-            this.sendQueue.seqNumber = sendSeqNumber++;
-            this.sendPacket(sendQueue);
-            this.sendQueue.sendTime = System.currentTimeMillis();
-            this.recoveryQueue.put(this.sendQueue.seqNumber, this.sendQueue);
+            this.send(this.sendQueue);
             this.sendQueue = new DATA_PACKET_4();
         }
     }
@@ -212,7 +377,6 @@ public class Session {
 
         if (priority == RakNet.PRIORITY_IMMEDIATE) { //Skip queues
             DataPacket packet = new DATA_PACKET_0();
-            packet.seqNumber = this.sendSeqNumber++;
             if (pk.needACK) {
                 packet.packets.add(pk.clone());
                 pk.needACK = false;
@@ -220,9 +384,7 @@ public class Session {
                 packet.packets.add(pk.toBinary());
             }
 
-            this.sendPacket(packet);
-            packet.sendTime = System.currentTimeMillis();
-            this.recoveryQueue.put(packet.seqNumber, packet);
+            this.send(packet);
 
             return;
         }
@@ -291,30 +453,41 @@ public class Session {
     }
 
     private void handleSplit(EncapsulatedPacket packet) throws Exception {
-        if (packet.splitCount >= MAX_SPLIT_SIZE || packet.splitIndex >= MAX_SPLIT_SIZE || packet.splitIndex < 0) {
+        if (packet.splitCount >= MAX_SPLIT_SIZE || packet.splitIndex >= packet.splitCount || packet.splitIndex < 0) {
             return;
         }
 
-        if (!this.splitPackets.containsKey(packet.splitID)) {
-            if (this.splitPackets.size() >= MAX_SPLIT_COUNT) {
+        SplitPacket split = null;
+        SplitPacket free = null;
+        for (int i = 0; i < MAX_SPLIT_COUNT; i++) {
+            SplitPacket candidate = this.splitPackets[i];
+            if (candidate == null) {
+                candidate = this.splitPackets[i] = new SplitPacket();
+            }
+            if (candidate.count > 0 && candidate.splitID == packet.splitID) {
+                split = candidate;
+                break;
+            } else if (free == null && candidate.count == 0) {
+                free = candidate;
+            }
+        }
+
+        if (split == null) {
+            if (free == null) {
                 return;
             }
-            this.splitPackets.put(packet.splitID, new HashMap<Integer, EncapsulatedPacket>() {{
-                put(packet.splitIndex, packet);
-            }});
-        } else {
-            this.splitPackets.get(packet.splitID).put(packet.splitIndex, packet);
+            split = free;
+            split.splitID = packet.splitID;
+            split.count = packet.splitCount;
+        } else if (split.count != packet.splitCount) {
+            return;
         }
 
-        if (this.splitPackets.get(packet.splitID).size() == packet.splitCount) {
+        byte[] buffer = split.add(packet.splitIndex, packet.buffer);
+        if (buffer != null) {
             EncapsulatedPacket pk = new EncapsulatedPacket();
-            BinaryStream stream = new BinaryStream();
-            for (int i = 0; i < packet.splitCount; i++) {
-                stream.put(this.splitPackets.get(packet.splitID).get(i).buffer);
-            }
-            pk.buffer = stream.getBuffer();
-            pk.length = pk.buffer.length;
-            this.splitPackets.remove(packet.splitID);
+            pk.buffer = buffer;
+            pk.length = buffer.length;
 
             this.handleEncapsulatedPacketRoute(pk);
         }
@@ -324,32 +497,19 @@ public class Session {
         if (packet.messageIndex == null) {
             this.handleEncapsulatedPacketRoute(packet);
         } else {
-            if (packet.messageIndex < this.reliableWindowStart || packet.messageIndex > this.reliableWindowEnd) {
+            int start = this.reliableWindow.getStart();
+            if (packet.messageIndex < start || packet.messageIndex > start + WINDOW_SIZE) {
                 return;
             }
 
-            if ((packet.messageIndex - this.lastReliableIndex) == 1) {
-                this.lastReliableIndex++;
-                this.reliableWindowStart++;
-                this.reliableWindowEnd++;
+            if (packet.messageIndex == start) {
+                this.reliableWindow.poll();
                 this.handleEncapsulatedPacketRoute(packet);
 
-                if (!this.reliableWindow.isEmpty()) {
-                    TreeMap<Integer, EncapsulatedPacket> sortedMap = new TreeMap<>(this.reliableWindow);
-
-                    for (int index : sortedMap.keySet()) {
-                        EncapsulatedPacket pk = this.reliableWindow.get(index);
-
-                        if ((index - this.lastReliableIndex) != 1) {
-                            break;
-                        }
-
-                        this.lastReliableIndex++;
-                        this.reliableWindowStart++;
-                        this.reliableWindowEnd++;
-                        this.handleEncapsulatedPacketRoute(pk);
-                        this.reliableWindow.remove(index);
-                    }
+                EncapsulatedPacket pk;
+                while ((pk = this.reliableWindow.peek()) != null) {
+                    this.reliableWindow.poll();
+                    this.handleEncapsulatedPacketRoute(pk);
                 }
             } else {
                 this.reliableWindow.put(packet.messageIndex, packet);
@@ -358,6 +518,10 @@ public class Session {
 
     }
 
+    private boolean isReceived(int seq) {
+        return this.receivedWindow[seq & (this.receivedWindow.length - 1)] == seq;
+    }
+
     public int getState() {
         return state;
     }
@@ -440,20 +604,26 @@ public class Session {
                 DataPacket dp = (DataPacket) packet;
                 dp.decode();
 
-                if (dp.seqNumber < this.windowStart || dp.seqNumber > this.windowEnd || this.receivedWindow.containsKey(dp.seqNumber)) {
+                int seq = dp.seqNumber;
+                if (seq < this.windowStart || seq > this.windowEnd || this.isReceived(seq)) {
                     return;
                 }
 
-                int diff = dp.seqNumber - this.lastSeqNumber;
+                int diff = seq - this.lastSeqNumber;
 
-                this.NACKQueue.remove(dp.seqNumber);
-                this.ACKQueue.put(dp.seqNumber, dp.seqNumber);
-                this.receivedWindow.put(dp.seqNumber, dp.seqNumber);
+                if (this.ACKCount == this.ACKQueue.length) {
+                    this.ACKQueue = Arrays.copyOf(this.ACKQueue, this.ACKCount << 1);
+                }
+                this.ACKQueue[this.ACKCount++] = seq;
+                this.receivedWindow[seq & (this.receivedWindow.length - 1)] = seq;
 
                 if (diff != 1) {
-                    for (int i = this.lastSeqNumber + 1; i < dp.seqNumber; i++) {
-                        if (!this.receivedWindow.containsKey(i)) {
-                            this.NACKQueue.put(i, i);
+                    for (int i = this.lastSeqNumber + 1; i < seq; i++) {
+                        if (!this.isReceived(i)) {
+                            if (this.NACKCount == this.NACKQueue.length) {
+                                this.NACKQueue = Arrays.copyOf(this.NACKQueue, this.NACKCount << 1);
+                            }
+                            this.NACKQueue[this.NACKCount++] = i;
                         }
                     }
                 }
@@ -472,28 +642,38 @@ public class Session {
             } else {
                 if (packet instanceof ACK) {
                     packet.decode();
-                    for (int seq : new ArrayList<>(((ACK) packet).packets.values())) {
-                        if (this.recoveryQueue.containsKey(seq)) {
-                            for (Object pk : this.recoveryQueue.get(seq).packets) {
+                    long time = System.currentTimeMillis();
+                    for (int seq : ((ACK) packet).packets) {
+                        DataPacket dp = this.recoveryQueue.remove(seq);
+                        if (dp != null) {
+                            this.onAcknowledged(dp, time);
+                            for (Object pk : dp.packets) {
                                 if (pk instanceof EncapsulatedPacket && ((EncapsulatedPacket) pk).needACK && ((EncapsulatedPacket) pk).messageIndex != null) {
                                     if (this.needACK.containsKey(((EncapsulatedPacket) pk).identifierACK)) {
                                         this.needACK.get(((EncapsulatedPacket) pk).identifierACK).remove(((EncapsulatedPacket) pk).messageIndex);
                                     }
                                 }
                             }
-                            this.recoveryQueue.remove(seq);
                         }
                     }
+                    //every ACK frees room in the window, so waiting datagrams go out without waiting for the next update
+                    this.flushSendBacklog(time);
                 } else if (packet instanceof NACK) {
                     packet.decode();
-                    for (int seq : new ArrayList<>(((NACK) packet).packets.values())) {
-                        if (this.recoveryQueue.containsKey(seq)) {
-                            DataPacket pk = this.recoveryQueue.get(seq);
-                            pk.seqNumber = this.sendSeqNumber++;
-                            this.packetToSend.add(pk);
-                            this.recoveryQueue.remove(seq);
+                    boolean loss = false;
+                    int[] packets = ((NACK) packet).packets;
+                    for (int i = packets.length - 1; i >= 0; i--) {
+                        int seq = packets[i];
+                        DataPacket pk = this.recoveryQueue.remove(seq);
+                        if (pk != null) {
+                            this.packetToSend.addFirst(pk);
+                            loss |= seq >= this.recoverySeqNumber;
                         }
                     }
+                    if (loss) {
+                        this.onLoss(false);
+                    }
+                    this.flushSendBacklog(System.currentTimeMillis());
                 }
             }
         } else if ((packet.buffer[0] & 0xff) > 0x00 || (packet.buffer[0] & 0xff) < 0x80) { //Not Data packet :)
@@ -523,7 +703,50 @@ public class Session {
 
     public void close() throws Exception {
         byte[] data = new byte[]{0x00, 0x00, 0x08, 0x15}; //CLIENT_DISCONNECT packet 0x15
-        this.addEncapsulatedToQueue(EncapsulatedPacket.fromBinary(data), RakNet.PRIORITY_IMMEDIATE);
+        DataPacket packet = new DATA_PACKET_0();
+        packet.packets.add(EncapsulatedPacket.fromBinary(data).toBinary());
+        this.transmit(packet, System.currentTimeMillis()); //past the congestion window, nothing is sent after this
         this.sessionManager = null;
     }
+
+    /**
+     * The fragments of one split packet, kept until the last one arrives.
+     */
+    private static class SplitPacket {
+
+        private final byte[][] parts = new byte[MAX_SPLIT_SIZE][];
+        private int splitID;
+        private int count;
+        private int received;
+        private int length;
+
+        /**
+         * Stores a fragment and returns the joined packet once all fragments are there, or null until then.
+         */
+        private byte[] add(int index, byte[] part) {
+            if (this.parts[index] == null) {
+                ++this.received;
+            } else {
+                this.length -= this.parts[index].length;
+            }
+            this.parts[index] = part;
+            this.length += part.length;
+
+            if (this.received < this.count) {
+                return null;
+            }
+
+            byte[] buffer = new byte[this.length];
+            int offset = 0;
+            for (int i = 0; i < this.count; i++) {
+                System.arraycopy(this.parts[i], 0, buffer, offset, this.parts[i].length);
+                offset += this.parts[i].length;
+                this.parts[i] = null;
+            }
+            this.count = 0;
+            this.received = 0;
+            this.length = 0;
+            return buffer;
+        }
+    }
 }
@@ -1,24 +1,26 @@
 package cn.nukkit.raknet.server;
 
+import cn.nukkit.Server;
 import cn.nukkit.raknet.RakNet;
 import cn.nukkit.raknet.protocol.EncapsulatedPacket;
 import cn.nukkit.raknet.protocol.Packet;
 import cn.nukkit.raknet.protocol.packet.*;
-import cn.nukkit.utils.Binary;
 import cn.nukkit.utils.ThreadedLogger;
 
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.InetSocketAddress;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * author: MagicDroidX
  * Nukkit Project
  */
 public class SessionManager {
+    protected static final int MAX_SESSIONS = 4096;
+
     protected final Packet.PacketFactory[] packetPool = new Packet.PacketFactory[256];
 
     protected RakNetServer server;
@@ -26,9 +28,9 @@ public class SessionManager {
     protected UDPServerSocket socket;
 
     protected int receiveBytes = 0;
-    protected int sendBytes = 0;
+    protected final AtomicLong sendBytes = new AtomicLong();
 
-    protected Map<String, Session> sessions = new HashMap<>();
+    protected SessionWorker[] workers;
 
     protected String name = "";
 
@@ -39,7 +41,7 @@ public class SessionManager {
     protected long ticks = 0;
     protected long lastMeasure;
 
-    protected Map<String, Long> block = new HashMap<>();
+    protected Map<String, Long> block = new ConcurrentHashMap<>();
     protected Map<String, Integer> ipSec = new HashMap<>();
 
     public boolean portChecking = true;
@@ -49,12 +51,22 @@ public class SessionManager {
     protected String currentSource = "";
 
     public SessionManager(RakNetServer server, UDPServerSocket socket) throws Exception {
+        this(server, socket, 1);
+    }
+
+    public SessionManager(RakNetServer server, UDPServerSocket socket, int threads) throws Exception {
         this.server = server;
         this.socket = socket;
         this.registerPackets();
 
         this.serverId = new Random().nextLong();
 
+        this.workers = new SessionWorker[Math.max(1, threads)];
+        for (int i = 0; i < this.workers.length; ++i) {
+            this.workers[i] = new SessionWorker(this, i, (MAX_SESSIONS + this.workers.length - 1) / this.workers.length);
+            this.workers[i].start();
+        }
+
         this.run();
     }
 
@@ -72,8 +84,14 @@ public class SessionManager {
 
     private void tickProcessor() throws Exception {
         this.lastMeasure = System.currentTimeMillis();
+        long nextTick = this.lastMeasure;
         while (!this.shutdown) {
-            long start = System.currentTimeMillis();
+            //wakes up as soon as a datagram arrives or the main thread queues something
+            long wait = nextTick - System.currentTimeMillis();
+            if (wait > 0) {
+                this.socket.waitForPacket(wait);
+            }
+
             int max = 5000;
             while (max > 0) {
                 try {
@@ -89,25 +107,20 @@ public class SessionManager {
                     // else ignore
                 }
             }
+            this.server.getInternalQueue().recordPeak();
+            this.server.clearWakeup();
             while (this.receiveStream()) ;
 
-            long time = System.currentTimeMillis() - start;
-            if (time < 50) {
-                try {
-                    Thread.sleep(50 - time);
-                } catch (InterruptedException e) {
-                    //ignore
-                }
+            long time = System.currentTimeMillis();
+            if (time >= nextTick) {
+                this.tick();
+                nextTick = time + 50;
             }
-            this.tick();
         }
     }
 
     private void tick() throws Exception {
         long time = System.currentTimeMillis();
-        for (Session session : new ArrayList<>(this.sessions.values())) {
-            session.update(time);
-        }
 
         for (String address : this.ipSec.keySet()) {
             int count = this.ipSec.get(address);
@@ -119,20 +132,17 @@ public class SessionManager {
 
         if ((this.ticks & 0b1111) == 0) {
             double diff = Math.max(5d, (double) time - this.lastMeasure);
-            this.streamOption("bandwidth", this.sendBytes / diff + ";" + this.receiveBytes / diff);
+            this.streamOption("bandwidth", this.sendBytes.getAndSet(0) / diff + ";" + this.receiveBytes / diff);
             this.lastMeasure = time;
-            this.sendBytes = 0;
             this.receiveBytes = 0;
 
             if (!this.block.isEmpty()) {
                 long now = System.currentTimeMillis();
                 for (String address : new ArrayList<>(this.block.keySet())) {
-                    long timeout = this.block.get(address);
-                    if (timeout <= now) {
+                    Long timeout = this.block.get(address);
+                    if (timeout != null && timeout <= now) {
                         this.block.remove(address);
                         this.getLogger().notice("Unblocked " + address);
-                    } else {
-                        break;
                     }
                 }
             }
@@ -165,7 +175,9 @@ public class SessionManager {
                 Packet packet = this.getPacketFromPool(pid);
                 if (packet != null) {
                     packet.buffer = buffer;
-                    this.getSession(source, port).handlePacket(packet);
+                    SessionWorker worker = this.getWorker(source + ":" + port);
+                    Packet sessionPacket = packet;
+                    worker.execute(() -> worker.handlePacket(source, port, sessionPacket));
                     return true;
                 } else if (pid == UNCONNECTED_PING.ID) {
                     packet = new UNCONNECTED_PING();
@@ -191,12 +203,12 @@ public class SessionManager {
 
     public void sendPacket(Packet packet, String dest, int port) throws IOException {
         packet.encode();
-        this.sendBytes += this.socket.writePacket(packet.buffer, dest, port);
+        this.sendBytes.addAndGet(this.socket.writePacket(packet.buffer, dest, port));
     }
 
     public void sendPacket(Packet packet, InetSocketAddress dest) throws IOException {
         packet.encode();
-        this.sendBytes += this.socket.writePacket(packet.buffer, dest);
+        this.sendBytes.addAndGet(this.socket.writePacket(packet.buffer, dest));
     }
 
     public void streamEncapsulated(Session session, EncapsulatedPacket packet) {
@@ -204,179 +216,99 @@ public class SessionManager {
     }
 
     public void streamEncapsulated(Session session, EncapsulatedPacket packet, int flags) {
-        String id = session.getAddress() + ":" + session.getPort();
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_ENCAPSULATED,
-                new byte[]{(byte) (id.length() & 0xff)},
-                id.getBytes(StandardCharsets.UTF_8),
-                new byte[]{(byte) (flags & 0xff)},
-                packet.toBinary(true)
-        );
-        this.server.pushThreadToMainPacket(buffer);
+        this.server.pushThreadToMainPacket(RakNetMessage.encapsulated(session.getHandle(), packet, flags));
     }
 
     public void streamRAW(String address, int port, byte[] payload) {
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_RAW,
-                new byte[]{(byte) (address.length() & 0xff)},
-                address.getBytes(StandardCharsets.UTF_8),
-                Binary.writeShort(port),
-                payload
-        );
-        this.server.pushThreadToMainPacket(buffer);
-    }
-
-    protected void streamClose(String identifier, String reason) {
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_CLOSE_SESSION,
-                new byte[]{(byte) (identifier.length() & 0xff)},
-                identifier.getBytes(StandardCharsets.UTF_8),
-                new byte[]{(byte) (reason.length() & 0xff)},
-                reason.getBytes(StandardCharsets.UTF_8)
-        );
-        this.server.pushThreadToMainPacket(buffer);
-    }
-
-    protected void streamInvalid(String identifier) {
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_INVALID_SESSION,
-                new byte[]{(byte) (identifier.length() & 0xff)},
-                identifier.getBytes(StandardCharsets.UTF_8)
-        );
-        this.server.pushThreadToMainPacket(buffer);
+        this.server.pushThreadToMainPacket(RakNetMessage.raw(address, port, payload));
+    }
+
+    protected void streamClose(int session, String reason) {
+        this.server.pushThreadToMainPacket(RakNetMessage.closeSession(session, reason));
+    }
+
+    protected void streamInvalid(int session) {
+        this.server.pushThreadToMainPacket(RakNetMessage.invalidSession(session));
     }
 
     protected void streamOpen(Session session) {
-        String identifier = session.getAddress() + ":" + session.getPort();
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_OPEN_SESSION,
-                new byte[]{(byte) (identifier.length() & 0xff)},
-                identifier.getBytes(StandardCharsets.UTF_8),
-                new byte[]{(byte) (session.getAddress().length() & 0xff)},
-                session.getAddress().getBytes(StandardCharsets.UTF_8),
-                Binary.writeShort(session.getPort()),
-                Binary.writeLong(session.getID())
-        );
-        this.server.pushThreadToMainPacket(buffer);
-    }
-
-    protected void streamACK(String identifier, int identifierACK) {
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_ACK_NOTIFICATION,
-                new byte[]{(byte) (identifier.length() & 0xff)},
-                identifier.getBytes(StandardCharsets.UTF_8),
-                Binary.writeInt(identifierACK)
-        );
-        this.server.pushThreadToMainPacket(buffer);
+        this.server.pushThreadToMainPacket(RakNetMessage.openSession(session.getHandle(), session.getAddress(), session.getPort(), session.getID()));
     }
 
-    protected void streamOption(String name, String value) {
-        byte[] buffer = Binary.appendBytes(
-                RakNet.PACKET_SET_OPTION,
-                new byte[]{(byte) (name.length() & 0xff)},
-                name.getBytes(StandardCharsets.UTF_8),
-                value.getBytes(StandardCharsets.UTF_8)
-        );
-        this.server.pushThreadToMainPacket(buffer);
-    }
-
-    private void checkSessions() {
-        int size = this.sessions.size();
-        if (size > 4096) {
-            List<String> keyToRemove = new ArrayList<>();
-            for (String i : this.sessions.keySet()) {
-                Session s = this.sessions.get(i);
-                if (s.isTemporal()) {
-                    keyToRemove.add(i);
-                    size--;
-                    if (size <= 4096) {
-                        break;
-                    }
-                }
-            }
+    protected void streamACK(int session, int identifierACK) {
+        this.server.pushThreadToMainPacket(RakNetMessage.ackNotification(session, identifierACK));
+    }
 
-            for (String i : keyToRemove) {
-                this.sessions.remove(i);
-            }
-        }
+    protected void streamStats(Session session) {
+        this.server.pushThreadToMainPacket(RakNetMessage.sessionStats(session.getHandle(), session.getRTT(), session.getBandwidth(), session.getSendBacklog()));
+    }
+
+    protected void streamOption(String name, String value) {
+        this.server.pushThreadToMainPacket(RakNetMessage.option(name, value));
     }
 
     public boolean receiveStream() throws Exception {
-        byte[] packet = this.server.readMainToThreadPacket();
-        if (packet != null && packet.length > 0) {
-            byte id = packet[0];
-            int offset = 1;
-            switch (id) {
+        RakNetMessage message = this.server.readMainToThreadPacket();
+        if (message != null) {
+            switch (message.type) {
                 case RakNet.PACKET_ENCAPSULATED:
-                    int len = packet[offset++];
-                    String identifier = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                    offset += len;
-                    if (this.sessions.containsKey(identifier)) {
-                        byte flags = packet[offset++];
-                        byte[] buffer = Binary.subBytes(packet, offset);
-                        this.sessions.get(identifier).addEncapsulatedToQueue(EncapsulatedPacket.fromBinary(buffer, true), flags);
-                    } else {
-                        this.streamInvalid(identifier);
-                    }
+                    int handle = message.session;
+                    EncapsulatedPacket packet = message.packet;
+                    int flags = message.flags;
+                    SessionWorker worker = this.getWorker(handle);
+                    worker.execute(() -> {
+                        Session session = worker.getSession(handle);
+                        if (session != null) {
+                            try {
+                                session.addEncapsulatedToQueue(packet, flags);
+                            } catch (Exception e) {
+                                Server.getInstance().getLogger().logException(e);
+                            }
+                        } else {
+                            this.streamInvalid(handle);
+                        }
+                    });
                     break;
                 case RakNet.PACKET_RAW:
-                    len = packet[offset++];
-                    String address = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                    offset += len;
-                    int port = Binary.readShort(Binary.subBytes(packet, offset, 2));
-                    offset += 2;
-                    byte[] payload = Binary.subBytes(packet, offset);
-                    this.socket.writePacket(payload, address, port);
+                    this.socket.writePacket(message.payload, message.address, message.port);
                     break;
                 case RakNet.PACKET_CLOSE_SESSION:
-                    len = packet[offset++];
-                    identifier = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                    if (this.sessions.containsKey(identifier)) {
-                        this.removeSession(this.sessions.get(identifier));
-                    } else {
-                        this.streamInvalid(identifier);
-                    }
+                    this.executeOnSession(message.session, true);
                     break;
                 case RakNet.PACKET_INVALID_SESSION:
-                    len = packet[offset++];
-                    identifier = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                    if (this.sessions.containsKey(identifier)) {
-                        this.removeSession(this.sessions.get(identifier));
-                    }
+                    this.executeOnSession(message.session, false);
                     break;
                 case RakNet.PACKET_SET_OPTION:
-                    len = packet[offset++];
-                    String name = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                    offset += len;
-                    String value = new String(Binary.subBytes(packet, offset), StandardCharsets.UTF_8);
-                    switch (name) {
+                    switch (message.name) {
                         case "name":
-                            this.name = value;
+                            this.name = message.value;
                             break;
                         case "portChecking":
-                            this.portChecking = Boolean.valueOf(value);
+                            this.portChecking = Boolean.valueOf(message.value);
                             break;
                         case "packetLimit":
-                            this.packetLimit = Integer.valueOf(value);
+                            this.packetLimit = Integer.valueOf(message.value);
                             break;
                     }
                     break;
                 case RakNet.PACKET_BLOCK_ADDRESS:
-                    len = packet[offset++];
-                    address = new String(Binary.subBytes(packet, offset, len), StandardCharsets.UTF_8);
-                    offset += len;
-                    int timeout = Binary.readInt(Binary.subBytes(packet, offset, 4));
-                    this.blockAddress(address, timeout);
+                    this.blockAddress(message.address, message.timeout);
                     break;
                 case RakNet.PACKET_SHUTDOWN:
-                    for (Session session : new ArrayList<>(this.sessions.values())) {
-                        this.removeSession(session);
+                    for (SessionWorker sessionWorker : this.workers) {
+                        sessionWorker.shutdown();
+                    }
+                    for (SessionWorker sessionWorker : this.workers) {
+                        sessionWorker.join();
                     }
 
                     this.socket.close();
                     this.shutdown = true;
                     break;
                 case RakNet.PACKET_EMERGENCY_SHUTDOWN:
+                    for (SessionWorker sessionWorker : this.workers) {
+                        sessionWorker.halt();
+                    }
                     this.shutdown = true;
                 default:
                     return false;
@@ -405,17 +337,41 @@ public class SessionManager {
         }
     }
 
-    public Session getSession(String ip, int port) {
-        String id = ip + ":" + port;
-        if (!this.sessions.containsKey(id)) {
-            this.checkSessions();
-            Session session = new Session(this, ip, port);
-            this.sessions.put(id, session);
+    public SessionWorker getWorker(String identifier) {
+        return this.workers[(identifier.hashCode() & 0x7fffffff) % this.workers.length];
+    }
 
-            return session;
-        }
+    /**
+     * The worker owning the session with this handle, see {@link Session#getHandle()}.
+     */
+    public SessionWorker getWorker(int handle) {
+        return this.workers[handle % this.workers.length];
+    }
+
+    /**
+     * Removes a session on its worker thread; invalid handles are reported back when {@code notifyInvalid} is set.
+     */
+    private void executeOnSession(int handle, boolean notifyInvalid) {
+        SessionWorker worker = this.getWorker(handle);
+        worker.execute(() -> {
+            Session session = worker.getSession(handle);
+            if (session != null) {
+                try {
+                    worker.removeSession(session, "unknown");
+                } catch (Exception e) {
+                    Server.getInstance().getLogger().logException(e);
+                }
+            } else if (notifyInvalid) {
+                this.streamInvalid(handle);
+            }
+        });
+    }
 
-        return this.sessions.get(id);
+    /**
+     * Must be called from the worker thread that owns the session, see {@link #getWorker(String)}.
+     */
+    public Session getSession(String ip, int port) {
+        return this.getWorker(ip + ":" + port).getSession(ip, port);
     }
 
     public void removeSession(Session session) throws Exception {
@@ -423,12 +379,7 @@ public class SessionManager {
     }
 
     public void removeSession(Session session, String reason) throws Exception {
-        String id = session.getAddress() + ":" + session.getPort();
-        if (this.sessions.containsKey(id)) {
-            this.sessions.get(id).close();
-            this.sessions.remove(id);
-            this.streamClose(id, reason);
-        }
+        this.getWorker(session.getAddress() + ":" + session.getPort()).removeSession(session, reason);
     }
 
     public void openSession(Session session) {
@@ -436,7 +387,7 @@ public class SessionManager {
     }
 
     public void notifyACK(Session session, int identifierACK) {
-        this.streamACK(session.getAddress() + ":" + session.getPort(), identifierACK);
+        this.streamACK(session.getHandle(), identifierACK);
     }
 
     public String getName() {
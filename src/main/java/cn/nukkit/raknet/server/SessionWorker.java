@@ -0,0 +1,178 @@
+package cn.nukkit.raknet.server;
+
+import cn.nukkit.Server;
+import cn.nukkit.raknet.protocol.Packet;
+import cn.nukkit.utils.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns a shard of the RakNet sessions.
+ * <p>
+ * The {@link SessionManager} hands every datagram and main thread message for a session to the worker the
+ * session's identifier hashes to, so a {@link Session} is only ever touched by one thread. The worker wakes as
+ * soon as work arrives and updates its sessions every {@link #TICK_INTERVAL} milliseconds.
+ */
+public class SessionWorker extends Thread {
+
+    public static final int TICK_INTERVAL = 10;
+
+    /**
+     * Tasks run before the sessions get a chance to update, so a flood cannot starve acknowledgements.
+     */
+    private static final int MAX_TASKS_PER_LOOP = 4096;
+
+    protected final SessionManager manager;
+
+    protected final Map<String, Session> sessions = new HashMap<>();
+
+    protected final LongObjectHashMap<Session> handles = new LongObjectHashMap<>();
+
+    protected final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+
+    protected final int maxSessions;
+
+    protected final int index;
+
+    //handles of this worker are index + n * number of workers, so SessionManager#getWorker(int) needs no lookup
+    private int nextHandle;
+
+    protected volatile boolean running = true;
+
+    public SessionWorker(SessionManager manager, int index, int maxSessions) {
+        super("RakNet Session Worker #" + index);
+        this.manager = manager;
+        this.maxSessions = maxSessions;
+        this.index = index;
+        this.nextHandle = index;
+        this.setDaemon(true);
+    }
+
+    public void execute(Runnable task) {
+        this.tasks.add(task);
+    }
+
+    @Override
+    public void run() {
+        long nextTick = System.currentTimeMillis();
+        while (this.running) {
+            try {
+                long wait = nextTick - System.currentTimeMillis();
+                Runnable task = wait > 0 ? this.tasks.poll(wait, TimeUnit.MILLISECONDS) : this.tasks.poll();
+                for (int i = 0; task != null && i < MAX_TASKS_PER_LOOP; ++i) {
+                    task.run();
+                    task = i + 1 < MAX_TASKS_PER_LOOP ? this.tasks.poll() : null;
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                Server.getInstance().getLogger().logException(e);
+            }
+
+            long time = System.currentTimeMillis();
+            if (time >= nextTick) {
+                this.tick(time);
+                nextTick = time + TICK_INTERVAL;
+            }
+        }
+    }
+
+    protected void tick(long time) {
+        for (Session session : new ArrayList<>(this.sessions.values())) {
+            try {
+                session.update(time);
+            } catch (Exception e) {
+                Server.getInstance().getLogger().logException(e);
+            }
+        }
+    }
+
+    public void handlePacket(String address, int port, Packet packet) {
+        try {
+            this.getSession(address, port).handlePacket(packet);
+        } catch (Exception e) {
+            this.manager.blockAddress(address);
+        }
+    }
+
+    public Session getSession(String identifier) {
+        return this.sessions.get(identifier);
+    }
+
+    public Session getSession(int handle) {
+        return this.handles.get(handle);
+    }
+
+    public Session getSession(String address, int port) {
+        String id = address + ":" + port;
+        Session session = this.sessions.get(id);
+        if (session == null) {
+            this.checkSessions();
+            session = new Session(this.manager, address, port, this.nextHandle());
+            this.sessions.put(id, session);
+            this.handles.put(session.getHandle(), session);
+        }
+        return session;
+    }
+
+    public void removeSession(Session session, String reason) throws Exception {
+        String id = session.getAddress() + ":" + session.getPort();
+        if (this.sessions.containsKey(id)) {
+            this.sessions.remove(id).close();
+            this.handles.remove(session.getHandle());
+            this.manager.streamClose(session.getHandle(), reason);
+        }
+    }
+
+    private int nextHandle() {
+        int handle = this.nextHandle;
+        this.nextHandle += this.manager.workers.length;
+        if (this.nextHandle < 0) {
+            this.nextHandle = this.index;
+        }
+        return handle;
+    }
+
+    private void checkSessions() {
+        int size = this.sessions.size();
+        if (size > this.maxSessions) {
+            for (String id : new ArrayList<>(this.sessions.keySet())) {
+                if (this.sessions.get(id).isTemporal()) {
+                    this.handles.remove(this.sessions.remove(id).getHandle());
+                    if (--size <= this.maxSessions) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes every session and stops the worker once the tasks queued so far have run.
+     */
+    public void shutdown() {
+        this.execute(() -> {
+            for (Session session : new ArrayList<>(this.sessions.values())) {
+                try {
+                    this.removeSession(session, "unknown");
+                } catch (Exception e) {
+                    Server.getInstance().getLogger().logException(e);
+                }
+            }
+            this.running = false;
+        });
+    }
+
+    /**
+     * Stops the worker without closing its sessions.
+     */
+    public void halt() {
+        this.running = false;
+        this.interrupt();
+    }
+}
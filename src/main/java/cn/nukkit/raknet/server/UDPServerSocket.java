@@ -9,7 +9,8 @@ import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
-import java.util.Arrays;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 
 /**
  * author: MagicDroidX
@@ -20,6 +21,12 @@ public class UDPServerSocket {
     protected DatagramChannel channel;
     protected ThreadedLogger logger;
     protected DatagramSocket socket;
+    protected Selector selector;
+
+    /**
+     * Reused for every receive; only the reading thread touches it.
+     */
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(65536);
 
     public UDPServerSocket(ThreadedLogger logger) {
         this(logger, 19132, "0.0.0.0");
@@ -39,6 +46,8 @@ public class UDPServerSocket {
             //this.socket = new DatagramSocket(new InetSocketAddress(interfaz, port));
             this.socket.setReuseAddress(true);
             this.setSendBuffer(1024 * 1024 * 8).setRecvBuffer(1024 * 1024 * 8);
+            this.selector = Selector.open();
+            this.channel.register(this.selector, SelectionKey.OP_READ);
         } catch (IOException e) {
             this.logger.critical("**** FAILED TO BIND TO " + interfaz + ":" + port + "!");
             this.logger.critical("Perhaps a server is already running on that port?");
@@ -52,21 +61,39 @@ public class UDPServerSocket {
 
     public void close() {
         this.socket.close();
+        try {
+            this.selector.close();
+        } catch (IOException e) {
+            //ignore
+        }
+    }
+
+    /**
+     * Blocks until a datagram can be read, {@link #wakeup()} is called or the timeout passes.
+     *
+     * @return whether a datagram is ready
+     */
+    public boolean waitForPacket(long timeout) throws IOException {
+        int ready = this.selector.select(timeout);
+        this.selector.selectedKeys().clear();
+        return ready > 0;
+    }
+
+    public void wakeup() {
+        this.selector.wakeup();
     }
 
     public DatagramPacket readPacket() throws IOException {
-        ByteBuffer buffer = ByteBuffer.allocate(65536);
-        InetSocketAddress socketAddress = (InetSocketAddress) this.channel.receive(buffer);
+        this.receiveBuffer.clear();
+        InetSocketAddress socketAddress = (InetSocketAddress) this.channel.receive(this.receiveBuffer);
         if (socketAddress == null) {
             return null;
         }
-        DatagramPacket packet = new DatagramPacket(new byte[buffer.position()], buffer.position());
-        packet.setAddress(socketAddress.getAddress());
-        packet.setPort(socketAddress.getPort());
-        packet.setLength(buffer.position());
-        packet.setData(Arrays.copyOf(buffer.array(), packet.getLength()));
+        this.receiveBuffer.flip();
+        byte[] data = new byte[this.receiveBuffer.remaining()];
+        this.receiveBuffer.get(data);
         //MainLogger.getLogger().debug(TextFormat.YELLOW + "In: " + Binary.bytesToHexString(packet.getData(), true));
-        return packet;
+        return new DatagramPacket(data, data.length, socketAddress);
         /*DatagramPacket packet = new DatagramPacket(new byte[65536], 65536);
 
         this.socket.receive(packet);
@@ -2,36 +2,100 @@ package cn.nukkit.scheduler;
 
 import cn.nukkit.Server;
 
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
+ * A fixed set of worker threads with one queue per {@link AsyncTask} priority.
+ * <p>
+ * Every worker takes the most urgent task it can find: its own pinned tasks first, then the head of its own queue,
+ * then the tail of the other workers' queues, one priority at a time. Submissions are appended to the tail, so a
+ * worker runs its own queue oldest first and no task waits behind a stream of newer ones. Tasks pinned to a worker with
+ * {@link #submitTask(Runnable, int)} are never taken by another worker.
+ * <p>
+ * Tasks are never run on the submitting thread, which is usually the main thread. {@link #getMaxQueued()} is a soft
+ * limit: producers that can wait, like pre-generation, check {@link #hasCapacity(int)} before they submit more.
+ * Submissions past the limit are still queued and counted in {@link TaskStats#getOverflows()}.
+ *
  * @author Nukkit Project Team
  */
 public class AsyncPool {
 
-    private final ThreadPoolExecutor pool;
+    public static final int PRIORITIES = 3;
+
+    private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(50);
+
     private final Server server;
     private final int size;
-    private final AtomicInteger currentThread;
+    private final Worker[] workers;
+    private final AtomicInteger[] queued = new AtomicInteger[PRIORITIES];
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final Map<Class<?>, TaskStats> stats = new ConcurrentHashMap<>();
+
+    private volatile int maxQueued = 4096;
 
     public AsyncPool(Server server, int size) {
-        this.currentThread = new AtomicInteger();
-        this.size = size;
-        this.pool = new ThreadPoolExecutor(size, Integer.MAX_VALUE,
-                60, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
-                runnable -> new Thread(runnable) {{
-                    setDaemon(true);
-                    setName(String.format("Nukkit Asynchronous Task Handler #%s", currentThread.incrementAndGet()));
-                }}
-        );
         this.server = server;
+        this.size = size;
+        for (int i = 0; i < PRIORITIES; ++i) {
+            this.queued[i] = new AtomicInteger();
+        }
+        this.workers = new Worker[size];
+        for (int i = 0; i < size; ++i) {
+            this.workers[i] = new Worker(i);
+        }
+        for (Worker worker : this.workers) {
+            worker.start();
+        }
     }
 
     public void submitTask(Runnable runnable) {
-        pool.execute(runnable);
+        this.submit(runnable, -1);
+    }
+
+    /**
+     * Runs the task on one specific worker, for tasks that set up or tear down per-thread state.
+     */
+    public void submitTask(Runnable runnable, int worker) {
+        this.submit(runnable, Math.floorMod(worker, this.size));
+    }
+
+    private void submit(Runnable runnable, int pin) {
+        Entry entry = new Entry(runnable, this.getStats(runnable.getClass()));
+        int priority = entry.priority;
+
+        if (this.queued[priority].incrementAndGet() > this.maxQueued) {
+            entry.stats.overflows.increment();
+        }
+        entry.stats.queued.incrementAndGet();
+
+        Worker target;
+        if (pin >= 0) {
+            target = this.workers[pin];
+            target.pinned[priority].offer(entry);
+        } else {
+            target = this.workers[Math.floorMod(this.nextWorker.getAndIncrement(), this.size)];
+            target.local[priority].offerLast(entry);
+        }
+
+        if (target.idle) {
+            LockSupport.unpark(target);
+        } else if (pin < 0) {
+            for (Worker worker : this.workers) {
+                if (worker.idle) {
+                    LockSupport.unpark(worker);
+                    break;
+                }
+            }
+        }
     }
 
     public Server getServer() {
@@ -42,4 +106,170 @@ public class AsyncPool {
         return size;
     }
 
+    /**
+     * Number of tasks of a priority waiting for a worker.
+     */
+    public int getQueued(int priority) {
+        return this.queued[priority].get();
+    }
+
+    public int getMaxQueued() {
+        return this.maxQueued;
+    }
+
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = Math.max(1, maxQueued);
+    }
+
+    /**
+     * Whether fewer than {@link #getMaxQueued()} tasks of this priority are waiting.
+     */
+    public boolean hasCapacity(int priority) {
+        return this.queued[priority].get() < this.maxQueued;
+    }
+
+    /**
+     * Queue depth and latency per task class.
+     */
+    public Map<Class<?>, TaskStats> getStats() {
+        return Collections.unmodifiableMap(this.stats);
+    }
+
+    private TaskStats getStats(Class<?> clazz) {
+        TaskStats stats = this.stats.get(clazz);
+        if (stats == null) {
+            stats = this.stats.computeIfAbsent(clazz, c -> new TaskStats());
+        }
+        return stats;
+    }
+
+    private Entry poll(Worker worker) {
+        for (int priority = 0; priority < PRIORITIES; ++priority) {
+            Entry entry = worker.pinned[priority].poll();
+            if (entry == null) {
+                entry = worker.local[priority].pollFirst();
+            }
+            for (int i = 1; entry == null && i < this.size; ++i) {
+                entry = this.workers[(worker.index + i) % this.size].local[priority].pollLast();
+            }
+            if (entry != null) {
+                this.queued[priority].decrementAndGet();
+                entry.stats.queued.decrementAndGet();
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    public static class TaskStats {
+
+        private final AtomicInteger queued = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder overflows = new LongAdder();
+        private final LongAdder waitTime = new LongAdder();
+        private final LongAdder runTime = new LongAdder();
+        private final AtomicLong maxWaitTime = new AtomicLong();
+
+        public int getQueued() {
+            return queued.get();
+        }
+
+        public long getCompleted() {
+            return completed.sum();
+        }
+
+        /**
+         * Tasks submitted while their queue already held {@link AsyncPool#getMaxQueued()} tasks.
+         */
+        public long getOverflows() {
+            return overflows.sum();
+        }
+
+        public double getAverageWaitMillis() {
+            long completed = this.getCompleted();
+            return completed > 0 ? waitTime.sum() / 1e6 / completed : 0;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitTime.get() / 1e6;
+        }
+
+        public double getAverageRunMillis() {
+            long completed = this.getCompleted();
+            return completed > 0 ? runTime.sum() / 1e6 / completed : 0;
+        }
+    }
+
+    private static class Entry {
+
+        private final Runnable task;
+        private final TaskStats stats;
+        private final int priority;
+        private final long submitTime = System.nanoTime();
+
+        private Entry(Runnable task, TaskStats stats) {
+            this.task = task;
+            this.stats = stats;
+            this.priority = task instanceof AsyncTask ? Math.min(Math.max(((AsyncTask) task).getPriority(), 0), PRIORITIES - 1) : AsyncTask.PRIORITY_NORMAL;
+        }
+
+        private void run() {
+            long start = System.nanoTime();
+            try {
+                this.task.run();
+            } catch (Exception e) {
+                Server.getInstance().getLogger().critical("Exception in asynchronous task " + this.task.getClass().getName() + ": " + e.getMessage());
+                Server.getInstance().getLogger().logException(e);
+            }
+            long end = System.nanoTime();
+            this.stats.completed.increment();
+            this.stats.waitTime.add(start - this.submitTime);
+            this.stats.runTime.add(end - start);
+            this.stats.maxWaitTime.accumulateAndGet(start - this.submitTime, Math::max);
+        }
+    }
+
+    private class Worker extends Thread {
+
+        private final int index;
+        private final Deque<Entry>[] pinned;
+        private final Deque<Entry>[] local;
+
+        private volatile boolean idle;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Worker(int index) {
+            this.index = index;
+            this.pinned = new Deque[PRIORITIES];
+            this.local = new Deque[PRIORITIES];
+            for (int i = 0; i < PRIORITIES; ++i) {
+                this.pinned[i] = new ConcurrentLinkedDeque<>();
+                this.local[i] = new ConcurrentLinkedDeque<>();
+            }
+            this.setDaemon(true);
+            this.setName("Nukkit Asynchronous Task Handler #" + (index + 1));
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Entry entry = poll(this);
+                if (entry != null) {
+                    entry.run();
+                    continue;
+                }
+
+                //announce first, then look again, so a submitter either sees us idle or we see its task
+                this.idle = true;
+                entry = poll(this);
+                if (entry == null) {
+                    LockSupport.parkNanos(this, IDLE_PARK);
+                }
+                this.idle = false;
+                if (entry != null) {
+                    entry.run();
+                }
+            }
+        }
+    }
 }
@@ -5,23 +5,50 @@ import cn.nukkit.utils.ThreadStore;
 
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Nukkit Project Team
  */
 public abstract class AsyncTask implements Runnable {
 
+    /**
+     * Network compression and chunk sends.
+     */
+    public static final int PRIORITY_HIGH = 0;
+    /**
+     * World generation and lighting, and anything that does not say otherwise.
+     */
+    public static final int PRIORITY_NORMAL = 1;
+    /**
+     * Disk writes.
+     */
+    public static final int PRIORITY_LOW = 2;
+
+    /**
+     * @deprecated finished tasks now wait in one queue per priority, so this queue stays empty. Tasks offered to
+     * it are still completed, after all others.
+     */
+    @Deprecated
     public static final Queue<AsyncTask> FINISHED_LIST = new ConcurrentLinkedQueue<>();
 
+    //finished tasks waiting for onCompletion, one queue per priority
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Queue<AsyncTask>[] FINISHED_QUEUES = new Queue[]{new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>()};
+    private static final AtomicInteger FINISHED_COUNT = new AtomicInteger();
+
     private Object result;
     private int taskId;
     private boolean finished = false;
+    private long finishTime;
 
     public void run() {
         this.result = null;
         this.onRun();
         this.finished = true;
-        FINISHED_LIST.offer(this);
+        this.finishTime = System.nanoTime();
+        FINISHED_QUEUES[Math.min(Math.max(this.getPriority(), PRIORITY_HIGH), PRIORITY_LOW)].offer(this);
+        FINISHED_COUNT.incrementAndGet();
     }
 
     public boolean isFinished() {
@@ -64,6 +91,13 @@ public abstract class AsyncTask implements Runnable {
 
     public abstract void onRun();
 
+    /**
+     * Which queue of the {@link AsyncPool} this task waits in; lower runs first.
+     */
+    public int getPriority() {
+        return PRIORITY_NORMAL;
+    }
+
     public void onCompletion(Server server) {
 
     }
@@ -75,9 +109,71 @@ public abstract class AsyncTask implements Runnable {
     }
 
     public static void collectTask() {
-        while (!FINISHED_LIST.isEmpty()) {
-            FINISHED_LIST.poll().onCompletion(Server.getInstance());
+        collectTask(Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs {@link #onCompletion(Server)} of finished tasks, most urgent priority first, until {@code budget}
+     * nanoseconds have passed. The oldest task of every priority is always completed so no queue starves;
+     * whatever is left waits for the next call.
+     */
+    public static void collectTask(long budget) {
+        long start = System.nanoTime();
+        for (Queue<AsyncTask> queue : FINISHED_QUEUES) {
+            AsyncTask task = queue.poll();
+            if (task != null) {
+                FINISHED_COUNT.decrementAndGet();
+                complete(task);
+            }
+        }
+        for (Queue<AsyncTask> queue : FINISHED_QUEUES) {
+            while (System.nanoTime() - start < budget) {
+                AsyncTask task = queue.poll();
+                if (task == null) {
+                    break;
+                }
+                FINISHED_COUNT.decrementAndGet();
+                complete(task);
+            }
+        }
+        while (System.nanoTime() - start < budget) {
+            AsyncTask task = FINISHED_LIST.poll();
+            if (task == null) {
+                break;
+            }
+            complete(task);
+        }
+    }
+
+    private static void complete(AsyncTask task) {
+        try {
+            task.onCompletion(Server.getInstance());
+        } catch (Exception e) {
+            Server.getInstance().getLogger().critical("Exception while completing " + task.getClass().getName() + ": " + e.getMessage());
+            Server.getInstance().getLogger().logException(e);
+        }
+    }
+
+    /**
+     * Number of finished tasks still waiting for {@link #onCompletion(Server)}.
+     */
+    public static int getCompletionBacklog() {
+        return FINISHED_COUNT.get();
+    }
+
+    /**
+     * How long the oldest finished task has been waiting for {@link #onCompletion(Server)}, in milliseconds.
+     */
+    public static double getOldestCompletionWait() {
+        long now = System.nanoTime();
+        long oldest = 0;
+        for (Queue<AsyncTask> queue : FINISHED_QUEUES) {
+            AsyncTask task = queue.peek();
+            if (task != null) {
+                oldest = Math.max(oldest, now - task.finishTime);
+            }
         }
+        return oldest / 1e6;
     }
 
 }
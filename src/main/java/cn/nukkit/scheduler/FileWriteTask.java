@@ -45,6 +45,11 @@ public class FileWriteTask extends AsyncTask {
         this.contents = contents;
     }
 
+    @Override
+    public int getPriority() {
+        return PRIORITY_LOW;
+    }
+
     @Override
     public void onRun() {
         try {
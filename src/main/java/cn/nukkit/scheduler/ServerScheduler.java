@@ -27,6 +27,8 @@ public class ServerScheduler {
 
     private volatile int currentTick;
 
+    private long completionBudget = 10000000;
+
     public ServerScheduler() {
         this.pending = new ConcurrentLinkedQueue<>();
         this.currentTaskId = new AtomicInteger();
@@ -51,9 +53,15 @@ public class ServerScheduler {
         return addTask(null, task, 0, 0, true);
     }
 
-    @Deprecated
+    /**
+     * Runs the task right away on one specific worker of the async pool.
+     */
     public void scheduleAsyncTaskToWorker(AsyncTask task, int worker) {
-        scheduleAsyncTask(task);
+        asyncPool.submitTask(task, worker);
+    }
+
+    public AsyncPool getAsyncPool() {
+        return asyncPool;
     }
 
     public int getAsyncTaskPoolSize() {
@@ -159,7 +167,7 @@ public class ServerScheduler {
     }
 
     private TaskHandler addTask(Task task, int delay, int period, boolean asynchronous) {
-        return addTask(task instanceof PluginTask ? ((PluginTask) task).getOwner() : null, () -> task.onRun(currentTick + delay), delay, period, asynchronous);
+        return addTask(task instanceof PluginTask ? ((PluginTask) task).getOwner() : null, task, delay, period, asynchronous);
     }
 
     private TaskHandler addTask(Plugin plugin, Runnable task, int delay, int period, boolean asynchronous) {
@@ -171,6 +179,9 @@ public class ServerScheduler {
         }
 
         TaskHandler taskHandler = new TaskHandler(plugin, "Unknown", task, nextTaskId(), asynchronous);
+        if (task instanceof Task) {
+            ((Task) task).setHandler(taskHandler);
+        }
         taskHandler.setDelay(delay);
         taskHandler.setPeriod(period);
         taskHandler.setNextRunTick(taskHandler.isDelayed() ? currentTick + taskHandler.getDelay() : currentTick);
@@ -194,7 +205,7 @@ public class ServerScheduler {
                 taskMap.remove(taskHandler.getTaskId());
                 continue;
             } else if (taskHandler.isAsynchronous()) {
-                asyncPool.submitTask(taskHandler.getTask());
+                asyncPool.submitTask(taskHandler.getTask() instanceof Task ? () -> taskHandler.run(currentTick) : taskHandler.getTask());
             } else {
                 try {
                     taskHandler.run(currentTick);
@@ -207,15 +218,22 @@ public class ServerScheduler {
                 taskHandler.setNextRunTick(currentTick + taskHandler.getPeriod());
                 pending.offer(taskHandler);
             } else {
-            	try {
-            		taskMap.remove(taskHandler.getTaskId()).cancel();
-            	}
-            	catch (RuntimeException ex) {
-            		Server.getInstance().getLogger().critical("Exception while invoking onCancel", ex);
-            	}
+                taskMap.remove(taskHandler.getTaskId());
+                taskHandler.finish();
             }
         }
-        AsyncTask.collectTask();
+        AsyncTask.collectTask(this.completionBudget);
+    }
+
+    /**
+     * Nanoseconds per tick spent on {@link AsyncTask#onCompletion}; the rest carries over to the next tick.
+     */
+    public long getCompletionBudget() {
+        return completionBudget;
+    }
+
+    public void setCompletionBudget(long completionBudget) {
+        this.completionBudget = completionBudget;
     }
 
     public int getQueueSize() {
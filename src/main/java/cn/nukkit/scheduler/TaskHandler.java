@@ -2,6 +2,8 @@ package cn.nukkit.scheduler;
 
 import cn.nukkit.Server;
 import cn.nukkit.plugin.Plugin;
+import cn.nukkit.timings.Timing;
+import cn.nukkit.timings.Timings;
 
 /**
  * author: MagicDroidX
@@ -24,6 +26,8 @@ public class TaskHandler {
 
     private boolean cancelled;
 
+    private Timing timing;
+
     public TaskHandler(Plugin plugin, String timingName, Runnable task, int taskId, boolean asynchronous) {
         this.asynchronous = asynchronous;
         this.plugin = plugin;
@@ -92,14 +96,43 @@ public class TaskHandler {
         this.cancelled = true;
     }
 
+    /**
+     * Marks a one-shot task that has run as done. Unlike {@link #cancel()} this does not call {@link Task#onCancel()}.
+     */
+    void finish() {
+        this.cancelled = true;
+    }
+
     public void run(int currentTick) {
+        boolean timed = Timings.isTimingsEnabled();
+        if (timed) {
+            this.getTiming().startTiming();
+        }
     	try {
 	        setLastRunTick(currentTick);
-	        getTask().run();
+	        if (this.task instanceof Task) {
+	            ((Task) this.task).onRun(currentTick);
+	        } else {
+	            this.task.run();
+	        }
     	}
     	catch (RuntimeException ex) {
     		Server.getInstance().getLogger().critical("Exception while invoking run", ex);
-    	}
+    	} finally {
+            if (timed) {
+                this.timing.stopTiming();
+            }
+        }
+    }
+
+    /**
+     * The timer of this task, looked up on first use so scheduling stays cheap while timings are off.
+     */
+    public Timing getTiming() {
+        if (this.timing == null) {
+            this.timing = Timings.getTaskTiming(this);
+        }
+        return this.timing;
     }
 
     public String getTaskName() {
@@ -0,0 +1,30 @@
+package cn.nukkit.timings;
+
+import cn.nukkit.level.Level;
+
+/**
+ * Timers for the phases of {@link Level#doTick(int)}.
+ */
+public class LevelTimings {
+
+    public final Timing doTick;
+    public final Timing blockUpdates;
+    public final Timing entityTick;
+    public final Timing blockEntityTick;
+    public final Timing tickChunks;
+    public final Timing lightUpdates;
+    public final Timing sendChangedBlocks;
+    public final Timing chunkSends;
+
+    public LevelTimings(Level level) {
+        String prefix = "Level: " + level.getFolderName() + " - ";
+        this.doTick = Timings.getTiming(prefix + "Tick");
+        this.blockUpdates = Timings.getTiming(prefix + "Scheduled Block Updates");
+        this.entityTick = Timings.getTiming(prefix + "Entity Tick");
+        this.blockEntityTick = Timings.getTiming(prefix + "Block Entity Tick");
+        this.tickChunks = Timings.getTiming(prefix + "Tick Chunks");
+        this.lightUpdates = Timings.getTiming(prefix + "Light Updates");
+        this.sendChangedBlocks = Timings.getTiming(prefix + "Send Changed Blocks");
+        this.chunkSends = Timings.getTiming(prefix + "Chunk Sends");
+    }
+}
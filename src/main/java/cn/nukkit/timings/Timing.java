@@ -0,0 +1,78 @@
+package cn.nukkit.timings;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named nanosecond timer.
+ * <p>
+ * {@link #startTiming()} and {@link #stopTiming()} only read a volatile flag while {@link Timings} is disabled.
+ * While enabled each thread keeps its own start time, so one timer may be used by several levels ticking in
+ * parallel, and nested starts on the same thread are counted once.
+ */
+public class Timing {
+
+    private final String name;
+
+    private final LongAdder totalTime = new LongAdder();
+    private final LongAdder count = new LongAdder();
+    private final AtomicLong maxTime = new AtomicLong();
+
+    //start time, nesting depth and the recording it belongs to
+    private final ThreadLocal<long[]> state = ThreadLocal.withInitial(() -> new long[3]);
+
+    Timing(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void startTiming() {
+        if (Timings.isTimingsEnabled()) {
+            long[] state = this.state.get();
+            long recording = Timings.getRecording();
+            if (state[2] != recording) {
+                state[1] = 0;
+                state[2] = recording;
+            }
+            if (state[1]++ == 0) {
+                state[0] = System.nanoTime();
+            }
+        }
+    }
+
+    public void stopTiming() {
+        if (Timings.isTimingsEnabled()) {
+            long[] state = this.state.get();
+            if (state[2] == Timings.getRecording() && state[1] > 0 && --state[1] == 0) {
+                this.record(System.nanoTime() - state[0]);
+            }
+        }
+    }
+
+    void record(long time) {
+        this.totalTime.add(time);
+        this.count.increment();
+        this.maxTime.accumulateAndGet(time, Math::max);
+    }
+
+    void reset() {
+        this.totalTime.reset();
+        this.count.reset();
+        this.maxTime.set(0);
+    }
+
+    public long getTotalTime() {
+        return this.totalTime.sum();
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public long getMaxTime() {
+        return this.maxTime.get();
+    }
+}
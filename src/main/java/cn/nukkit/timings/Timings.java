@@ -0,0 +1,147 @@
+package cn.nukkit.timings;
+
+import cn.nukkit.entity.Entity;
+import cn.nukkit.event.Event;
+import cn.nukkit.event.Listener;
+import cn.nukkit.plugin.EventExecutor;
+import cn.nukkit.plugin.MethodEventExecutor;
+import cn.nukkit.plugin.Plugin;
+import cn.nukkit.scheduler.TaskHandler;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of all {@link Timing}s and the switch that turns recording on and off.
+ */
+public class Timings {
+
+    private static final Map<String, Timing> timings = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Timing> entityTimings = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled = false;
+    private static volatile long recording = 0;
+    private static long recordingStart = 0;
+
+    public static final Timing fullServerTickTimer = getTiming("Full Server Tick");
+    public static final Timing networkTimer = getTiming("Network Processing");
+    public static final Timing schedulerTimer = getTiming("Scheduler");
+    public static final Timing levelTickTimer = getTiming("Level Tick");
+    public static final Timing playerNetworkTimer = getTiming("Player Network");
+
+    public static boolean isTimingsEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns recording on or off. Turning it on discards everything recorded before.
+     */
+    public static void setTimingsEnabled(boolean enable) {
+        if (enable && !enabled) {
+            reset();
+        }
+        enabled = enable;
+    }
+
+    public static void reset() {
+        for (Timing timing : timings.values()) {
+            timing.reset();
+        }
+        ++recording;
+        recordingStart = System.nanoTime();
+    }
+
+    static long getRecording() {
+        return recording;
+    }
+
+    public static Timing getTiming(String name) {
+        return timings.computeIfAbsent(name, Timing::new);
+    }
+
+    public static Timing getEntityTiming(Class<? extends Entity> clazz) {
+        return entityTimings.computeIfAbsent(clazz, c -> getTiming("Entity Tick: " + c.getSimpleName()));
+    }
+
+    public static Timing getTaskTiming(TaskHandler handler) {
+        Runnable task = handler.getTask();
+        String owner = handler.getPlugin() != null ? handler.getPlugin().getName() : "Nukkit";
+        return getTiming("Task: " + owner + " " + (task != null ? task.getClass().getName() : handler.getTaskName()) +
+                (handler.isAsynchronous() ? " (async)" : ""));
+    }
+
+    public static Timing getPluginEventTiming(Class<? extends Event> event, Listener listener, EventExecutor executor, Plugin plugin) {
+        String handler = listener.getClass().getName();
+        if (executor instanceof MethodEventExecutor) {
+            handler += "::" + ((MethodEventExecutor) executor).getMethod().getName();
+        }
+        return getTiming("Plugin: " + plugin.getName() + " Event: " + handler + "(" + event.getSimpleName() + ")");
+    }
+
+    /**
+     * Writes what was recorded so far to {@code timings-<date>.json} and {@code .html} in {@code folder}.
+     *
+     * @return the JSON report
+     */
+    public static File export(File folder) throws IOException {
+        long length = Math.max(1, System.nanoTime() - recordingStart);
+        long ticks = Math.max(1, fullServerTickTimer.getCount());
+
+        List<Timing> sorted = new ArrayList<>();
+        for (Timing timing : timings.values()) {
+            if (timing.getCount() > 0) {
+                sorted.add(timing);
+            }
+        }
+        sorted.sort(Comparator.comparingLong(Timing::getTotalTime).reversed());
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        StringBuilder rows = new StringBuilder();
+        for (Timing timing : sorted) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", timing.getName());
+            entry.put("count", timing.getCount());
+            entry.put("totalMs", timing.getTotalTime() / 1e6);
+            entry.put("avgMs", timing.getTotalTime() / 1e6 / timing.getCount());
+            entry.put("maxMs", timing.getMaxTime() / 1e6);
+            entry.put("msPerTick", timing.getTotalTime() / 1e6 / ticks);
+            entry.put("percent", timing.getTotalTime() * 100d / length);
+            entries.add(entry);
+
+            rows.append("<tr><td>").append(escape(timing.getName())).append("</td>");
+            for (Object value : new ArrayList<>(entry.values()).subList(1, entry.size())) {
+                rows.append("<td>").append(value instanceof Double ? String.format("%.4f", (Double) value) : value).append("</td>");
+            }
+            rows.append("</tr>\n");
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("lengthSeconds", length / 1e9);
+        report.put("ticks", fullServerTickTimer.getCount());
+        report.put("timings", entries);
+
+        folder.mkdirs();
+        String name = "timings-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File json = new File(folder, name + ".json");
+        Files.write(json.toPath(), new GsonBuilder().setPrettyPrinting().create().toJson(report).getBytes(StandardCharsets.UTF_8));
+
+        String html = "<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>" + name + "</title></head><body>\n" +
+                "<p>" + String.format("%.2f", length / 1e9) + " s, " + fullServerTickTimer.getCount() + " ticks</p>\n" +
+                "<table border=\"1\" cellspacing=\"0\" cellpadding=\"3\">\n" +
+                "<tr><th>Name</th><th>Count</th><th>Total ms</th><th>Avg ms</th><th>Max ms</th><th>ms/tick</th><th>%</th></tr>\n" +
+                rows + "</table></body></html>\n";
+        Files.write(new File(folder, name + ".html").toPath(), html.getBytes(StandardCharsets.UTF_8));
+
+        return json;
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -235,6 +235,20 @@ public class Binary {
                 (bytes[3] & 0xff);
     }
 
+    public static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24) +
+                ((bytes[offset + 1] & 0xff) << 16) +
+                ((bytes[offset + 2] & 0xff) << 8) +
+                (bytes[offset + 3] & 0xff);
+    }
+
+    public static void writeInt(byte[] target, int offset, int i) {
+        target[offset] = (byte) ((i >>> 24) & 0xFF);
+        target[offset + 1] = (byte) ((i >>> 16) & 0xFF);
+        target[offset + 2] = (byte) ((i >>> 8) & 0xFF);
+        target[offset + 3] = (byte) (i & 0xFF);
+    }
+
     public static byte[] writeInt(int i) {
         return new byte[]{
                 (byte) ((i >>> 24) & 0xFF),
@@ -15,6 +15,8 @@ public class BinaryStream {
 
     public int offset;
     private byte[] buffer = new byte[32];
+    //the stream is buffer[start, count); start is only non-zero for views made by setBuffer(byte[], int, int)
+    private int start;
     private int count;
 
     private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
@@ -25,6 +27,15 @@ public class BinaryStream {
         this.count = 0;
     }
 
+    /**
+     * @param capacity bytes expected to be written, so the buffer does not have to grow
+     */
+    public BinaryStream(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 0)];
+        this.offset = 0;
+        this.count = 0;
+    }
+
     public BinaryStream(byte[] buffer) {
         this(buffer, 0);
     }
@@ -36,16 +47,37 @@ public class BinaryStream {
     }
 
     public void reset() {
-        this.buffer = new byte[32];
+        this.reset(32);
+    }
+
+    /**
+     * Starts over with an empty buffer of {@code capacity} bytes. The old buffer is left as it was, so anything
+     * still reading the previous contents is not disturbed.
+     */
+    public void reset(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 0)];
         this.offset = 0;
+        this.start = 0;
         this.count = 0;
     }
 
     public void setBuffer(byte[] buffer) {
         this.buffer = buffer;
+        this.start = 0;
         this.count = buffer == null ? -1 : buffer.length;
     }
 
+    /**
+     * Makes the stream a view of {@code length} bytes of {@code buffer} from {@code offset} on, without copying
+     * them. Offsets stay positions in {@code buffer}.
+     */
+    public void setBuffer(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.start = offset;
+        this.count = offset + length;
+    }
+
     public void setOffset(int offset) {
         this.offset = offset;
     }
@@ -55,11 +87,30 @@ public class BinaryStream {
     }
 
     public byte[] getBuffer() {
-        return Arrays.copyOf(buffer, count);
+        return this.start == 0 ? Arrays.copyOf(buffer, count) : Arrays.copyOfRange(buffer, start, count);
+    }
+
+    //for Zlib, which compresses the stream in place
+    byte[] array() {
+        return this.buffer;
+    }
+
+    int start() {
+        return this.start;
     }
 
     public int getCount() {
-        return count;
+        return count - start;
+    }
+
+    /**
+     * Copies the written bytes into {@code target} at {@code offset} without an intermediate array.
+     *
+     * @return the number of bytes copied
+     */
+    public int writeTo(byte[] target, int offset) {
+        System.arraycopy(this.buffer, this.start, target, offset, this.count - this.start);
+        return this.count - this.start;
     }
 
     public byte[] get() {
@@ -71,8 +122,14 @@ public class BinaryStream {
             this.offset = this.count - 1;
             return new byte[0];
         }
+        if (this.offset > this.count) {
+            throw new ArrayIndexOutOfBoundsException(this.offset);
+        }
+        //bytes past count belong to whatever follows a view, read them as zero
+        byte[] bytes = new byte[len];
+        System.arraycopy(this.buffer, this.offset, bytes, 0, Math.min(len, this.count - this.offset));
         this.offset += len;
-        return Arrays.copyOfRange(this.buffer, this.offset - len, this.offset);
+        return bytes;
     }
 
     public void put(byte[] bytes) {
@@ -183,6 +240,9 @@ public class BinaryStream {
     }
 
     public byte getSignedByte() {
+        if (this.offset >= this.count) {
+            throw new ArrayIndexOutOfBoundsException(this.offset);
+        }
         return this.buffer[this.offset++];
     }
 
@@ -195,6 +255,9 @@ public class BinaryStream {
     }
 
     public int getByte() {
+        if (this.offset >= this.count) {
+            throw new ArrayIndexOutOfBoundsException(this.offset);
+        }
         return this.buffer[this.offset++] & 0xff;
     }
 
@@ -289,7 +352,7 @@ public class BinaryStream {
     }
 
     public boolean feof() {
-        return this.offset < 0 || this.offset >= this.buffer.length;
+        return this.offset < 0 || this.offset >= this.count;
     }
 
     private void ensureCapacity(int minCapacity) {
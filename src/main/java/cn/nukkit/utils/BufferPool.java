@@ -0,0 +1,66 @@
+package cn.nukkit.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of scratch byte arrays in power-of-two sizes, for buffers that are filled, handed to one other place and
+ * then thrown away, like the uncompressed contents of a batch.
+ * <p>
+ * An array from {@link #acquire(int)} may be longer than asked for and holds stale data. Whoever ends up with it
+ * passes it to {@link #release(byte[])} once, and must not touch it afterwards.
+ */
+public abstract class BufferPool {
+
+    private static final int MIN_SHIFT = 12;
+    private static final int MAX_SHIFT = 22;
+
+    /**
+     * Arrays kept per size; more are left to the garbage collector.
+     */
+    private static final int MAX_RETAINED = 16;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Queue<byte[]>[] POOLS = new Queue[MAX_SHIFT - MIN_SHIFT + 1];
+    private static final AtomicInteger[] SIZES = new AtomicInteger[MAX_SHIFT - MIN_SHIFT + 1];
+
+    static {
+        for (int i = 0; i < POOLS.length; ++i) {
+            POOLS[i] = new ConcurrentLinkedQueue<>();
+            SIZES[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * An array of at least {@code size} bytes.
+     */
+    public static byte[] acquire(int size) {
+        int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1));
+        if (shift > MAX_SHIFT) {
+            return new byte[size];
+        }
+        byte[] buffer = POOLS[shift - MIN_SHIFT].poll();
+        if (buffer == null) {
+            return new byte[1 << shift];
+        }
+        SIZES[shift - MIN_SHIFT].decrementAndGet();
+        return buffer;
+    }
+
+    public static void release(byte[] buffer) {
+        int length = buffer.length;
+        if (Integer.bitCount(length) != 1) {
+            return;
+        }
+        int shift = Integer.numberOfTrailingZeros(length);
+        if (shift < MIN_SHIFT || shift > MAX_SHIFT) {
+            return;
+        }
+        if (SIZES[shift - MIN_SHIFT].incrementAndGet() > MAX_RETAINED) {
+            SIZES[shift - MIN_SHIFT].decrementAndGet();
+            return;
+        }
+        POOLS[shift - MIN_SHIFT].offer(buffer);
+    }
+}
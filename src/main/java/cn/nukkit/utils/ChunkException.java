@@ -8,4 +8,8 @@ public class ChunkException extends RuntimeException {
     public ChunkException(String message) {
         super(message);
     }
+
+    public ChunkException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
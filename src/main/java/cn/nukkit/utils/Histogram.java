@@ -0,0 +1,97 @@
+package cn.nukkit.utils;
+
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of non-negative long values, in the style of HdrHistogram.
+ * <p>
+ * Values below 32 are counted exactly, larger values in buckets no wider than 1/32 of their value, so every
+ * percentile is accurate to about 3% whatever its magnitude. Recording is meant for a single thread; readers on
+ * other threads may see a slightly stale picture.
+ */
+public class Histogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final long[] counts = new long[SUB_BUCKETS + (64 - SUB_BITS) * SUB_BUCKETS];
+
+    private long count;
+    private long total;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        ++this.counts[index(value)];
+        ++this.count;
+        this.total += value;
+        if (value < this.min) {
+            this.min = value;
+        }
+        if (value > this.max) {
+            this.max = value;
+        }
+    }
+
+    public void reset() {
+        Arrays.fill(this.counts, 0);
+        this.count = 0;
+        this.total = 0;
+        this.min = Long.MAX_VALUE;
+        this.max = 0;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public long getMin() {
+        return this.count > 0 ? this.min : 0;
+    }
+
+    public long getMax() {
+        return this.max;
+    }
+
+    public double getMean() {
+        return this.count > 0 ? (double) this.total / this.count : 0;
+    }
+
+    /**
+     * Smallest recorded bucket value that at least {@code percentile} percent of all values are at or below.
+     */
+    public long getPercentile(double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * this.count));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; ++i) {
+            seen += this.counts[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalent(i), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long highestEquivalent(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) >> SUB_BITS;
+        long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
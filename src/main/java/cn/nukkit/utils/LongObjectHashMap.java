@@ -0,0 +1,236 @@
+package cn.nukkit.utils;
+
+import java.util.*;
+
+/**
+ * An open-addressing hash map with primitive {@code long} keys, used for the packed
+ * chunk and block keys of {@link cn.nukkit.level.Level}.
+ * <p>
+ * Keys are never boxed. Null values are not permitted, and the {@link #values()} iterator
+ * does not support {@code remove()}; iterate over a {@link #keys()} snapshot when entries
+ * have to be removed while looping.
+ */
+public class LongObjectHashMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size = 0;
+    private int mask;
+    private int maxFill;
+    private int modCount = 0;
+
+    public LongObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongObjectHashMap(int expected) {
+        this.allocate(arraySize(expected));
+    }
+
+    public LongObjectHashMap(LongObjectHashMap<? extends V> map) {
+        this.keys = map.keys.clone();
+        this.values = map.values.clone();
+        this.size = map.size;
+        this.mask = map.mask;
+        this.maxFill = map.maxFill;
+    }
+
+    private static int arraySize(int expected) {
+        int needed = (int) Math.ceil(Math.max(2, expected) / LOAD_FACTOR);
+        int capacity = Integer.highestOneBit(needed);
+        return capacity < needed ? capacity << 1 : capacity;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.maxFill = Math.min(capacity - 1, (int) (capacity * LOAD_FACTOR));
+    }
+
+    private int indexOf(long key) {
+        int pos = mix(key) & this.mask;
+        while (this.values[pos] != null) {
+            if (this.keys[pos] == key) {
+                return pos;
+            }
+            pos = (pos + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return this.indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int pos = mix(key) & this.mask;
+        Object value;
+        while ((value = this.values[pos]) != null) {
+            if (this.keys[pos] == key) {
+                return (V) value;
+            }
+            pos = (pos + 1) & this.mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("LongObjectHashMap does not accept null values");
+        }
+
+        int pos = mix(key) & this.mask;
+        while (this.values[pos] != null) {
+            if (this.keys[pos] == key) {
+                V old = (V) this.values[pos];
+                this.values[pos] = value;
+                return old;
+            }
+            pos = (pos + 1) & this.mask;
+        }
+
+        this.keys[pos] = key;
+        this.values[pos] = value;
+        this.modCount++;
+        if (++this.size > this.maxFill) {
+            this.rehash(this.keys.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int pos = this.indexOf(key);
+        if (pos < 0) {
+            return null;
+        }
+        V old = (V) this.values[pos];
+        this.shiftKeys(pos);
+        this.size--;
+        this.modCount++;
+        return old;
+    }
+
+    public void clear() {
+        if (this.size > 0) {
+            Arrays.fill(this.values, null);
+            this.size = 0;
+            this.modCount++;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the keys currently in the map. Safe to iterate while the map is modified.
+     */
+    public long[] keys() {
+        long[] result = new long[this.size];
+        int i = 0;
+        for (int pos = 0; pos < this.values.length && i < result.length; ++pos) {
+            if (this.values[pos] != null) {
+                result[i++] = this.keys[pos];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Backward-shift deletion: closes the gap at {@code pos} so that later probes still find their keys.
+     */
+    private void shiftKeys(int pos) {
+        int last;
+        int slot;
+        while (true) {
+            pos = ((last = pos) + 1) & this.mask;
+            while (true) {
+                if (this.values[pos] == null) {
+                    this.values[last] = null;
+                    return;
+                }
+                slot = mix(this.keys[pos]) & this.mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & this.mask;
+            }
+            this.keys[last] = this.keys[pos];
+            this.values[last] = this.values[pos];
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        this.allocate(capacity);
+        for (int i = 0; i < oldValues.length; ++i) {
+            if (oldValues[i] != null) {
+                int pos = mix(oldKeys[i]) & this.mask;
+                while (this.values[pos] != null) {
+                    pos = (pos + 1) & this.mask;
+                }
+                this.keys[pos] = oldKeys[i];
+                this.values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Returns a live view of the values. Its iterator fails fast if the map is structurally modified.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private class ValueIterator implements Iterator<V> {
+        private int pos = -1;
+        private int remaining = size;
+        private final int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return this.remaining > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (this.expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (this.remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            while (values[++this.pos] == null) ;
+            this.remaining--;
+            return (V) values[this.pos];
+        }
+    }
+}
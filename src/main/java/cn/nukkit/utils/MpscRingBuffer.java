@@ -0,0 +1,135 @@
+package cn.nukkit.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free queue for many producer threads and a single consumer thread.
+ * <p>
+ * Every slot carries a sequence number that tells producers when it is free and the consumer when it is filled,
+ * so neither side ever takes a lock and a handoff costs one CAS on the producer side.
+ */
+public class MpscRingBuffer<E> {
+
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private volatile int peakSize;
+    private final AtomicLong stalls = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.buffer = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; ++i) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an element, or returns false if the buffer is full.
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            long position = this.tail.get();
+            int index = (int) position & this.mask;
+            long difference = this.sequences.get(index) - position;
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.buffer[index] = element;
+                    this.sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Adds an element, waiting for the consumer to make room if the buffer is full.
+     */
+    public void put(E element) {
+        if (this.offer(element)) {
+            return;
+        }
+        this.stalls.incrementAndGet();
+        for (int spins = 0; !this.offer(element); ++spins) {
+            if (spins < 64) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(10000);
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest element, or returns null if there is none. Only one thread may call this.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = this.head;
+        int index = (int) position & this.mask;
+        if (this.sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = (E) this.buffer[index];
+        this.buffer[index] = null;
+        this.sequences.lazySet(index, position + this.buffer.length);
+        this.head = position + 1;
+        return element;
+    }
+
+    public int size() {
+        long size = this.tail.get() - this.head;
+        return (int) Math.max(0, Math.min(size, this.buffer.length));
+    }
+
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    public int capacity() {
+        return this.buffer.length;
+    }
+
+    /**
+     * Largest size seen by {@link #recordPeak()} since the last {@link #resetPeak()}.
+     */
+    public int getPeakSize() {
+        return this.peakSize;
+    }
+
+    /**
+     * Samples the current size into {@link #getPeakSize()}; meant to be called by the consumer before it drains.
+     */
+    public void recordPeak() {
+        int size = this.size();
+        if (size > this.peakSize) {
+            this.peakSize = size;
+        }
+    }
+
+    public void resetPeak() {
+        this.peakSize = 0;
+    }
+
+    /**
+     * Times a producer found the buffer full and had to wait.
+     */
+    public long getStalls() {
+        return this.stalls.get();
+    }
+}
@@ -0,0 +1,127 @@
+package cn.nukkit.utils;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces the main thread at one tick every {@link #TICK_NANOS} on {@link System#nanoTime()}, parking in between.
+ * <p>
+ * When a tick overruns, {@link CatchUp} decides what happens to the ticks that were missed. The clock also keeps
+ * histograms of how long ticks take and how late they start.
+ */
+public class TickClock {
+
+    public static final long TICK_NANOS = 50000000;
+
+    public enum CatchUp {
+        /**
+         * Forget missed ticks and carry on from now.
+         */
+        SKIP,
+        /**
+         * Run missed ticks back to back, but forget anything beyond {@link #getMaxCatchUpTicks()} ticks.
+         */
+        COMPRESS,
+        /**
+         * Run every missed tick back to back, however far behind the server is.
+         */
+        FULL
+    }
+
+    private final Histogram tickDuration = new Histogram();
+    private final Histogram tickJitter = new Histogram();
+
+    private CatchUp catchUp = CatchUp.COMPRESS;
+    private int maxCatchUpTicks = 20;
+
+    private long nextTick;
+    private long tickStart;
+    private long skippedTicks;
+
+    public void start() {
+        this.nextTick = System.nanoTime();
+    }
+
+    /**
+     * Parks until the next tick is due and returns its start time.
+     */
+    public long awaitTick() {
+        long now;
+        while ((now = System.nanoTime()) < this.nextTick) {
+            LockSupport.parkNanos(this, this.nextTick - now);
+            if (Thread.interrupted()) {
+                now = System.nanoTime();
+                break;
+            }
+        }
+        this.tickJitter.record(now - this.nextTick);
+        this.tickStart = now;
+        return now;
+    }
+
+    /**
+     * Records the tick that started at the last {@link #awaitTick()} and schedules the next one.
+     */
+    public void tickFinished() {
+        long end = System.nanoTime();
+        this.tickDuration.record(end - this.tickStart);
+
+        this.nextTick += TICK_NANOS;
+        long behind = end - this.nextTick;
+        if (behind <= 0) {
+            return;
+        }
+
+        long limit;
+        switch (this.catchUp) {
+            case SKIP:
+                limit = 0;
+                break;
+            case COMPRESS:
+                limit = this.maxCatchUpTicks * TICK_NANOS;
+                break;
+            default:
+                return;
+        }
+        if (behind > limit) {
+            this.skippedTicks += (behind - limit) / TICK_NANOS;
+            this.nextTick = end - limit;
+        }
+    }
+
+    public CatchUp getCatchUp() {
+        return this.catchUp;
+    }
+
+    public void setCatchUp(CatchUp catchUp) {
+        this.catchUp = catchUp;
+    }
+
+    public int getMaxCatchUpTicks() {
+        return this.maxCatchUpTicks;
+    }
+
+    public void setMaxCatchUpTicks(int maxCatchUpTicks) {
+        this.maxCatchUpTicks = Math.max(0, maxCatchUpTicks);
+    }
+
+    /**
+     * Ticks given up on because of the catch-up policy.
+     */
+    public long getSkippedTicks() {
+        return this.skippedTicks;
+    }
+
+    /**
+     * How long each tick took, in nanoseconds.
+     */
+    public Histogram getTickDuration() {
+        return this.tickDuration;
+    }
+
+    /**
+     * How long after its due time each tick started, in nanoseconds.
+     */
+    public Histogram getTickJitter() {
+        return this.tickJitter;
+    }
+}
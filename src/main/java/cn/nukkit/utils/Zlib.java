@@ -1,49 +1,116 @@
 package cn.nukkit.utils;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.util.Arrays;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
 
-
+/**
+ * zlib compression helpers.
+ * <p>
+ * Each thread keeps one {@link Deflater}, one {@link Inflater} and a scratch output buffer, so a call only
+ * allocates the returned array. The offset/length overloads let callers compress part of a larger buffer
+ * without copying it out first.
+ */
 public abstract class Zlib {
 
+    /**
+     * Scratch buffers larger than this are not kept between calls.
+     */
+    private static final int MAX_RETAINED_BUFFER = 4 * 1024 * 1024;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[64 * 1024]);
+
     public static byte[] deflate(byte[] data) throws Exception {
         return deflate(data, Deflater.DEFAULT_COMPRESSION);
     }
 
     public static byte[] deflate(byte[] data, int level) throws Exception {
-        Deflater deflater = new Deflater(level);
+        return deflate(data, 0, data.length, level);
+    }
+
+    /**
+     * Compresses what was written to {@code stream} without copying it out first.
+     */
+    public static byte[] deflate(BinaryStream stream, int level) throws Exception {
+        return deflate(stream.array(), stream.start(), stream.getCount(), level);
+    }
+
+    public static byte[] deflate(byte[] data, int offset, int length, int level) throws Exception {
+        Deflater deflater = DEFLATER.get();
         deflater.reset();
-        deflater.setInput(data);
+        deflater.setLevel(level);
+        deflater.setInput(data, offset, length);
         deflater.finish();
-        ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length);
-        byte[] buf = new byte[1024];
+
+        byte[] buffer = BUFFER.get();
+        int size = 0;
         while (!deflater.finished()) {
-            int i = deflater.deflate(buf);
-            bos.write(buf, 0, i);
+            if (size == buffer.length) {
+                buffer = grow(buffer);
+            }
+            size += deflater.deflate(buffer, size, buffer.length - size);
         }
-        deflater.end();
-        return bos.toByteArray();
-    }
-
-    public static byte[] inflate(byte[] data) throws DataFormatException, IOException {
-        Inflater inflater = new Inflater();
-        inflater.setInput(data);
-        ByteArrayOutputStream o = new ByteArrayOutputStream(data.length);
-        byte[] buf = new byte[1024];
-        while (!inflater.finished()) {
-            int i = inflater.inflate(buf);
-            o.write(buf, 0, i);
+        deflater.reset();
+        return Arrays.copyOf(buffer, size);
+    }
+
+    public static byte[] inflate(byte[] data) throws DataFormatException {
+        return inflate(data, 0, data.length, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws DataFormatException if the data is corrupt or inflates to more than {@code maxSize} bytes; the
+     *                             output is never expanded past that limit
+     */
+    public static byte[] inflate(byte[] data, int maxSize) throws DataFormatException {
+        return inflate(data, 0, data.length, maxSize);
+    }
+
+    public static byte[] inflate(byte[] data, int offset, int length, int maxSize) throws DataFormatException {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(data, offset, length);
+
+        byte[] buffer = BUFFER.get();
+        int size = 0;
+        try {
+            while (!inflater.finished()) {
+                if (size == buffer.length) {
+                    if (size >= maxSize) {
+                        throw new DataFormatException("Inflated data exceeds " + maxSize + " bytes");
+                    }
+                    buffer = grow(buffer);
+                }
+
+                int read = inflater.inflate(buffer, size, Math.min(buffer.length, maxSize) - size);
+                if (read == 0) {
+                    if (inflater.finished()) {
+                        break;
+                    }
+                    if (size >= maxSize) {
+                        throw new DataFormatException("Inflated data exceeds " + maxSize + " bytes");
+                    }
+                    if (inflater.needsInput() || inflater.needsDictionary()) {
+                        throw new DataFormatException("Truncated zlib data");
+                    }
+                }
+                size += read;
+            }
+        } finally {
+            inflater.reset();
         }
-        inflater.end();
-        return o.toByteArray();
+        return Arrays.copyOf(buffer, size);
     }
 
-    public static byte[] inflate(byte[] data, int maxSize) throws DataFormatException, IOException {
-        return Binary.subBytes(inflate(data), 0, maxSize);
+    private static byte[] grow(byte[] buffer) {
+        byte[] grown = Arrays.copyOf(buffer, buffer.length << 1);
+        if (grown.length <= MAX_RETAINED_BUFFER) {
+            BUFFER.set(grown);
+        }
+        return grown;
     }
 
 }
-
@@ -0,0 +1,76 @@
+package cn.nukkit.raknet.protocol;
+
+import cn.nukkit.raknet.protocol.packet.ACK;
+import cn.nukkit.raknet.protocol.packet.NACK;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AcknowledgePacketTest {
+
+    private static AcknowledgePacket roundTrip(AcknowledgePacket packet, AcknowledgePacket into) {
+        packet.encode();
+        into.buffer = packet.buffer;
+        into.decode();
+        return into;
+    }
+
+    private static int records(AcknowledgePacket packet) {
+        return ((packet.buffer[1] & 0xff) << 8) | (packet.buffer[2] & 0xff);
+    }
+
+    @Test
+    public void empty() {
+        ACK ack = new ACK();
+        ACK decoded = (ACK) roundTrip(ack, new ACK());
+
+        assertEquals(0, records(ack));
+        assertEquals(3, ack.buffer.length);
+        assertArrayEquals(new int[0], decoded.packets);
+    }
+
+    @Test
+    public void singles() {
+        ACK ack = new ACK();
+        ack.packets = new int[]{1, 3, 5};
+        ACK decoded = (ACK) roundTrip(ack, new ACK());
+
+        assertEquals(ACK.ID, ack.buffer[0]);
+        assertEquals(3, records(ack));
+        assertEquals(3 + 3 * 4, ack.buffer.length);
+        assertArrayEquals(new int[]{1, 3, 5}, decoded.packets);
+    }
+
+    @Test
+    public void rangesAndSingles() {
+        NACK nack = new NACK();
+        nack.packets = new int[]{0, 1, 2, 3, 7, 10, 11};
+        NACK decoded = (NACK) roundTrip(nack, new NACK());
+
+        //0-3, 7, 10-11
+        assertEquals(3, records(nack));
+        assertEquals(3 + 7 + 4 + 7, nack.buffer.length);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 7, 10, 11}, decoded.packets);
+    }
+
+    @Test
+    public void unsortedInput() {
+        ACK ack = new ACK();
+        ack.packets = new int[]{9, 2, 8, 1, 0x7fffff, 3};
+        ACK decoded = (ACK) roundTrip(ack, new ACK());
+
+        //1-3, 8-9, 0x7fffff
+        assertEquals(3, records(ack));
+        assertArrayEquals(new int[]{1, 2, 3, 8, 9, 0x7fffff}, decoded.packets);
+    }
+
+    @Test
+    public void duplicatesCollapse() {
+        ACK ack = new ACK();
+        ack.packets = new int[]{4, 4, 5};
+        ACK decoded = (ACK) roundTrip(ack, new ACK());
+
+        assertEquals(1, records(ack));
+        assertArrayEquals(new int[]{4, 5}, decoded.packets);
+    }
+}
@@ -0,0 +1,109 @@
+package cn.nukkit.raknet.server;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SequenceWindowTest {
+
+    @Test
+    public void ignoresSequencesBeforeStart() {
+        SequenceWindow<String> window = new SequenceWindow<>(4, 10);
+        window.put(9, "old");
+
+        assertTrue(window.isEmpty());
+        assertNull(window.get(9));
+        assertNull(window.remove(9));
+    }
+
+    @Test
+    public void getOutsideWindowIsNull() {
+        SequenceWindow<String> window = new SequenceWindow<>(4, 0);
+        window.put(1, "a");
+
+        assertNull(window.get(2));
+        //slot of 1 + capacity is the same as that of 1
+        assertNull(window.get(5));
+        assertEquals("a", window.get(1));
+    }
+
+    @Test
+    public void pollMovesStartEvenOverGaps() {
+        SequenceWindow<String> window = new SequenceWindow<>(4, 0);
+        window.put(1, "b");
+
+        assertNull(window.peek());
+        assertNull(window.poll());
+        assertEquals(1, window.getStart());
+        assertEquals("b", window.poll());
+        assertEquals(2, window.getStart());
+        assertTrue(window.isEmpty());
+
+        //polling an empty window still moves on
+        assertNull(window.poll());
+        assertEquals(3, window.getStart());
+    }
+
+    @Test
+    public void firstSkipsEmptySlots() {
+        SequenceWindow<String> window = new SequenceWindow<>(8, 0);
+        window.put(3, "d");
+        window.put(5, "f");
+
+        assertEquals("d", window.first());
+        assertEquals(3, window.getStart());
+        window.remove(3);
+        assertEquals("f", window.first());
+        assertEquals(5, window.getStart());
+        window.remove(5);
+        assertNull(window.first());
+        assertEquals(6, window.getStart());
+    }
+
+    @Test
+    public void wrapsAroundTheArray() {
+        SequenceWindow<Integer> window = new SequenceWindow<>(4, 0);
+        for (int sequence = 0; sequence < 100; ++sequence) {
+            window.put(sequence, sequence);
+            if (sequence >= 2) {
+                assertEquals((Integer) (sequence - 2), window.poll());
+            }
+        }
+
+        assertEquals(2, window.size());
+        assertEquals(98, window.getStart());
+        assertEquals((Integer) 98, window.get(98));
+        assertEquals((Integer) 99, window.get(99));
+    }
+
+    @Test
+    public void growsWhileWrapped() {
+        SequenceWindow<Integer> window = new SequenceWindow<>(4, 0);
+        for (int sequence = 0; sequence < 3; ++sequence) {
+            window.put(sequence, sequence);
+            window.poll();
+        }
+        //start is 3, so the window already wraps past the end of the array
+        for (int sequence = 3; sequence < 20; ++sequence) {
+            window.put(sequence, sequence);
+        }
+
+        assertEquals(17, window.size());
+        for (int sequence = 3; sequence < 20; ++sequence) {
+            assertEquals((Integer) sequence, window.poll());
+        }
+        assertTrue(window.isEmpty());
+    }
+
+    @Test
+    public void putReplacesWithoutCountingTwice() {
+        SequenceWindow<String> window = new SequenceWindow<>(4, 0);
+        window.put(0, "a");
+        window.put(0, "b");
+
+        assertEquals(1, window.size());
+        assertEquals("b", window.remove(0));
+        assertNull(window.remove(0));
+        assertTrue(window.isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+package cn.nukkit.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BinaryStreamTest {
+
+    private static final byte[] BATCH = {9, 9, 1, 2, 3, 4, 5, 6, 7, 7};
+
+    @Test
+    public void viewReadsFromStart() {
+        BinaryStream stream = new BinaryStream();
+        stream.setBuffer(BATCH, 2, 6);
+
+        //offsets stay positions in the backing array
+        assertEquals(2, stream.getOffset());
+        assertEquals(6, stream.getCount());
+        assertEquals(1, stream.getByte());
+        assertArrayEquals(new byte[]{2, 3}, stream.get(2));
+        assertArrayEquals(new byte[]{4, 5, 6}, stream.get());
+        assertTrue(stream.feof());
+    }
+
+    @Test
+    public void viewGetBufferAndWriteTo() {
+        BinaryStream stream = new BinaryStream();
+        stream.setBuffer(BATCH, 2, 6);
+
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, stream.getBuffer());
+
+        byte[] target = new byte[8];
+        assertEquals(6, stream.writeTo(target, 1));
+        assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 5, 6, 0}, target);
+    }
+
+    @Test
+    public void viewReadsStopAtCount() {
+        BinaryStream stream = new BinaryStream();
+        stream.setBuffer(BATCH, 2, 6);
+        stream.setOffset(6);
+
+        //the bytes after the view belong to the next packet and must not be read
+        assertArrayEquals(new byte[]{5, 6, 0, 0}, stream.get(4));
+        assertTrue(stream.feof());
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void viewByteReadPastCountThrows() {
+        BinaryStream stream = new BinaryStream();
+        stream.setBuffer(BATCH, 2, 6);
+        stream.setOffset(8);
+        stream.getByte();
+    }
+
+    @Test
+    public void writeToCopiesWrittenBytesOnly() {
+        BinaryStream stream = new BinaryStream(64);
+        stream.putInt(0x01020304);
+        stream.putByte((byte) 5);
+
+        byte[] target = new byte[5];
+        assertEquals(5, stream.writeTo(target, 0));
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, target);
+        assertArrayEquals(target, stream.getBuffer());
+    }
+
+    @Test
+    public void resetLeavesOldBufferAlone() {
+        BinaryStream stream = new BinaryStream();
+        stream.setBuffer(BATCH, 2, 6);
+        stream.reset(4);
+
+        assertEquals(0, stream.getOffset());
+        assertEquals(0, stream.getCount());
+        stream.putByte((byte) 42);
+        stream.putInt(7);
+
+        assertArrayEquals(new byte[]{42, 0, 0, 0, 7}, stream.getBuffer());
+        assertArrayEquals(new byte[]{9, 9, 1, 2, 3, 4, 5, 6, 7, 7}, BATCH);
+        assertEquals(42, stream.getByte());
+        assertEquals(7, stream.getInt());
+        assertTrue(stream.feof());
+    }
+}
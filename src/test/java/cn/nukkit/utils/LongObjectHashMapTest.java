@@ -0,0 +1,109 @@
+package cn.nukkit.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LongObjectHashMapTest {
+
+    @Test
+    public void putGetAndReplace() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        assertNull(map.put(1L, "a"));
+        assertNull(map.put(-1L, "b"));
+        assertEquals("a", map.put(1L, "c"));
+
+        assertEquals(2, map.size());
+        assertEquals("c", map.get(1L));
+        assertEquals("b", map.get(-1L));
+        assertNull(map.get(2L));
+    }
+
+    @Test
+    public void zeroAndExtremeKeys() {
+        //a zero key must not be mistaken for an empty slot
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        assertFalse(map.containsKey(0L));
+        map.put(0L, "zero");
+        map.put(Long.MIN_VALUE, "min");
+        map.put(Long.MAX_VALUE, "max");
+
+        assertTrue(map.containsKey(0L));
+        assertEquals("zero", map.get(0L));
+        assertEquals("min", map.get(Long.MIN_VALUE));
+        assertEquals("max", map.get(Long.MAX_VALUE));
+
+        assertEquals("zero", map.remove(0L));
+        assertFalse(map.containsKey(0L));
+        assertEquals(2, map.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectsNullValues() {
+        new LongObjectHashMap<String>().put(1L, null);
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>(2);
+        for (long i = 0; i < 10000; ++i) {
+            map.put(i * 31, i);
+        }
+
+        assertEquals(10000, map.size());
+        for (long i = 0; i < 10000; ++i) {
+            assertEquals((Long) i, map.get(i * 31));
+        }
+    }
+
+    @Test
+    public void removeKeepsCollidingKeysReachable() {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        for (long i = 0; i < 1000; ++i) {
+            map.put(i, i);
+        }
+        for (long i = 0; i < 1000; i += 2) {
+            assertEquals((Long) i, map.remove(i));
+        }
+        assertNull(map.remove(0L));
+
+        assertEquals(500, map.size());
+        for (long i = 0; i < 1000; ++i) {
+            if (i % 2 == 0) {
+                assertNull(map.get(i));
+            } else {
+                assertEquals((Long) i, map.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void keysIsASnapshot() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        map.put(3L, "a");
+        map.put(7L, "b");
+        map.put(0L, "c");
+
+        long[] keys = map.keys();
+        for (long key : keys) {
+            map.remove(key);
+        }
+
+        Arrays.sort(keys);
+        assertArrayEquals(new long[]{0L, 3L, 7L}, keys);
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void clearEmptiesTheMap() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        map.put(5L, "a");
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertNull(map.get(5L));
+        assertEquals(0, map.values().size());
+    }
+}